@@ -9,11 +9,11 @@ Analyzes mutation distribution across all stages to identify:
 """
 
 import os
-import re
 from collections import defaultdict, Counter
-from pathlib import Path
 from datetime import datetime
 
+from mrup_log_records import iter_records
+
 class MutationAnalyzer:
     def __init__(self, log_dir="mrup_logs", output_file="mutation_analysis.md"):
         self.log_dir = log_dir
@@ -31,64 +31,30 @@ class MutationAnalyzer:
         """Add line to output buffer."""
         self.output_lines.append(text)
         
-    def parse_log_file(self, filepath):
-        """Parse a single log file and extract mutation information."""
-        with open(filepath, 'r', encoding='utf-8', errors='ignore') as f:
-            content = f.read()
-        
-        # Extract mutation pipeline section
-        pipeline_match = re.search(
-            r'STEP 3: Mutation Pipeline.*?(?=STEP 4:|STEP 3B:|$)', 
-            content, 
-            re.DOTALL
-        )
-        
-        if not pipeline_match:
+    def parse_record(self, record):
+        """Extract the mutation information of a single test case."""
+        mutations = record.get('mutations')
+        if not mutations:
             return None
         
-        pipeline = pipeline_match.group(0)
-        
-        # Extract Window Spec mutation
-        window_spec = "None"
-        if "PHASE 1: Window Spec Mutations" in pipeline:
-            if "✓ Applied:" in pipeline.split("PHASE 1:")[1].split("STAGE 1:")[0]:
-                match = re.search(r'PHASE 1:.*?✓ Applied: ([^\n]+)', pipeline, re.DOTALL)
-                if match:
-                    window_spec = match.group(1).strip()
-        
-        # Extract Identity mutation
-        identity = "None"
-        if "STAGE 1: Identity Wrapper Mutations" in pipeline:
-            if "✓ Applied:" in pipeline.split("STAGE 1:")[1].split("PHASE 3:")[0]:
-                match = re.search(r'STAGE 1:.*?✓ Applied: ([^\n]+)', pipeline, re.DOTALL)
-                if match:
-                    identity = match.group(1).strip()
-        
-        # Extract CASE WHEN mutation
-        case_when = "None"
-        if "PHASE 3: CASE WHEN Mutations" in pipeline:
-            match = re.search(r'PHASE 3:.*?✓ Applied: ([^\n]+)', pipeline, re.DOTALL)
-            if match:
-                case_when = match.group(1).strip()
-        
         return {
-            'window_spec': window_spec,
-            'identity': identity,
-            'case_when': case_when
+            'window_spec': mutations.get('window_spec', 'None'),
+            'identity': mutations.get('identity', 'None'),
+            'case_when': mutations.get('case_when', 'None')
         }
     
     def analyze_all_logs(self):
-        """Analyze all log files in the directory."""
-        log_files = list(Path(self.log_dir).glob("*.log"))
+        """Analyze all test cases in the log directory."""
+        records = list(iter_records(self.log_dir))
         
-        if not log_files:
+        if not records:
             self.write(f"❌ No log files found in {self.log_dir}/")
             return
         
-        print(f"📊 Analyzing {len(log_files)} log files...")
+        print(f"📊 Analyzing {len(records)} test cases...")
         
-        for log_file in log_files:
-            result = self.parse_log_file(log_file)
+        for record in records:
+            result = self.parse_record(record)
             if result:
                 self.total_queries += 1
                 self.stats['window_spec'][result['window_spec']] += 1
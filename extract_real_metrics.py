@@ -1,35 +1,24 @@
 #!/usr/bin/env python3
 """
 Extract real metrics from MRUP log files for Chapter 4
-Parses METRICS_* lines for accurate, trusted data
+Reads the structured fields of the test case records for accurate, trusted data
 """
 
-import re
 import json
-from pathlib import Path
 from collections import defaultdict, Counter
 
-def parse_metrics_line(line):
-    """Parse a METRICS_* line into a dictionary"""
-    match = re.match(r'METRICS_(\w+)\|(.*)\|', line)
-    if not match:
-        return None, {}
-    
-    metric_type = match.group(1)
-    params_str = match.group(2)
-    
-    params = {}
-    for param in params_str.split('|'):
-        if '=' in param:
-            key, value = param.split('=', 1)
-            params[key] = value
-    
-    return metric_type, params
+from mrup_log_records import iter_records
+
+def metric_str(value):
+    """Format a field value like in the METRICS_* lines (e.g., true instead of True)"""
+    if isinstance(value, bool):
+        return 'true' if value else 'false'
+    return str(value)
 
 def extract_from_logs(log_dir="mrup_logs"):
-    """Extract all metrics from log files"""
-    log_files = list(Path(log_dir).glob("*.log"))
-    print(f"📖 Found {len(log_files)} log files")
+    """Extract all metrics from the test case records"""
+    records = list(iter_records(log_dir))
+    print(f"📖 Found {len(records)} test cases")
     
     metrics = {
         'total_tests': 0,
@@ -41,59 +30,36 @@ def extract_from_logs(log_dir="mrup_logs"):
         'timing': []
     }
     
-    for log_file in log_files:
-        try:
-            with open(log_file, 'r', encoding='utf-8', errors='ignore') as f:
-                content = f.read()
-        except Exception as e:
-            print(f"⚠️  Skipping {log_file.name}: {e}")
-            continue
-        
+    for record in records:
         metrics['total_tests'] += 1
         
-        for line in content.split('\n'):
-            # Parse METRICS_* lines
-            if line.startswith('METRICS_'):
-                metric_type, params = parse_metrics_line(line)
-                
-                if metric_type == 'SCHEMA':
-                    for key, val in params.items():
-                        metrics['schema'][key] += int(val) if val.isdigit() else 0
-                
-                elif metric_type == 'MUTATIONS':
-                    window_spec = params.get('window_spec', 'None')
-                    identity = params.get('identity', 'None')
-                    case_when = params.get('case_when', 'None')
-                    
-                    metrics['mutations']['window_spec_' + window_spec] += 1
-                    metrics['mutations']['identity_' + identity] += 1
-                    metrics['mutations']['case_when_' + case_when] += 1
-                
-                elif metric_type == 'QUERY':
-                    for key, val in params.items():
-                        metrics['queries'][key + '_' + val] += 1
-                
-                elif metric_type == 'COMPARATOR':
-                    for key, val in params.items():
-                        if val == 'true':
-                            metrics['comparator'][key + '_pass'] += 1
-                        elif val == 'false':
-                            metrics['comparator'][key + '_fail'] += 1
-                
-                elif metric_type == 'TIMING':
-                    duration = params.get('duration_ms', '0')
-                    if duration.isdigit():
-                        metrics['timing'].append(int(duration))
-            
-            # Parse human-readable constraint verification lines
-            elif '[C' in line and (': ✓ PASS' in line or ': ✗ FAIL' in line):
-                constraint_match = re.match(r'\s*\[C(\d)\].*: ([✓✗]) (PASS|FAIL)', line)
-                if constraint_match:
-                    constraint_num = constraint_match.group(1)
-                    status = constraint_match.group(3)  # PASS or FAIL
-                    metrics['constraints'][f'C{constraint_num}_{status}'] += 1
-    
-    return metrics, log_files
+        for key, val in record.get('schema', {}).items():
+            if isinstance(val, int):
+                metrics['schema'][key] += val
+        
+        mutations = record.get('mutations')
+        if mutations:
+            metrics['mutations']['window_spec_' + mutations.get('window_spec', 'None')] += 1
+            metrics['mutations']['identity_' + mutations.get('identity', 'None')] += 1
+            metrics['mutations']['case_when_' + mutations.get('case_when', 'None')] += 1
+        
+        for key, val in record.get('query', {}).items():
+            metrics['queries'][key + '_' + metric_str(val)] += 1
+        
+        for key, val in record.get('comparator', {}).items():
+            if val is True:
+                metrics['comparator'][key + '_pass'] += 1
+            elif val is False:
+                metrics['comparator'][key + '_fail'] += 1
+        
+        for key, val in record.get('constraints', {}).items():
+            if isinstance(val, bool):
+                metrics['constraints'][f'{key}_' + ('PASS' if val else 'FAIL')] += 1
+        
+        if 'duration_ms' in record:
+            metrics['timing'].append(int(record['duration_ms']))
+    
+    return metrics, records
 
 def calculate_chapter4_values(metrics):
     """Calculate all values needed for Chapter 4 tables"""
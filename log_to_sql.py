@@ -2,8 +2,12 @@
 """
 Convert MRUP log file to standalone SQL reproduction script.
 Usage: python3 log_to_sql.py <log_file>
+
+The log file is either a test case record extracted by mrup_log_records.py
+(<id>.json) or a human-readable .log file of an older run.
 """
 
+import json
 import sys
 import re
 from pathlib import Path
@@ -35,6 +39,45 @@ def extract_table_data(content, table_marker, num_columns):
     
     return rows
 
+def read_record(record):
+    """Extract table names, schema, queries and table data from a test case record."""
+    tables = record.get('tables', {})
+    queries = record.get('queries', {})
+    schema = record.get('schema', {}).get('columns', 'dept TEXT, salary INT, age INT')
+    t1_rows = [tuple('NULL' if val is None else val for val in row) for row in tables.get('t1_data', [])]
+    t2_rows = [tuple('NULL' if val is None else val for val in row) for row in tables.get('t2_data', [])]
+    return (tables.get('t1', 't1'), tables.get('t2', 't2'), schema,
+            queries.get('q1', ''), queries.get('q2', ''), queries.get('q_union', ''), t1_rows, t2_rows)
+
+def read_log(content):
+    """Extract table names, schema, queries and table data from a human-readable log."""
+    # Extract table names
+    t1_match = re.search(r'Table t1 \(([^)]+)\)', content)
+    t2_match = re.search(r'Table t2 \(([^)]+)\)', content)
+    t1_name = t1_match.group(1) if t1_match else 't1'
+    t2_name = t2_match.group(1) if t2_match else 't2'
+    
+    # Extract schema
+    schema_match = re.search(r'📋 Schema.*?:\n\s*(.+)', content)
+    schema = schema_match.group(1).strip() if schema_match else 'dept TEXT, salary INT, age INT'
+    
+    # Count number of columns from schema
+    num_columns = len([col.strip() for col in schema.split(',') if col.strip()])
+    
+    # Extract queries
+    q1_match = re.search(r'📝 Q1.*?:\n\s*(.+)', content)
+    q2_match = re.search(r'📝 Q2.*?:\n\s*(.+)', content)
+    qunion_match = re.search(r'📝 Q_union.*?:\n\s*(.+)', content)
+    
+    q1 = q1_match.group(1).strip() if q1_match else ''
+    q2 = q2_match.group(1).strip() if q2_match else ''
+    q_union = qunion_match.group(1).strip() if qunion_match else ''
+    
+    # Extract table data
+    t1_rows = extract_table_data(content, '📊 Table t1', num_columns)
+    t2_rows = extract_table_data(content, '📊 Table t2', num_columns)
+    return t1_name, t2_name, schema, q1, q2, q_union, t1_rows, t2_rows
+
 def format_value(val):
     """Format a value for SQL INSERT."""
     # Check for NULL representation (case-insensitive, with or without angle brackets)
@@ -58,7 +101,7 @@ def format_value(val):
 def main():
     if len(sys.argv) < 2:
         print("Usage: python3 log_to_sql.py <mrup_log_file>")
-        print("Example: python3 log_to_sql.py mrup_logs/mrup_20251210_075620_708.log")
+        print("Example: python3 log_to_sql.py mrup_logs/mrup_20251210_075620_708_42.json")
         sys.exit(1)
     
     log_file = Path(sys.argv[1])
@@ -74,31 +117,10 @@ def main():
     test_id = log_file.stem
     output_file = f"reproduction_{test_id}.sql"
     
-    # Extract table names
-    t1_match = re.search(r'Table t1 \(([^)]+)\)', content)
-    t2_match = re.search(r'Table t2 \(([^)]+)\)', content)
-    t1_name = t1_match.group(1) if t1_match else 't1'
-    t2_name = t2_match.group(1) if t2_match else 't2'
-    
-    # Extract schema
-    schema_match = re.search(r'📋 Schema.*?:\n\s*(.+)', content)
-    schema = schema_match.group(1).strip() if schema_match else 'dept TEXT, salary INT, age INT'
-    
-    # Count number of columns from schema
-    num_columns = len([col.strip() for col in schema.split(',') if col.strip()])
-    
-    # Extract queries
-    q1_match = re.search(r'📝 Q1.*?:\n\s*(.+)', content)
-    q2_match = re.search(r'📝 Q2.*?:\n\s*(.+)', content)
-    qunion_match = re.search(r'📝 Q_union.*?:\n\s*(.+)', content)
-    
-    q1 = q1_match.group(1).strip() if q1_match else ''
-    q2 = q2_match.group(1).strip() if q2_match else ''
-    q_union = qunion_match.group(1).strip() if qunion_match else ''
-    
-    # Extract table data
-    t1_rows = extract_table_data(content, '📊 Table t1', num_columns)
-    t2_rows = extract_table_data(content, '📊 Table t2', num_columns)
+    if log_file.suffix == '.json':
+        t1_name, t2_name, schema, q1, q2, q_union, t1_rows, t2_rows = read_record(json.loads(content))
+    else:
+        t1_name, t2_name, schema, q1, q2, q_union, t1_rows, t2_rows = read_log(content)
     
     # Generate SQL script
     sql = f"""-- ═══════════════════════════════════════════════════════════════════
@@ -0,0 +1,91 @@
+#!/usr/bin/env python3
+"""
+Reader for MRUP test case logs
+
+The MRUP oracle writes one JSON object per test case into rolling segments
+(mrup_logs/mrup_<start>_<n>.jsonl). Besides id, ts, passed and duration_ms,
+a record holds the structured fields of the test case, grouped like the
+METRICS_* lines of older logs: schema, tables, mutations, query, constraints,
+queries, comparator (and bug for mismatching partitions). Failing test cases
+also keep the table data (tables.t1_data, tables.t2_data) and their first
+results. Older runs wrote one human-readable .log file per test case;
+iter_records() reads their METRICS_* lines into records of the same shape.
+
+Usage: python3 mrup_log_records.py [log_dir] [--failed]
+    Extracts test cases from the segments into <id>.json files in log_dir
+    (only failed test cases with --failed), e.g., for log_to_sql.py.
+"""
+
+import json
+import re
+import sys
+from pathlib import Path
+
+
+def parse_metrics_value(value):
+    """Convert a METRICS_* value to the type it has in the JSON records."""
+    if value in ('true', 'false'):
+        return value == 'true'
+    if value.isdigit():
+        return int(value)
+    return value
+
+
+def parse_log(test_id, content):
+    """Build a record from the METRICS_* lines of a human-readable .log file."""
+    record = {'id': test_id}
+    for line in content.split('\n'):
+        match = re.match(r'METRICS_(\w+)\|(.*)\|', line)
+        if not match:
+            continue
+        group = {}
+        for param in match.group(2).split('|'):
+            if '=' in param:
+                key, value = param.split('=', 1)
+                group[key] = parse_metrics_value(value)
+        name = match.group(1).lower()
+        if name == 'timing':
+            record['duration_ms'] = group.get('duration_ms', 0)
+        elif name == 'comparator':
+            record['passed'] = group.get('overall', True)
+            record[name] = group
+        elif name not in ('start', 'end'):
+            record[name] = group
+    return record
+
+
+def iter_records(log_dir="mrup_logs"):
+    """Yield the test case records of all JSON-lines segments and .log files in log_dir."""
+    for log_file in Path(log_dir).glob("*.log"):
+        with open(log_file, 'r', encoding='utf-8', errors='ignore') as f:
+            yield parse_log(log_file.stem, f.read())
+    for segment in sorted(Path(log_dir).glob("*.jsonl")):
+        with open(segment, 'r', encoding='utf-8', errors='ignore') as f:
+            for line in f:
+                line = line.strip()
+                if not line:
+                    continue
+                try:
+                    record = json.loads(line)
+                except ValueError:
+                    continue  # truncated last line of a segment that is still being written
+                if 'id' in record:  # not a "dropped" line
+                    yield record
+
+
+def main():
+    args = [arg for arg in sys.argv[1:] if arg != '--failed']
+    only_failed = '--failed' in sys.argv[1:]
+    log_dir = Path(args[0] if args else "mrup_logs")
+    count = 0
+    for record in iter_records(log_dir):
+        if only_failed and record.get('passed', True):
+            continue
+        with open(log_dir / (record['id'] + ".json"), 'w', encoding='utf-8') as f:
+            json.dump(record, f, indent=2, ensure_ascii=False)
+        count += 1
+    print(f"Extracted {count} test cases to {log_dir}/")
+
+
+if __name__ == "__main__":
+    main()
@@ -30,6 +30,10 @@ public class ASTBasedReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpeci
     private List<Query<C>> reducedStatements;
     // statement after reduction.
 
+    private StatementReplayer<G, O, C> replayer;
+    // index of the statement that is currently transformed; the statements before it do not change
+    private int currentIndex;
+
     public ASTBasedReducer(DatabaseProvider<G, O, C> provider) {
         this.provider = provider;
     }
@@ -72,12 +76,34 @@ public class ASTBasedReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpeci
             return false;
         });
 
-        boolean observeChange;
         reducedStatements = new ArrayList<>();
         for (Query<?> query : initialBugInducingStatements) {
             reducedStatements.add((Query<C>) query);
         }
 
+        replayer = new StatementReplayer<>(provider, state.getOptions());
+        try {
+            applyTransformations(transformations, maxReduceTime, maxReduceSteps);
+            if (!reducedStatements.equals(initialBugInducingStatements)
+                    && !replayer.reproducesFromScratch(newGlobalState, reducedStatements, reproducer)) {
+                newGlobalState.getLogger().logReducer("warning: the reduced statements do not trigger the bug when "
+                        + "they are executed on a new database, keeping the original statements");
+                reducedStatements = new ArrayList<>();
+                for (Query<?> query : initialBugInducingStatements) {
+                    reducedStatements.add((Query<C>) query);
+                }
+            }
+        } finally {
+            replayer.close();
+        }
+
+        newGlobalState.getState().setStatements(new ArrayList<>(reducedStatements));
+        newGlobalState.getLogger().logReduced(newGlobalState.getState());
+    }
+
+    private void applyTransformations(List<Transformation> transformations, long maxReduceTime,
+            long maxReduceSteps) {
+        boolean observeChange;
         Instant startTime = Instant.now();
         reduceProcess: do {
             observeChange = false;
@@ -95,6 +121,7 @@ public class ASTBasedReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpeci
                         break reduceProcess;
                     }
 
+                    currentIndex = i;
                     Query<?> query = reducedStatements.get(i);
                     boolean initFlag = t.init(query.getQueryString());
                     int index = i;
@@ -112,24 +139,12 @@ public class ASTBasedReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpeci
                 }
             }
         } while (observeChange);
-
-        newGlobalState.getState().setStatements(new ArrayList<>(reducedStatements));
-        newGlobalState.getLogger().logReduced(newGlobalState.getState());
     }
 
     public boolean bugStillTriggers() throws Exception {
-        try (C con2 = provider.createDatabase(newGlobalState)) {
-            newGlobalState.setConnection(con2);
-            List<Query<C>> candidateStatements = new ArrayList<>(reducedStatements);
-            newGlobalState.getState().setStatements(new ArrayList<>(candidateStatements));
-
-            for (Query<C> s : candidateStatements) {
-                try {
-                    s.execute(newGlobalState);
-                } catch (Throwable ignoredException) {
-                    // ignore
-                }
-            }
+        List<Query<C>> candidateStatements = new ArrayList<>(reducedStatements);
+        newGlobalState.getState().setStatements(new ArrayList<>(candidateStatements));
+        try (C con2 = replayer.replay(newGlobalState, candidateStatements, currentIndex)) {
             try {
                 if (reproducer.bugStillTriggers(newGlobalState)) {
                     newGlobalState.getLogger().logReduced(newGlobalState.getState());
@@ -1,6 +1,7 @@
 package sqlancer;
 
 import sqlancer.common.log.LoggableFactory;
+import sqlancer.common.query.Query;
 
 public interface DatabaseProvider<G extends GlobalState<O, ?, C>, O extends DBMSSpecificOptions<?>, C extends SQLancerDBConnection> {
 
@@ -32,6 +33,57 @@ public interface DatabaseProvider<G extends GlobalState<O, ?, C>, O extends DBMS
      */
     Reproducer<G> generateAndTestDatabase(G globalState) throws Exception;
 
+    /**
+     * Whether the DBMS runs in the SQLancer process with native code, so that a crash of the DBMS also terminates
+     * SQLancer. The statement log is then written before each statement is executed, rather than buffered.
+     *
+     * @return true if the DBMS can crash the process
+     */
+    default boolean mayCrashProcess() {
+        return false;
+    }
+
+    /**
+     * Whether {@link #prepareDatabase(GlobalState)} and {@link #testPreparedDatabase(GlobalState)} are supported, which
+     * allows generating databases ahead of time.
+     *
+     * @return true if databases can be prepared
+     */
+    default boolean supportsPreparedDatabases() {
+        return false;
+    }
+
+    /**
+     * Generates a single database, which is tested later by {@link #testPreparedDatabase(GlobalState)}. Together, the
+     * two methods do the same as {@link #generateAndTestDatabase(GlobalState)}. The connection is closed if the
+     * generation fails.
+     *
+     * @param globalState
+     *            the state created and is valid for this method call and the testPreparedDatabase call.
+     *
+     * @throws Exception
+     *             if creating the database fails.
+     */
+    default void prepareDatabase(G globalState) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Executes a test oracle a given number of times on a database generated by
+     * {@link #prepareDatabase(GlobalState)}, and closes the connection.
+     *
+     * @param globalState
+     *            the state passed to prepareDatabase.
+     *
+     * @return Reproducer if a bug is found and a reproducer is available.
+     *
+     * @throws Exception
+     *             if testing fails.
+     */
+    default Reproducer<G> testPreparedDatabase(G globalState) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * The experimental feature: Query Plan Guidance.
      *
@@ -46,6 +98,56 @@ public interface DatabaseProvider<G extends GlobalState<O, ?, C>, O extends DBMS
 
     C createDatabase(G globalState) throws Exception;
 
+    /**
+     * Takes a snapshot of the database of the given state, so that it can be restored by
+     * {@link #restoreSnapshot(GlobalState, DatabaseSnapshot)} without executing its statements again. The reducers use
+     * snapshots to skip the statement prefix that is shared by their candidates.
+     *
+     * @param globalState
+     *            the state whose connection is used to take the snapshot.
+     *
+     * @return the snapshot, or null if snapshots are not supported for the current database, or if it cannot capture
+     *         the current state (e.g., while a transaction is open, since a later COMMIT or ROLLBACK would fail on the
+     *         restored database).
+     *
+     * @throws Exception
+     *             if taking the snapshot fails.
+     */
+    default DatabaseSnapshot takeSnapshot(G globalState) throws Exception {
+        return null;
+    }
+
+    /**
+     * Creates a new database (like {@link #createDatabase(GlobalState)}) that contains the data of the given snapshot.
+     * Settings that only apply to a connection are not restored.
+     *
+     * @param globalState
+     *            the state for which the database is created.
+     * @param snapshot
+     *            a snapshot taken by {@link #takeSnapshot(GlobalState)} of this provider.
+     *
+     * @return the connection to the restored database.
+     *
+     * @throws Exception
+     *             if restoring the snapshot fails.
+     */
+    default C restoreSnapshot(G globalState, DatabaseSnapshot snapshot) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Whether the effect of a statement is contained in a snapshot. Statements that only change the settings of the
+     * connection (e.g., PRAGMA or SET statements) are executed again after a snapshot has been restored.
+     *
+     * @param query
+     *            a statement that was executed before the snapshot was taken.
+     *
+     * @return false if the statement has to be executed again on the restored database.
+     */
+    default boolean isCapturedBySnapshot(Query<?> query) {
+        return true;
+    }
+
     /**
      * The DBMS name is used to name the log directory and command to test the respective DBMS.
      *
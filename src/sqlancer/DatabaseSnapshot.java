@@ -0,0 +1,78 @@
+package sqlancer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A copy of a database taken by {@link DatabaseProvider#takeSnapshot(GlobalState)}. The copy is stored in a temporary
+ * file or directory that is deleted when the snapshot is closed.
+ */
+public final class DatabaseSnapshot implements AutoCloseable {
+
+    private final Path path;
+
+    private DatabaseSnapshot(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Creates a snapshot that is stored in a (not yet existing) temporary file.
+     *
+     * @param suffix
+     *            the file suffix, e.g., ".db"
+     *
+     * @return the snapshot
+     *
+     * @throws IOException
+     *             if the temporary file cannot be created
+     */
+    public static DatabaseSnapshot inTemporaryFile(String suffix) throws IOException {
+        Path path = Files.createTempFile("sqlancer-snapshot", suffix);
+        Files.delete(path);
+        return new DatabaseSnapshot(path);
+    }
+
+    /**
+     * Creates a snapshot that is stored in a (not yet existing) temporary directory.
+     *
+     * @return the snapshot
+     *
+     * @throws IOException
+     *             if the temporary directory cannot be created
+     */
+    public static DatabaseSnapshot inTemporaryDirectory() throws IOException {
+        Path path = Files.createTempDirectory("sqlancer-snapshot");
+        Files.delete(path);
+        return new DatabaseSnapshot(path);
+    }
+
+    public File getFile() {
+        return path.toFile();
+    }
+
+    /**
+     * Returns the absolute path of the snapshot with forward slashes, so that it can be used in SQL string literals.
+     *
+     * @return the path
+     */
+    public String getPath() {
+        return path.toAbsolutePath().toString().replace(File.separatorChar, '/');
+    }
+
+    @Override
+    public void close() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+}
@@ -12,6 +12,9 @@ public abstract class GlobalState<O extends DBMSSpecificOptions<?>, S extends Ab
     private MainOptions options;
     private O dbmsSpecificOptions;
     private S schema;
+    // the connection from which the schema was read and the number of incremental updates since then
+    private C schemaConnection;
+    private int nrIncrementalSchemaUpdates;
     private Main.StateLogger logger;
     private StateToReproduce state;
     private Main.QueryManager<C> manager;
@@ -143,11 +146,72 @@ public abstract class GlobalState<O extends DBMSSpecificOptions<?>, S extends Ab
 
     public void updateSchema() throws Exception {
         setSchema(readSchema());
+        schemaConnection = databaseConnection;
+        nrIncrementalSchemaUpdates = 0;
         for (AbstractTable<?, ?, ?> table : schema.getDatabaseTables()) {
             table.recomputeCount();
         }
     }
 
+    /**
+     * Updates the schema after a statement that could have affected it. If the DBMS can derive the changed tables from
+     * the statement (see {@link #updateSchemaIncrementally(AbstractSchema, Query)}), only those are read again.
+     * Otherwise, and periodically (see {@link MainOptions#getSchemaReloadInterval()}), the whole schema is read again.
+     *
+     * @param q
+     *            the statement that has just been executed
+     *
+     * @throws Exception
+     *             if reading the schema fails
+     */
+    public void updateSchema(Query<?> q) throws Exception {
+        if (schema != null && schemaConnection == databaseConnection
+                && nrIncrementalSchemaUpdates + 1 < getOptions().getSchemaReloadInterval()) {
+            S updatedSchema = updateSchemaIncrementally(schema, q);
+            if (updatedSchema != null) {
+                setSchema(updatedSchema);
+                nrIncrementalSchemaUpdates++;
+                updateRowCounts(updatedSchema, q);
+                return;
+            }
+        }
+        updateSchema();
+    }
+
     protected abstract S readSchema() throws Exception;
 
+    /**
+     * Derives the schema after the given statement from the current one, for example, by reading only the tables that
+     * the statement created, dropped or altered.
+     *
+     * @param currentSchema
+     *            the schema before the statement
+     * @param q
+     *            the statement that has just been executed
+     *
+     * @return the updated schema, or null if the effect of the statement is unknown and the whole schema must be read
+     *
+     * @throws Exception
+     *             if reading the schema fails
+     */
+    protected S updateSchemaIncrementally(S currentSchema, Query<?> q) throws Exception {
+        return null;
+    }
+
+    /**
+     * Updates the cached row counts of the tables after a statement for which the schema was updated incrementally. By
+     * default, all row counts are recomputed lazily, since the statement (e.g., through triggers) might affect any
+     * table.
+     *
+     * @param currentSchema
+     *            the schema after the statement
+     * @param q
+     *            the statement that has just been executed
+     */
+    protected void updateRowCounts(S currentSchema, Query<?> q) {
+        for (AbstractTable<?, ?, ?> table : currentSchema.getDatabaseTables()) {
+            table.recomputeCount();
+        }
+    }
+
 }
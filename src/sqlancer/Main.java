@@ -1,25 +1,28 @@
 package sqlancer;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.JCommander.Builder;
@@ -29,7 +32,13 @@ import sqlancer.clickhouse.ClickHouseProvider;
 import sqlancer.cnosdb.CnosDBProvider;
 import sqlancer.cockroachdb.CockroachDBProvider;
 import sqlancer.common.log.Loggable;
+import sqlancer.common.log.StatementJournal;
+import sqlancer.common.metrics.ConsoleProgressExporter;
+import sqlancer.common.metrics.Metrics;
+import sqlancer.common.metrics.MetricsExporter;
+import sqlancer.common.metrics.MetricsSnapshot;
 import sqlancer.common.query.Query;
+import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.common.query.SQLancerResultSet;
 import sqlancer.databend.DatabendProvider;
 import sqlancer.doris.DorisProvider;
@@ -52,12 +61,15 @@ import sqlancer.yugabyte.ysql.YSQLProvider;
 public final class Main {
 
     public static final File LOG_DIRECTORY = new File("logs");
-    public static volatile AtomicLong nrQueries = new AtomicLong();
-    public static volatile AtomicLong nrDatabases = new AtomicLong();
-    public static volatile AtomicLong nrSuccessfulActions = new AtomicLong();
-    public static volatile AtomicLong nrUnsuccessfulActions = new AtomicLong();
+    // updated by all threads for each statement, see Metrics
+    public static final LongAdder nrQueries = new LongAdder();
+    public static final LongAdder nrDatabases = new LongAdder();
+    public static final LongAdder nrSuccessfulActions = new LongAdder();
+    public static final LongAdder nrUnsuccessfulActions = new LongAdder();
     public static volatile AtomicLong threadsShutdown = new AtomicLong();
+    public static volatile AtomicLong nrSlowStatements = new AtomicLong();
     static boolean progressMonitorStarted;
+    private static boolean currentFileFlusherStarted;
 
     static {
         System.setProperty(org.slf4j.simple.SimpleLogger.DEFAULT_LOG_LEVEL_KEY, "ERROR");
@@ -75,14 +87,23 @@ public final class Main {
         private File curFile;
         private File queryPlanFile;
         private File reduceFile;
+        private final File slowStatementFile;
         private FileWriter logFileWriter;
-        public FileWriter currentFileWriter;
+        public Writer currentFileWriter;
         private FileWriter queryPlanFileWriter;
         private FileWriter reduceFileWriter;
         private Path reproduceFilePath;
 
         private static final List<String> INITIALIZED_PROVIDER_NAMES = new ArrayList<>();
+        // the loggers with an open current file, which are flushed when the JVM exits (e.g., after --timeout-seconds)
+        private static final Set<StateLogger> OPEN_CURRENT_FILES = ConcurrentHashMap.newKeySet();
+        private static final int CURRENT_FILE_BUFFER_SIZE = 64 * 1024;
         private final boolean logEachSelect;
+        // replaces the current file if --statement-journal is enabled
+        private final StatementJournal journal;
+        private final boolean flushEachWrite;
+        private final long flushIntervalNanos;
+        private long lastFlushNanos;
         private final boolean logQueryPlan;
 
         private final boolean useReducer;
@@ -114,10 +135,20 @@ public final class Main {
             }
             ensureExistsAndIsEmpty(dir, provider);
             loggerFile = new File(dir, databaseName + ".log");
+            slowStatementFile = new File(dir, databaseName + "-slow.log");
             logEachSelect = options.logEachSelect();
             if (logEachSelect) {
                 curFile = new File(dir, databaseName + "-cur.log");
             }
+            if (logEachSelect && options.useStatementJournal()) {
+                journal = StatementJournal.open(new File(dir, databaseName + "-cur.journal").toPath(),
+                        (int) (1024L * options.getStatementJournalSizeKB()));
+            } else {
+                journal = null;
+            }
+            // if the DBMS can crash the JVM, each statement must be in the file before it is executed
+            flushEachWrite = provider.mayCrashProcess() || options.getLogFlushIntervalMillis() == 0;
+            flushIntervalNanos = options.getLogFlushIntervalMillis() * 1_000_000L;
             logQueryPlan = options.logQueryPlan();
             if (logQueryPlan) {
                 queryPlanFile = new File(dir, databaseName + "-plan.log");
@@ -174,20 +205,63 @@ public final class Main {
             return logFileWriter;
         }
 
-        public FileWriter getCurrentFileWriter() {
+        public Writer getCurrentFileWriter() {
             if (!logEachSelect) {
                 throw new UnsupportedOperationException();
             }
             if (currentFileWriter == null) {
                 try {
-                    currentFileWriter = new FileWriter(curFile, false);
+                    currentFileWriter = new BufferedWriter(new FileWriter(curFile, false), CURRENT_FILE_BUFFER_SIZE);
                 } catch (IOException e) {
                     throw new AssertionError(e);
                 }
+                lastFlushNanos = System.nanoTime();
+                OPEN_CURRENT_FILES.add(this);
             }
             return currentFileWriter;
         }
 
+        /**
+         * Writes the buffered statements of the current file to the file, e.g., before a potential bug is reported.
+         */
+        public void flushCurrent() {
+            Writer writer = currentFileWriter;
+            if (writer != null) {
+                try {
+                    writer.flush();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                lastFlushNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * Flushes the current file if the DBMS can crash the JVM or --log-flush-interval-ms has passed since the last
+         * flush. Otherwise, the statements stay buffered, so that logging a statement does not cost a write to the
+         * file; they are flushed at the latest when the current file is closed.
+         */
+        private void flushCurrentIfDue() {
+            if (flushEachWrite || System.nanoTime() - lastFlushNanos >= flushIntervalNanos) {
+                flushCurrent();
+            }
+        }
+
+        public void closeCurrentFileWriter() throws IOException {
+            Writer writer = currentFileWriter;
+            currentFileWriter = null;
+            OPEN_CURRENT_FILES.remove(this);
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        static void flushAllCurrentFiles() {
+            for (StateLogger logger : OPEN_CURRENT_FILES) {
+                logger.flushCurrent();
+            }
+        }
+
         public FileWriter getQueryPlanFileWriter() {
             if (!logQueryPlan) {
                 throw new UnsupportedOperationException();
@@ -220,13 +294,13 @@ public final class Main {
             if (!logEachSelect) {
                 throw new UnsupportedOperationException();
             }
-            printState(getCurrentFileWriter(), state);
-            try {
-                currentFileWriter.flush();
-
-            } catch (IOException e) {
-                e.printStackTrace();
+            if (journal != null) {
+                // the state is pinned, so that the statements cannot overwrite it
+                journal.reset(getStateString(state));
+                return;
             }
+            printState(getCurrentFileWriter(), state);
+            flushCurrentIfDue();
         }
 
         public void writeCurrent(String input) {
@@ -241,13 +315,16 @@ public final class Main {
             if (!logEachSelect) {
                 throw new UnsupportedOperationException();
             }
+            if (journal != null) {
+                journal.append(loggable.getLogString());
+                return;
+            }
             try {
                 getCurrentFileWriter().write(loggable.getLogString());
-
-                currentFileWriter.flush();
             } catch (IOException e) {
                 throw new AssertionError();
             }
+            flushCurrentIfDue();
         }
 
         public void writeQueryPlan(String queryPlan) {
@@ -322,11 +399,46 @@ public final class Main {
             }
         }
 
+        /**
+         * Appends a statement that ran for too long, together with the statements that created the database, to the
+         * slow-statement log. Called by the {@link StatementWatchdog}, possibly from another thread.
+         *
+         * @param query
+         *            the slow statement
+         * @param elapsedMillis
+         *            how long the statement had been running
+         * @param cancelled
+         *            whether the statement was cancelled
+         * @param state
+         *            the state of the database, or null
+         */
+        public synchronized void logSlowStatement(String query, long elapsedMillis, boolean cancelled,
+                StateToReproduce state) {
+            try (FileWriter writer = new FileWriter(slowStatementFile, true)) {
+                String status = cancelled ? "cancelled after" : "running for";
+                writer.write(databaseProvider.getLoggableFactory()
+                        .createLoggable(String.format("%s %d ms: %s", status, elapsedMillis, query)).getLogString());
+                if (state != null) {
+                    printState(writer, state);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
         private Loggable getStackTrace(Throwable e1) {
             return databaseProvider.getLoggableFactory().convertStacktraceToLoggable(e1);
         }
 
-        private void printState(FileWriter writer, StateToReproduce state) {
+        private void printState(Writer writer, StateToReproduce state) {
+            try {
+                writer.write(getStateString(state));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        private String getStateString(StateToReproduce state) {
             StringBuilder sb = new StringBuilder();
 
             sb.append(databaseProvider.getLoggableFactory()
@@ -335,11 +447,7 @@ public final class Main {
             for (Query<?> s : state.getStatements()) {
                 sb.append(databaseProvider.getLoggableFactory().createLoggable(s.getLogString()).getLogString());
             }
-            try {
-                writer.write(sb.toString());
-            } catch (IOException e) {
-                throw new AssertionError(e);
-            }
+            return sb.toString();
         }
 
         private String removeNamesFromQueryPlans(String queryPlan) {
@@ -365,8 +473,12 @@ public final class Main {
 
         public boolean execute(Query<C> q, String... fills) throws Exception {
             boolean success;
+            long startNanos = System.nanoTime();
             success = q.execute(globalState, fills);
-            Main.nrSuccessfulActions.addAndGet(1);
+            // an SQLQueryAdapter records its executions itself, also when it is executed without the manager
+            if (!(q instanceof SQLQueryAdapter)) {
+                Metrics.recordStatement(System.nanoTime() - startNanos, success);
+            }
             if (globalState.getOptions().loggerPrintFailed() || success) {
                 globalState.getState().logStatement(q);
             }
@@ -376,21 +488,24 @@ public final class Main {
         public SQLancerResultSet executeAndGet(Query<C> q, String... fills) throws Exception {
             globalState.getState().logStatement(q);
             SQLancerResultSet result;
+            long startNanos = System.nanoTime();
             result = q.executeAndGet(globalState, fills);
-            Main.nrSuccessfulActions.addAndGet(1);
+            if (!(q instanceof SQLQueryAdapter)) {
+                Metrics.recordStatement(System.nanoTime() - startNanos, true);
+            }
             return result;
         }
 
         public void incrementSelectQueryCount() {
-            Main.nrQueries.addAndGet(1);
+            Main.nrQueries.increment();
         }
 
         public Long getSelectQueryCount() {
-            return Main.nrQueries.get();
+            return Main.nrQueries.sum();
         }
 
         public void incrementCreateDatabase() {
-            Main.nrDatabases.addAndGet(1);
+            Main.nrDatabases.increment();
         }
 
     }
@@ -408,14 +523,26 @@ public final class Main {
         private StateLogger logger;
         private StateToReproduce stateToRepro;
         private final Randomly r;
+        // a database generated by prepareDatabase() (or why that failed), which run() tests
+        private G preparedState;
+        private Throwable preparationFailure;
+        // bounds the number of databases (and thus connections) in use, or null if there is no bound
+        private final Semaphore connectionPermits;
+        private boolean holdsConnectionPermit;
 
         public DBMSExecutor(DatabaseProvider<G, O, C> provider, MainOptions options, O dbmsSpecificOptions,
                 String databaseName, Randomly r) {
+            this(provider, options, dbmsSpecificOptions, databaseName, r, null);
+        }
+
+        public DBMSExecutor(DatabaseProvider<G, O, C> provider, MainOptions options, O dbmsSpecificOptions,
+                String databaseName, Randomly r, Semaphore connectionPermits) {
             this.provider = provider;
             this.options = options;
             this.databaseName = databaseName;
             this.command = dbmsSpecificOptions;
             this.r = r;
+            this.connectionPermits = connectionPermits;
         }
 
         private G createGlobalState() {
@@ -437,44 +564,125 @@ public final class Main {
             }
         }
 
-        public void run() throws Exception {
+        /**
+         * Creates and generates the database, so that a later {@link #run()} only tests it. A failure is not thrown,
+         * but reported by {@link #run()}, so that it is handled like a failure of the database generation.
+         *
+         * The database does not take a connection permit until {@link #run()}: if preparing threads waited for
+         * permits, which only the testing of prepared databases releases, all threads of a pool could block while no
+         * thread is left to test a prepared database.
+         */
+        public void prepareDatabase() {
+            r.bindToCurrentThread();
+            try {
+                G state = createDatabaseState();
+                provider.prepareDatabase(state);
+                preparedState = state;
+            } catch (Throwable t) {
+                preparationFailure = t;
+            }
+        }
+
+        /**
+         * Closes the connection of a prepared database that will not be tested.
+         */
+        public void discardPreparedDatabase() {
+            if (preparedState != null) {
+                try {
+                    preparedState.getConnection().close();
+                } catch (Exception e) {
+                    // ignore
+                }
+                preparedState = null;
+            }
+            if (stateToRepro != null) {
+                stateToRepro.discardRecording();
+            }
+        }
+
+        private void acquireConnectionPermit() throws InterruptedException {
+            if (connectionPermits != null && !holdsConnectionPermit) {
+                connectionPermits.acquire();
+                holdsConnectionPermit = true;
+            }
+        }
+
+        private void releaseConnectionPermit() {
+            if (holdsConnectionPermit) {
+                connectionPermits.release();
+                holdsConnectionPermit = false;
+            }
+        }
+
+        private G createDatabaseState() throws Exception {
             G state = createGlobalState();
             stateToRepro = provider.getStateToReproduce(databaseName);
             stateToRepro.seedValue = r.getSeed();
             state.setState(stateToRepro);
             logger = new StateLogger(databaseName, provider, options);
+            StatementWatchdog.bindToCurrentThread(logger, stateToRepro);
             state.setRandomly(r);
             state.setDatabaseName(databaseName);
             state.setMainOptions(options);
             state.setDbmsSpecificOptions(command);
-            try (C con = provider.createDatabase(state)) {
-                QueryManager<C> manager = new QueryManager<>(state);
-                try {
-                    stateToRepro.databaseVersion = con.getDatabaseVersion();
-                } catch (Exception e) {
-                    // ignore
-                }
-                state.setConnection(con);
-                state.setStateLogger(logger);
-                state.setManager(manager);
-                if (options.logEachSelect()) {
-                    logger.writeCurrent(state.getState());
-                }
+            C con = provider.createDatabase(state);
+            QueryManager<C> manager = new QueryManager<>(state);
+            try {
+                stateToRepro.databaseVersion = con.getDatabaseVersion();
+            } catch (Exception e) {
+                // ignore
+            }
+            state.setConnection(con);
+            state.setStateLogger(logger);
+            state.setManager(manager);
+            if (options.logEachSelect()) {
+                logger.writeCurrent(state.getState());
+            }
+            if (options.serializeReproduceState()) {
+                stateToRepro.startRecording(logger.getReproduceFilePath(), options.compressReproduceState(),
+                        options.getLogFlushIntervalMillis());
+            }
+            return state;
+        }
+
+        public void run() throws Exception {
+            acquireConnectionPermit();
+            try {
+                testDatabase();
+            } finally {
+                releaseConnectionPermit();
+            }
+        }
+
+        private void testDatabase() throws Exception {
+            r.bindToCurrentThread();
+            if (preparationFailure instanceof Error) {
+                throw (Error) preparationFailure;
+            } else if (preparationFailure != null) {
+                throw (Exception) preparationFailure;
+            }
+            boolean prepared = preparedState != null;
+            G state = prepared ? preparedState : createDatabaseState();
+            preparedState = null;
+            // the database might have been prepared on another thread
+            StatementWatchdog.bindToCurrentThread(logger, stateToRepro);
+            try (C con = state.getConnection()) {
                 Reproducer<G> reproducer = null;
                 if (options.enableQPG()) {
                     provider.generateAndTestDatabaseWithQueryPlanGuidance(state);
+                } else if (prepared) {
+                    reproducer = provider.testPreparedDatabase(state);
                 } else {
                     reproducer = provider.generateAndTestDatabase(state);
                 }
                 try {
-                    logger.getCurrentFileWriter().close();
-                    logger.currentFileWriter = null;
+                    logger.closeCurrentFileWriter();
                 } catch (IOException e) {
                     throw new AssertionError(e);
                 }
 
                 if (options.serializeReproduceState() && reproducer != null) {
-                    stateToRepro.serialize(logger.getReproduceFilePath());
+                    stateToRepro.serialize(logger.getReproduceFilePath(), options.compressReproduceState());
                 }
                 if (options.reduceAST() && !options.useReducer()) {
                     throw new AssertionError("To reduce AST, use-reducer option must be enabled first");
@@ -542,6 +750,7 @@ public final class Main {
         private final DatabaseProvider<G, O, C> provider;
         private final MainOptions options;
         private final O command;
+        private Semaphore connectionPermits;
 
         public DBMSExecutorFactory(DatabaseProvider<G, O, C> provider, MainOptions options) {
             this.provider = provider;
@@ -549,6 +758,16 @@ public final class Main {
             this.command = createCommand();
         }
 
+        /**
+         * Bounds the number of databases that the created executors test at the same time.
+         *
+         * @param maxConnections
+         *            the maximum number of databases, or -1 for no bound
+         */
+        void setMaxConnections(int maxConnections) {
+            connectionPermits = maxConnections == -1 ? null : new Semaphore(maxConnections, true);
+        }
+
         private O createCommand() {
             try {
                 return provider.getOptionClass().getDeclaredConstructor().newInstance();
@@ -565,7 +784,7 @@ public final class Main {
         public DBMSExecutor<G, O, C> getDBMSExecutor(String databaseName, Randomly r) {
             try {
                 return new DBMSExecutor<G, O, C>(provider.getClass().getDeclaredConstructor().newInstance(), options,
-                        command, databaseName, r);
+                        command, databaseName, r, connectionPermits);
             } catch (Exception e) {
                 throw new AssertionError(e);
             }
@@ -597,8 +816,10 @@ public final class Main {
         }
 
         Randomly.initialize(options);
+        StatementWatchdog.start(options);
+        startCurrentFileFlusher();
+        startProgressMonitor(options);
         if (options.printProgressInformation()) {
-            startProgressMonitor();
             if (options.printProgressSummary()) {
                 Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
 
@@ -606,12 +827,12 @@ public final class Main {
                     public void run() {
                         System.out.println("Overall execution statistics");
                         System.out.println("============================");
-                        System.out.println(formatInteger(nrQueries.get()) + " queries");
-                        System.out.println(formatInteger(nrDatabases.get()) + " databases");
+                        System.out.println(formatInteger(nrQueries.sum()) + " queries");
+                        System.out.println(formatInteger(nrDatabases.sum()) + " databases");
                         System.out.println(
-                                formatInteger(nrSuccessfulActions.get()) + " successfully-executed statements");
+                                formatInteger(nrSuccessfulActions.sum()) + " successfully-executed statements");
                         System.out.println(
-                                formatInteger(nrUnsuccessfulActions.get()) + " unsuccessfully-executed statements");
+                                formatInteger(nrUnsuccessfulActions.sum()) + " unsuccessfully-executed statements");
                     }
 
                     private String formatInteger(long intValue) {
@@ -625,8 +846,8 @@ public final class Main {
             }
         }
 
-        ExecutorService execService = Executors.newFixedThreadPool(options.getNumberConcurrentThreads());
         DBMSExecutorFactory<?, ?, ?> executorFactory = nameToProvider.get(jc.getParsedCommand());
+        executorFactory.setMaxConnections(options.getMaxConnections());
 
         if (options.performConnectionTest()) {
             try {
@@ -639,6 +860,11 @@ public final class Main {
                 return options.getErrorExitCode();
             }
         }
+        if (options.useWorkStealingScheduler()) {
+            boolean someOneFails = new WorkStealingScheduler(options, executorFactory).run();
+            return someOneFails ? options.getErrorExitCode() : 0;
+        }
+        ExecutorService execService = createExecutorService(options);
         final AtomicBoolean someOneFails = new AtomicBoolean(false);
 
         for (int i = 0; i < options.getTotalNumberTries(); i++) {
@@ -679,34 +905,7 @@ public final class Main {
 
                 private boolean run(MainOptions options, ExecutorService execService,
                         DBMSExecutorFactory<?, ?, ?> executorFactory, Randomly r, final String databaseName) {
-                    DBMSExecutor<?, ?, ?> executor = executorFactory.getDBMSExecutor(databaseName, r);
-                    try {
-                        executor.run();
-                        return true;
-                    } catch (IgnoreMeException e) {
-                        return true;
-                    } catch (Throwable reduce) {
-                        reduce.printStackTrace();
-                        executor.getStateToReproduce().exception = reduce.getMessage();
-                        executor.getLogger().logFileWriter = null;
-                        executor.getLogger().logException(reduce, executor.getStateToReproduce());
-                        if (options.serializeReproduceState()) {
-                            executor.getStateToReproduce().logStatement(reduce.getMessage()); // add the error statement
-                            executor.getStateToReproduce().serialize(executor.getLogger().getReproduceFilePath());
-                        }
-                        return false;
-                    } finally {
-                        try {
-                            if (options.logEachSelect()) {
-                                if (executor.getLogger().currentFileWriter != null) {
-                                    executor.getLogger().currentFileWriter.close();
-                                }
-                                executor.getLogger().currentFileWriter = null;
-                            }
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    }
+                    return runDatabase(options, executorFactory.getDBMSExecutor(databaseName, r));
                 }
             });
         }
@@ -723,6 +922,65 @@ public final class Main {
         return someOneFails.get() ? options.getErrorExitCode() : 0;
     }
 
+    /**
+     * Creates the executor that runs the --num-tries sequences of databases. With --virtual-threads, each sequence runs
+     * on its own virtual thread, which is mostly blocked on the connection for DBMSs accessed over the network. Since
+     * SQLancer is compiled for Java 11, the virtual-thread executor is looked up reflectively.
+     */
+    private static ExecutorService createExecutorService(MainOptions options) {
+        if (options.useVirtualThreads()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Virtual threads require Java 21 or later, using --num-threads threads instead.");
+            }
+        }
+        return Executors.newFixedThreadPool(options.getNumberConcurrentThreads());
+    }
+
+    /**
+     * Generates (unless it was prepared) and tests a single database, and logs a failure.
+     *
+     * @param options
+     *            the main options
+     * @param executor
+     *            the executor of the database
+     *
+     * @return false if a bug was found
+     */
+    static boolean runDatabase(MainOptions options, DBMSExecutor<?, ?, ?> executor) {
+        try {
+            executor.run();
+            return true;
+        } catch (IgnoreMeException e) {
+            return true;
+        } catch (Throwable reduce) {
+            executor.getLogger().flushCurrent();
+            reduce.printStackTrace();
+            executor.getStateToReproduce().exception = reduce.getMessage();
+            executor.getLogger().logFileWriter = null;
+            executor.getLogger().logException(reduce, executor.getStateToReproduce());
+            if (options.serializeReproduceState()) {
+                executor.getStateToReproduce().logStatement(reduce.getMessage()); // add the error statement
+                executor.getStateToReproduce().serialize(executor.getLogger().getReproduceFilePath(),
+                        options.compressReproduceState());
+            }
+            return false;
+        } finally {
+            try {
+                if (options.logEachSelect()) {
+                    executor.getLogger().closeCurrentFileWriter();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            if (executor.getStateToReproduce() != null) {
+                // the database was tested without finding a bug
+                executor.getStateToReproduce().discardRecording();
+            }
+        }
+    }
+
     /**
      * To register a new provider, it is necessary to implement the DatabaseProvider interface and add an additional
      * configuration file, see https://docs.oracle.com/javase/9/docs/api/java/util/ServiceLoader.html. Currently, we use
@@ -771,49 +1029,66 @@ public final class Main {
         }
     }
 
-    private static synchronized void startProgressMonitor() {
+    private static synchronized void startCurrentFileFlusher() {
+        if (currentFileFlusherStarted) {
+            return;
+        }
+        currentFileFlusherStarted = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(StateLogger::flushAllCurrentFiles));
+    }
+
+    private static synchronized void startProgressMonitor(MainOptions options) {
         if (progressMonitorStarted) {
             /*
              * it might be already started if, for example, the main method is called multiple times in a test (see
              * https://github.com/sqlancer/sqlancer/issues/90).
              */
             return;
-        } else {
-            progressMonitorStarted = true;
         }
+        ExportTask progressTask = null;
+        if (options.printProgressInformation()) {
+            progressTask = new ExportTask(new ConsoleProgressExporter());
+        }
+        ExportTask metricsTask = null;
+        if (options.getMetricsFile() != null) {
+            metricsTask = new ExportTask(
+                    MetricsExporter.create(options.getMetricsFormat(), Paths.get(options.getMetricsFile())));
+        }
+        if (progressTask == null && metricsTask == null) {
+            return;
+        }
+        progressMonitorStarted = true;
         final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(new Runnable() {
+        if (progressTask != null) {
+            scheduler.scheduleAtFixedRate(progressTask, 5, 5, TimeUnit.SECONDS);
+        }
+        if (metricsTask != null) {
+            int period = options.getMetricsIntervalSeconds();
+            scheduler.scheduleAtFixedRate(metricsTask, period, period, TimeUnit.SECONDS);
+            // export the final values of the run
+            Runtime.getRuntime().addShutdownHook(new Thread(metricsTask));
+        }
+    }
 
-            private long timeMillis = System.currentTimeMillis();
-            private long lastNrQueries;
-            private long lastNrDbs;
+    private static final class ExportTask implements Runnable {
 
-            {
-                timeMillis = System.currentTimeMillis();
-            }
+        private final MetricsExporter exporter;
+        private MetricsSnapshot previous = Metrics.snapshot();
 
-            @Override
-            public void run() {
-                long elapsedTimeMillis = System.currentTimeMillis() - timeMillis;
-                long currentNrQueries = nrQueries.get();
-                long nrCurrentQueries = currentNrQueries - lastNrQueries;
-                double throughput = nrCurrentQueries / (elapsedTimeMillis / 1000d);
-                long currentNrDbs = nrDatabases.get();
-                long nrCurrentDbs = currentNrDbs - lastNrDbs;
-                double throughputDbs = nrCurrentDbs / (elapsedTimeMillis / 1000d);
-                long successfulStatementsRatio = (long) (100.0 * nrSuccessfulActions.get()
-                        / (nrSuccessfulActions.get() + nrUnsuccessfulActions.get()));
-                DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-                Date date = new Date();
-                System.out.println(String.format(
-                        "[%s] Executed %d queries (%d queries/s; %.2f/s dbs, successful statements: %2d%%). Threads shut down: %d.",
-                        dateFormat.format(date), currentNrQueries, (int) throughput, throughputDbs,
-                        successfulStatementsRatio, threadsShutdown.get()));
-                timeMillis = System.currentTimeMillis();
-                lastNrQueries = currentNrQueries;
-                lastNrDbs = currentNrDbs;
-            }
-        }, 5, 5, TimeUnit.SECONDS);
+        ExportTask(MetricsExporter exporter) {
+            this.exporter = exporter;
+        }
+
+        @Override
+        public synchronized void run() {
+            MetricsSnapshot current = Metrics.snapshot();
+            try {
+                exporter.export(previous, current);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            previous = current;
+        }
     }
 
 }
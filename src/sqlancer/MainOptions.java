@@ -6,11 +6,14 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 
 import sqlancer.Randomly.StringGenerationStrategy;
+import sqlancer.common.metrics.MetricsExporter;
 
 @Parameters(separators = "=", commandDescription = "Options applicable to all DBMS")
 public class MainOptions {
     public static final int NO_SET_PORT = -1;
     public static final int NO_REDUCE_LIMIT = -1;
+    // 1 GB, which leaves room for the header and prefix of the memory-mapped journal
+    public static final int MAX_STATEMENT_JOURNAL_SIZE_KB = 1024 * 1024;
     public static final MainOptions DEFAULT_OPTIONS = new MainOptions();
 
     @Parameter(names = { "--help", "-h" }, description = "Lists all supported options and commands", help = true)
@@ -27,6 +30,18 @@ public class MainOptions {
     @Parameter(names = { "--num-tries" }, description = "Specifies after how many found errors to stop testing")
     private int totalNumberTries = 100; // NOPMD
 
+    @Parameter(names = "--work-stealing", description = "Schedule the generation and testing of each database as a task on a work-stealing pool of --num-threads threads, so that all --num-tries sequences of databases progress concurrently", arity = 1)
+    private boolean useWorkStealingScheduler; // NOPMD
+
+    @Parameter(names = "--pregenerated-databases", description = "With --work-stealing, the number of databases of each sequence that are generated ahead of time, while the current one is tested")
+    private int nrPregeneratedDatabases; // NOPMD
+
+    @Parameter(names = "--virtual-threads", description = "Run each of the --num-tries sequences of databases on its own virtual thread (instead of on --num-threads platform threads), which suits DBMSs accessed over the network; requires Java 21 or later and is ignored with --work-stealing", arity = 1)
+    private boolean useVirtualThreads; // NOPMD
+
+    @Parameter(names = "--max-connections", description = "The maximum number of databases that are tested at the same time, each of which holds a connection to the DBMS (-1 for no limit); the databases pregenerated by --pregenerated-databases are not counted")
+    private int maxConnections = -1; // NOPMD
+
     @Parameter(names = { "--max-num-inserts" }, description = "Specifies how many INSERT statements should be issued")
     private int maxNumberInserts = 30; // NOPMD
 
@@ -45,6 +60,15 @@ public class MainOptions {
     @Parameter(names = "--log-each-select", description = "Logs every statement issued", arity = 1)
     private boolean logEachSelect = true; // NOPMD
 
+    @Parameter(names = "--log-flush-interval-ms", description = "The maximum time for which logged statements are buffered before they are written to the -cur.log file (0 to write each statement immediately); statements of DBMSs that run in the SQLancer process are always written before they are executed")
+    private int logFlushIntervalMillis = 1000; // NOPMD
+
+    @Parameter(names = "--statement-journal", description = "Log the statements of --log-each-select to a memory-mapped circular journal (-cur.journal) instead of the -cur.log file, which survives crashes of the JVM without flushing; it can be decoded with sqlancer.common.log.StatementJournal", arity = 1)
+    private boolean useStatementJournal; // NOPMD
+
+    @Parameter(names = "--statement-journal-size", description = "The size (in KB, at most 1048576) of each statement journal; the oldest statements are overwritten when it is full, but the state logged when the database is created is kept")
+    private int statementJournalSizeKB = 1024; // NOPMD
+
     @Parameter(names = "--log-execution-time", description = "Logs the execution time of each statement (requires --log-each-select to be enabled)", arity = 1)
     private boolean logExecutionTime = true; // NOPMD
 
@@ -66,6 +90,12 @@ public class MainOptions {
     @Parameter(names = "--qpg-selection-probability", description = "The probability (0-1) of the random selection of mutators. A higher value (>0.5) favors exploration over exploitation. (requires --qpg-enable)")
     private static double qpgProbability = 0.7;
 
+    @Parameter(names = "--qpg-max-pool-size", description = "The maximum number of query plans that are kept for each database; the least recently observed ones are evicted (requires --qpg-enable)")
+    private int qpgMaxPoolSize = 1000; // NOPMD
+
+    @Parameter(names = "--qpg-recheck-sample-size", description = "The number of randomly selected queries whose query plans are re-checked after a mutation to compute its reward (requires --qpg-enable)")
+    private int qpgRecheckSampleSize = 100; // NOPMD
+
     @Parameter(names = "--username", description = "The user name used to log into the DBMS")
     private String userName = "sqlancer"; // NOPMD
 
@@ -87,6 +117,15 @@ public class MainOptions {
     @Parameter(names = "--timeout-seconds", description = "The timeout in seconds")
     private int timeoutSeconds = -1; // NOPMD
 
+    @Parameter(names = "--statement-timeout-seconds", description = "Cancel statements that run longer than the given number of seconds and skip the oracle check or database (-1 for no timeout)")
+    private int statementTimeoutSeconds = -1; // NOPMD
+
+    @Parameter(names = "--oracle-timeout-seconds", description = "Cancel the statement that an oracle check executes when the check runs longer than the given number of seconds (-1 for no timeout)")
+    private int oracleTimeoutSeconds = -1; // NOPMD
+
+    @Parameter(names = "--slow-statement-seconds", description = "Record statements that run longer than the given number of seconds in the slow-statement log of their database (-1 to record only timed-out statements)")
+    private int slowStatementSeconds = -1; // NOPMD
+
     @Parameter(names = "--max-generated-databases", description = "The maximum number of databases that are generated by each thread")
     private int maxGeneratedDatabases = -1; // NOPMD
 
@@ -126,12 +165,42 @@ public class MainOptions {
     @Parameter(names = "--serialize-reproduce-state", description = "Serialize the state to reproduce")
     private boolean serializeReproduceState = false; // NOPMD
 
+    @Parameter(names = "--metrics-file", description = "Periodically write the statistics of the run (e.g., queries/s, statement success rates and latency percentiles, and the outcomes per oracle and per action) to this file")
+    private String metricsFile; // NOPMD
+
+    @Parameter(names = "--metrics-format", description = "The format of --metrics-file: JSON appends a JSON object per line, PROMETHEUS replaces the file with the Prometheus text format")
+    private MetricsExporter.Format metricsFormat = MetricsExporter.Format.JSON; // NOPMD
+
+    @Parameter(names = "--metrics-interval-seconds", description = "The interval in which --metrics-file is written")
+    private int metricsIntervalSeconds = 5; // NOPMD
+
+    @Parameter(names = "--compress-reproduce-state", description = "Compress the files of --serialize-reproduce-state with gzip")
+    private boolean compressReproduceState = false; // NOPMD
+
+    @Parameter(names = "--performance-slowdown-factor", description = "The factor by which the optimized query of the PERFORMANCE oracle must be slower than the equivalent unoptimized query to be reported")
+    private double performanceSlowdownFactor = 10; // NOPMD
+
+    @Parameter(names = "--performance-repetitions", description = "How often the PERFORMANCE oracle measures each query, after the warm-up runs")
+    private int performanceRepetitions = 5; // NOPMD
+
+    @Parameter(names = "--performance-warmup-runs", description = "How often the PERFORMANCE oracle executes each query before measuring it")
+    private int performanceWarmupRuns = 1; // NOPMD
+
+    @Parameter(names = "--performance-min-millis", description = "The minimum median latency (in ms) of the slower query for the PERFORMANCE oracle to report a slowdown, below which measurements are considered noise")
+    private int performanceMinMillis = 10; // NOPMD
+
     @Parameter(names = "--use-reducer", description = "EXPERIMENTAL Attempt to reduce queries using a simple reducer")
     private boolean useReducer = false; // NOPMD
 
     @Parameter(names = "--reduce-ast", description = "EXPERIMENTAL perform AST reduction after statement reduction")
     private boolean reduceAST = false; // NOPMD
 
+    @Parameter(names = "--reduce-with-snapshots", description = "EXPERIMENTAL Let the reducers restore snapshots of already executed statement prefixes instead of replaying all statements, if the DBMS supports it", arity = 1)
+    private boolean reduceWithSnapshots = false; // NOPMD
+
+    @Parameter(names = "--statement-reducer-threads", description = "EXPERIMENTAL Number of threads that evaluate the candidates of the statement reducer concurrently, each on its own database")
+    private int statementReducerThreads = 1; // NOPMD
+
     @Parameter(names = "--statement-reducer-max-steps", description = "EXPERIMENTAL Maximum steps the statement reducer will do")
     private long maxStatementReduceSteps = NO_REDUCE_LIMIT; // NOPMD
 
@@ -144,6 +213,9 @@ public class MainOptions {
     @Parameter(names = "--ast-reducer-max-time", description = "EXPERIMENTAL Maximum time duration (secs) the statement reducer will do")
     private long maxStatementReduceTime = NO_REDUCE_LIMIT; // NOPMD
 
+    @Parameter(names = "--schema-reload-interval", description = "Read the whole schema again after this many schema updates; the other updates only read the tables affected by a statement, if the DBMS supports it (1 always reads the whole schema)")
+    private int schemaReloadInterval = 50; // NOPMD
+
     @Parameter(names = "--validate-result-size-only", description = "Should validate result size only and skip comparing content of the result set ", arity = 1)
     private boolean validateResultSizeOnly = false; // NOPMD
 
@@ -154,6 +226,22 @@ public class MainOptions {
         return maxExpressionDepth;
     }
 
+    public boolean useWorkStealingScheduler() {
+        return useWorkStealingScheduler;
+    }
+
+    public int getNrPregeneratedDatabases() {
+        return nrPregeneratedDatabases;
+    }
+
+    public boolean useVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
     public int getTotalNumberTries() {
         return totalNumberTries;
     }
@@ -166,6 +254,22 @@ public class MainOptions {
         return logEachSelect;
     }
 
+    public int getLogFlushIntervalMillis() {
+        return logFlushIntervalMillis;
+    }
+
+    public boolean useStatementJournal() {
+        return useStatementJournal;
+    }
+
+    public int getStatementJournalSizeKB() {
+        if (statementJournalSizeKB < 1 || statementJournalSizeKB > MAX_STATEMENT_JOURNAL_SIZE_KB) {
+            throw new AssertionError("--statement-journal-size must be between 1 and " + MAX_STATEMENT_JOURNAL_SIZE_KB
+                    + " (KB), but was " + statementJournalSizeKB);
+        }
+        return statementJournalSizeKB;
+    }
+
     public boolean printAllStatements() {
         if (printSucceedingStatements && printStatements) {
             throw new AssertionError();
@@ -211,6 +315,14 @@ public class MainOptions {
         return qpgProbability;
     }
 
+    public int getQPGMaxPoolSize() {
+        return qpgMaxPoolSize;
+    }
+
+    public int getQPGRecheckSampleSize() {
+        return qpgRecheckSampleSize;
+    }
+
     public int getNrQueries() {
         return nrQueries;
     }
@@ -251,6 +363,34 @@ public class MainOptions {
         return timeoutSeconds;
     }
 
+    public double getPerformanceSlowdownFactor() {
+        return performanceSlowdownFactor;
+    }
+
+    public int getPerformanceRepetitions() {
+        return performanceRepetitions;
+    }
+
+    public int getPerformanceWarmupRuns() {
+        return performanceWarmupRuns;
+    }
+
+    public int getPerformanceMinMillis() {
+        return performanceMinMillis;
+    }
+
+    public int getStatementTimeoutSeconds() {
+        return statementTimeoutSeconds;
+    }
+
+    public int getOracleTimeoutSeconds() {
+        return oracleTimeoutSeconds;
+    }
+
+    public int getSlowStatementSeconds() {
+        return slowStatementSeconds;
+    }
+
     public int getMaxGeneratedDatabases() {
         return maxGeneratedDatabases;
     }
@@ -311,6 +451,22 @@ public class MainOptions {
         return serializeReproduceState;
     }
 
+    public boolean compressReproduceState() {
+        return compressReproduceState;
+    }
+
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public MetricsExporter.Format getMetricsFormat() {
+        return metricsFormat;
+    }
+
+    public int getMetricsIntervalSeconds() {
+        return metricsIntervalSeconds;
+    }
+
     public boolean useReducer() {
         return useReducer;
     }
@@ -319,6 +475,14 @@ public class MainOptions {
         return reduceAST;
     }
 
+    public boolean reduceWithSnapshots() {
+        return reduceWithSnapshots;
+    }
+
+    public int getStatementReducerThreads() {
+        return statementReducerThreads;
+    }
+
     public long getMaxStatementReduceSteps() {
         return maxStatementReduceSteps;
     }
@@ -335,6 +499,10 @@ public class MainOptions {
         return maxASTReduceTime;
     }
 
+    public int getSchemaReloadInterval() {
+        return schemaReloadInterval;
+    }
+
     public boolean validateResultSizeOnly() {
         return validateResultSizeOnly;
     }
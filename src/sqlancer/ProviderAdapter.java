@@ -2,15 +2,16 @@ package sqlancer;
 
 import java.sql.SQLException;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import sqlancer.StateToReproduce.OracleRunReproductionState;
-import sqlancer.common.DBMSCommon;
+import sqlancer.common.metrics.Metrics;
 import sqlancer.common.oracle.CompositeTestOracle;
 import sqlancer.common.oracle.TestOracle;
+import sqlancer.common.qpg.MutatorRewards;
+import sqlancer.common.qpg.QueryPlanPool;
 import sqlancer.common.schema.AbstractSchema;
 
 public abstract class ProviderAdapter<G extends GlobalState<O, ? extends AbstractSchema<G, ?>, C>, O extends DBMSSpecificOptions<? extends OracleFactory<G>>, C extends SQLancerDBConnection>
@@ -20,8 +21,8 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
     private final Class<O> optionClass;
 
     // Variables for QPG
-    Map<String, String> queryPlanPool = new HashMap<>();
-    static double[] weightedAverageReward; // static variable for sharing across all threads
+    QueryPlanPool queryPlanPool;
+    MutatorRewards weightedAverageReward; // shared across all threads
     int currentSelectRewards;
     int currentSelectCounts;
     int currentMutationOperator = -1;
@@ -48,29 +49,65 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
 
     @Override
     public Reproducer<G> generateAndTestDatabase(G globalState) throws Exception {
+        prepareDatabase(globalState);
+        return testPreparedDatabase(globalState);
+    }
+
+    @Override
+    public boolean supportsPreparedDatabases() {
+        return true;
+    }
+
+    @Override
+    public void prepareDatabase(G globalState) throws Exception {
+        boolean prepared = false;
         try {
             generateDatabase(globalState);
             checkViewsAreValid(globalState);
             globalState.getManager().incrementCreateDatabase();
+            prepared = true;
+        } catch (IgnoreMeException e) {
+            throw e;
+        } catch (Throwable t) {
+            saveDatabaseOnBug(globalState);
+            throw t;
+        } finally {
+            if (!prepared) {
+                globalState.getConnection().close();
+            }
+        }
+    }
 
+    @Override
+    public Reproducer<G> testPreparedDatabase(G globalState) throws Exception {
+        try {
             TestOracle<G> oracle = getTestOracle(globalState);
             for (int i = 0; i < globalState.getOptions().getNrQueries(); i++) {
                 try (OracleRunReproductionState localState = globalState.getState().createLocalState()) {
                     assert localState != null;
                     try {
-                        oracle.check();
+                        StatementWatchdog.beginOracleCheck();
+                        Metrics.checkOracle(oracle);
                         globalState.getManager().incrementSelectQueryCount();
                     } catch (IgnoreMeException ignored) {
                     } catch (AssertionError e) {
                         Reproducer<G> reproducer = oracle.getLastReproducer();
                         if (reproducer != null) {
+                            saveDatabaseOnBug(globalState);
                             return reproducer;
                         }
                         throw e;
+                    } finally {
+                        StatementWatchdog.endOracleCheck();
                     }
                     localState.executedWithoutError();
                 }
             }
+        } catch (IgnoreMeException e) {
+            throw e;
+        } catch (Throwable t) {
+            saveDatabaseOnBug(globalState);
+            throw t;
         } finally {
             globalState.getConnection().close();
         }
@@ -79,6 +116,19 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
 
     protected abstract void checkViewsAreValid(G globalState) throws SQLException;
 
+    /**
+     * Called when an oracle or the database generation has found a potential bug, while the connection is still open.
+     * This includes failures other than assertions (e.g., an unexpected error of a crashed DBMS), but not an
+     * {@link IgnoreMeException}. Providers that test a database that does not outlive the connection (e.g., an
+     * in-memory database) can persist it here. Failures should be reported rather than thrown, so that they do not
+     * hide the bug.
+     *
+     * @param globalState
+     *            the state of the failing database
+     */
+    protected void saveDatabaseOnBug(G globalState) {
+    }
+
     protected TestOracle<G> getTestOracle(G globalState) throws Exception {
         List<? extends OracleFactory<G>> testOracleFactory = globalState.getDbmsSpecificOptions()
                 .getTestOracleFactory();
@@ -112,8 +162,10 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
     @Override
     public void generateAndTestDatabaseWithQueryPlanGuidance(G globalState) throws Exception {
         if (weightedAverageReward == null) {
-            weightedAverageReward = initializeWeightedAverageReward(); // Same length as the list of mutators
+            // Same length as the list of mutators
+            weightedAverageReward = MutatorRewards.getShared(getClass(), this::initializeWeightedAverageReward);
         }
+        queryPlanPool = new QueryPlanPool(globalState.getOptions().getQPGMaxPoolSize());
         try {
             generateDatabase(globalState);
             checkViewsAreValid(globalState);
@@ -127,7 +179,8 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
                     try (OracleRunReproductionState localState = globalState.getState().createLocalState()) {
                         assert localState != null;
                         try {
-                            oracle.check();
+                            StatementWatchdog.beginOracleCheck();
+                            Metrics.checkOracle(oracle);
                             String query = oracle.getLastQueryString();
                             executedQueryCount += 1;
                             if (addQueryPlan(query, globalState)) {
@@ -138,6 +191,8 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
                             globalState.getManager().incrementSelectQueryCount();
                         } catch (IgnoreMeException e) {
 
+                        } finally {
+                            StatementWatchdog.endOracleCheck();
                         }
                         localState.executedWithoutError();
                     }
@@ -148,6 +203,11 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
                     }
                 }
             }
+        } catch (IgnoreMeException e) {
+            throw e;
+        } catch (Throwable t) {
+            saveDatabaseOnBug(globalState);
+            throw t;
         } finally {
             globalState.getConnection().close();
         }
@@ -156,20 +216,20 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
     // QPG: mutate tables for a new database state
     private synchronized boolean mutateTables(G globalState) throws Exception {
         // Update rewards based on a set of newly generated queries in last iteration
-        if (currentMutationOperator != -1) {
-            weightedAverageReward[currentMutationOperator] += ((double) currentSelectRewards
-                    / (double) currentSelectCounts) * globalState.getOptions().getQPGk();
+        if (currentMutationOperator != -1 && currentSelectCounts != 0) {
+            weightedAverageReward.add(currentMutationOperator, ((double) currentSelectRewards
+                    / (double) currentSelectCounts) * globalState.getOptions().getQPGk());
         }
         currentMutationOperator = -1;
 
         // Choose mutator based on the rewards
         int selectedActionIndex = 0;
         if (Randomly.getPercentage() < globalState.getOptions().getQPGProbability()) {
-            selectedActionIndex = globalState.getRandomly().getInteger(0, weightedAverageReward.length);
+            selectedActionIndex = globalState.getRandomly().getInteger(0, weightedAverageReward.getNrMutators());
         } else {
-            selectedActionIndex = DBMSCommon.getMaxIndexInDoubleArray(weightedAverageReward);
+            selectedActionIndex = weightedAverageReward.getBestMutator();
         }
-        int reward = 0;
+        double reward = 0;
 
         try {
             executeMutator(selectedActionIndex, globalState);
@@ -178,7 +238,7 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
         } catch (IgnoreMeException | AssertionError e) {
         } finally {
             // Update rewards based on existing queries associated with the query plan pool
-            updateReward(selectedActionIndex, (double) reward / (double) queryPlanPool.size(), globalState);
+            weightedAverageReward.update(selectedActionIndex, reward, globalState.getOptions().getQPGk());
             currentMutationOperator = selectedActionIndex;
         }
 
@@ -197,42 +257,40 @@ public abstract class ProviderAdapter<G extends GlobalState<O, ? extends Abstrac
         }
 
         currentSelectCounts += 1;
-        if (queryPlanPool.containsKey(queryPlan)) {
-            return false;
-        } else {
-            queryPlanPool.put(queryPlan, selectStr);
+        if (queryPlanPool.add(queryPlan, selectStr)) {
             currentSelectRewards += 1;
             return true;
+        } else {
+            return false;
         }
     }
 
-    // Obtain the reward of the current action based on the queries associated with the query plan pool
-    private int checkQueryPlan(G globalState) throws Exception {
+    // Obtain the reward of the current action as the fraction of a sample of the queries associated with the query
+    // plan pool whose query plans are new
+    private double checkQueryPlan(G globalState) throws Exception {
+        List<Map.Entry<String, String>> sample = queryPlanPool
+                .sample(globalState.getOptions().getQPGRecheckSampleSize(), globalState.getRandomly());
+        if (sample.isEmpty()) {
+            return 0;
+        }
         int newQueryPlanFound = 0;
-        HashMap<String, String> modifiedQueryPlan = new HashMap<>();
-        for (Iterator<Map.Entry<String, String>> it = queryPlanPool.entrySet().iterator(); it.hasNext();) {
-            Map.Entry<String, String> item = it.next();
+        Map<String, String> modifiedQueryPlan = new HashMap<>();
+        for (Map.Entry<String, String> item : sample) {
             String queryPlan = item.getKey();
             String selectStr = item.getValue();
             String newQueryPlan = getQueryPlan(selectStr, globalState);
             if (newQueryPlan.isEmpty()) { // Invalid query
-                it.remove();
+                queryPlanPool.remove(queryPlan);
             } else if (!queryPlan.equals(newQueryPlan)) { // A query plan has been changed
-                it.remove();
+                queryPlanPool.remove(queryPlan);
                 modifiedQueryPlan.put(newQueryPlan, selectStr);
-                if (!queryPlanPool.containsKey(newQueryPlan)) { // A new query plan is found
+                if (!queryPlanPool.contains(newQueryPlan)) { // A new query plan is found
                     newQueryPlanFound++;
                 }
             }
         }
-        queryPlanPool.putAll(modifiedQueryPlan);
-        return newQueryPlanFound;
-    }
-
-    // QPG: update the reward of current action
-    private void updateReward(int actionIndex, double reward, G globalState) {
-        weightedAverageReward[actionIndex] += (reward - weightedAverageReward[actionIndex])
-                * globalState.getOptions().getQPGk();
+        modifiedQueryPlan.forEach(queryPlanPool::add);
+        return (double) newQueryPlanFound / sample.size();
     }
 
     // QPG: initialize the weighted average reward of all mutation operators (required implementation in specific DBMS)
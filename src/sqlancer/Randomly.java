@@ -25,6 +25,8 @@ public final class Randomly {
 
     private static final ThreadLocal<Random> THREAD_RANDOM = new ThreadLocal<>();
     private long seed;
+    // the generator that the constructor installed for the current thread
+    private Random random;
 
     private void addToCache(long val) {
         if (useCaching && cachedLongs.size() < cacheSize && !cachedLongs.contains(val)) {
@@ -498,12 +500,24 @@ public final class Randomly {
     }
 
     public Randomly() {
-        THREAD_RANDOM.set(new Random());
+        this.random = new Random();
+        THREAD_RANDOM.set(random);
     }
 
     public Randomly(long seed) {
         this.seed = seed;
-        THREAD_RANDOM.set(new Random(seed));
+        this.random = new Random(seed);
+        THREAD_RANDOM.set(random);
+    }
+
+    /**
+     * Lets the static methods on the current thread continue the random sequence of this object. This is needed when
+     * the testing of a database is continued on another thread than the one that created this object.
+     */
+    public void bindToCurrentThread() {
+        if (random != null) {
+            THREAD_RANDOM.set(random);
+        }
     }
 
     public static double getUncachedDouble() {
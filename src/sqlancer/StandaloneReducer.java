@@ -14,13 +14,28 @@ import sqlancer.common.query.Query;
  */
 public class StandaloneReducer {
     private int partitionNum = 2;
-    private final StateToReproduce originalState;
+    private final List<Query<?>> originalStatements;
     private final DatabaseProvider<?, ?, ?> databaseProvider;
     private final Path outputPath;
 
     public StandaloneReducer(Path inputPath, Path outputPath) throws Exception {
-        this.originalState = StateToReproduce.deserialize(inputPath);
-        this.databaseProvider = originalState.getDatabaseProvider();
+        if (StateToReproduceFile.isStateFile(inputPath)) {
+            // check the DBMS before reading the statements
+            try (StateToReproduceFile.Reader reader = StateToReproduceFile.Reader.open(inputPath)) {
+                this.databaseProvider = reader.getDatabaseProvider();
+                if (this.databaseProvider == null) {
+                    throw new IllegalStateException("Unknown DBMS " + reader.getDBMSName() + " in .ser file");
+                }
+                this.originalStatements = new ArrayList<>();
+                for (Query<?> q = reader.nextStatement(); q != null; q = reader.nextStatement()) {
+                    originalStatements.add(q);
+                }
+            }
+        } else {
+            StateToReproduce originalState = StateToReproduce.deserialize(inputPath);
+            this.databaseProvider = originalState.getDatabaseProvider();
+            this.originalStatements = new ArrayList<>(originalState.getStatements());
+        }
         if (this.databaseProvider == null) {
             throw new IllegalStateException("Failed to get database provider from .ser file");
         }
@@ -34,7 +49,7 @@ public class StandaloneReducer {
      * @return List of reduced SQL statements that still trigger bugs.
      */
     public List<Query<?>> reduce() throws Exception {
-        List<Query<?>> queries = new ArrayList<>(originalState.getStatements());
+        List<Query<?>> queries = new ArrayList<>(originalStatements);
         if (queries.size() <= 1) {
             return queries;
         }
@@ -66,7 +81,7 @@ public class StandaloneReducer {
         }
         System.out.println("Reduction completed successfully! SQL statements written to: " + outputPath.toString());
         System.out.println("Final size: " + queries.size() + " statements ("
-                + String.format("%.1f", (1.0 - (double) queries.size() / originalState.getStatements().size()) * 100)
+                + String.format("%.1f", (1.0 - (double) queries.size() / originalStatements.size()) * 100)
                 + "% reduction)");
 
         return queries;
@@ -2,6 +2,7 @@ package sqlancer;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
@@ -30,6 +31,16 @@ public class StateToReproduce implements Serializable {
 
     public transient OracleRunReproductionState localState;
 
+    // appends the statements to the file of serialize() while the database is tested, or null
+    private transient StateToReproduceFile.Writer recording;
+    private transient Path recordingPath;
+    // whether statements were replaced, so that the recording is incomplete
+    private transient boolean recordingStale;
+    // flushes the recording like the StateLogger flushes the current file
+    private transient boolean recordingFlushEachWrite;
+    private transient long recordingFlushIntervalNanos;
+    private transient long lastRecordingFlushNanos;
+
     public StateToReproduce(String databaseName, DatabaseProvider<?, ?, ?> databaseProvider) {
         this.databaseName = databaseName;
         this.databaseProvider = databaseProvider;
@@ -75,6 +86,23 @@ public class StateToReproduce implements Serializable {
             throw new IllegalArgumentException();
         }
         statements.add(query);
+        record(query);
+    }
+
+    private void record(Query<?> query) {
+        if (recording == null || recordingStale) {
+            return;
+        }
+        try {
+            recording.writeStatement(query);
+            // so that the file is readable up to the current statement if the JVM crashes
+            if (recordingFlushEachWrite || System.nanoTime() - lastRecordingFlushNanos >= recordingFlushIntervalNanos) {
+                recording.flush();
+                lastRecordingFlushNanos = System.nanoTime();
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
     }
 
     public List<Query<?>> getStatements() {
@@ -91,6 +119,7 @@ public class StateToReproduce implements Serializable {
             Query<?> newQuery = databaseProvider.getLoggableFactory().commentOutQuery(statement);
             statements.set(i, newQuery);
         }
+        recordingStale = true;
     }
 
     public long getSeedValue() {
@@ -131,7 +160,9 @@ public class StateToReproduce implements Serializable {
         @Override
         public void close() {
             if (!success) {
-                StateToReproduce.this.statements.addAll(statements);
+                for (Query<?> query : statements) {
+                    logStatement(query);
+                }
             }
 
         }
@@ -142,22 +173,122 @@ public class StateToReproduce implements Serializable {
         return new OracleRunReproductionState();
     }
 
+    /**
+     * Starts to append the statements to the given file while the database is tested, so that {@link #serialize(Path)}
+     * only has to complete the file. The statements that were already logged are written immediately. A further
+     * statement is flushed when it is logged if the DBMS can crash the JVM, and otherwise at most every
+     * {@code flushIntervalMillis}, like the current file of the statement log (see --log-flush-interval-ms).
+     *
+     * @param path
+     *            the file to which the state will be serialized
+     * @param compress
+     *            whether the file is compressed
+     * @param flushIntervalMillis
+     *            the minimum time between two flushes, or 0 to flush each statement
+     */
+    public void startRecording(Path path, boolean compress, long flushIntervalMillis) {
+        discardRecording();
+        try {
+            recording = StateToReproduceFile.Writer.create(path, compress, this);
+            recordingPath = path;
+            recordingStale = false;
+            recordingFlushEachWrite = databaseProvider == null || databaseProvider.mayCrashProcess()
+                    || flushIntervalMillis == 0;
+            recordingFlushIntervalNanos = flushIntervalMillis * 1_000_000L;
+            for (Query<?> query : statements) {
+                recording.writeStatement(query);
+            }
+            recording.flush();
+            lastRecordingFlushNanos = System.nanoTime();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Stops the recording and deletes its file, e.g., when the database was tested without finding a bug.
+     */
+    public void discardRecording() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.close();
+            Files.deleteIfExists(recordingPath);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        } finally {
+            recording = null;
+            recordingPath = null;
+        }
+    }
+
     public void serialize(Path path) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(path))) {
-            oos.writeObject(this);
+        serialize(path, false);
+    }
+
+    /**
+     * Writes the state to the file in the format of {@link StateToReproduceFile}. If the statements were recorded to
+     * the same file, only the end of the file is written.
+     *
+     * @param path
+     *            the file
+     * @param compress
+     *            whether the file is compressed (ignored if the file was recorded)
+     */
+    public void serialize(Path path, boolean compress) {
+        try {
+            if (recording != null && path.equals(recordingPath) && !recordingStale) {
+                StateToReproduceFile.Writer writer = recording;
+                recording = null;
+                recordingPath = null;
+                writer.finish(exception);
+                return;
+            }
+            discardRecording();
+            try (StateToReproduceFile.Writer writer = StateToReproduceFile.Writer.create(path, compress, this)) {
+                for (Query<?> query : statements) {
+                    writer.writeStatement(query);
+                }
+                writer.finish(exception);
+            }
         } catch (IOException e) {
             throw new AssertionError(e);
         }
     }
 
+    /**
+     * Reads a state written by {@link #serialize(Path)}, or by the Java serialization of earlier versions.
+     *
+     * @param path
+     *            the file
+     *
+     * @return the state
+     */
     public static StateToReproduce deserialize(Path path) {
-        try (ObjectInputStream ois = new ObjectInputStream(Files.newInputStream(path))) {
-            return (StateToReproduce) ois.readObject();
+        try {
+            if (StateToReproduceFile.isStateFile(path)) {
+                try (StateToReproduceFile.Reader reader = StateToReproduceFile.Reader.open(path)) {
+                    return reader.readState();
+                }
+            }
+            try (InputStream in = Files.newInputStream(path); ObjectInputStream ois = new ObjectInputStream(in)) {
+                return (StateToReproduce) ois.readObject();
+            }
         } catch (IOException | ClassNotFoundException e) {
             throw new AssertionError(e);
         }
     }
 
+    static DatabaseProvider<?, ?, ?> getProvider(String dbmsName) {
+        for (DatabaseProvider<?, ?, ?> p : Main.getDBMSProviders()) {
+            if (p.getDBMSName().equals(dbmsName)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
     private void writeObject(ObjectOutputStream out) throws IOException {
         out.defaultWriteObject();
 
@@ -168,21 +299,12 @@ public class StateToReproduce implements Serializable {
         in.defaultReadObject();
         String dbmsName = (String) in.readObject();
 
-        DatabaseProvider<?, ?, ?> provider = null;
-        if (dbmsName != null) {
-            List<DatabaseProvider<?, ?, ?>> providers = Main.getDBMSProviders();
-            for (DatabaseProvider<?, ?, ?> p : providers) {
-                if (p.getDBMSName().equals(dbmsName)) {
-                    provider = p;
-                    break;
-                }
-            }
-        }
-        this.databaseProvider = provider;
+        this.databaseProvider = dbmsName == null ? null : getProvider(dbmsName);
     }
 
     public void setStatements(List<Query<?>> statements) {
         this.statements = statements;
+        recordingStale = true;
     }
 
 }
@@ -0,0 +1,422 @@
+package sqlancer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.query.Query;
+import sqlancer.common.query.SQLQueryAdapter;
+
+/**
+ * The file format of {@link StateToReproduce#serialize(Path)}, which replaces the Java serialization of the whole
+ * state. The file starts with a magic number, the format version, and flags, followed by the (optionally gzip
+ * compressed) header and a stream of records:
+ *
+ * <ul>
+ * <li>the header contains the DBMS name, the database name and version, and the seed;</li>
+ * <li>an errors record defines the next {@link ExpectedErrors} id, so that equal expected errors, which most
+ * statements of a generator share, are only written once;</li>
+ * <li>a statement record contains an {@link SQLQueryAdapter} (the query, its errors id, and whether it could affect
+ * the schema) or, for other queries, the query string, which is read back by the provider's loggable factory;</li>
+ * <li>the end record contains the exception (if any) and terminates the file.</li>
+ * </ul>
+ *
+ * Since the records only depend on the strings and flags of the queries, files remain readable when classes change.
+ * Statements can be appended while the database is tested, and a file without an end record (e.g., when the JVM
+ * crashed) can still be read up to its last complete record: the end of the file, also within a record, is treated
+ * like an end record without an exception.
+ */
+public final class StateToReproduceFile {
+
+    private static final long MAGIC = 0x53514C5354415445L; // "SQLSTATE"
+    private static final int VERSION = 1;
+    private static final int FLAG_COMPRESSED = 1;
+
+    private static final byte END_RECORD = 0;
+    private static final byte ERRORS_RECORD = 1;
+    private static final byte QUERY_ADAPTER_RECORD = 2;
+    private static final byte QUERY_STRING_RECORD = 3;
+
+    private StateToReproduceFile() {
+    }
+
+    /**
+     * Checks whether the file is in this format (rather than a Java serialization stream of older versions).
+     *
+     * @param path
+     *            the file
+     *
+     * @return whether the file starts with the magic number of this format
+     *
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static boolean isStateFile(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return in.readLong() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a state to reproduce. The statements are appended one by one, and {@link #finish(String)} completes the
+     * file.
+     */
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> errorsIds = new HashMap<>();
+        // most generators reuse their expected errors, so that the key of their content is rarely built; the id is
+        // stored with the number of errors, since errors can still be added to the expected errors
+        private final Map<ExpectedErrors, long[]> errorsIdsByIdentity = new IdentityHashMap<>();
+
+        private Writer(OutputStream stream, boolean compress, StateToReproduce state) throws IOException {
+            DataOutputStream header = new DataOutputStream(stream);
+            header.writeLong(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(compress ? FLAG_COMPRESSED : 0);
+            OutputStream body = compress ? new GZIPOutputStream(stream, true) : stream;
+            out = new DataOutputStream(new BufferedOutputStream(body));
+            DatabaseProvider<?, ?, ?> provider = state.getDatabaseProvider();
+            writeString(out, provider == null ? null : provider.getDBMSName());
+            writeString(out, state.getDatabaseName());
+            writeString(out, state.getDatabaseVersion());
+            out.writeLong(state.getSeedValue());
+        }
+
+        /**
+         * Creates the file and writes the header of the state, but not its statements.
+         *
+         * @param path
+         *            the file, which is replaced if it exists
+         * @param compress
+         *            whether the records are gzip compressed
+         * @param state
+         *            the state to reproduce
+         *
+         * @return the writer
+         *
+         * @throws IOException
+         *             if the file cannot be written
+         */
+        public static Writer create(Path path, boolean compress, StateToReproduce state) throws IOException {
+            OutputStream stream = Files.newOutputStream(path);
+            try {
+                return new Writer(stream, compress, state);
+            } catch (IOException e) {
+                stream.close();
+                throw e;
+            }
+        }
+
+        public void writeStatement(Query<?> query) throws IOException {
+            if (query instanceof SQLQueryAdapter) {
+                SQLQueryAdapter adapter = (SQLQueryAdapter) query;
+                int errorsId = getErrorsId(adapter.getExpectedErrors());
+                out.writeByte(QUERY_ADAPTER_RECORD);
+                writeString(out, adapter.getQueryString());
+                out.writeInt(errorsId);
+                out.writeBoolean(adapter.couldAffectSchema());
+            } else {
+                out.writeByte(QUERY_STRING_RECORD);
+                writeString(out, query.getQueryString());
+            }
+        }
+
+        private int getErrorsId(ExpectedErrors errors) throws IOException {
+            if (errors == null) {
+                return -1;
+            }
+            int size = errors.getErrors().size() + errors.getRegexes().size();
+            long[] cached = errorsIdsByIdentity.get(errors);
+            if (cached != null && cached[1] == size) {
+                return (int) cached[0];
+            }
+            int id = getErrorsIdByContent(errors);
+            errorsIdsByIdentity.put(errors, new long[] { id, size });
+            return id;
+        }
+
+        private int getErrorsIdByContent(ExpectedErrors errors) throws IOException {
+            TreeSet<String> regexes = new TreeSet<>();
+            for (Pattern p : errors.getRegexes()) {
+                regexes.add(p.flags() + "/" + p.pattern());
+            }
+            String key = new TreeSet<>(errors.getErrors()) + "\0" + regexes;
+            Integer id = errorsIds.get(key);
+            if (id != null) {
+                return id;
+            }
+            id = errorsIds.size();
+            errorsIds.put(key, id);
+            out.writeByte(ERRORS_RECORD);
+            out.writeInt(errors.getErrors().size());
+            for (String error : errors.getErrors()) {
+                writeString(out, error);
+            }
+            out.writeInt(errors.getRegexes().size());
+            for (Pattern p : errors.getRegexes()) {
+                writeString(out, p.pattern());
+                out.writeInt(p.flags());
+            }
+            return id;
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        /**
+         * Writes the end record and closes the file.
+         *
+         * @param exception
+         *            the exception message of the state, or null
+         *
+         * @throws IOException
+         *             if the file cannot be written
+         */
+        public void finish(String exception) throws IOException {
+            try {
+                out.writeByte(END_RECORD);
+                writeString(out, exception);
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a state to reproduce. The header is read when the file is opened, and the statements one by one, so that
+     * a reader can, for example, check the DBMS before it reads any statements.
+     */
+    public static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private final String dbmsName;
+        private final DatabaseProvider<?, ?, ?> databaseProvider;
+        private final String databaseName;
+        private final String databaseVersion;
+        private final long seedValue;
+        private final List<ExpectedErrors> errors = new ArrayList<>();
+        private String exception;
+        private boolean atEnd;
+        private boolean complete;
+
+        private Reader(InputStream stream) throws IOException {
+            DataInputStream header = new DataInputStream(stream);
+            if (header.readLong() != MAGIC) {
+                throw new IOException("not a state to reproduce");
+            }
+            int version = header.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version + " of the state to reproduce");
+            }
+            boolean compressed = (header.readInt() & FLAG_COMPRESSED) != 0;
+            in = new DataInputStream(new BufferedInputStream(compressed ? new GZIPInputStream(stream) : stream));
+            dbmsName = readString(in);
+            databaseProvider = dbmsName == null ? null : StateToReproduce.getProvider(dbmsName);
+            databaseName = readString(in);
+            databaseVersion = readString(in);
+            seedValue = in.readLong();
+        }
+
+        /**
+         * Opens the file and reads the header of the state.
+         *
+         * @param path
+         *            the file
+         *
+         * @return the reader
+         *
+         * @throws IOException
+         *             if the file cannot be read or is not in this format
+         */
+        public static Reader open(Path path) throws IOException {
+            InputStream stream = Files.newInputStream(path);
+            try {
+                return new Reader(stream);
+            } catch (IOException e) {
+                stream.close();
+                throw e;
+            }
+        }
+
+        public String getDBMSName() {
+            return dbmsName;
+        }
+
+        /**
+         * Returns the provider of the DBMS.
+         *
+         * @return the provider, or null if the DBMS is unknown
+         */
+        public DatabaseProvider<?, ?, ?> getDatabaseProvider() {
+            return databaseProvider;
+        }
+
+        public String getDatabaseName() {
+            return databaseName;
+        }
+
+        public String getDatabaseVersion() {
+            return databaseVersion;
+        }
+
+        public long getSeedValue() {
+            return seedValue;
+        }
+
+        /**
+         * Reads the next statement.
+         *
+         * @return the statement, or null if all statements were read
+         *
+         * @throws IOException
+         *             if the file cannot be read or is corrupt
+         */
+        public Query<?> nextStatement() throws IOException {
+            try {
+                return readStatement();
+            } catch (EOFException e) {
+                // e.g., the file of a database whose testing was interrupted, which can end within a record
+                atEnd = true;
+                return null;
+            }
+        }
+
+        private Query<?> readStatement() throws IOException {
+            while (!atEnd) {
+                byte record = in.readByte();
+                switch (record) {
+                case END_RECORD:
+                    exception = readString(in);
+                    atEnd = true;
+                    complete = true;
+                    return null;
+                case ERRORS_RECORD:
+                    errors.add(readErrors());
+                    break;
+                case QUERY_ADAPTER_RECORD:
+                    String query = readString(in);
+                    int errorsId = in.readInt();
+                    boolean couldAffectSchema = in.readBoolean();
+                    ExpectedErrors queryErrors = errorsId == -1 ? null : errors.get(errorsId);
+                    return new SQLQueryAdapter(query, queryErrors, couldAffectSchema, false);
+                case QUERY_STRING_RECORD:
+                    String queryString = readString(in);
+                    if (databaseProvider == null) {
+                        throw new IOException("cannot read the statements of the unknown DBMS " + dbmsName);
+                    }
+                    return databaseProvider.getLoggableFactory().getQueryForStateToReproduce(queryString);
+                default:
+                    throw new IOException("invalid record " + record + " in the state to reproduce");
+                }
+            }
+            return null;
+        }
+
+        private ExpectedErrors readErrors() throws IOException {
+            ExpectedErrors result = new ExpectedErrors();
+            int nrErrors = in.readInt();
+            for (int i = 0; i < nrErrors; i++) {
+                result.add(readString(in));
+            }
+            int nrRegexes = in.readInt();
+            for (int i = 0; i < nrRegexes; i++) {
+                String pattern = readString(in);
+                result.addRegex(Pattern.compile(pattern, in.readInt()));
+            }
+            return result;
+        }
+
+        /**
+         * Returns the exception of the state, which is only known after all statements were read.
+         *
+         * @return the exception message, or null
+         */
+        public String getException() {
+            return exception;
+        }
+
+        /**
+         * Returns whether the file was completed, which is only known after all statements were read.
+         *
+         * @return whether the file has an end record
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Reads the remaining statements into a state.
+         *
+         * @return the state
+         *
+         * @throws IOException
+         *             if the file cannot be read or is corrupt
+         */
+        public StateToReproduce readState() throws IOException {
+            StateToReproduce state = new StateToReproduce(databaseName, databaseProvider);
+            state.databaseVersion = databaseVersion;
+            state.seedValue = seedValue;
+            List<Query<?>> statements = new ArrayList<>();
+            for (Query<?> q = nextStatement(); q != null; q = nextStatement()) {
+                statements.add(q);
+            }
+            state.setStatements(statements);
+            state.exception = exception;
+            return state;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package sqlancer;
 import java.util.ArrayList;
 import java.util.List;
 
+import sqlancer.common.metrics.Metrics;
 import sqlancer.common.query.Query;
 
 public class StatementExecutor<G extends GlobalState<?, ?, ?>, A extends AbstractAction<G>> {
@@ -68,13 +69,14 @@ public class StatementExecutor<G extends GlobalState<?, ?, ?>, A extends Abstrac
                 do {
                     query = nextAction.getQuery(globalState);
                     success = globalState.executeStatement(query);
+                    Metrics.recordAction(nextAction, success);
                 } while (nextAction.canBeRetried() && !success
                         && nrTries++ < globalState.getOptions().getNrStatementRetryCount());
             } catch (IgnoreMeException ignored) {
 
             }
             if (query != null && query.couldAffectSchema()) {
-                globalState.updateSchema();
+                globalState.updateSchema(query);
                 queryConsumer.notify(query);
             }
             total--;
@@ -4,12 +4,24 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import sqlancer.common.query.Query;
 
 public class StatementReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpecificOptions<?>, C extends SQLancerDBConnection>
         implements Reducer<G> {
     private final DatabaseProvider<G, O, C> provider;
+    private StatementReplayer<G, O, C> replayer;
+    // only used in the parallel mode (--statement-reducer-threads > 1)
+    private ExecutorService executor;
+    private BlockingQueue<Worker> workers;
     private boolean observedChange;
     private int partitionNum;
 
@@ -21,6 +33,37 @@ public class StatementReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpec
 
     Instant timeOfReductionBegins;
 
+    /**
+     * Evaluates candidates of the parallel mode on its own database, using a copy of the global state.
+     */
+    private final class Worker implements AutoCloseable {
+        private final G globalState;
+        private final StatementReplayer<G, O, C> workerReplayer;
+
+        Worker(G globalState) {
+            this.globalState = globalState;
+            this.workerReplayer = new StatementReplayer<>(provider, globalState.getOptions());
+        }
+
+        boolean bugStillTriggers(Reproducer<G> reproducer, List<Query<C>> candidateStatements, int checkpoint)
+                throws Exception {
+            globalState.getState().setStatements(new ArrayList<>(candidateStatements));
+            // failures to create the database are not a sign that the bug is gone and are propagated
+            try (C con = workerReplayer.replay(globalState, candidateStatements, checkpoint)) {
+                try {
+                    return reproducer.bugStillTriggers(globalState);
+                } catch (Throwable ignoredException) {
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            workerReplayer.close();
+        }
+    }
+
     public StatementReducer(DatabaseProvider<G, O, C> provider) {
         this.provider = provider;
     }
@@ -39,10 +82,11 @@ public class StatementReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpec
         maxReduceTime = state.getOptions().getMaxStatementReduceTime();
         maxReduceSteps = state.getOptions().getMaxStatementReduceSteps();
 
-        List<Query<C>> knownToReproduceBugStatements = new ArrayList<>();
+        List<Query<C>> initialStatements = new ArrayList<>();
         for (Query<?> stat : state.getState().getStatements()) {
-            knownToReproduceBugStatements.add((Query<C>) stat);
+            initialStatements.add((Query<C>) stat);
         }
+        List<Query<C>> knownToReproduceBugStatements = initialStatements;
 
         // System.out.println("Starting query:");
         // Main.StateLogger logger = newGlobalState.getLogger();
@@ -58,19 +102,51 @@ public class StatementReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpec
         currentReduceTime = 0;
         partitionNum = 2;
 
-        while (knownToReproduceBugStatements.size() >= 2 && hasNotReachedLimit(currentReduceSteps, maxReduceSteps)
-                && hasNotReachedLimit(currentReduceTime, maxReduceTime)) {
-            observedChange = false;
+        replayer = new StatementReplayer<>(provider, state.getOptions());
+        int nrThreads = state.getOptions().getStatementReducerThreads();
+        if (nrThreads > 1) {
+            executor = Executors.newFixedThreadPool(nrThreads);
+            workers = new ArrayBlockingQueue<>(nrThreads);
+            for (int i = 0; i < nrThreads; i++) {
+                workers.add(new Worker(createWorkerState(newGlobalState, i)));
+            }
+        }
+        try {
+            while (knownToReproduceBugStatements.size() >= 2
+                    && hasNotReachedLimit(currentReduceSteps, maxReduceSteps)
+                    && hasNotReachedLimit(currentReduceTime, maxReduceTime)) {
+                observedChange = false;
 
-            knownToReproduceBugStatements = tryReduction(state, reproducer, newGlobalState,
-                    knownToReproduceBugStatements);
+                if (executor == null) {
+                    knownToReproduceBugStatements = tryReduction(state, reproducer, newGlobalState,
+                            knownToReproduceBugStatements);
+                } else {
+                    knownToReproduceBugStatements = tryReductionInParallel(reproducer, newGlobalState,
+                            knownToReproduceBugStatements);
+                }
 
-            if (!observedChange) {
-                if (partitionNum == knownToReproduceBugStatements.size()) {
-                    break;
+                if (!observedChange) {
+                    if (partitionNum == knownToReproduceBugStatements.size()) {
+                        break;
+                    }
+                    // increase the search granularity
+                    partitionNum = Math.min(partitionNum * 2, knownToReproduceBugStatements.size());
                 }
-                // increase the search granularity
-                partitionNum = Math.min(partitionNum * 2, knownToReproduceBugStatements.size());
+            }
+            if (knownToReproduceBugStatements.size() < initialStatements.size() && !replayer
+                    .reproducesFromScratch(newGlobalState, knownToReproduceBugStatements, reproducer)) {
+                newGlobalState.getLogger().logReducer("warning: the reduced statements do not trigger the bug when "
+                        + "they are executed on a new database, keeping the original statements");
+                knownToReproduceBugStatements = initialStatements;
+            }
+        } finally {
+            replayer.close();
+            if (executor != null) {
+                executor.shutdownNow();
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+                workers.forEach(Worker::close);
+                executor = null;
+                workers = null;
             }
         }
 
@@ -91,20 +167,12 @@ public class StatementReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpec
         while (start < statements.size()) {
             // newStatements = candidate[:start] + candidate[start+subLength:]
             // in other word, remove [start, start+subLength) from candidates
-            try (C con2 = provider.createDatabase(newGlobalState)) {
-                newGlobalState.setConnection(con2);
-                List<Query<C>> candidateStatements = new ArrayList<>(statements);
-                int endPoint = Math.min(start + subLength, candidateStatements.size());
-                candidateStatements.subList(start, endPoint).clear();
-                newGlobalState.getState().setStatements(new ArrayList<>(candidateStatements));
-
-                for (Query<C> s : candidateStatements) {
-                    try {
-                        s.execute(newGlobalState);
-                    } catch (Throwable ignoredException) {
-                        // ignore
-                    }
-                }
+            List<Query<C>> candidateStatements = new ArrayList<>(statements);
+            int endPoint = Math.min(start + subLength, candidateStatements.size());
+            candidateStatements.subList(start, endPoint).clear();
+            newGlobalState.getState().setStatements(new ArrayList<>(candidateStatements));
+            // all following candidates of this pass share statements[0, start)
+            try (C con2 = replayer.replay(newGlobalState, candidateStatements, start)) {
                 try {
                     if (reproducer.bugStillTriggers(newGlobalState)) {
                         observedChange = true;
@@ -135,6 +203,108 @@ public class StatementReducer<G extends GlobalState<O, ?, C>, O extends DBMSSpec
         return statements;
     }
 
+    /**
+     * Evaluates the complements of all chunks of the current partition concurrently. Like the sequential
+     * {@link #tryReduction}, the first candidate (in chunk order) that still triggers the bug is taken, so that the
+     * result does not depend on the scheduling; the evaluation of the other candidates is cancelled.
+     */
+    private List<Query<C>> tryReductionInParallel(Reproducer<G> reproducer, G newGlobalState,
+            List<Query<C>> knownToReproduceBugStatements) throws Exception {
+        List<Query<C>> statements = knownToReproduceBugStatements;
+        int subLength = statements.size() / partitionNum;
+
+        List<List<Query<C>>> candidates = new ArrayList<>();
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int start = 0; start < statements.size() && hasNotReachedLimit(currentReduceSteps + candidates.size(),
+                maxReduceSteps); start += subLength) {
+            List<Query<C>> candidateStatements = new ArrayList<>(statements);
+            candidateStatements.subList(start, Math.min(start + subLength, candidateStatements.size())).clear();
+            candidates.add(candidateStatements);
+            int checkpoint = start;
+            results.add(executor.submit(() -> {
+                Worker worker = workers.take();
+                try {
+                    return worker.bugStillTriggers(reproducer, candidateStatements, checkpoint);
+                } finally {
+                    // not put(), which fails if the evaluation has been cancelled, so that the worker would be lost
+                    workers.add(worker);
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                Boolean bugStillTriggers = awaitCandidate(results.get(i));
+                if (bugStillTriggers == null) {
+                    // time limit reached
+                    return statements;
+                }
+                currentReduceSteps++;
+                if (bugStillTriggers) {
+                    observedChange = true;
+                    statements = candidates.get(i);
+                    partitionNum = Math.max(partitionNum - 1, 2);
+                    newGlobalState.getState().setStatements(new ArrayList<>(statements));
+                    newGlobalState.getLogger().logReduced(newGlobalState.getState());
+                    break;
+                }
+            }
+        } finally {
+            for (Future<Boolean> result : results) {
+                result.cancel(true);
+            }
+        }
+        currentReduceTime = Duration.between(timeOfReductionBegins, Instant.now()).getSeconds();
+        return statements;
+    }
+
+    /**
+     * Waits for the result of a candidate, but not longer than the time limit of the reduction allows.
+     *
+     * @return whether the candidate still triggers the bug, or null if the time limit has been reached
+     *
+     * @throws Exception
+     *             if the database of the candidate could not be created
+     */
+    private Boolean awaitCandidate(Future<Boolean> result) throws Exception {
+        try {
+            if (maxReduceTime == MainOptions.NO_REDUCE_LIMIT) {
+                return result.get();
+            }
+            long remainingMillis = TimeUnit.SECONDS.toMillis(maxReduceTime)
+                    - Duration.between(timeOfReductionBegins, Instant.now()).toMillis();
+            return result.get(Math.max(remainingMillis, 0), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            currentReduceTime = maxReduceTime;
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a copy of the global state of the reduction with its own database, query manager and statement list.
+     */
+    private G createWorkerState(G newGlobalState, int workerId) throws Exception {
+        G workerState = provider.getGlobalStateClass().getDeclaredConstructor().newInstance();
+        String databaseName = newGlobalState.getDatabaseName() + "_reduce" + workerId;
+        workerState.setState(provider.getStateToReproduce(databaseName));
+        if (newGlobalState.getRandomly() != null) {
+            workerState.setRandomly(new Randomly(newGlobalState.getRandomly().getSeed()));
+        }
+        workerState.setDatabaseName(databaseName);
+        workerState.setMainOptions(newGlobalState.getOptions());
+        workerState.setDbmsSpecificOptions(newGlobalState.getDbmsSpecificOptions());
+        workerState.setStateLogger(newGlobalState.getLogger());
+        workerState.setManager(new Main.QueryManager<>(workerState));
+        return workerState;
+    }
+
     @SuppressWarnings("unused")
     private void printQueries(List<Query<C>> statements) {
         System.out.println("===============================");
@@ -0,0 +1,202 @@
+package sqlancer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import sqlancer.common.query.Query;
+
+/**
+ * Creates the databases on which the reducers check their candidates.
+ *
+ * Without snapshots, every candidate is executed from the beginning on a new database. With snapshots (see
+ * {@link DatabaseProvider#takeSnapshot(GlobalState)}), the database is snapshotted after a prefix of the candidate
+ * that later candidates are likely to share. A later candidate that starts with the same statement objects restores
+ * the longest such snapshot, executes the statements of the prefix that the snapshot does not capture (see
+ * {@link DatabaseProvider#isCapturedBySnapshot(sqlancer.common.query.Query)}) and then only the remaining statements.
+ */
+final class StatementReplayer<G extends GlobalState<O, ?, C>, O extends DBMSSpecificOptions<?>, C extends SQLancerDBConnection>
+        implements AutoCloseable {
+
+    private static final int MAX_CHECKPOINTS = 8;
+
+    private final DatabaseProvider<G, O, C> provider;
+    private boolean useSnapshots;
+    // oldest checkpoint first
+    private final Deque<Checkpoint<C>> checkpoints = new ArrayDeque<>();
+
+    private static final class Checkpoint<C extends SQLancerDBConnection> {
+        private final List<Query<C>> prefix;
+        private final DatabaseSnapshot snapshot;
+
+        Checkpoint(List<Query<C>> prefix, DatabaseSnapshot snapshot) {
+            this.prefix = prefix;
+            this.snapshot = snapshot;
+        }
+
+        boolean isPrefixOf(List<Query<C>> statements, int maxLength) {
+            if (prefix.size() > maxLength || prefix.size() > statements.size()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.size(); i++) {
+                if (prefix.get(i) != statements.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    StatementReplayer(DatabaseProvider<G, O, C> provider, MainOptions options) {
+        this.provider = provider;
+        this.useSnapshots = options.reduceWithSnapshots();
+    }
+
+    /**
+     * Creates a database that contains the effects of the given statements and sets it as the connection of the state.
+     * Errors of the statements are ignored.
+     *
+     * @param globalState
+     *            the state whose connection is replaced
+     * @param statements
+     *            the statements to execute
+     * @param checkpoint
+     *            the length of the prefix of the statements after which the database is snapshotted
+     *
+     * @return the new connection, which the caller has to close
+     *
+     * @throws Exception
+     *             if the database cannot be created
+     */
+    C replay(G globalState, List<Query<C>> statements, int checkpoint) throws Exception {
+        Checkpoint<C> base = useSnapshots ? findCheckpoint(statements, checkpoint) : null;
+        C con = null;
+        if (base != null) {
+            try {
+                con = provider.restoreSnapshot(globalState, base.snapshot);
+            } catch (Exception e) {
+                e.printStackTrace();
+                disableSnapshots();
+                base = null;
+            }
+        }
+        if (con == null) {
+            con = provider.createDatabase(globalState);
+        }
+        globalState.setConnection(con);
+        try {
+            int executed = 0;
+            if (base != null) {
+                for (Query<C> s : base.prefix) {
+                    if (!provider.isCapturedBySnapshot(s)) {
+                        execute(globalState, s);
+                    }
+                }
+                executed = base.prefix.size();
+            }
+            if (useSnapshots && checkpoint > executed && checkpoint <= statements.size()) {
+                execute(globalState, statements.subList(executed, checkpoint));
+                executed = checkpoint;
+                addCheckpoint(globalState, statements.subList(0, checkpoint));
+            }
+            execute(globalState, statements.subList(executed, statements.size()));
+        } catch (InterruptedException e) {
+            con.close();
+            throw e;
+        }
+        return con;
+    }
+
+    /**
+     * Checks whether the given statements trigger the bug on a new database on which all of them are executed, without
+     * restoring a snapshot. The reducers confirm their final result with it, so that a result never depends on the
+     * checkpoints alone.
+     *
+     * @param globalState
+     *            the state whose connection and statements are replaced
+     * @param statements
+     *            the statements to execute
+     * @param reproducer
+     *            checks whether the bug is triggered
+     *
+     * @return whether the bug is triggered
+     *
+     * @throws Exception
+     *             if the database cannot be created
+     */
+    boolean reproducesFromScratch(G globalState, List<Query<C>> statements, Reproducer<G> reproducer)
+            throws Exception {
+        globalState.getState().setStatements(new ArrayList<>(statements));
+        try (C con = provider.createDatabase(globalState)) {
+            globalState.setConnection(con);
+            execute(globalState, statements);
+            try {
+                return reproducer.bugStillTriggers(globalState);
+            } catch (Throwable ignoredException) {
+                return false;
+            }
+        }
+    }
+
+    private Checkpoint<C> findCheckpoint(List<Query<C>> statements, int checkpoint) {
+        Checkpoint<C> longest = null;
+        for (Checkpoint<C> c : checkpoints) {
+            if (c.isPrefixOf(statements, checkpoint) && (longest == null || c.prefix.size() > longest.prefix.size())) {
+                longest = c;
+            }
+        }
+        return longest;
+    }
+
+    private void addCheckpoint(G globalState, List<Query<C>> prefix) {
+        DatabaseSnapshot snapshot;
+        try {
+            snapshot = provider.takeSnapshot(globalState);
+        } catch (Exception e) {
+            e.printStackTrace();
+            disableSnapshots();
+            return;
+        }
+        if (snapshot == null) {
+            // not supported (for this database)
+            return;
+        }
+        if (checkpoints.size() == MAX_CHECKPOINTS) {
+            checkpoints.removeFirst().snapshot.close();
+        }
+        checkpoints.addLast(new Checkpoint<>(new ArrayList<>(prefix), snapshot));
+    }
+
+    private void execute(G globalState, List<Query<C>> statements) throws InterruptedException {
+        for (Query<C> s : statements) {
+            // the parallel statement reducer cancels the evaluation of candidates that are no longer needed
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            execute(globalState, s);
+        }
+    }
+
+    private void execute(G globalState, Query<C> statement) {
+        try {
+            statement.execute(globalState);
+        } catch (Throwable ignoredException) {
+            // ignore
+        }
+    }
+
+    private void disableSnapshots() {
+        useSnapshots = false;
+        close();
+    }
+
+    @Override
+    public void close() {
+        for (Checkpoint<C> c : checkpoints) {
+            c.snapshot.close();
+        }
+        checkpoints.clear();
+    }
+
+}
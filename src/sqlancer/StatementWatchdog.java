@@ -0,0 +1,192 @@
+package sqlancer;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import sqlancer.Main.StateLogger;
+
+/**
+ * Detects statements that run for too long. A statement is cancelled when it exceeds --statement-timeout-seconds or
+ * when the oracle check that executes it exceeds --oracle-timeout-seconds. Statements that exceed
+ * --slow-statement-seconds, as well as cancelled ones, are recorded in the slow-statement log of their database,
+ * since a hang can be a performance bug.
+ *
+ * A cancelled statement fails with an {@link IgnoreMeException}, so that the oracle check or database is skipped.
+ */
+public final class StatementWatchdog {
+
+    private static final Map<Watch, Boolean> RUNNING = new ConcurrentHashMap<>();
+    private static final ThreadLocal<StateLogger> LOGGER = new ThreadLocal<>();
+    private static final ThreadLocal<StateToReproduce> STATE = new ThreadLocal<>();
+    // the time at which the current oracle check of the thread times out, or -1
+    private static final ThreadLocal<Long> CHECK_DEADLINE = ThreadLocal.withInitial(() -> -1L);
+
+    private static volatile boolean enabled;
+    private static int statementTimeoutSeconds = -1;
+    private static int oracleTimeoutSeconds = -1;
+    private static int slowStatementSeconds = -1;
+
+    private StatementWatchdog() {
+    }
+
+    /**
+     * Starts the watchdog if one of its options is set.
+     *
+     * @param options
+     *            the main options
+     */
+    static synchronized void start(MainOptions options) {
+        statementTimeoutSeconds = options.getStatementTimeoutSeconds();
+        oracleTimeoutSeconds = options.getOracleTimeoutSeconds();
+        slowStatementSeconds = options.getSlowStatementSeconds();
+        if (enabled || statementTimeoutSeconds == -1 && oracleTimeoutSeconds == -1 && slowStatementSeconds == -1) {
+            return;
+        }
+        enabled = true;
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "statement-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(StatementWatchdog::checkRunningStatements, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sets the logger and the state of the database that the current thread tests, in which stuck statements are
+     * recorded.
+     *
+     * @param logger
+     *            the logger of the database
+     * @param state
+     *            the state of the database
+     */
+    public static void bindToCurrentThread(StateLogger logger, StateToReproduce state) {
+        LOGGER.set(logger);
+        STATE.set(state);
+    }
+
+    public static void beginOracleCheck() {
+        if (oracleTimeoutSeconds != -1) {
+            CHECK_DEADLINE.set(System.currentTimeMillis() + oracleTimeoutSeconds * 1000L);
+        }
+    }
+
+    public static void endOracleCheck() {
+        CHECK_DEADLINE.set(-1L);
+    }
+
+    /**
+     * Watches a statement until the returned watch is closed, which has to happen once the statement has been
+     * executed, even if its result set is still open. Also sets the JDBC query timeout of the statement, which the
+     * watchdog enforces for drivers that do not support it.
+     *
+     * @param statement
+     *            the statement that is about to be executed
+     * @param query
+     *            the query string of the statement
+     *
+     * @return the watch
+     */
+    public static Watch watch(Statement statement, String query) {
+        if (!enabled) {
+            return new Watch(statement, query, -1);
+        }
+        long deadline = CHECK_DEADLINE.get();
+        if (statementTimeoutSeconds != -1) {
+            try {
+                statement.setQueryTimeout(statementTimeoutSeconds);
+            } catch (SQLException e) {
+                // not supported by the driver
+            }
+            long statementDeadline = System.currentTimeMillis() + statementTimeoutSeconds * 1000L;
+            deadline = deadline == -1 ? statementDeadline : Math.min(deadline, statementDeadline);
+        }
+        Watch watch = new Watch(statement, query, deadline);
+        RUNNING.put(watch, Boolean.TRUE);
+        return watch;
+    }
+
+    private static void checkRunningStatements() {
+        long now = System.currentTimeMillis();
+        for (Watch watch : RUNNING.keySet()) {
+            try {
+                watch.check(now);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+
+    public static final class Watch implements AutoCloseable {
+
+        private final Statement statement;
+        private final String query;
+        private final long startMillis = System.currentTimeMillis();
+        private final long deadline;
+        private final StateLogger logger;
+        private final StateToReproduce state;
+        private volatile boolean recorded;
+        private volatile boolean cancelled;
+        // guarded by the watch, so that a statement is not cancelled after the watch has been closed
+        private boolean closed;
+
+        private Watch(Statement statement, String query, long deadline) {
+            this.statement = statement;
+            this.query = query;
+            this.deadline = deadline;
+            this.logger = LOGGER.get();
+            this.state = STATE.get();
+        }
+
+        private synchronized void check(long now) throws SQLException {
+            if (closed) {
+                // the statement might already be reused for another query or be closed
+                return;
+            }
+            if (deadline != -1 && now >= deadline && !cancelled) {
+                cancelled = true;
+                record(now, true);
+                statement.cancel();
+            } else if (slowStatementSeconds != -1 && now - startMillis >= slowStatementSeconds * 1000L) {
+                record(now, false);
+            }
+        }
+
+        private synchronized void record(long now, boolean cancel) {
+            if (recorded) {
+                return;
+            }
+            recorded = true;
+            Main.nrSlowStatements.addAndGet(1);
+            if (logger != null) {
+                logger.logSlowStatement(query, now - startMillis, cancel, state);
+            }
+        }
+
+        /**
+         * Throws an {@link IgnoreMeException} if the statement failed because it timed out.
+         *
+         * @param e
+         *            the exception of the failed statement
+         */
+        public void checkTimedOut(Exception e) {
+            if (cancelled || e instanceof SQLTimeoutException) {
+                record(System.currentTimeMillis(), true);
+                throw new IgnoreMeException();
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            RUNNING.remove(this);
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package sqlancer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import sqlancer.Main.DBMSExecutor;
+import sqlancer.Main.DBMSExecutorFactory;
+
+/**
+ * Alternative to the fixed thread pool of {@link Main#executeMain(String...)} (enabled by --work-stealing).
+ *
+ * Each of the --num-tries sequences of databases is a chain of tasks on a work-stealing pool: a task generates and
+ * tests one database and then submits the task for the next database of its sequence. Thus, all sequences progress
+ * concurrently, and a thread that is blocked (e.g., by a slow reduction) does not hold back the others. With
+ * --pregenerated-databases K, each sequence additionally generates up to K databases ahead of time as separate tasks,
+ * so that the generation overlaps with the testing. Testing stops when all sequences have finished (after
+ * --max-generated-databases databases or a found bug) or --timeout-seconds has passed.
+ */
+final class WorkStealingScheduler {
+
+    private final MainOptions options;
+    private final DBMSExecutorFactory<?, ?, ?> executorFactory;
+    private final ForkJoinPool pool;
+    private final CountDownLatch runningSequences;
+    private final AtomicBoolean someOneFails = new AtomicBoolean();
+    private volatile boolean cancelled;
+
+    WorkStealingScheduler(MainOptions options, DBMSExecutorFactory<?, ?, ?> executorFactory) {
+        this.options = options;
+        this.executorFactory = executorFactory;
+        this.pool = new ForkJoinPool(options.getNumberConcurrentThreads(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.runningSequences = new CountDownLatch(options.getTotalNumberTries());
+    }
+
+    /**
+     * Tests all sequences of databases.
+     *
+     * @return whether a bug was found
+     */
+    boolean run() {
+        for (int i = 0; i < options.getTotalNumberTries(); i++) {
+            long seed;
+            if (options.getRandomSeed() == -1) {
+                seed = System.currentTimeMillis() + i;
+            } else {
+                seed = options.getRandomSeed() + i;
+            }
+            Sequence sequence = new Sequence(options.getDatabasePrefix() + i, seed);
+            pool.execute(sequence::runNext);
+        }
+        try {
+            if (options.getTimeoutSeconds() == -1) {
+                runningSequences.await();
+            } else {
+                runningSequences.await(options.getTimeoutSeconds(), TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cancelled = true;
+            pool.shutdownNow();
+        }
+        return someOneFails.get();
+    }
+
+    /**
+     * The databases tested with the same database name and seed, which were a single task of the fixed thread pool.
+     * Only one task of a sequence runs at a time, apart from the tasks that pregenerate its databases.
+     */
+    private final class Sequence {
+        private final String databaseName;
+        private final long seed;
+        private final int nrPregenerated;
+        private final Deque<ForkJoinTask<DBMSExecutor<?, ?, ?>>> pregenerated = new ArrayDeque<>();
+        // used for all databases if no databases are pregenerated
+        private Randomly r;
+        private int nrTested;
+        private int nrGenerated;
+
+        Sequence(String databaseName, long seed) {
+            this.databaseName = databaseName;
+            this.seed = seed;
+            boolean canPregenerate = executorFactory.getProvider().supportsPreparedDatabases() && !options.enableQPG();
+            this.nrPregenerated = canPregenerate ? options.getNrPregeneratedDatabases() : 0;
+        }
+
+        private boolean hasMoreDatabases(int nrDatabases) {
+            int maxNrDbs = options.getMaxGeneratedDatabases();
+            // run without a limit if maxNrDbs == -1
+            return maxNrDbs == -1 || nrDatabases < maxNrDbs;
+        }
+
+        void runNext() {
+            if (cancelled || !hasMoreDatabases(nrTested)) {
+                finish();
+                return;
+            }
+            Thread.currentThread().setName(databaseName);
+            DBMSExecutor<?, ?, ?> executor;
+            if (nrPregenerated == 0) {
+                if (r == null) {
+                    r = new Randomly(seed);
+                }
+                executor = executorFactory.getDBMSExecutor(databaseName, r);
+            } else {
+                pregenerate();
+                executor = pregenerated.removeFirst().join();
+                pregenerate();
+            }
+            boolean continueRunning = Main.runDatabase(options, executor);
+            nrTested++;
+            if (!continueRunning) {
+                someOneFails.set(true);
+                finish();
+                return;
+            }
+            ForkJoinTask.adapt(this::runNext).fork();
+        }
+
+        /**
+         * Forks tasks that generate the next databases, until K databases (plus the one tested next) are pending.
+         * Every pending database has its own name and seed, which is derived from the sequence's seed so that runs
+         * with the same --random-seed generate the same databases.
+         */
+        private void pregenerate() {
+            while (pregenerated.size() <= nrPregenerated && hasMoreDatabases(nrGenerated)) {
+                // a valid unquoted identifier, like the name of the sequence
+                String name = databaseName + "_" + nrGenerated % (nrPregenerated + 2);
+                long databaseSeed = seed + (long) nrGenerated * options.getTotalNumberTries();
+                ForkJoinTask<DBMSExecutor<?, ?, ?>> task = ForkJoinTask.adapt(() -> {
+                    DBMSExecutor<?, ?, ?> executor = executorFactory.getDBMSExecutor(name,
+                            new Randomly(databaseSeed));
+                    executor.prepareDatabase();
+                    return executor;
+                });
+                task.fork();
+                pregenerated.addLast(task);
+                nrGenerated++;
+            }
+        }
+
+        private void finish() {
+            for (ForkJoinTask<DBMSExecutor<?, ?, ?>> task : pregenerated) {
+                if (!task.cancel(false)) {
+                    DBMSExecutor<?, ?, ?> executor = task.join();
+                    executor.discardPreparedDatabase();
+                }
+            }
+            pregenerated.clear();
+            Main.threadsShutdown.addAndGet(1);
+            runningSequences.countDown();
+        }
+    }
+
+}
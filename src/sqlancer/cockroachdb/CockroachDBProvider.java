@@ -1,6 +1,5 @@
 package sqlancer.cockroachdb;
 
-import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -304,11 +303,6 @@ public class CockroachDBProvider extends SQLProviderAdapter<CockroachDBGlobalSta
         String explainQuery = "EXPLAIN (OPT) " + selectStr;
         if (globalState.getOptions().logEachSelect()) {
             globalState.getLogger().writeCurrent(explainQuery);
-            try {
-                globalState.getLogger().getCurrentFileWriter().flush();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
         SQLQueryAdapter q = new SQLQueryAdapter(explainQuery);
         boolean afterProjection = false; // Remove the concrete expression after each Projection operator
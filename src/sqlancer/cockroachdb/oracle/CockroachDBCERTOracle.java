@@ -1,6 +1,5 @@
 package sqlancer.cockroachdb.oracle;
 
-import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
@@ -247,11 +246,6 @@ public class CockroachDBCERTOracle extends CERTOracleBase<CockroachDBGlobalState
         // Log the query
         if (globalState.getOptions().logEachSelect()) {
             globalState.getLogger().writeCurrent(explainQuery);
-            try {
-                globalState.getLogger().getCurrentFileWriter().flush();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
 
         // Get the row count
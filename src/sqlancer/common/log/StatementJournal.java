@@ -0,0 +1,284 @@
+package sqlancer.common.log;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A circular journal of logged statements in a memory-mapped file, which is an alternative to the -cur.log file of
+ * --log-each-select (enabled by --statement-journal). Appending a statement only stores it in the mapped memory, which
+ * the operating system writes to the file even if the JVM crashes (e.g., in the native code of an embedded DBMS), so
+ * no flush is needed. When the journal is full, the oldest statements are overwritten, apart from the prefix (e.g., the
+ * state that was logged when the database was created), which is kept in a separate region.
+ *
+ * The file consists of a header, the prefix region and the data region. The header contains the magic number, the
+ * format version, the capacity of the data region, the logical positions of the oldest record (tail) and of the end of
+ * the newest record (head), and the capacity and length of the prefix region. The prefix region grows (and the file
+ * with it) when a longer prefix is set. A logical position p is stored at offset p % capacity of the data region. Each
+ * record is the length of the UTF-8 encoded statement (as int) followed by the statement. A record is never split at
+ * the end of the data region; instead, a zero length (if there is space for it) marks that the next record starts at
+ * offset 0. The tail is advanced before records are overwritten and the head after a record is complete, so the records
+ * between tail and head are intact at any time.
+ *
+ * The {@link #main(String...)} method decodes a journal into the SQL script that the -cur.log file would contain.
+ */
+public final class StatementJournal {
+
+    private static final long MAGIC = 0x53514C4A524E4C31L; // "SQLJRNL1"
+    private static final int VERSION = 2;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int TAIL_OFFSET = 16;
+    private static final int HEAD_OFFSET = 24;
+    private static final int PREFIX_CAPACITY_OFFSET = 32;
+    private static final int PREFIX_LENGTH_OFFSET = 36;
+    private static final int HEADER_SIZE = 40;
+    // the prefix region grows in steps of this size
+    private static final int PREFIX_ALIGNMENT = 4096;
+    private static final int LENGTH_SIZE = Integer.BYTES;
+
+    private static final Map<Path, StatementJournal> OPEN_JOURNALS = new ConcurrentHashMap<>();
+
+    private final Path file;
+    private final int capacity;
+    private MappedByteBuffer buffer;
+    private int prefixCapacity;
+    // the offset of the data region in the file
+    private int dataOffset;
+    private long tail;
+    private long head;
+
+    private StatementJournal(Path file, int capacity) throws IOException {
+        if (capacity < 2 * LENGTH_SIZE) {
+            throw new IllegalArgumentException("the capacity must be at least " + 2 * LENGTH_SIZE + " bytes");
+        }
+        if (capacity > Integer.MAX_VALUE - HEADER_SIZE - PREFIX_ALIGNMENT) {
+            throw new IllegalArgumentException("the capacity must be less than 2 GB");
+        }
+        this.file = file;
+        this.capacity = capacity;
+        Files.deleteIfExists(file);
+        map(0);
+    }
+
+    // maps the file with a prefix region of the given capacity; the statements (but not the prefix) are lost
+    private void map(int newPrefixCapacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // the mapping remains valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) newPrefixCapacity + capacity);
+        }
+        prefixCapacity = newPrefixCapacity;
+        dataOffset = HEADER_SIZE + prefixCapacity;
+        tail = head;
+        buffer.putLong(TAIL_OFFSET, tail);
+        buffer.putLong(HEAD_OFFSET, head);
+        buffer.putInt(PREFIX_CAPACITY_OFFSET, prefixCapacity);
+        buffer.putLong(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+    }
+
+    /**
+     * Returns the journal of the given file, which is created (and emptied) when it is first used in this process.
+     * Databases that are tested one after another under the same name share a journal, so that a file is only mapped
+     * once.
+     *
+     * @param file
+     *            the journal file
+     * @param capacity
+     *            the size of the data region in bytes, which is only used if the journal is created
+     *
+     * @return the journal
+     */
+    public static StatementJournal open(Path file, int capacity) {
+        return OPEN_JOURNALS.computeIfAbsent(file.toAbsolutePath(), f -> {
+            try {
+                return new StatementJournal(f, capacity);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    /**
+     * Removes all statements and the prefix.
+     */
+    public synchronized void clear() {
+        tail = head;
+        buffer.putLong(TAIL_OFFSET, tail);
+        buffer.putLong(HEAD_OFFSET, head);
+        buffer.putInt(PREFIX_LENGTH_OFFSET, 0);
+    }
+
+    /**
+     * Removes all statements and sets the prefix, which precedes the statements and is never overwritten by them. A
+     * new database sets its state (e.g., the options and the seed) as prefix, so that it is kept however many
+     * statements are executed on the database.
+     *
+     * @param prefix
+     *            the prefix as it would be written to the -cur.log file
+     */
+    public synchronized void reset(String prefix) {
+        clear();
+        byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > prefixCapacity) {
+            long newPrefixCapacity = (bytes.length + PREFIX_ALIGNMENT - 1L) / PREFIX_ALIGNMENT * PREFIX_ALIGNMENT;
+            if (HEADER_SIZE + newPrefixCapacity + capacity > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("the prefix is too long: " + bytes.length + " bytes");
+            }
+            try {
+                map((int) newPrefixCapacity);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+        ByteBuffer data = buffer.duplicate();
+        data.position(HEADER_SIZE);
+        data.put(bytes);
+        // the length is set last, so that the prefix is either complete or empty
+        buffer.putInt(PREFIX_LENGTH_OFFSET, bytes.length);
+    }
+
+    /**
+     * Appends a statement. A statement that does not fit into the journal is truncated.
+     *
+     * @param statement
+     *            the statement as it would be written to the -cur.log file
+     */
+    public synchronized void append(String statement) {
+        byte[] bytes = statement.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, capacity - LENGTH_SIZE);
+        if (length == 0) {
+            // a zero length marks a wrap
+            return;
+        }
+        long start = head;
+        if (remainingUntilEnd(start) < LENGTH_SIZE + length) {
+            start = nextWrap(start);
+        }
+        long end = start + LENGTH_SIZE + length;
+        // drop the records that will be overwritten
+        while (tail < head && tail < end - capacity) {
+            tail = skipRecord(tail);
+        }
+        if (tail == head) {
+            tail = start;
+        }
+        buffer.putLong(TAIL_OFFSET, tail);
+        if (start != head && remainingUntilEnd(head) >= LENGTH_SIZE) {
+            buffer.putInt(dataOffset + offset(head), 0);
+        }
+        buffer.putInt(dataOffset + offset(start), length);
+        ByteBuffer data = buffer.duplicate();
+        data.position(dataOffset + offset(start) + LENGTH_SIZE);
+        data.put(bytes, 0, length);
+        head = end;
+        buffer.putLong(HEAD_OFFSET, head);
+    }
+
+    private int offset(long position) {
+        return (int) (position % capacity);
+    }
+
+    private int remainingUntilEnd(long position) {
+        return capacity - offset(position);
+    }
+
+    private long nextWrap(long position) {
+        return position + remainingUntilEnd(position);
+    }
+
+    private long skipRecord(long position) {
+        return skipRecord(buffer, dataOffset, capacity, position);
+    }
+
+    private static long skipRecord(ByteBuffer buffer, int dataOffset, int capacity, long position) {
+        int offset = (int) (position % capacity);
+        int remaining = capacity - offset;
+        if (remaining < LENGTH_SIZE) {
+            return position + remaining;
+        }
+        int length = buffer.getInt(dataOffset + offset);
+        if (length == 0) {
+            return position + remaining;
+        }
+        return position + LENGTH_SIZE + length;
+    }
+
+    /**
+     * Reads the prefix and the statements of a journal file from the oldest to the newest one.
+     *
+     * @param file
+     *            the journal file
+     *
+     * @return the prefix (if it is not empty), followed by the statements
+     *
+     * @throws IOException
+     *             if the file cannot be read or is not a journal
+     */
+    public static List<String> read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.capacity() < HEADER_SIZE || buffer.getLong(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException(file + " is not a statement journal");
+        }
+        if (buffer.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException("unsupported statement journal version " + buffer.getInt(VERSION_OFFSET));
+        }
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        int dataOffset = HEADER_SIZE + buffer.getInt(PREFIX_CAPACITY_OFFSET);
+        long position = buffer.getLong(TAIL_OFFSET);
+        long head = buffer.getLong(HEAD_OFFSET);
+        List<String> statements = new ArrayList<>();
+        int prefixLength = buffer.getInt(PREFIX_LENGTH_OFFSET);
+        if (prefixLength != 0) {
+            statements.add(new String(buffer.array(), HEADER_SIZE, prefixLength, StandardCharsets.UTF_8));
+        }
+        while (position < head) {
+            int offset = (int) (position % capacity);
+            int length = capacity - offset < LENGTH_SIZE ? 0 : buffer.getInt(dataOffset + offset);
+            if (length != 0) {
+                statements.add(new String(buffer.array(), dataOffset + offset + LENGTH_SIZE, length,
+                        StandardCharsets.UTF_8));
+            }
+            position = skipRecord(buffer, dataOffset, capacity, position);
+        }
+        return statements;
+    }
+
+    /**
+     * Decodes a journal file and prints its statements, or writes them to a file.
+     *
+     * @param args
+     *            the journal file and, optionally, the output file (e.g., database0-cur.log)
+     *
+     * @throws IOException
+     *             if the journal cannot be read or the output cannot be written
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: StatementJournal <journal file> [<output file>]");
+            System.exit(1);
+        }
+        List<String> statements = read(Paths.get(args[0]));
+        try (PrintStream out = args.length == 2 ? new PrintStream(args[1], StandardCharsets.UTF_8) : System.out) {
+            for (String statement : statements) {
+                out.print(statement);
+            }
+        }
+    }
+
+}
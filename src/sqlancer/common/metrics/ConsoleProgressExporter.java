@@ -0,0 +1,27 @@
+package sqlancer.common.metrics;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Prints the progress of the run to the standard output (--print-progress-information).
+ */
+public class ConsoleProgressExporter implements MetricsExporter {
+
+    @Override
+    public void export(MetricsSnapshot previous, MetricsSnapshot current) {
+        double throughput = current.getQueriesPerSecond(previous);
+        double throughputDbs = current.getDatabasesPerSecond(previous);
+        long successfulStatementsRatio = (long) (100.0 * current.getStatementSuccessRate());
+        DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
+        Date date = new Date(current.getTimeMillis());
+        System.out.println(String.format(
+                "[%s] Executed %d queries (%d queries/s; %.2f/s dbs, successful statements: %2d%%). Threads shut down: %d.",
+                dateFormat.format(date), current.getNrQueries(), (int) throughput, throughputDbs,
+                successfulStatementsRatio, current.getNrThreadsShutdown())
+                + (current.getNrSlowStatements() == 0 ? ""
+                        : " Slow statements: " + current.getNrSlowStatements() + "."));
+    }
+
+}
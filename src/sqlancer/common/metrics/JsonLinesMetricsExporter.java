@@ -0,0 +1,92 @@
+package sqlancer.common.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Appends each snapshot as a JSON object on its own line. Counts are totals since the start of the run, while rates
+ * and latency percentiles refer to the interval since the previous line.
+ */
+public class JsonLinesMetricsExporter implements MetricsExporter {
+
+    private final Path file;
+
+    public JsonLinesMetricsExporter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void export(MetricsSnapshot previous, MetricsSnapshot current) throws IOException {
+        LatencyHistogram.Snapshot latency = current.getStatementLatency().since(previous.getStatementLatency());
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"time_millis\":").append(current.getTimeMillis());
+        sb.append(",\"queries\":").append(current.getNrQueries());
+        sb.append(",\"queries_per_second\":").append(format(current.getQueriesPerSecond(previous)));
+        sb.append(",\"databases\":").append(current.getNrDatabases());
+        sb.append(",\"databases_per_second\":").append(format(current.getDatabasesPerSecond(previous)));
+        sb.append(",\"successful_statements\":").append(current.getNrSuccessfulStatements());
+        sb.append(",\"unsuccessful_statements\":").append(current.getNrUnsuccessfulStatements());
+        sb.append(",\"statement_success_rate\":").append(format(current.getStatementSuccessRate()));
+        sb.append(",\"slow_statements\":").append(current.getNrSlowStatements());
+        sb.append(",\"threads_shut_down\":").append(current.getNrThreadsShutdown());
+        sb.append(",\"statement_latency_ms\":{\"count\":").append(latency.getCount());
+        sb.append(",\"p50\":").append(format(latency.getPercentileNanos(50) / 1e6));
+        sb.append(",\"p90\":").append(format(latency.getPercentileNanos(90) / 1e6));
+        sb.append(",\"p99\":").append(format(latency.getPercentileNanos(99) / 1e6));
+        sb.append("},\"oracles\":{");
+        String separator = "";
+        for (Map.Entry<String, MetricsSnapshot.OracleStats> e : current.getOracles().entrySet()) {
+            MetricsSnapshot.OracleStats stats = e.getValue();
+            sb.append(separator).append(quote(e.getKey()));
+            sb.append(":{\"checks\":").append(stats.getChecks());
+            sb.append(",\"passed\":").append(stats.getPassed());
+            sb.append(",\"ignored\":").append(stats.getIgnored());
+            sb.append(",\"failed\":").append(stats.getFailed());
+            sb.append(",\"mean_latency_ms\":").append(format(stats.getNanos() / 1e6 / stats.getChecks()));
+            sb.append('}');
+            separator = ",";
+        }
+        sb.append("},\"actions\":{");
+        separator = "";
+        for (Map.Entry<String, MetricsSnapshot.ActionStats> e : current.getActions().entrySet()) {
+            sb.append(separator).append(quote(e.getKey()));
+            sb.append(":{\"successful\":").append(e.getValue().getSuccessful());
+            sb.append(",\"unsuccessful\":").append(e.getValue().getUnsuccessful());
+            sb.append('}');
+            separator = ",";
+        }
+        sb.append("}}\n");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            writer.write(sb.toString());
+        }
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+}
@@ -0,0 +1,138 @@
+package sqlancer.common.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies that many threads can record concurrently without contention. The buckets are
+ * log-linear (as in HdrHistogram): each power of two is divided into eight buckets, so that a percentile is accurate
+ * to 12.5%. Other non-negative values, such as sizes, can be recorded as well.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NR_BUCKETS = SUB_BUCKETS * (Long.SIZE - SUB_BUCKET_BITS);
+
+    private final LongAdder[] buckets = new LongAdder[NR_BUCKETS];
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < NR_BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets[getBucket(value)].increment();
+        sumNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    /**
+     * Returns the largest recorded value, which (unlike the percentiles) is exact.
+     *
+     * @return the largest value, or 0 if no value was recorded
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1) + subBucket;
+    }
+
+    // the smallest value of the bucket
+    static long getLowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[NR_BUCKETS];
+        for (int i = 0; i < NR_BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(counts, sumNanos.sum());
+    }
+
+    /**
+     * The counts of a histogram at some time. The difference of two snapshots describes the latencies recorded in
+     * between.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long sumNanos;
+        private final long count;
+
+        Snapshot(long[] counts, long sumNanos) {
+            this.counts = counts;
+            this.sumNanos = sumNanos;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSumNanos() {
+            return sumNanos;
+        }
+
+        /**
+         * Returns an upper bound of the given percentile.
+         *
+         * @param percentile
+         *            the percentile between 0 and 100
+         *
+         * @return the upper bound of the bucket that contains the percentile, or 0 if no latency was recorded
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i + 1 < counts.length ? getLowerBound(i + 1) - 1 : Long.MAX_VALUE;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Returns the latencies recorded since the given snapshot of the same histogram.
+         *
+         * @param previous
+         *            an earlier snapshot
+         *
+         * @return the difference of the snapshots
+         */
+        public Snapshot since(Snapshot previous) {
+            long[] difference = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                difference[i] = counts[i] - previous.counts[i];
+            }
+            return new Snapshot(difference, sumNanos - previous.sumNanos);
+        }
+    }
+
+}
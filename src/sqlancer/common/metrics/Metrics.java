@@ -0,0 +1,129 @@
+package sqlancer.common.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import sqlancer.IgnoreMeException;
+import sqlancer.Main;
+import sqlancer.common.oracle.CompositeTestOracle;
+import sqlancer.common.oracle.TestOracle;
+
+/**
+ * The global statistics of a run: the counters of {@link Main}, the latencies of statements, and the outcomes per test
+ * oracle and per action. All of them are striped ({@link LongAdder}), so that the worker threads, which update them
+ * for each statement, do not contend.
+ */
+public final class Metrics {
+
+    private static final LatencyHistogram STATEMENT_LATENCY = new LatencyHistogram();
+    private static final Map<String, OracleCounters> ORACLES = new ConcurrentHashMap<>();
+    private static final Map<String, ActionCounters> ACTIONS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    private static final class OracleCounters {
+        private final LongAdder passed = new LongAdder();
+        private final LongAdder ignored = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+
+    private static final class ActionCounters {
+        private final LongAdder successful = new LongAdder();
+        private final LongAdder unsuccessful = new LongAdder();
+    }
+
+    /**
+     * Records an executed statement.
+     *
+     * @param elapsedNanos
+     *            the latency of the statement
+     * @param success
+     *            whether the statement was executed successfully
+     */
+    public static void recordStatement(long elapsedNanos, boolean success) {
+        if (success) {
+            Main.nrSuccessfulActions.increment();
+        } else {
+            Main.nrUnsuccessfulActions.increment();
+        }
+        STATEMENT_LATENCY.record(elapsedNanos);
+    }
+
+    /**
+     * Records the statement of an action of a statement executor.
+     *
+     * @param action
+     *            the action, whose name is its string representation
+     * @param success
+     *            whether the statement was executed successfully
+     */
+    public static void recordAction(Object action, boolean success) {
+        String name = action.toString();
+        ActionCounters counters = ACTIONS.get(name);
+        if (counters == null) {
+            counters = ACTIONS.computeIfAbsent(name, n -> new ActionCounters());
+        }
+        if (success) {
+            counters.successful.increment();
+        } else {
+            counters.unsuccessful.increment();
+        }
+    }
+
+    /**
+     * Runs a check of the oracle and records its outcome and latency. The oracles of a {@link CompositeTestOracle}
+     * are recorded separately.
+     *
+     * @param oracle
+     *            the test oracle
+     *
+     * @throws Exception
+     *             the exception of the check
+     */
+    public static void checkOracle(TestOracle<?> oracle) throws Exception {
+        if (oracle instanceof CompositeTestOracle) {
+            oracle.check();
+            return;
+        }
+        String name = oracle.getClass().getSimpleName();
+        OracleCounters counters = ORACLES.get(name);
+        if (counters == null) {
+            counters = ORACLES.computeIfAbsent(name, n -> new OracleCounters());
+        }
+        long startNanos = System.nanoTime();
+        try {
+            oracle.check();
+            counters.passed.increment();
+        } catch (IgnoreMeException e) {
+            counters.ignored.increment();
+            throw e;
+        } catch (Throwable t) {
+            counters.failed.increment();
+            throw t;
+        } finally {
+            counters.nanos.add(System.nanoTime() - startNanos);
+        }
+    }
+
+    public static MetricsSnapshot snapshot() {
+        Map<String, MetricsSnapshot.OracleStats> oracles = new TreeMap<>();
+        for (Map.Entry<String, OracleCounters> e : ORACLES.entrySet()) {
+            OracleCounters c = e.getValue();
+            oracles.put(e.getKey(), new MetricsSnapshot.OracleStats(c.passed.sum(), c.ignored.sum(), c.failed.sum(),
+                    c.nanos.sum()));
+        }
+        Map<String, MetricsSnapshot.ActionStats> actions = new TreeMap<>();
+        for (Map.Entry<String, ActionCounters> e : ACTIONS.entrySet()) {
+            ActionCounters c = e.getValue();
+            actions.put(e.getKey(), new MetricsSnapshot.ActionStats(c.successful.sum(), c.unsuccessful.sum()));
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), Main.nrQueries.sum(), Main.nrDatabases.sum(),
+                Main.nrSuccessfulActions.sum(), Main.nrUnsuccessfulActions.sum(), Main.nrSlowStatements.get(),
+                Main.threadsShutdown.get(), STATEMENT_LATENCY.snapshot(), oracles, actions);
+    }
+
+}
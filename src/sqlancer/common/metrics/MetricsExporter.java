@@ -0,0 +1,51 @@
+package sqlancer.common.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Periodically receives a snapshot of the {@link Metrics}, for example, to print the progress or to write it to a file
+ * that a monitoring system reads.
+ */
+public interface MetricsExporter {
+
+    enum Format {
+        JSON, PROMETHEUS
+    }
+
+    /**
+     * Exports a snapshot.
+     *
+     * @param previous
+     *            the snapshot of the previous export (or of the start), to compute rates
+     * @param current
+     *            the current snapshot
+     *
+     * @throws IOException
+     *             if the snapshot cannot be written
+     */
+    void export(MetricsSnapshot previous, MetricsSnapshot current) throws IOException;
+
+    /**
+     * Creates an exporter that writes to a file.
+     *
+     * @param format
+     *            JSON appends a JSON object per snapshot (JSON lines), PROMETHEUS replaces the file with the text
+     *            exposition format (e.g., for the textfile collector of the node exporter)
+     * @param file
+     *            the file
+     *
+     * @return the exporter
+     */
+    static MetricsExporter create(Format format, Path file) {
+        switch (format) {
+        case JSON:
+            return new JsonLinesMetricsExporter(file);
+        case PROMETHEUS:
+            return new PrometheusMetricsExporter(file);
+        default:
+            throw new AssertionError(format);
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package sqlancer.common.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The values of {@link Metrics} at some time. The rates and latency percentiles refer to the interval since an earlier
+ * snapshot.
+ */
+public final class MetricsSnapshot {
+
+    private final long timeMillis;
+    private final long nrQueries;
+    private final long nrDatabases;
+    private final long nrSuccessfulStatements;
+    private final long nrUnsuccessfulStatements;
+    private final long nrSlowStatements;
+    private final long nrThreadsShutdown;
+    private final LatencyHistogram.Snapshot statementLatency;
+    private final Map<String, OracleStats> oracles;
+    private final Map<String, ActionStats> actions;
+
+    MetricsSnapshot(long timeMillis, long nrQueries, long nrDatabases, long nrSuccessfulStatements,
+            long nrUnsuccessfulStatements, long nrSlowStatements, long nrThreadsShutdown,
+            LatencyHistogram.Snapshot statementLatency, Map<String, OracleStats> oracles,
+            Map<String, ActionStats> actions) {
+        this.timeMillis = timeMillis;
+        this.nrQueries = nrQueries;
+        this.nrDatabases = nrDatabases;
+        this.nrSuccessfulStatements = nrSuccessfulStatements;
+        this.nrUnsuccessfulStatements = nrUnsuccessfulStatements;
+        this.nrSlowStatements = nrSlowStatements;
+        this.nrThreadsShutdown = nrThreadsShutdown;
+        this.statementLatency = statementLatency;
+        this.oracles = Collections.unmodifiableMap(oracles);
+        this.actions = Collections.unmodifiableMap(actions);
+    }
+
+    public static final class OracleStats {
+        private final long passed;
+        private final long ignored;
+        private final long failed;
+        private final long nanos;
+
+        OracleStats(long passed, long ignored, long failed, long nanos) {
+            this.passed = passed;
+            this.ignored = ignored;
+            this.failed = failed;
+            this.nanos = nanos;
+        }
+
+        public long getPassed() {
+            return passed;
+        }
+
+        public long getIgnored() {
+            return ignored;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getChecks() {
+            return passed + ignored + failed;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    public static final class ActionStats {
+        private final long successful;
+        private final long unsuccessful;
+
+        ActionStats(long successful, long unsuccessful) {
+            this.successful = successful;
+            this.unsuccessful = unsuccessful;
+        }
+
+        public long getSuccessful() {
+            return successful;
+        }
+
+        public long getUnsuccessful() {
+            return unsuccessful;
+        }
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getNrQueries() {
+        return nrQueries;
+    }
+
+    public long getNrDatabases() {
+        return nrDatabases;
+    }
+
+    public long getNrSuccessfulStatements() {
+        return nrSuccessfulStatements;
+    }
+
+    public long getNrUnsuccessfulStatements() {
+        return nrUnsuccessfulStatements;
+    }
+
+    public long getNrSlowStatements() {
+        return nrSlowStatements;
+    }
+
+    public long getNrThreadsShutdown() {
+        return nrThreadsShutdown;
+    }
+
+    public LatencyHistogram.Snapshot getStatementLatency() {
+        return statementLatency;
+    }
+
+    public Map<String, OracleStats> getOracles() {
+        return oracles;
+    }
+
+    public Map<String, ActionStats> getActions() {
+        return actions;
+    }
+
+    /**
+     * Returns the fraction of successfully-executed statements.
+     *
+     * @return the fraction, or NaN if no statement was executed
+     */
+    public double getStatementSuccessRate() {
+        return (double) nrSuccessfulStatements / (nrSuccessfulStatements + nrUnsuccessfulStatements);
+    }
+
+    public double getQueriesPerSecond(MetricsSnapshot previous) {
+        return (nrQueries - previous.nrQueries) / getElapsedSeconds(previous);
+    }
+
+    public double getDatabasesPerSecond(MetricsSnapshot previous) {
+        return (nrDatabases - previous.nrDatabases) / getElapsedSeconds(previous);
+    }
+
+    public double getElapsedSeconds(MetricsSnapshot previous) {
+        return (timeMillis - previous.timeMillis) / 1000d;
+    }
+
+}
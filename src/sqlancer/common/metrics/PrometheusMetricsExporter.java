@@ -0,0 +1,105 @@
+package sqlancer.common.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Replaces the file with the latest snapshot in the Prometheus text exposition format. The file is written to a
+ * temporary file first and then moved, so that a collector never reads a partial file. The quantiles of the statement
+ * latency refer to the interval since the previous snapshot.
+ */
+public class PrometheusMetricsExporter implements MetricsExporter {
+
+    private final Path file;
+
+    public PrometheusMetricsExporter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void export(MetricsSnapshot previous, MetricsSnapshot current) throws IOException {
+        LatencyHistogram.Snapshot latency = current.getStatementLatency().since(previous.getStatementLatency());
+        StringBuilder sb = new StringBuilder();
+        type(sb, "sqlancer_queries_total", "counter");
+        sample(sb, "sqlancer_queries_total", "", current.getNrQueries());
+        type(sb, "sqlancer_queries_per_second", "gauge");
+        sample(sb, "sqlancer_queries_per_second", "", current.getQueriesPerSecond(previous));
+        type(sb, "sqlancer_databases_total", "counter");
+        sample(sb, "sqlancer_databases_total", "", current.getNrDatabases());
+        type(sb, "sqlancer_databases_per_second", "gauge");
+        sample(sb, "sqlancer_databases_per_second", "", current.getDatabasesPerSecond(previous));
+        type(sb, "sqlancer_statements_total", "counter");
+        sample(sb, "sqlancer_statements_total", "result=\"successful\"", current.getNrSuccessfulStatements());
+        sample(sb, "sqlancer_statements_total", "result=\"unsuccessful\"", current.getNrUnsuccessfulStatements());
+        type(sb, "sqlancer_slow_statements_total", "counter");
+        sample(sb, "sqlancer_slow_statements_total", "", current.getNrSlowStatements());
+        type(sb, "sqlancer_statement_latency_seconds", "summary");
+        for (double quantile : new double[] { 0.5, 0.9, 0.99 }) {
+            sample(sb, "sqlancer_statement_latency_seconds", "quantile=\"" + quantile + "\"",
+                    latency.getPercentileNanos(quantile * 100) / 1e9);
+        }
+        sample(sb, "sqlancer_statement_latency_seconds_sum", "", current.getStatementLatency().getSumNanos() / 1e9);
+        sample(sb, "sqlancer_statement_latency_seconds_count", "", current.getStatementLatency().getCount());
+        type(sb, "sqlancer_oracle_checks_total", "counter");
+        for (Map.Entry<String, MetricsSnapshot.OracleStats> e : current.getOracles().entrySet()) {
+            String oracle = "oracle=\"" + escape(e.getKey()) + "\"";
+            sample(sb, "sqlancer_oracle_checks_total", oracle + ",result=\"passed\"", e.getValue().getPassed());
+            sample(sb, "sqlancer_oracle_checks_total", oracle + ",result=\"ignored\"", e.getValue().getIgnored());
+            sample(sb, "sqlancer_oracle_checks_total", oracle + ",result=\"failed\"", e.getValue().getFailed());
+        }
+        type(sb, "sqlancer_oracle_check_seconds_total", "counter");
+        for (Map.Entry<String, MetricsSnapshot.OracleStats> e : current.getOracles().entrySet()) {
+            sample(sb, "sqlancer_oracle_check_seconds_total", "oracle=\"" + escape(e.getKey()) + "\"",
+                    e.getValue().getNanos() / 1e9);
+        }
+        type(sb, "sqlancer_action_statements_total", "counter");
+        for (Map.Entry<String, MetricsSnapshot.ActionStats> e : current.getActions().entrySet()) {
+            String action = "action=\"" + escape(e.getKey()) + "\"";
+            sample(sb, "sqlancer_action_statements_total", action + ",result=\"successful\"",
+                    e.getValue().getSuccessful());
+            sample(sb, "sqlancer_action_statements_total", action + ",result=\"unsuccessful\"",
+                    e.getValue().getUnsuccessful());
+        }
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporaryFile, sb.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void type(StringBuilder sb, String name, String type) {
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, long value) {
+        sb.append(name);
+        if (!labels.isEmpty()) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name);
+        if (!labels.isEmpty()) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ');
+        if (Double.isNaN(value)) {
+            sb.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            sb.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            sb.append(String.format(Locale.ROOT, "%.6f", value));
+        }
+        sb.append('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
@@ -3,6 +3,7 @@ package sqlancer.common.oracle;
 import java.util.List;
 
 import sqlancer.GlobalState;
+import sqlancer.common.metrics.Metrics;
 
 public class CompositeTestOracle<G extends GlobalState<?, ?, ?>> implements TestOracle<G> {
 
@@ -19,7 +20,7 @@ public class CompositeTestOracle<G extends GlobalState<?, ?, ?>> implements Test
     @Override
     public void check() throws Exception {
         try {
-            oracles.get(i).check();
+            Metrics.checkOracle(oracles.get(i));
             iLast = i;
             boolean lastOracleIndex = i == oracles.size() - 1;
             if (!lastOracleIndex) {
@@ -0,0 +1,179 @@
+package sqlancer.common.oracle;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import sqlancer.ExecutionTimer;
+import sqlancer.IgnoreMeException;
+import sqlancer.MainOptions;
+import sqlancer.Reproducer;
+import sqlancer.SQLGlobalState;
+import sqlancer.common.ast.newast.Expression;
+import sqlancer.common.ast.newast.Join;
+import sqlancer.common.ast.newast.Select;
+import sqlancer.common.gen.NoRECGenerator;
+import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.query.SQLQueryAdapter;
+import sqlancer.common.query.SQLancerResultSet;
+import sqlancer.common.schema.AbstractSchema;
+import sqlancer.common.schema.AbstractTable;
+import sqlancer.common.schema.AbstractTableColumn;
+import sqlancer.common.schema.AbstractTables;
+
+/**
+ * Differential latency testing on the equivalent queries of NoREC: the optimized query (e.g., SELECT COUNT(*) ... WHERE
+ * p) should not be much slower than the unoptimized query (e.g., SELECT SUM(p) ...), which the DBMS can hardly
+ * optimize. A performance bug is reported when the optimized query is slower by --performance-slowdown-factor.
+ *
+ * To reduce flakiness, both queries are executed --performance-warmup-runs times before they are measured
+ * --performance-repetitions times in alternating order, and the medians of the latencies are compared. In addition,
+ * every measurement of the optimized query must be slower than every measurement of the unoptimized query. Under the
+ * hypothesis that both queries are equally fast, this happens with a probability of 1 / (2k choose k) for k
+ * repetitions (the exact Mann-Whitney U test with U = 0), for example, less than 0.4% for k = 5.
+ */
+public class PerformanceRegressionOracle<Z extends Select<J, E, T, C>, J extends Join<E, T, C>, E extends Expression<C>, S extends AbstractSchema<?, T>, T extends AbstractTable<C, ?, ?>, C extends AbstractTableColumn<?, ?>, G extends SQLGlobalState<?, S>>
+        implements TestOracle<G> {
+
+    private final G state;
+    private final ExpectedErrors errors;
+    private final double slowdownFactor;
+    private final int repetitions;
+    private final int warmupRuns;
+    private final long minNanos;
+
+    private NoRECGenerator<Z, J, E, T, C> gen;
+    private Reproducer<G> reproducer;
+    private String lastQueryString;
+
+    public PerformanceRegressionOracle(G state, NoRECGenerator<Z, J, E, T, C> gen, ExpectedErrors expectedErrors) {
+        if (state == null || gen == null || expectedErrors == null) {
+            throw new IllegalArgumentException("Null variables used to initialize test oracle.");
+        }
+        MainOptions options = state.getOptions();
+        if (options.getPerformanceRepetitions() < 1) {
+            throw new IllegalArgumentException("--performance-repetitions must be at least 1");
+        }
+        this.state = state;
+        this.gen = gen;
+        this.errors = expectedErrors;
+        this.slowdownFactor = options.getPerformanceSlowdownFactor();
+        this.repetitions = options.getPerformanceRepetitions();
+        this.warmupRuns = options.getPerformanceWarmupRuns();
+        this.minNanos = options.getPerformanceMinMillis() * 1_000_000L;
+    }
+
+    @Override
+    public void check() throws SQLException {
+        reproducer = null;
+        S schema = state.getSchema();
+        AbstractTables<T, C> targetTables = TestOracleUtils.getRandomTableNonEmptyTables(schema);
+        gen = gen.setTablesAndColumns(targetTables);
+
+        Z select = gen.generateSelect();
+        select.setJoinClauses(gen.getRandomJoinClauses());
+        select.setFromList(gen.getTableRefs());
+        E randomWhereCondition = gen.generateBooleanExpression();
+
+        String optimizedQueryString = gen.generateOptimizedQueryString(select, randomWhereCondition, true);
+        String unoptimizedQueryString = gen.generateUnoptimizedQueryString(select, randomWhereCondition);
+        lastQueryString = optimizedQueryString;
+        if (state.getOptions().logEachSelect()) {
+            state.getLogger().writeCurrent(optimizedQueryString);
+            state.getLogger().writeCurrent(unoptimizedQueryString);
+        }
+
+        Slowdown slowdown = measure(state, optimizedQueryString, unoptimizedQueryString);
+        if (slowdown != null) {
+            reproducer = globalState -> measure(globalState, optimizedQueryString, unoptimizedQueryString) != null;
+            String queryFormatString = "-- %s;\n-- median: %.3f ms";
+            String optimizedQueryWithTime = String.format(queryFormatString, optimizedQueryString,
+                    slowdown.optimizedMedianNanos / 1e6);
+            String unoptimizedQueryWithTime = String.format(queryFormatString, unoptimizedQueryString,
+                    slowdown.unoptimizedMedianNanos / 1e6);
+            state.getState().getLocalState()
+                    .log(String.format("%s\n%s", optimizedQueryWithTime, unoptimizedQueryWithTime));
+            throw new AssertionError(String.format(
+                    "the optimized query is %.1fx slower than the unoptimized query (%d repetitions)!\n%s\n%s",
+                    slowdown.getRatio(), repetitions, optimizedQueryWithTime, unoptimizedQueryWithTime));
+        }
+    }
+
+    @Override
+    public String getLastQueryString() {
+        return lastQueryString;
+    }
+
+    @Override
+    public Reproducer<G> getLastReproducer() {
+        return reproducer;
+    }
+
+    private static final class Slowdown {
+        private final long optimizedMedianNanos;
+        private final long unoptimizedMedianNanos;
+
+        Slowdown(long optimizedMedianNanos, long unoptimizedMedianNanos) {
+            this.optimizedMedianNanos = optimizedMedianNanos;
+            this.unoptimizedMedianNanos = unoptimizedMedianNanos;
+        }
+
+        double getRatio() {
+            return (double) optimizedMedianNanos / Math.max(unoptimizedMedianNanos, 1);
+        }
+    }
+
+    /**
+     * Measures both queries and returns the slowdown of the optimized query, or null if it is not significant.
+     */
+    private Slowdown measure(SQLGlobalState<?, ?> globalState, String optimizedQueryString,
+            String unoptimizedQueryString) {
+        for (int i = 0; i < warmupRuns; i++) {
+            executeTimed(globalState, optimizedQueryString);
+            executeTimed(globalState, unoptimizedQueryString);
+        }
+        long[] optimizedNanos = new long[repetitions];
+        long[] unoptimizedNanos = new long[repetitions];
+        for (int i = 0; i < repetitions; i++) {
+            // alternate the order, so that caching and background activity affect both queries alike
+            if (i % 2 == 0) {
+                optimizedNanos[i] = executeTimed(globalState, optimizedQueryString);
+                unoptimizedNanos[i] = executeTimed(globalState, unoptimizedQueryString);
+            } else {
+                unoptimizedNanos[i] = executeTimed(globalState, unoptimizedQueryString);
+                optimizedNanos[i] = executeTimed(globalState, optimizedQueryString);
+            }
+        }
+        Arrays.sort(optimizedNanos);
+        Arrays.sort(unoptimizedNanos);
+        Slowdown slowdown = new Slowdown(optimizedNanos[repetitions / 2], unoptimizedNanos[repetitions / 2]);
+        boolean separated = optimizedNanos[0] > unoptimizedNanos[repetitions - 1];
+        if (separated && slowdown.optimizedMedianNanos >= minNanos && slowdown.getRatio() >= slowdownFactor) {
+            return slowdown;
+        }
+        return null;
+    }
+
+    /**
+     * Executes the query, fetches all rows, and returns the elapsed time.
+     */
+    private long executeTimed(SQLGlobalState<?, ?> globalState, String queryString) {
+        SQLQueryAdapter q = new SQLQueryAdapter(queryString, errors, false, false);
+        ExecutionTimer timer = new ExecutionTimer().start();
+        try (SQLancerResultSet rs = q.executeAndGet(globalState)) {
+            if (rs == null) {
+                throw new IgnoreMeException();
+            }
+            while (rs.next()) {
+                rs.getString(1);
+            }
+        } catch (SQLException e) {
+            throw new IgnoreMeException();
+        } catch (IgnoreMeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new AssertionError(q.getQueryString(), e);
+        }
+        return timer.end().getElapsedNanos();
+    }
+
+}
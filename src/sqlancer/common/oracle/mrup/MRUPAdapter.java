@@ -0,0 +1,63 @@
+package sqlancer.common.oracle.mrup;
+
+import java.util.List;
+
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.ColumnType;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.ScaleProfile;
+import sqlancer.common.query.ExpectedErrors;
+
+/**
+ * The DBMS-specific part of the MRUP oracle: type names, transaction statements, expected errors and the window
+ * features that the DBMS supports. Everything else (table-pair generation, window specs, normalization and the
+ * per-partition comparison) is shared.
+ */
+public interface MRUPAdapter {
+
+    /**
+     * @return the SQL type of a column of the given type in CREATE TABLE
+     */
+    String getTypeName(ColumnType type);
+
+    /**
+     * @return the statement that starts the transaction around the INSERTs of a table pair, or null to insert in
+     *         auto-commit mode
+     */
+    default String getBeginTransaction() {
+        return null;
+    }
+
+    default String getCommit() {
+        return "COMMIT";
+    }
+
+    /**
+     * @return the errors expected when creating, filling or dropping the tables of a pair
+     */
+    ExpectedErrors getTableErrors();
+
+    /**
+     * @return the errors expected when executing the window queries
+     */
+    ExpectedErrors getQueryErrors();
+
+    /**
+     * @return the number of window queries that are executed on a table pair before a new pair is generated
+     */
+    int getQueriesPerPair();
+
+    /**
+     * @return the scale profile for large table pairs, or null for the default small tables
+     */
+    ScaleProfile getScaleProfile();
+
+    /**
+     * @return the supported frame units (a subset of ROWS, RANGE and GROUPS)
+     */
+    List<String> getFrameUnits();
+
+    /**
+     * @return whether frames can have an EXCLUDE clause
+     */
+    boolean supportsFrameExclusion();
+
+}
@@ -0,0 +1,384 @@
+package sqlancer.common.oracle.mrup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * MRUP normalization and per-partition comparison of the results of Q1, Q2 and Q_union.
+ *
+ * Validates the MRUP metamorphic relation: for each partition P, Q_union[P] = Q1[P] if P ∈ t1, or Q2[P] if P ∈ t2.
+ * The comparison only depends on the {@link MRUPWindowSpec} and the typed {@link MRUPResult}s, so it is shared by all
+ * DBMSs.
+ */
+public class MRUPComparator {
+
+    // Below this number of rows (Q1 + Q2 + Q_union), normalization and comparison run sequentially
+    public static final int DEFAULT_PARALLEL_COMPARISON_THRESHOLD = 10000;
+
+    private final MRUPWindowSpec spec;
+    private final IntConsumer partitionSizes;
+    private final int parallelComparisonThreshold;
+
+    /**
+     * A partition in which Q_union differs from Q1 UNION ALL Q2, with its normalized rows.
+     */
+    public static final class Mismatch {
+
+        private final String partition;
+        private final String source;
+        private final List<List<String>> expected;
+        private final List<List<String>> actual;
+
+        Mismatch(String partition, String source, List<List<String>> expected, List<List<String>> actual) {
+            this.partition = partition;
+            this.source = source;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public String getPartition() {
+            return partition;
+        }
+
+        /**
+         * @return "Q1" or "Q2", depending on which result the partition is expected in
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return the rows of the partition in Q1 or Q2 (empty if the partition only exists in Q_union)
+         */
+        public List<List<String>> getExpected() {
+            return expected;
+        }
+
+        /**
+         * @return the rows of the partition in Q_union (empty if the partition is missing in Q_union)
+         */
+        public List<List<String>> getActual() {
+            return actual;
+        }
+
+        @Override
+        public String toString() {
+            if (expected.isEmpty()) {
+                return "Partition '" + partition + "' found in Q_union but not in Q1 or Q2";
+            } else if (actual.isEmpty()) {
+                return "Partition '" + partition + "' missing in Q_union";
+            } else {
+                return "Partition '" + partition + "' mismatch (source: " + source + ")\nExpected: " + expected
+                        + "\nActual: " + actual;
+            }
+        }
+    }
+
+    /**
+     * @param spec
+     *            the window spec of the compared queries
+     * @param partitionSizes
+     *            receives the size of every partition of Q_union (e.g., for a histogram)
+     */
+    public MRUPComparator(MRUPWindowSpec spec, IntConsumer partitionSizes) {
+        this(spec, partitionSizes, DEFAULT_PARALLEL_COMPARISON_THRESHOLD);
+    }
+
+    /**
+     * @param spec
+     *            the window spec of the compared queries
+     * @param partitionSizes
+     *            receives the size of every partition of Q_union (e.g., for a histogram)
+     * @param parallelComparisonThreshold
+     *            the number of rows (Q1 + Q2 + Q_union) from which the partitions are compared in parallel
+     */
+    public MRUPComparator(MRUPWindowSpec spec, IntConsumer partitionSizes, int parallelComparisonThreshold) {
+        this.spec = spec;
+        this.partitionSizes = partitionSizes;
+        this.parallelComparisonThreshold = parallelComparisonThreshold;
+    }
+
+    /**
+     * Normalizes the three results and compares them partition by partition. Large results are compared in parallel.
+     *
+     * @return the first mismatching partition in normalized order, or null if all partitions match
+     */
+    public Mismatch compare(MRUPResult q1Results, MRUPResult q2Results, MRUPResult qUnionResults) {
+        int rows = q1Results.getRowCount() + q2Results.getRowCount() + qUnionResults.getRowCount();
+        if (rows >= parallelComparisonThreshold) {
+            // Layers 2 + 3 for large results: partitions are normalized and compared independently
+            return comparePartitionsInParallel(q1Results, q2Results, qUnionResults);
+        }
+        // Layer 2: MRUP Normalization (Semantic Sorting)
+        // Only row indices are sorted, so the original row order stays available for logging without copies
+        int[] order1 = normalize(q1Results);
+        int[] order2 = normalize(q2Results);
+        int[] orderUnion = normalize(qUnionResults);
+
+        // Layer 3: Per-Partition Comparison (Exact Match)
+        Mismatch mismatch = comparePerPartition(q1Results, order1, q2Results, order2, qUnionResults, orderUnion);
+        recordPartitionSizes(qUnionResults, orderUnion);
+        return mismatch;
+    }
+
+    /**
+     * MRUP Normalization - Sort results preserving window function semantics.
+     *
+     * Sorts by:
+     * 1. Partition key (dept)
+     * 2. ORDER BY keys (salary, age) in specified direction
+     * 3. Window function result (wf_result)
+     * 4. Remaining columns as final tie-breaker, so that the order is total and
+     *    two results with the same rows always normalize to the same sequence
+     *
+     * This is the CORRECT way to sort for MRUP comparison, unlike the naive
+     * lexicographic sorting which breaks window semantics.
+     *
+     * @return the row indices of the result in normalized order (the result itself is not modified)
+     */
+    public int[] normalize(MRUPResult results) {
+        return results.sortedRowOrder((row1, row2) -> compareNormalized(results, row1, results, row2));
+    }
+
+    /**
+     * Type-aware row comparator used for normalization and for merging Q1 and Q2.
+     *
+     * Values are compared by their storage class (see {@link MRUPResult#compareCell}),
+     * so nothing is re-parsed from strings.
+     */
+    private int compareNormalized(MRUPResult r1, int row1, MRUPResult r2, int row2) {
+        // 1. Compare partition key (SQL standard default for partition: NULLS FIRST)
+        int cmp = r1.compareCell(row1, r2, row2, spec.getPartitionColumnIndex(), true);
+        if (cmp != 0) return cmp;
+
+        // 2. Compare ORDER BY keys in order
+        for (MRUPWindowSpec.OrderTerm term : spec.getOrderTerms()) {
+            cmp = r1.compareCell(row1, r2, row2, term.getColumnIndex(), term.isNullsFirst());
+            // Reverse if DESC
+            if (term.isDescending()) {
+                cmp = -cmp;
+            }
+            if (cmp != 0) return cmp;
+        }
+
+        // 3. Compare window function result
+        cmp = r1.compareCell(row1, r2, row2, spec.getWfResultIndex(), false);
+        if (cmp != 0) return cmp;
+
+        // 4. Tie-breaker over all columns (returns 0 only for identical rows)
+        for (int col = 0; col < r1.getColumnCount(); col++) {
+            cmp = r1.compareCell(row1, r2, row2, col, true);
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+
+    /**
+     * Per-partition comparison.
+     *
+     * All three results are normalized (partition key first), and t1/t2 partitions are disjoint,
+     * so Q1 ∪ Q2 in normalized order is a merge of the two normalized sequences. We walk that
+     * merge and Q_union in a single pass; rows are only materialized if a mismatch is found.
+     */
+    private Mismatch comparePerPartition(
+        MRUPResult q1Results, int[] q1Order,
+        MRUPResult q2Results, int[] q2Order,
+        MRUPResult qUnionResults, int[] qUnionOrder
+    ) {
+        int partitionIndex = spec.getPartitionColumnIndex();
+        int i1 = 0;
+        int i2 = 0;
+        for (int iu = 0; iu < qUnionOrder.length; iu++) {
+            int unionRow = qUnionOrder[iu];
+            MRUPResult expected;
+            int expectedRow;
+            if (i2 >= q2Order.length || i1 < q1Order.length
+                    && compareNormalized(q1Results, q1Order[i1], q2Results, q2Order[i2]) <= 0) {
+                if (i1 >= q1Order.length) {
+                    return mismatch(qUnionResults.getString(unionRow, partitionIndex), q1Results, q1Order,
+                            q2Results, q2Order, qUnionResults, qUnionOrder);
+                }
+                expected = q1Results;
+                expectedRow = q1Order[i1++];
+            } else {
+                expected = q2Results;
+                expectedRow = q2Order[i2++];
+            }
+            if (!expected.rowEquals(expectedRow, qUnionResults, unionRow)) {
+                // Attribute the mismatch to the partition that sorts first
+                boolean unionFirst = compareNormalized(qUnionResults, unionRow, expected, expectedRow) < 0;
+                String partition = unionFirst ? qUnionResults.getString(unionRow, partitionIndex)
+                        : expected.getString(expectedRow, partitionIndex);
+                return mismatch(partition, q1Results, q1Order, q2Results, q2Order, qUnionResults, qUnionOrder);
+            }
+        }
+        if (i1 < q1Order.length || i2 < q2Order.length) {
+            String partition = i1 < q1Order.length ? q1Results.getString(q1Order[i1], partitionIndex)
+                    : q2Results.getString(q2Order[i2], partitionIndex);
+            return mismatch(partition, q1Results, q1Order, q2Results, q2Order, qUnionResults, qUnionOrder);
+        }
+        return null;
+    }
+
+    /**
+     * Per-partition comparison for large results.
+     *
+     * t1 and t2 have disjoint partitions, so every partition of Q_union must equal exactly one
+     * partition of Q1 or Q2. Each partition is a work item: its rows are normalized and compared
+     * on the common ForkJoin pool. The first mismatching partition in normalized order is reported,
+     * as in {@link #comparePerPartition}.
+     */
+    private Mismatch comparePartitionsInParallel(
+        MRUPResult q1Results,
+        MRUPResult q2Results,
+        MRUPResult qUnionResults
+    ) {
+        int partitionIndex = spec.getPartitionColumnIndex();
+        List<int[]> q1Partitions = q1Results.groupRows(partitionIndex);
+        List<int[]> q2Partitions = q2Results.groupRows(partitionIndex);
+        List<int[]> unionPartitions = qUnionResults.groupRows(partitionIndex);
+
+        Map<Object, int[]> q1ByKey = partitionsByKey(q1Results, q1Partitions, partitionIndex);
+        Map<Object, int[]> q2ByKey = partitionsByKey(q2Results, q2Partitions, partitionIndex);
+        if (!Collections.disjoint(q1ByKey.keySet(), q2ByKey.keySet())) {
+            // Partitions are not disjoint (should not happen): the merge-based comparison handles this case
+            return comparePerPartition(q1Results, normalize(q1Results), q2Results, normalize(q2Results),
+                    qUnionResults, normalize(qUnionResults));
+        }
+
+        for (int[] partition : unionPartitions) {
+            partitionSizes.accept(partition.length);
+        }
+
+        // Layer 2: normalize every partition
+        normalizePartitions(q1Results, q1Partitions);
+        normalizePartitions(q2Results, q2Partitions);
+        normalizePartitions(qUnionResults, unionPartitions);
+
+        // Layer 3: compare every partition of Q_union with the partition of Q1 or Q2 with the same key
+        OptionalInt firstMismatch = IntStream.range(0, unionPartitions.size()).parallel().filter(i -> {
+            int[] actual = unionPartitions.get(i);
+            Object key = qUnionResults.cellKey(actual[0], partitionIndex);
+            MRUPResult expectedResults = q1ByKey.containsKey(key) ? q1Results : q2Results;
+            int[] expected = q1ByKey.containsKey(key) ? q1ByKey.get(key) : q2ByKey.get(key);
+            if (expected == null || expected.length != actual.length) {
+                return true;
+            }
+            for (int row = 0; row < actual.length; row++) {
+                if (!expectedResults.rowEquals(expected[row], qUnionResults, actual[row])) {
+                    return true;
+                }
+            }
+            return false;
+        }).findFirst();
+
+        // Partitions of Q1 and Q2 that are missing in Q_union
+        Set<Object> unionKeys = partitionsByKey(qUnionResults, unionPartitions, partitionIndex).keySet();
+        MRUPResult firstResults = null;
+        int firstRow = -1;
+        if (firstMismatch.isPresent()) {
+            firstResults = qUnionResults;
+            firstRow = unionPartitions.get(firstMismatch.getAsInt())[0];
+        }
+        for (MRUPResult expectedResults : new MRUPResult[] { q1Results, q2Results }) {
+            Map<Object, int[]> expectedByKey = expectedResults == q1Results ? q1ByKey : q2ByKey;
+            for (Map.Entry<Object, int[]> entry : expectedByKey.entrySet()) {
+                int row = entry.getValue()[0];
+                if (!unionKeys.contains(entry.getKey()) && (firstResults == null
+                        || expectedResults.compareCell(row, firstResults, firstRow, partitionIndex, true) < 0)) {
+                    firstResults = expectedResults;
+                    firstRow = row;
+                }
+            }
+        }
+        if (firstResults == null) {
+            return null;
+        }
+        return mismatch(firstResults.getString(firstRow, partitionIndex),
+                q1Results, concatPartitions(q1Partitions), q2Results, concatPartitions(q2Partitions),
+                qUnionResults, concatPartitions(unionPartitions));
+    }
+
+    /**
+     * Report the size of every partition of a normalized result.
+     */
+    private void recordPartitionSizes(MRUPResult results, int[] order) {
+        int partitionIndex = spec.getPartitionColumnIndex();
+        int partitionStart = 0;
+        for (int i = 1; i <= order.length; i++) {
+            if (i == order.length
+                    || results.compareCell(order[i - 1], results, order[i], partitionIndex, true) != 0) {
+                partitionSizes.accept(i - partitionStart);
+                partitionStart = i;
+            }
+        }
+    }
+
+    private void normalizePartitions(MRUPResult results, List<int[]> partitions) {
+        partitions.parallelStream().forEach(rows -> MRUPResult.sortRows(rows,
+                (row1, row2) -> compareNormalized(results, row1, results, row2)));
+    }
+
+    private static Map<Object, int[]> partitionsByKey(MRUPResult results, List<int[]> partitions,
+                                                      int partitionIndex) {
+        Map<Object, int[]> byKey = new HashMap<>();
+        for (int[] rows : partitions) {
+            byKey.put(results.cellKey(rows[0], partitionIndex), rows);
+        }
+        return byKey;
+    }
+
+    /**
+     * Concatenate normalized partitions (in partition order) into the normalized order of the whole result.
+     */
+    private static int[] concatPartitions(List<int[]> partitions) {
+        int size = 0;
+        for (int[] rows : partitions) {
+            size += rows.length;
+        }
+        int[] order = new int[size];
+        int offset = 0;
+        for (int[] rows : partitions) {
+            System.arraycopy(rows, 0, order, offset, rows.length);
+            offset += rows.length;
+        }
+        return order;
+    }
+
+    /**
+     * Collect the normalized rows of one partition (failure path only).
+     */
+    private List<List<String>> partitionRows(MRUPResult results, int[] order, String partition) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int row : order) {
+            if (results.getString(row, spec.getPartitionColumnIndex()).equals(partition)) {
+                rows.add(results.getRow(row));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Collect the rows of the mismatching partition from all three results.
+     */
+    private Mismatch mismatch(String partition,
+                              MRUPResult q1Results, int[] q1Order,
+                              MRUPResult q2Results, int[] q2Order,
+                              MRUPResult qUnionResults, int[] qUnionOrder) {
+        List<List<String>> expected = partitionRows(q1Results, q1Order, partition);
+        String source = "Q1";
+        if (expected.isEmpty()) {
+            expected = partitionRows(q2Results, q2Order, partition);
+            source = "Q2";
+        }
+        List<List<String>> actual = partitionRows(qUnionResults, qUnionOrder, partition);
+        return new Mismatch(partition, source, expected, actual);
+    }
+}
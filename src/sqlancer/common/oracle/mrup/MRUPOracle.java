@@ -0,0 +1,237 @@
+package sqlancer.common.oracle.mrup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import sqlancer.IgnoreMeException;
+import sqlancer.Randomly;
+import sqlancer.SQLGlobalState;
+import sqlancer.common.oracle.TestOracle;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.Column;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.ColumnType;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.Schema;
+import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.query.SQLQueryAdapter;
+
+/**
+ * DBMS-independent MRUP (MR-UNION-PARTITION) oracle for window functions.
+ *
+ * 1. Generate two tables t1 and t2 with the same schema and disjoint partitions
+ * 2. Generate a window function whose OVER clause partitions by the partition key
+ * 3. Execute it on t1 (Q1), t2 (Q2) and t1 UNION ALL t2 (Q_union)
+ * 4. Check that Q_union equals Q1 UNION ALL Q2, partition by partition
+ *
+ * The DBMS-specific parts are provided by an {@link MRUPAdapter}. Unlike the SQLite oracle, the window function is not
+ * mutated, since there is no DBMS-independent expression AST to mutate.
+ *
+ * @param <G>
+ *            the global state type
+ */
+public class MRUPOracle<G extends SQLGlobalState<?, ?>> implements TestOracle<G> {
+
+    private static final String[] AGGREGATE_FUNCTIONS = { "SUM", "AVG", "COUNT", "MIN", "MAX" };
+    private static final String[] RANKING_FUNCTIONS = { "ROW_NUMBER", "RANK", "DENSE_RANK" };
+
+    private final G globalState;
+    private final MRUPAdapter adapter;
+    private final ExpectedErrors errors;
+    private final MRUPTablePairGenerator tablePairGenerator;
+    private Schema schema;
+    private int remainingQueries;
+    private int pairCounter;
+    private String lastQueryString;
+
+    public MRUPOracle(G globalState, MRUPAdapter adapter) {
+        if (adapter.getQueriesPerPair() < 1) {
+            throw new IllegalArgumentException(
+                    "queriesPerPair must be at least 1, but was " + adapter.getQueriesPerPair());
+        }
+        this.globalState = globalState;
+        this.adapter = adapter;
+        this.errors = adapter.getQueryErrors();
+        this.tablePairGenerator = new MRUPTablePairGenerator(globalState, adapter);
+    }
+
+    @Override
+    public void check() throws Exception {
+        // Step 1: Get two tables with the same schema; the pair is reused for several checks
+        acquireTablePair();
+        String t1 = tableName(1);
+        String t2 = tableName(2);
+        List<Column> columns = schema.getColumns();
+
+        // Step 2: Generate the window function (C5: only deterministic functions)
+        boolean isRankingFunction = globalState.getRandomly().getInteger(0, 100) >= 98;
+        String functionType = isRankingFunction ? Randomly.fromOptions(RANKING_FUNCTIONS)
+                : Randomly.fromOptions(AGGREGATE_FUNCTIONS);
+        MRUPWindowSpec spec = generateWindowSpec(columns);
+        // C3: no frames for ranking functions
+        if (!isRankingFunction && Randomly.getBoolean()) {
+            spec.setFrame(generateFrame(spec));
+        }
+        String argument = isRankingFunction ? "" : generateArgument(functionType, columns).getName();
+        String windowFunction = functionType + "(" + argument + ") OVER (" + spec.toSQL() + ")";
+
+        // Step 3: Execute Q1, Q2 and Q_union
+        String q1 = buildWindowQuery(columns, windowFunction, t1);
+        String q2 = buildWindowQuery(columns, windowFunction, t2);
+        String qUnion = buildWindowQuery(columns, windowFunction,
+                "(SELECT * FROM " + t1 + " UNION ALL SELECT * FROM " + t2 + ") AS t_union");
+        lastQueryString = "-- Q1:\n" + q1 + "\n-- Q2:\n" + q2 + "\n-- Q_union:\n" + qUnion;
+
+        Map<String, String> textPool = new HashMap<>();
+        MRUPResult results1 = executeAndGetResults(q1, textPool);
+        MRUPResult results2 = executeAndGetResults(q2, textPool);
+        MRUPResult resultsUnion = executeAndGetResults(qUnion, textPool);
+
+        // Step 4: Compare (cardinality first, then normalized partitions)
+        int expectedCardinality = results1.getRowCount() + results2.getRowCount();
+        if (resultsUnion.getRowCount() != expectedCardinality) {
+            throw new AssertionError(String.format(
+                    "MRUP Oracle: Cardinality mismatch!\nExpected: %d (Q1: %d + Q2: %d)\nActual: %d\nQueries:\n%s",
+                    expectedCardinality, results1.getRowCount(), results2.getRowCount(),
+                    resultsUnion.getRowCount(), lastQueryString));
+        }
+        MRUPComparator.Mismatch mismatch = new MRUPComparator(spec, size -> {
+        }).compare(results1, results2, resultsUnion);
+        if (mismatch != null) {
+            throw new AssertionError(String.format("MRUP Oracle: Per-partition comparison failed!\n%s\nQueries:\n%s",
+                    mismatch, lastQueryString));
+        }
+    }
+
+    @Override
+    public String getLastQueryString() {
+        return lastQueryString;
+    }
+
+    private String tableName(int table) {
+        return "mrup" + pairCounter + "_t" + table;
+    }
+
+    /**
+     * Generates a new table pair (and drops the previous one) when the current pair has been used
+     * {@link MRUPAdapter#getQueriesPerPair()} times.
+     */
+    private void acquireTablePair() throws Exception {
+        if (schema == null || remainingQueries == 0) {
+            if (schema != null) {
+                dropTablePair();
+            }
+            schema = null;
+            pairCounter++;
+            try {
+                schema = tablePairGenerator.generateTablePair(tableName(1), tableName(2));
+            } catch (Exception e) {
+                // the next pair gets new names, so nothing else would drop the partially created tables
+                dropTablePair();
+                throw e;
+            }
+            remainingQueries = adapter.getQueriesPerPair();
+        }
+        remainingQueries--;
+    }
+
+    private void dropTablePair() throws Exception {
+        for (int table = 1; table <= 2; table++) {
+            globalState.executeStatement(new SQLQueryAdapter("DROP TABLE IF EXISTS " + tableName(table),
+                    adapter.getTableErrors(), true));
+        }
+    }
+
+    /**
+     * The column aggregated by the window function: SUM and AVG require a numeric column, while COUNT, MIN and MAX
+     * accept any column.
+     */
+    private static Column generateArgument(String functionType, List<Column> columns) {
+        if (!functionType.equals("SUM") && !functionType.equals("AVG")) {
+            return Randomly.fromList(columns);
+        }
+        List<Column> numericColumns = new ArrayList<>();
+        for (Column column : columns) {
+            if (column.getType() != ColumnType.TEXT) {
+                numericColumns.add(column);
+            }
+        }
+        // the order columns are always numeric
+        return Randomly.fromList(numericColumns);
+    }
+
+    /**
+     * OVER clause following the MRUP constraints:
+     * - C1: PARTITION BY the partition key (mandatory, otherwise Q_union is one partition)
+     * - C2: ORDER BY salary and optionally age, with explicit directions and NULLS FIRST/LAST
+     */
+    private MRUPWindowSpec generateWindowSpec(List<Column> columns) {
+        Column partitionColumn = schema.getPartitionColumn();
+        MRUPWindowSpec spec = new MRUPWindowSpec(partitionColumn.getName(), columns.indexOf(partitionColumn),
+                columns.size());
+        List<Column> orderColumns = schema.getOrderColumns();
+        int numOrderTerms = orderColumns.size() == 1 ? 1 : Randomly.fromOptions(1, 2);
+        for (Column column : orderColumns.subList(0, numOrderTerms)) {
+            spec.addOrderTerm(column.getName(), columns.indexOf(column), Randomly.getBoolean(),
+                    Randomly.getBoolean());
+        }
+        return spec;
+    }
+
+    /**
+     * Frame clause for aggregate functions:
+     * - C4: RANGE only with a single ORDER BY term
+     */
+    private String generateFrame(MRUPWindowSpec spec) {
+        List<String> units = new ArrayList<>(adapter.getFrameUnits());
+        if (spec.getOrderTerms().size() != 1) {
+            units.remove("RANGE");
+        }
+        if (units.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(Randomly.fromList(units));
+        if (Randomly.getBoolean()) {
+            // Simple frame start (implicit: AND CURRENT ROW)
+            sb.append(" ").append(Randomly.fromOptions("UNBOUNDED PRECEDING", "CURRENT ROW", "1 PRECEDING",
+                    "2 PRECEDING", "3 PRECEDING"));
+        } else {
+            sb.append(" BETWEEN ")
+                    .append(Randomly.fromOptions("UNBOUNDED PRECEDING", "CURRENT ROW", "3 PRECEDING",
+                            "2 PRECEDING", "1 PRECEDING"))
+                    .append(" AND ").append(Randomly.fromOptions("CURRENT ROW", "UNBOUNDED FOLLOWING",
+                            "1 FOLLOWING", "2 FOLLOWING"));
+        }
+        if (adapter.supportsFrameExclusion() && Randomly.getBoolean()) {
+            sb.append(" ").append(
+                    Randomly.fromOptions("EXCLUDE NO OTHERS", "EXCLUDE CURRENT ROW", "EXCLUDE GROUP", "EXCLUDE TIES"));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * SELECT all columns and the window function as wf_result (the last column) from a table or subquery.
+     */
+    private static String buildWindowQuery(List<Column> columns, String windowFunction, String from) {
+        StringBuilder sb = new StringBuilder("SELECT ");
+        for (Column column : columns) {
+            sb.append(column.getName()).append(", ");
+        }
+        sb.append(windowFunction).append(" AS wf_result FROM ").append(from);
+        return sb.toString();
+    }
+
+    private MRUPResult executeAndGetResults(String query, Map<String, String> textPool) throws SQLException {
+        try (Statement stmt = globalState.getConnection().createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
+            return MRUPResult.fromResultSet(rs, textPool);
+        } catch (SQLException e) {
+            if (e.getMessage() != null && errors.errorIsExpected(e.getMessage())) {
+                throw new IgnoreMeException();
+            }
+            throw e;
+        }
+    }
+}
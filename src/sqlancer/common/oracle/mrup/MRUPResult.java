@@ -0,0 +1,427 @@
+package sqlancer.common.oracle.mrup;
+
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar, typed result of an MRUP window query.
+ *
+ * Values are stored per column in primitive arrays (long for INTEGER, double for REAL, interned String for TEXT and
+ * BLOB) together with a NULL bitmap, and are filled straight from the JDBC {@link ResultSet}. Rows are never
+ * materialized as {@code List<String>} unless {@link #toStringRows()} is called (i.e., for logging).
+ *
+ * The storage classes are those of SQLite. Values of other DBMSs are mapped onto them: integral types (including a
+ * {@link BigInteger} that fits into a long) are INTEGER, float and double are REAL, and everything else (DECIMAL,
+ * BOOLEAN, dates, ...) is kept as its {@code toString()} TEXT, which is exact.
+ *
+ * Two cells are equal iff they have the same storage class and the same value, which is exactly what the previous
+ * {@code value.toString()} comparison checked (e.g., INTEGER 5 and REAL 5.0 are different).
+ */
+public final class MRUPResult {
+
+    static final byte INTEGER = 1;
+    static final byte REAL = 2;
+    static final byte TEXT = 3;
+    static final byte BLOB = 4;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int columnCount;
+    private final long[][] nulls;
+    private final byte[][] kinds;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final String[][] texts;
+    private int rowCount;
+    private int capacity;
+
+    private MRUPResult(int columnCount) {
+        this.columnCount = columnCount;
+        this.capacity = INITIAL_CAPACITY;
+        this.nulls = new long[columnCount][];
+        this.kinds = new byte[columnCount][];
+        this.longs = new long[columnCount][];
+        this.doubles = new double[columnCount][];
+        this.texts = new String[columnCount][];
+        for (int col = 0; col < columnCount; col++) {
+            nulls[col] = new long[bitmapWords(capacity)];
+            kinds[col] = new byte[capacity];
+        }
+    }
+
+    /**
+     * Reads all rows of the given result set.
+     *
+     * @param rs
+     *            the result set, positioned before the first row
+     * @param textPool
+     *            pool used to intern TEXT/BLOB values; sharing it between the results of one check lets equal strings
+     *            be compared by reference
+     *
+     * @return the columnar result
+     *
+     * @throws SQLException
+     *             if reading the result set fails
+     */
+    public static MRUPResult fromResultSet(ResultSet rs, Map<String, String> textPool) throws SQLException {
+        MRUPResult result = new MRUPResult(rs.getMetaData().getColumnCount());
+        while (rs.next()) {
+            int row = result.addRow();
+            for (int col = 0; col < result.columnCount; col++) {
+                Object value = rs.getObject(col + 1);
+                if (value == null) {
+                    result.nulls[col][row >>> 6] |= 1L << row;
+                } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                        || value instanceof Byte
+                        || value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+                    result.kinds[col][row] = INTEGER;
+                    result.longColumn(col)[row] = ((Number) value).longValue();
+                } else if (value instanceof Double || value instanceof Float) {
+                    result.kinds[col][row] = REAL;
+                    result.doubleColumn(col)[row] = ((Number) value).doubleValue();
+                } else if (value instanceof byte[]) {
+                    result.kinds[col][row] = BLOB;
+                    result.textColumn(col)[row] = textPool.computeIfAbsent(toHex((byte[]) value), k -> k);
+                } else {
+                    result.kinds[col][row] = TEXT;
+                    result.textColumn(col)[row] = textPool.computeIfAbsent(value.toString(), k -> k);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int addRow() {
+        if (rowCount == capacity) {
+            capacity *= 2;
+            for (int col = 0; col < columnCount; col++) {
+                nulls[col] = Arrays.copyOf(nulls[col], bitmapWords(capacity));
+                kinds[col] = Arrays.copyOf(kinds[col], capacity);
+                if (longs[col] != null) {
+                    longs[col] = Arrays.copyOf(longs[col], capacity);
+                }
+                if (doubles[col] != null) {
+                    doubles[col] = Arrays.copyOf(doubles[col], capacity);
+                }
+                if (texts[col] != null) {
+                    texts[col] = Arrays.copyOf(texts[col], capacity);
+                }
+            }
+        }
+        return rowCount++;
+    }
+
+    private long[] longColumn(int col) {
+        if (longs[col] == null) {
+            longs[col] = new long[capacity];
+        }
+        return longs[col];
+    }
+
+    private double[] doubleColumn(int col) {
+        if (doubles[col] == null) {
+            doubles[col] = new double[capacity];
+        }
+        return doubles[col];
+    }
+
+    private String[] textColumn(int col) {
+        if (texts[col] == null) {
+            texts[col] = new String[capacity];
+        }
+        return texts[col];
+    }
+
+    private static int bitmapWords(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2 + 3);
+        sb.append("x'");
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.append("'").toString();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public boolean isNull(int row, int col) {
+        return (nulls[col][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Compares a cell of this result with a cell of another result.
+     *
+     * NULLs are placed according to {@code nullsFirst}; numbers sort before TEXT, and TEXT before BLOB (as in SQLite).
+     * Numerically equal INTEGER and REAL values are ordered INTEGER first, so that the comparison only returns 0 for
+     * cells that are also {@link #cellEquals equal}.
+     */
+    public int compareCell(int row, MRUPResult other, int otherRow, int col, boolean nullsFirst) {
+        boolean null1 = isNull(row, col);
+        boolean null2 = other.isNull(otherRow, col);
+        if (null1 || null2) {
+            if (null1 && null2) {
+                return 0;
+            }
+            return null1 == nullsFirst ? -1 : 1;
+        }
+        byte kind1 = kinds[col][row];
+        byte kind2 = other.kinds[col][otherRow];
+        boolean numeric1 = kind1 == INTEGER || kind1 == REAL;
+        boolean numeric2 = kind2 == INTEGER || kind2 == REAL;
+        if (numeric1 && numeric2) {
+            if (kind1 == INTEGER && kind2 == INTEGER) {
+                return Long.compare(longs[col][row], other.longs[col][otherRow]);
+            }
+            int cmp = Double.compare(getDouble(row, col), other.getDouble(otherRow, col));
+            return cmp != 0 ? cmp : Byte.compare(kind1, kind2);
+        }
+        if (kind1 != kind2) {
+            return Byte.compare(kind1, kind2);
+        }
+        String text1 = texts[col][row];
+        String text2 = other.texts[col][otherRow];
+        return text1 == text2 ? 0 : text1.compareTo(text2);
+    }
+
+    /**
+     * Checks whether a cell of this result is identical to a cell of another result (same storage class and value).
+     */
+    public boolean cellEquals(int row, MRUPResult other, int otherRow, int col) {
+        boolean null1 = isNull(row, col);
+        if (null1 || other.isNull(otherRow, col)) {
+            return null1 && other.isNull(otherRow, col);
+        }
+        byte kind = kinds[col][row];
+        if (kind != other.kinds[col][otherRow]) {
+            return false;
+        }
+        switch (kind) {
+        case INTEGER:
+            return longs[col][row] == other.longs[col][otherRow];
+        case REAL:
+            return Double.doubleToLongBits(doubles[col][row]) == Double.doubleToLongBits(other.doubles[col][otherRow]);
+        default:
+            String text1 = texts[col][row];
+            String text2 = other.texts[col][otherRow];
+            return text1 == text2 || text1.equals(text2);
+        }
+    }
+
+    /**
+     * Checks whether all cells of a row of this result are identical to the cells of a row of another result.
+     */
+    public boolean rowEquals(int row, MRUPResult other, int otherRow) {
+        if (columnCount != other.columnCount) {
+            return false;
+        }
+        for (int col = 0; col < columnCount; col++) {
+            if (!cellEquals(row, other, otherRow, col)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double getDouble(int row, int col) {
+        return kinds[col][row] == INTEGER ? longs[col][row] : doubles[col][row];
+    }
+
+    /**
+     * Renders a cell the same way {@code rs.getObject(i).toString()} did, with {@code "NULL"} for NULL values.
+     */
+    public String getString(int row, int col) {
+        if (isNull(row, col)) {
+            return "NULL";
+        }
+        switch (kinds[col][row]) {
+        case INTEGER:
+            return Long.toString(longs[col][row]);
+        case REAL:
+            return Double.toString(doubles[col][row]);
+        default:
+            return texts[col][row];
+        }
+    }
+
+    public List<String> getRow(int row) {
+        List<String> values = new ArrayList<>(columnCount);
+        for (int col = 0; col < columnCount; col++) {
+            values.add(getString(row, col));
+        }
+        return values;
+    }
+
+    /**
+     * Materializes the given rows as strings (only used for logging and bug reports).
+     */
+    public List<List<String>> toStringRows(int... rows) {
+        List<List<String>> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(getRow(row));
+        }
+        return result;
+    }
+
+    /**
+     * Materializes all rows in their original order as strings (only used for logging and bug reports).
+     */
+    public List<List<String>> toStringRows() {
+        List<List<String>> result = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            result.add(getRow(row));
+        }
+        return result;
+    }
+
+    /**
+     * Comparator on row indices of a single result.
+     */
+    @FunctionalInterface
+    public interface RowComparator {
+        int compare(int row1, int row2);
+    }
+
+    /**
+     * Returns the row indices of this result in the order given by the comparator. The rows themselves are not moved or
+     * copied; the sort is a stable merge sort on a primitive index array.
+     */
+    public int[] sortedRowOrder(RowComparator comparator) {
+        int[] order = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            order[i] = i;
+        }
+        sortRows(order, comparator);
+        return order;
+    }
+
+    /**
+     * Sorts the given row indices (e.g., the rows of a single partition) in place, using the same stable merge sort as
+     * {@link #sortedRowOrder}.
+     */
+    public static void sortRows(int[] rows, RowComparator comparator) {
+        if (rows.length > 1) {
+            mergeSort(rows, new int[rows.length], 0, rows.length, comparator);
+        }
+    }
+
+    /**
+     * Groups the rows of this result by the value of a column (e.g., the partition key), in a single hashing pass.
+     *
+     * @return the row indices of each group, with the groups ordered by the column value (NULLs first) and the rows of
+     *         a group in their original order
+     */
+    public List<int[]> groupRows(int col) {
+        Map<Object, Integer> groupIndex = new HashMap<>();
+        int[] groupOfRow = new int[rowCount];
+        int[] sizes = new int[rowCount];
+        List<Integer> firstRows = new ArrayList<>();
+        for (int row = 0; row < rowCount; row++) {
+            Integer index = groupIndex.putIfAbsent(cellKey(row, col), firstRows.size());
+            if (index == null) {
+                index = firstRows.size();
+                firstRows.add(row);
+            }
+            groupOfRow[row] = index;
+            sizes[index]++;
+        }
+        int[][] groups = new int[firstRows.size()][];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int row = 0; row < rowCount; row++) {
+            int index = groupOfRow[row];
+            groups[index][sizes[index]++] = row;
+        }
+        List<int[]> result = new ArrayList<>(Arrays.asList(groups));
+        result.sort((g1, g2) -> compareCell(g1[0], this, g2[0], col, true));
+        return result;
+    }
+
+    /**
+     * Returns a key for a cell that can be used in hash-based collections: two keys are equal iff the cells are
+     * {@link #cellEquals equal}, also across results.
+     */
+    public Object cellKey(int row, int col) {
+        if (isNull(row, col)) {
+            return NULL_KEY;
+        }
+        switch (kinds[col][row]) {
+        case INTEGER:
+            return longs[col][row];
+        case REAL:
+            // Double.equals() compares doubleToLongBits, like cellEquals
+            return doubles[col][row];
+        case BLOB:
+            return new BlobKey(texts[col][row]);
+        default:
+            return texts[col][row];
+        }
+    }
+
+    private static final Object NULL_KEY = new Object();
+
+    private static final class BlobKey {
+        private final String hex;
+
+        BlobKey(String hex) {
+            this.hex = hex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof BlobKey && ((BlobKey) obj).hex.equals(hex);
+        }
+
+        @Override
+        public int hashCode() {
+            return hex.hashCode();
+        }
+    }
+
+    private static void mergeSort(int[] a, int[] tmp, int from, int to, RowComparator comparator) {
+        if (to - from <= 8) {
+            for (int i = from + 1; i < to; i++) {
+                int value = a[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(a[j], value) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid, comparator);
+        mergeSort(a, tmp, mid, to, comparator);
+        if (comparator.compare(a[mid - 1], a[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(a, from, tmp, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || i < mid && comparator.compare(tmp[i], tmp[j]) <= 0) {
+                a[k] = tmp[i++];
+            } else {
+                a[k] = tmp[j++];
+            }
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package sqlancer.common.oracle.mrup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import sqlancer.Randomly;
+import sqlancer.SQLGlobalState;
+import sqlancer.common.query.SQLQueryAdapter;
+
+/**
+ * MRUP Table Pair Generator with Disjoint Partitions
+ *
+ * Creates two tables with:
+ * 1. IDENTICAL schema
+ * 2. DISJOINT partition key values (critical for MRUP correctness)
+ * 3. Suitable columns for window functions (partition, order, data columns)
+ *
+ * Schema Design:
+ * - dept TEXT             -- Partition key (DISJOINT between t1 and t2)
+ * - salary INTEGER/REAL   -- Order key 1 (suitable for ORDER BY)
+ * - age INTEGER           -- Order key 2 (optional)
+ * - c0, c1, ... (1-4)     -- Additional data columns
+ *
+ * The column types are mapped to SQL types by the {@link MRUPAdapter}; all literals are portable.
+ *
+ * Disjoint Partition Strategy:
+ * - Set A (for t1): ['Finance', 'Engineering', 'HR']
+ * - Set B (for t2): ['Sales', 'Marketing', 'Operations']
+ * - Guarantee: A ∩ B = ∅
+ *
+ * Scale Profile:
+ * - Thousands of partitions per table: 'A_00000', 'A_00001', ... for t1 and 'B_00000', ... for t2 (still disjoint)
+ * - Zipfian partition sizes: partition k gets a share proportional to 1 / (k + 1)^s, i.e., one hot partition
+ *   and a long tail (every partition has at least one row)
+ * - Salaries are not rounded, so that sorts and frames see many distinct keys
+ */
+public class MRUPTablePairGenerator {
+
+    // Disjoint partition sets
+    private static final String[] PARTITION_SET_A = {"Finance", "Engineering", "HR"};
+    private static final String[] PARTITION_SET_B = {"Sales", "Marketing", "Operations"};
+
+    // Rows per INSERT statement
+    private static final int MAX_ROWS_PER_INSERT = 100;
+
+    private final SQLGlobalState<?, ?> globalState;
+    private final MRUPAdapter adapter;
+    private final ScaleProfile scaleProfile;
+
+    public enum ColumnType {
+        INTEGER, REAL, TEXT
+    }
+
+    /**
+     * A column definition of the MRUP schema.
+     */
+    public static final class Column {
+
+        private final String name;
+        private final ColumnType type;
+
+        Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+    }
+
+    /**
+     * The schema shared by both tables of a pair.
+     */
+    public static final class Schema {
+
+        private final Column partitionColumn;
+        private final List<Column> orderColumns;
+        private final List<Column> additionalColumns;
+
+        Schema(Column partitionColumn, List<Column> orderColumns, List<Column> additionalColumns) {
+            this.partitionColumn = partitionColumn;
+            this.orderColumns = orderColumns;
+            this.additionalColumns = additionalColumns;
+        }
+
+        public Column getPartitionColumn() {
+            return partitionColumn;
+        }
+
+        /**
+         * @return salary and, optionally, age
+         */
+        public List<Column> getOrderColumns() {
+            return Collections.unmodifiableList(orderColumns);
+        }
+
+        /**
+         * @return all columns in table order: dept, the order columns, the additional columns
+         */
+        public List<Column> getColumns() {
+            List<Column> columns = new ArrayList<>();
+            columns.add(partitionColumn);
+            columns.addAll(orderColumns);
+            columns.addAll(additionalColumns);
+            return columns;
+        }
+    }
+
+    /**
+     * Size of the table pairs in the scale profile.
+     */
+    public static final class ScaleProfile {
+
+        private final int partitions;
+        private final int rowsPerPartition;
+        private final double zipfExponent;
+
+        /**
+         * @param partitions
+         *            the number of partitions per table
+         * @param rowsPerPartition
+         *            the average number of rows per partition
+         * @param zipfExponent
+         *            the exponent of the Zipf distribution of the partition sizes (0 for equally sized partitions)
+         */
+        public ScaleProfile(int partitions, int rowsPerPartition, double zipfExponent) {
+            this.partitions = partitions;
+            this.rowsPerPartition = rowsPerPartition;
+            this.zipfExponent = zipfExponent;
+        }
+    }
+
+    public MRUPTablePairGenerator(SQLGlobalState<?, ?> globalState, MRUPAdapter adapter) {
+        this.globalState = globalState;
+        this.adapter = adapter;
+        this.scaleProfile = adapter.getScaleProfile();
+    }
+
+    /**
+     * Creates two tables with the same, random schema and fills them with rows of DISJOINT partitions.
+     *
+     * @param tableName1 the name of t1 (partition Set A)
+     * @param tableName2 the name of t2 (partition Set B)
+     * @return the schema of both tables
+     * @throws Exception if table creation fails
+     */
+    public Schema generateTablePair(String tableName1, String tableName2) throws Exception {
+        if (tableName1.equalsIgnoreCase(tableName2)) {
+            throw new SQLException("MRUP Error: table1 and table2 have the same name: " + tableName1);
+        }
+        // Step 1: Generate MRUP-compliant schema
+        Schema schema = generateSchema();
+
+        // Step 2: Create two tables with the same schema
+        createTable(tableName1, schema);
+        createTable(tableName2, schema);
+
+        // Step 3: Insert data with DISJOINT partitions (in a single transaction, if supported)
+        String begin = adapter.getBeginTransaction();
+        boolean inTransaction = begin != null
+                && globalState.executeStatement(new SQLQueryAdapter(begin, adapter.getTableErrors()));
+        try {
+            insertDataWithDisjointPartitions(tableName1, schema, true);  // Use Set A
+            insertDataWithDisjointPartitions(tableName2, schema, false); // Use Set B
+        } finally {
+            if (inTransaction) {
+                globalState.executeStatement(new SQLQueryAdapter(adapter.getCommit(), adapter.getTableErrors(), true));
+            }
+        }
+
+        // Step 4: Validate disjoint partitions
+        validateDisjointPartitions(tableName1, tableName2, schema);
+        return schema;
+    }
+
+    /**
+     * Generate MRUP-compliant schema with:
+     * - Mandatory partition column (TEXT)
+     * - Mandatory order columns (INTEGER/REAL)
+     * - Optional additional columns (with diversity)
+     *
+     * Phase A Improvements:
+     * - Variable column count (3-7 columns total)
+     * - Type diversity (INTEGER, REAL, TEXT)
+     * - More nullable columns
+     */
+    private static Schema generateSchema() {
+        // 1. Mandatory partition column (always TEXT for disjoint partitions)
+        Column partitionColumn = new Column("dept", ColumnType.TEXT);
+
+        // 2. Mandatory order columns (1-2 columns)
+        List<Column> orderColumns = new ArrayList<>();
+
+        // First order column: salary (INTEGER or REAL for diversity)
+        // 66% INTEGER, 33% REAL
+        ColumnType salaryType = Randomly.fromOptions(ColumnType.INTEGER, ColumnType.INTEGER, ColumnType.REAL);
+        orderColumns.add(new Column("salary", salaryType));
+
+        // Second order column: age (optional, 70% chance)
+        if (Randomly.getBooleanWithRatherLowProbability()) {
+            orderColumns.add(new Column("age", ColumnType.INTEGER));
+        }
+
+        // 3. Additional columns (1-4 columns for diversity)
+        // Phase A: Increased from 0-2 to 1-4
+        List<Column> additionalColumns = new ArrayList<>();
+        int numAdditional = Randomly.fromOptions(1, 2, 2, 3, 4); // Weighted: more likely 2-3
+
+        for (int i = 0; i < numAdditional; i++) {
+            // Phase A: Type diversity
+            // 40% INTEGER, 30% REAL, 30% TEXT
+            ColumnType colType = Randomly.fromOptions(
+                ColumnType.INTEGER, ColumnType.INTEGER,                 // 40%
+                ColumnType.REAL, ColumnType.REAL, ColumnType.REAL,      // 30%
+                ColumnType.TEXT, ColumnType.TEXT, ColumnType.TEXT       // 30%
+            );
+            additionalColumns.add(new Column("c" + i, colType));
+        }
+
+        return new Schema(partitionColumn, orderColumns, additionalColumns);
+    }
+
+    /**
+     * Create a table with MRUP-compliant schema.
+     */
+    private void createTable(String tableName, Schema schema) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("CREATE TABLE IF NOT EXISTS ");
+        sb.append(tableName);
+        sb.append(" (");
+        List<Column> columns = schema.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append(columns.get(i).getName()).append(" ").append(adapter.getTypeName(columns.get(i).getType()));
+        }
+        sb.append(")");
+
+        globalState.executeStatement(new SQLQueryAdapter(sb.toString(), adapter.getTableErrors(), true));
+    }
+
+    /**
+     * Insert data with DISJOINT partitions.
+     *
+     * Phase A Improvements:
+     * - Reduced row count (3-8 rows instead of 5-20) for better performance
+     * - Edge case data generation
+     *
+     * @param tableName The table to insert into
+     * @param schema The schema definition
+     * @param useSetA If true, use partition Set A; otherwise use Set B
+     */
+    private void insertDataWithDisjointPartitions(String tableName, Schema schema, boolean useSetA)
+            throws Exception {
+        if (scaleProfile != null) {
+            insertScaleData(tableName, schema, useSetA);
+            return;
+        }
+        String[] partitionSet = useSetA ? PARTITION_SET_A : PARTITION_SET_B;
+
+        // Phase A: Reduced row count for performance (3-8 rows instead of 5-20)
+        int numRows = Randomly.fromOptions(3, 4, 5, 6, 7, 8);
+
+        // Ensure we have 2-3 partitions per table
+        int numPartitions = Randomly.fromOptions(2, 3);
+
+        // Select partitions from the set
+        List<String> selectedPartitions = new ArrayList<>();
+        for (int i = 0; i < numPartitions && i < partitionSet.length; i++) {
+            selectedPartitions.add(partitionSet[i]);
+        }
+
+        // Add NULL partition ONLY in table1 (useSetA=true) to ensure disjoint
+        // If both tables had NULL, they would overlap
+        boolean includeNullPartition = useSetA && Randomly.getBoolean() && Randomly.getBoolean();
+
+        // Generate all rows first and insert them with multi-row INSERT statements
+        List<String> rows = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            // Choose partition for this row
+            String partition;
+            if (includeNullPartition && Randomly.getBoolean() && Randomly.getBoolean()) {
+                partition = null; // NULL partition
+            } else {
+                partition = Randomly.fromList(selectedPartitions);
+            }
+
+            // Generate row data
+            rows.add(generateRowValues(schema, partition));
+        }
+        insertRows(tableName, rows);
+    }
+
+    /**
+     * Scale profile: insert the configured number of partitions with, on average, the configured number of rows,
+     * whose sizes follow a Zipf distribution with the configured exponent.
+     *
+     * The partition values are prefixed with 'A_' for t1 and 'B_' for t2, so the partitions stay disjoint.
+     */
+    private void insertScaleData(String tableName, Schema schema, boolean useSetA) throws Exception {
+        int numPartitions = scaleProfile.partitions;
+        int[] partitionSizes = zipfPartitionSizes(numPartitions, numPartitions * scaleProfile.rowsPerPartition,
+                scaleProfile.zipfExponent);
+
+        // One entry per row, shuffled so that the rows of a partition are spread over the table
+        int[] rowPartitions = new int[IntStream.of(partitionSizes).sum()];
+        int row = 0;
+        for (int partition = 0; partition < numPartitions; partition++) {
+            for (int i = 0; i < partitionSizes[partition]; i++) {
+                rowPartitions[row++] = partition;
+            }
+        }
+        for (int i = rowPartitions.length - 1; i > 0; i--) {
+            int j = (int) Randomly.getNotCachedInteger(0, i + 1);
+            int tmp = rowPartitions[i];
+            rowPartitions[i] = rowPartitions[j];
+            rowPartitions[j] = tmp;
+        }
+
+        String prefix = useSetA ? "A_" : "B_";
+        List<String> rows = new ArrayList<>(rowPartitions.length);
+        for (int partition : rowPartitions) {
+            rows.add(generateRowValues(schema, String.format("%s%05d", prefix, partition)));
+        }
+        insertRows(tableName, rows);
+    }
+
+    /**
+     * Distribute the rows over the partitions so that partition k gets a share proportional to 1 / (k + 1)^exponent
+     * (exponent 0 is uniform). Every partition gets at least one row.
+     *
+     * @return the number of rows of each partition
+     */
+    public static int[] zipfPartitionSizes(int numPartitions, int numRows, double exponent) {
+        if (numPartitions < 1 || numRows < numPartitions || exponent < 0) {
+            throw new IllegalArgumentException(
+                    numPartitions + " partitions, " + numRows + " rows, exponent " + exponent);
+        }
+        double[] cumulative = new double[numPartitions];
+        double total = 0;
+        for (int k = 0; k < numPartitions; k++) {
+            total += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = total;
+        }
+        int[] sizes = new int[numPartitions];
+        Arrays.fill(sizes, 1);
+        for (int i = numPartitions; i < numRows; i++) {
+            int k = Arrays.binarySearch(cumulative, Randomly.getPercentage() * total);
+            sizes[Math.min(k >= 0 ? k : -k - 1, numPartitions - 1)]++;
+        }
+        return sizes;
+    }
+
+    /**
+     * Insert the given rows with as few statements as possible. Every statement is still executed (and logged) through
+     * the global state, so that the generated database can be reproduced.
+     */
+    private void insertRows(String tableName, List<String> rows) throws Exception {
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_INSERT) {
+            int to = Math.min(from + MAX_ROWS_PER_INSERT, rows.size());
+            StringBuilder sb = new StringBuilder();
+            sb.append("INSERT INTO ").append(tableName).append(" VALUES ");
+            sb.append(String.join(", ", rows.subList(from, to)));
+            globalState.executeStatement(new SQLQueryAdapter(sb.toString(), adapter.getTableErrors(), true));
+        }
+    }
+
+    /**
+     * Generate the VALUES tuple of a single row with specified partition value.
+     */
+    private String generateRowValues(Schema schema, String partitionValue) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("(");
+
+        // Partition column value
+        if (partitionValue == null) {
+            sb.append("NULL");
+        } else {
+            sb.append("'").append(partitionValue).append("'");
+        }
+
+        // Order columns (generate values with edge cases)
+        for (Column col : schema.orderColumns) {
+            sb.append(", ");
+
+            if (col.type == ColumnType.INTEGER) {
+                // Phase A: Add edge cases with low probability (10%)
+                if (col.name.equals("salary")) {
+                    // Salary: mostly 20000-100000, but 10% edge cases
+                    if (Randomly.getBooleanWithSmallProbability()) {
+                        // Edge cases: MIN_INT, MAX_INT, 0, -1, 1
+                        sb.append(Randomly.fromOptions(
+                            String.valueOf(Integer.MIN_VALUE),
+                            String.valueOf(Integer.MAX_VALUE),
+                            "0", "-1", "1"
+                        ));
+                    } else {
+                        // Normal range: 20000-100000
+                        long salaryLong = 20000 + Randomly.getNotCachedInteger(0, 80000);
+                        // Round to nearest 5000 to create some duplicates (large partitions have duplicates anyway)
+                        long salary = scaleProfile != null ? salaryLong : (salaryLong / 5000) * 5000;
+                        sb.append(salary);
+                    }
+                } else if (col.name.equals("age")) {
+                    // Age: mostly 20-65, but 10% edge cases
+                    if (Randomly.getBooleanWithSmallProbability()) {
+                        sb.append(Randomly.fromOptions("0", "1", "-1", "100", "200"));
+                    } else {
+                        sb.append(20 + Randomly.getNotCachedInteger(0, 45));
+                    }
+                } else {
+                    sb.append(Randomly.getNotCachedInteger(-1000000, 1000000));
+                }
+            } else if (col.type == ColumnType.REAL) {
+                // Phase A: REAL type support with edge cases
+                if (Randomly.getBooleanWithSmallProbability()) {
+                    // Edge cases: 0.0, -1.0, 1.0, very large/small
+                    sb.append(Randomly.fromOptions("0.0", "-1.0", "1.0", "999999.99", "-999999.99"));
+                } else {
+                    // Normal range
+                    long salaryLong = 20000 + Randomly.getNotCachedInteger(0, 80000);
+                    double salary = salaryLong + (Randomly.getNotCachedInteger(0, 100) / 100.0);
+                    sb.append(salary);
+                }
+            } else {
+                sb.append(Randomly.getNotCachedInteger(-1000000, 1000000));
+            }
+        }
+
+        // Additional columns (Phase A: improved NULL handling and edge cases)
+        for (Column col : schema.additionalColumns) {
+            sb.append(", ");
+
+            // Phase A: 30% chance of NULL (increased from 20%)
+            if (Randomly.getBooleanWithRatherLowProbability()) {
+                sb.append("NULL");
+            } else if (col.type == ColumnType.INTEGER) {
+                // Phase A: 15% edge cases for additional INTEGER columns
+                if (Randomly.getBooleanWithSmallProbability()) {
+                    sb.append(Randomly.fromOptions(
+                        String.valueOf(Integer.MIN_VALUE),
+                        String.valueOf(Integer.MAX_VALUE),
+                        "0", "-1", "1", "100", "-100"
+                    ));
+                } else {
+                    // Normal range with intentional duplicates
+                    long value = Randomly.getNotCachedInteger(-1000000, 1000000);
+                    // Round to create duplicates (20% chance)
+                    if (Randomly.getBoolean() && Randomly.getBoolean()) {
+                        value = (value / 1000) * 1000;
+                    }
+                    sb.append(value);
+                }
+            } else if (col.type == ColumnType.TEXT) {
+                // Phase A: More diverse TEXT values
+                String text = Randomly.fromOptions(
+                    "A", "B", "C", "Test", "Data", "Value",
+                    "", "X", "Y", "Z", "Alpha", "Beta"  // Added more options
+                );
+                sb.append("'").append(text).append("'");
+            } else {
+                // Phase A: REAL with edge cases
+                if (Randomly.getBooleanWithSmallProbability()) {
+                    sb.append(Randomly.fromOptions(
+                        "0.0", "-1.0", "1.0", "0.5", "-0.5",
+                        "999999.99", "-999999.99"
+                    ));
+                } else {
+                    double value = Randomly.getNotCachedInteger(-100000, 100000) / 100.0;
+                    sb.append(value);
+                }
+            }
+        }
+
+        sb.append(")");
+        return sb.toString();
+    }
+
+    /**
+     * Validate that t1 and t2 have DISJOINT partition values.
+     * This is CRITICAL for MRUP correctness.
+     */
+    private void validateDisjointPartitions(String tableName1, String tableName2, Schema schema)
+            throws SQLException {
+        Set<String> overlap = getPartitionValues(tableName1, schema);
+        overlap.retainAll(getPartitionValues(tableName2, schema));
+
+        if (!overlap.isEmpty()) {
+            throw new SQLException("MRUP CRITICAL ERROR: Partition overlap detected! " +
+                                 "t1 and t2 must have DISJOINT partition values. " +
+                                 "Overlapping partitions: " + overlap);
+        }
+    }
+
+    private Set<String> getPartitionValues(String tableName, Schema schema) throws SQLException {
+        Set<String> partitions = new HashSet<>();
+        String query = "SELECT DISTINCT " + schema.partitionColumn.name + " FROM " + tableName;
+        try (Statement stmt = globalState.getConnection().createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                String val = rs.getString(1);
+                partitions.add(val == null ? "<NULL>" : val);
+            }
+        }
+        return partitions;
+    }
+}
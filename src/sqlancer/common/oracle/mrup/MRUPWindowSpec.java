@@ -0,0 +1,137 @@
+package sqlancer.common.oracle.mrup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DBMS-independent model of the OVER clause of an MRUP window function.
+ *
+ * The model holds what MRUP normalization needs (the PARTITION BY column, the ORDER BY terms and the positions of these
+ * columns in the result of the window query, where wf_result follows the selected columns) and an optional frame
+ * clause. DBMSs without an own window-spec AST generate it directly and render it with {@link #toSQL()}; SQLite reads
+ * it back from its expression tree after the mutations.
+ */
+public final class MRUPWindowSpec {
+
+    private final String partitionColumn;
+    private final int partitionColumnIndex;
+    private final int wfResultIndex;
+    private final List<OrderTerm> orderTerms = new ArrayList<>();
+    private String frame;
+
+    /**
+     * A term of the ORDER BY clause: a column, its direction and the placement of NULLs.
+     */
+    public static final class OrderTerm {
+
+        private final String column;
+        private final int columnIndex;
+        private final boolean descending;
+        private final boolean nullsFirst;
+
+        OrderTerm(String column, int columnIndex, boolean descending, boolean nullsFirst) {
+            this.column = column;
+            this.columnIndex = columnIndex;
+            this.descending = descending;
+            this.nullsFirst = nullsFirst;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public int getColumnIndex() {
+            return columnIndex;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+
+        public boolean isNullsFirst() {
+            return nullsFirst;
+        }
+
+        @Override
+        public String toString() {
+            return column + (descending ? " DESC" : " ASC") + (nullsFirst ? " NULLS FIRST" : " NULLS LAST");
+        }
+    }
+
+    /**
+     * @param partitionColumn
+     *            the PARTITION BY column, or null if the window function is not partitioned
+     * @param partitionColumnIndex
+     *            the index of the PARTITION BY column in the result of the window query
+     * @param wfResultIndex
+     *            the index of wf_result in the result of the window query
+     */
+    public MRUPWindowSpec(String partitionColumn, int partitionColumnIndex, int wfResultIndex) {
+        this.partitionColumn = partitionColumn;
+        this.partitionColumnIndex = partitionColumnIndex;
+        this.wfResultIndex = wfResultIndex;
+    }
+
+    public void addOrderTerm(String column, int columnIndex, boolean descending, boolean nullsFirst) {
+        orderTerms.add(new OrderTerm(column, columnIndex, descending, nullsFirst));
+    }
+
+    /**
+     * Sets the frame clause (e.g., {@code ROWS BETWEEN 1 PRECEDING AND CURRENT ROW}); null for the default frame.
+     */
+    public void setFrame(String frame) {
+        this.frame = frame;
+    }
+
+    public String getPartitionColumn() {
+        return partitionColumn;
+    }
+
+    public int getPartitionColumnIndex() {
+        return partitionColumnIndex;
+    }
+
+    public int getWfResultIndex() {
+        return wfResultIndex;
+    }
+
+    public List<OrderTerm> getOrderTerms() {
+        return Collections.unmodifiableList(orderTerms);
+    }
+
+    public List<String> getOrderByColumns() {
+        List<String> columns = new ArrayList<>(orderTerms.size());
+        for (OrderTerm term : orderTerms) {
+            columns.add(term.getColumn());
+        }
+        return columns;
+    }
+
+    public String getFrame() {
+        return frame;
+    }
+
+    /**
+     * Renders the contents of the OVER clause, with explicit directions and NULLS FIRST/LAST on every ORDER BY term.
+     */
+    public String toSQL() {
+        StringBuilder sb = new StringBuilder();
+        if (partitionColumn != null) {
+            sb.append("PARTITION BY ").append(partitionColumn);
+        }
+        if (!orderTerms.isEmpty()) {
+            sb.append(sb.length() == 0 ? "" : " ").append("ORDER BY ");
+            for (int i = 0; i < orderTerms.size(); i++) {
+                if (i != 0) {
+                    sb.append(", ");
+                }
+                sb.append(orderTerms.get(i));
+            }
+        }
+        if (frame != null) {
+            sb.append(sb.length() == 0 ? "" : " ").append(frame);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package sqlancer.common.qpg;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import sqlancer.common.DBMSCommon;
+
+/**
+ * The weighted average rewards of the mutation operators of Query Plan Guidance (QPG), which are shared by all threads
+ * that test the same DBMS. Each reward is updated atomically (by a compare-and-set loop on its bits), so that
+ * concurrent updates of the same mutation operator are not lost, and updates of different operators do not contend.
+ */
+public final class MutatorRewards {
+
+    private static final Map<Class<?>, MutatorRewards> SHARED_REWARDS = new ConcurrentHashMap<>();
+
+    private final AtomicLongArray rewards;
+
+    MutatorRewards(double... initialRewards) {
+        rewards = new AtomicLongArray(initialRewards.length);
+        for (int i = 0; i < initialRewards.length; i++) {
+            rewards.set(i, Double.doubleToRawLongBits(initialRewards[i]));
+        }
+    }
+
+    /**
+     * Returns the rewards that are shared by all providers of the given class, and creates them on first use.
+     *
+     * @param providerClass
+     *            the class of the provider
+     * @param initialRewards
+     *            the initial rewards, one for each mutation operator
+     *
+     * @return the shared rewards
+     */
+    public static MutatorRewards getShared(Class<?> providerClass, Supplier<double[]> initialRewards) {
+        return SHARED_REWARDS.computeIfAbsent(providerClass, c -> new MutatorRewards(initialRewards.get()));
+    }
+
+    public int getNrMutators() {
+        return rewards.length();
+    }
+
+    public double get(int mutator) {
+        return Double.longBitsToDouble(rewards.get(mutator));
+    }
+
+    /**
+     * Adds to the reward of a mutation operator.
+     *
+     * @param mutator
+     *            the index of the mutation operator
+     * @param delta
+     *            the value to add
+     */
+    public void add(int mutator, double delta) {
+        long current;
+        long updated;
+        do {
+            current = rewards.get(mutator);
+            updated = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + delta);
+        } while (!rewards.compareAndSet(mutator, current, updated));
+    }
+
+    /**
+     * Moves the weighted average reward of a mutation operator towards the last reward.
+     *
+     * @param mutator
+     *            the index of the mutation operator
+     * @param reward
+     *            the last reward
+     * @param weight
+     *            the weight (0-1) of the last reward
+     */
+    public void update(int mutator, double reward, double weight) {
+        long current;
+        long updated;
+        do {
+            current = rewards.get(mutator);
+            double average = Double.longBitsToDouble(current);
+            updated = Double.doubleToRawLongBits(average + (reward - average) * weight);
+        } while (!rewards.compareAndSet(mutator, current, updated));
+    }
+
+    public int getBestMutator() {
+        double[] snapshot = new double[rewards.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = get(i);
+        }
+        return DBMSCommon.getMaxIndexInDoubleArray(snapshot);
+    }
+
+}
@@ -0,0 +1,89 @@
+package sqlancer.common.qpg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import sqlancer.Randomly;
+
+/**
+ * The query plans that Query Plan Guidance (QPG) has observed on a database, each with a query that produces it. The
+ * pool holds at most --qpg-max-pool-size plans and evicts the least recently observed one. It is not thread-safe,
+ * since each database (and thus each pool) is tested by a single thread.
+ */
+public class QueryPlanPool {
+
+    private final Map<String, String> queryPlans;
+
+    public QueryPlanPool(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1, but was " + maxSize);
+        }
+        this.queryPlans = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Adds a query plan if it is new, or marks it as recently observed otherwise.
+     *
+     * @param queryPlan
+     *            the query plan
+     * @param query
+     *            the query that produced the plan
+     *
+     * @return whether the query plan is new
+     */
+    public boolean add(String queryPlan, String query) {
+        if (queryPlans.get(queryPlan) != null) {
+            return false;
+        }
+        queryPlans.put(queryPlan, query);
+        return true;
+    }
+
+    public boolean contains(String queryPlan) {
+        return queryPlans.containsKey(queryPlan);
+    }
+
+    public void remove(String queryPlan) {
+        queryPlans.remove(queryPlan);
+    }
+
+    public int size() {
+        return queryPlans.size();
+    }
+
+    /**
+     * Selects query plans uniformly at random, so that a mutation can be rewarded without re-explaining all queries.
+     *
+     * @param sampleSize
+     *            the maximum number of query plans
+     * @param r
+     *            the randomness of the database
+     *
+     * @return the selected query plans with their queries
+     */
+    public List<Map.Entry<String, String>> sample(int sampleSize, Randomly r) {
+        List<Map.Entry<String, String>> entries = new ArrayList<>(queryPlans.entrySet().size());
+        for (Map.Entry<String, String> entry : queryPlans.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        if (entries.size() <= sampleSize) {
+            return entries;
+        }
+        // partial Fisher-Yates shuffle
+        for (int i = 0; i < sampleSize; i++) {
+            Collections.swap(entries, i, r.getInteger(i, entries.size()));
+        }
+        return entries.subList(0, sampleSize);
+    }
+
+}
@@ -3,6 +3,7 @@ package sqlancer.common.query;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -17,6 +18,8 @@ public class ExpectedErrors implements Serializable {
 
     private final Set<String> errors;
     private final Set<Pattern> regexes;
+    // compiled when the errors are first checked, and discarded when errors are added
+    private transient ExpectedErrorsMatcher matcher;
 
     public ExpectedErrors() {
         this.errors = new HashSet<>();
@@ -33,6 +36,7 @@ public class ExpectedErrors implements Serializable {
             throw new IllegalArgumentException();
         }
         errors.add(error);
+        matcher = null;
         return this;
     }
 
@@ -41,6 +45,7 @@ public class ExpectedErrors implements Serializable {
             throw new IllegalArgumentException();
         }
         regexes.add(errorPattern);
+        matcher = null;
         return this;
     }
 
@@ -49,6 +54,7 @@ public class ExpectedErrors implements Serializable {
             throw new IllegalArgumentException();
         }
         regexes.add(Pattern.compile(errorPattern));
+        matcher = null;
         return this;
     }
 
@@ -57,6 +63,7 @@ public class ExpectedErrors implements Serializable {
             throw new IllegalArgumentException();
         }
         errors.addAll(list);
+        matcher = null;
         return this;
     }
 
@@ -65,6 +72,7 @@ public class ExpectedErrors implements Serializable {
             throw new IllegalArgumentException();
         }
         regexes.addAll(list);
+        matcher = null;
         return this;
     }
 
@@ -72,9 +80,18 @@ public class ExpectedErrors implements Serializable {
         for (String error : list) {
             regexes.add(Pattern.compile(error));
         }
+        matcher = null;
         return this;
     }
 
+    public Set<String> getErrors() {
+        return Collections.unmodifiableSet(errors);
+    }
+
+    public Set<Pattern> getRegexes() {
+        return Collections.unmodifiableSet(regexes);
+    }
+
     public static ExpectedErrors from(String... errors) {
         return newErrors().with(errors).build();
     }
@@ -96,17 +113,10 @@ public class ExpectedErrors implements Serializable {
         if (error == null) {
             throw new IllegalArgumentException();
         }
-        for (String s : this.errors) {
-            if (error.contains(s)) {
-                return true;
-            }
-        }
-        for (Pattern p : this.regexes) {
-            if (p.matcher(error).find()) {
-                return true;
-            }
+        if (matcher == null) {
+            matcher = ExpectedErrorsMatcher.get(errors, regexes);
         }
-        return false;
+        return matcher.matches(error);
     }
 
     public static class ExpectedErrorsBuilder {
@@ -0,0 +1,237 @@
+package sqlancer.common.query;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The compiled form of {@link ExpectedErrors}: the substrings are matched in a single pass by an Aho-Corasick
+ * automaton, and the regexes by a single alternation where possible. Since generators typically create equal expected
+ * errors for each statement, matchers are shared by all instances with the same errors. A small cache remembers the
+ * verdicts for recently checked error messages, which often repeat.
+ */
+final class ExpectedErrorsMatcher {
+
+    private static final int MAX_SHARED_MATCHERS = 1024;
+    private static final Map<List<Set<String>>, ExpectedErrorsMatcher> SHARED = new ConcurrentHashMap<>();
+
+    private static final int NR_CACHED_VERDICTS = 64;
+    // the inline flags that are equivalent to the flags of a pattern (without COMMENTS, whose comments could hide the
+    // end of the alternative)
+    private static final int[] FLAGS = { Pattern.CASE_INSENSITIVE, Pattern.MULTILINE, Pattern.DOTALL,
+            Pattern.UNICODE_CASE, Pattern.UNIX_LINES, Pattern.UNICODE_CHARACTER_CLASS };
+    private static final char[] INLINE_FLAGS = { 'i', 'm', 's', 'u', 'd', 'U' };
+    // backreferences, named groups and quotations, which might not work in an alternation
+    private static final Pattern UNCOMBINABLE = Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?<[a-zA-Z]|\\\\Q");
+
+    private final SubstringAutomaton substrings;
+    private final Pattern[] regexes;
+    private final AtomicReferenceArray<Verdict> verdicts = new AtomicReferenceArray<>(NR_CACHED_VERDICTS);
+
+    private static final class Verdict {
+        private final String error;
+        private final boolean expected;
+
+        Verdict(String error, boolean expected) {
+            this.error = error;
+            this.expected = expected;
+        }
+    }
+
+    private ExpectedErrorsMatcher(Collection<String> errors, Collection<Pattern> regexes) {
+        this.substrings = new SubstringAutomaton(errors);
+        this.regexes = combine(regexes);
+    }
+
+    /**
+     * Returns the matcher for the given errors, which is shared with other expected errors with the same errors.
+     */
+    static ExpectedErrorsMatcher get(Set<String> errors, Set<Pattern> regexes) {
+        Set<String> regexKeys = new HashSet<>();
+        for (Pattern p : regexes) {
+            regexKeys.add(p.flags() + "/" + p.pattern());
+        }
+        List<Set<String>> key = Arrays.asList(new HashSet<>(errors), regexKeys);
+        ExpectedErrorsMatcher matcher = SHARED.get(key);
+        if (matcher == null) {
+            if (SHARED.size() >= MAX_SHARED_MATCHERS) {
+                // e.g., generators that add the generated table names
+                SHARED.clear();
+            }
+            matcher = SHARED.computeIfAbsent(key, k -> new ExpectedErrorsMatcher(errors, regexes));
+        }
+        return matcher;
+    }
+
+    boolean matches(String error) {
+        int slot = (error.hashCode() & Integer.MAX_VALUE) % NR_CACHED_VERDICTS;
+        Verdict verdict = verdicts.get(slot);
+        if (verdict != null && verdict.error.equals(error)) {
+            return verdict.expected;
+        }
+        boolean expected = substrings.containsAny(error) || matchesRegex(error);
+        verdicts.set(slot, new Verdict(error, expected));
+        return expected;
+    }
+
+    private boolean matchesRegex(String error) {
+        for (Pattern p : regexes) {
+            if (p.matcher(error).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Combines the regexes into a single alternation, apart from those that cannot be combined.
+     */
+    private static Pattern[] combine(Collection<Pattern> regexes) {
+        List<Pattern> separate = new ArrayList<>();
+        StringBuilder alternation = new StringBuilder();
+        int nrCombined = 0;
+        for (Pattern p : regexes) {
+            String inlineFlags = getInlineFlags(p);
+            if (inlineFlags == null || UNCOMBINABLE.matcher(p.pattern()).find()) {
+                separate.add(p);
+                continue;
+            }
+            if (nrCombined != 0) {
+                alternation.append('|');
+            }
+            alternation.append("(?").append(inlineFlags).append(":").append(p.pattern()).append(')');
+            nrCombined++;
+        }
+        if (nrCombined > 1) {
+            try {
+                separate.add(Pattern.compile(alternation.toString()));
+            } catch (PatternSyntaxException e) {
+                return regexes.toArray(new Pattern[0]);
+            }
+        } else if (nrCombined == 1) {
+            return regexes.toArray(new Pattern[0]);
+        }
+        return separate.toArray(new Pattern[0]);
+    }
+
+    // returns null if a flag cannot be expressed inline (e.g., LITERAL)
+    private static String getInlineFlags(Pattern p) {
+        int flags = p.flags();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < FLAGS.length; i++) {
+            if ((flags & FLAGS[i]) != 0) {
+                sb.append(INLINE_FLAGS[i]);
+                flags &= ~FLAGS[i];
+            }
+        }
+        return flags == 0 ? sb.toString() : null;
+    }
+
+    /**
+     * An Aho-Corasick automaton that checks whether a string contains any of the given substrings. The transitions of
+     * a state are stored in sorted arrays.
+     */
+    private static final class SubstringAutomaton {
+
+        private final char[][] transitionChars;
+        private final int[][] transitionTargets;
+        private final int[] failure;
+        // whether a substring ends in the state or in a state of its failure chain
+        private final boolean[] accepting;
+
+        SubstringAutomaton(Collection<String> substrings) {
+            List<Map<Character, Integer>> trie = new ArrayList<>();
+            List<Boolean> terminal = new ArrayList<>();
+            trie.add(new HashMap<>());
+            terminal.add(false);
+            for (String s : substrings) {
+                int state = 0;
+                for (int i = 0; i < s.length(); i++) {
+                    Integer next = trie.get(state).get(s.charAt(i));
+                    if (next == null) {
+                        next = trie.size();
+                        trie.add(new HashMap<>());
+                        terminal.add(false);
+                        trie.get(state).put(s.charAt(i), next);
+                    }
+                    state = next;
+                }
+                terminal.set(state, true);
+            }
+            int nrStates = trie.size();
+            transitionChars = new char[nrStates][];
+            transitionTargets = new int[nrStates][];
+            failure = new int[nrStates];
+            accepting = new boolean[nrStates];
+            for (int state = 0; state < nrStates; state++) {
+                Character[] chars = trie.get(state).keySet().toArray(new Character[0]);
+                Arrays.sort(chars);
+                transitionChars[state] = new char[chars.length];
+                transitionTargets[state] = new int[chars.length];
+                for (int i = 0; i < chars.length; i++) {
+                    transitionChars[state][i] = chars[i];
+                    transitionTargets[state][i] = trie.get(state).get(chars[i]);
+                }
+                accepting[state] = terminal.get(state);
+            }
+            // compute the failure links in breadth-first order, so that the links of shorter prefixes are known
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int target : transitionTargets[0]) {
+                queue.add(target);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                for (int i = 0; i < transitionChars[state].length; i++) {
+                    char c = transitionChars[state][i];
+                    int target = transitionTargets[state][i];
+                    int fallback = failure[state];
+                    while (fallback != 0 && getTransition(fallback, c) == -1) {
+                        fallback = failure[fallback];
+                    }
+                    int next = getTransition(fallback, c);
+                    failure[target] = next == -1 ? 0 : next;
+                    accepting[target] |= accepting[failure[target]];
+                    queue.add(target);
+                }
+            }
+        }
+
+        private int getTransition(int state, char c) {
+            int index = Arrays.binarySearch(transitionChars[state], c);
+            return index < 0 ? -1 : transitionTargets[state][index];
+        }
+
+        boolean containsAny(String s) {
+            if (accepting[0]) {
+                // the empty string
+                return true;
+            }
+            int state = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                int next = getTransition(state, c);
+                while (next == -1 && state != 0) {
+                    state = failure[state];
+                    next = getTransition(state, c);
+                }
+                state = next == -1 ? 0 : next;
+                if (accepting[state]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+}
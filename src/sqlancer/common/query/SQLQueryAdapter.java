@@ -7,8 +7,9 @@ import java.sql.SQLException;
 import java.sql.Statement;
 
 import sqlancer.GlobalState;
-import sqlancer.Main;
 import sqlancer.SQLConnection;
+import sqlancer.StatementWatchdog;
+import sqlancer.common.metrics.Metrics;
 
 public class SQLQueryAdapter extends Query<SQLConnection> implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -16,6 +17,8 @@ public class SQLQueryAdapter extends Query<SQLConnection> implements Serializabl
     private final String query;
     private final ExpectedErrors expectedErrors;
     private final boolean couldAffectSchema;
+    // the JDBC update count of the last successful execute(), or -1
+    private transient int updateCount = -1;
 
     public SQLQueryAdapter(String query) {
         this(query, new ExpectedErrors());
@@ -133,25 +136,41 @@ public class SQLQueryAdapter extends Query<SQLConnection> implements Serializabl
         } else {
             s = connection.createStatement();
         }
+        updateCount = -1;
+        StatementWatchdog.Watch watch = StatementWatchdog.watch(s, query);
+        long startNanos = System.nanoTime();
         try {
             if (fills.length > 0) {
                 ((PreparedStatement) s).execute();
             } else {
                 s.execute(query);
             }
-            Main.nrSuccessfulActions.addAndGet(1);
+            updateCount = s.getUpdateCount();
+            Metrics.recordStatement(System.nanoTime() - startNanos, true);
             return true;
         } catch (Exception e) {
-            Main.nrUnsuccessfulActions.addAndGet(1);
+            Metrics.recordStatement(System.nanoTime() - startNanos, false);
+            watch.checkTimedOut(e);
             if (reportException) {
                 checkException(e);
             }
             return false;
         } finally {
+            watch.close();
             s.close();
         }
     }
 
+    /**
+     * Returns the number of rows that the last successful {@link #execute} inserted, updated or deleted, as reported
+     * by JDBC. It allows to maintain row counts without counting the rows of a table.
+     *
+     * @return the update count, or -1 if the statement failed, returned a result set, or was not executed
+     */
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
     public void checkException(Exception e) throws AssertionError {
         Throwable ex = e;
 
@@ -189,25 +208,31 @@ public class SQLQueryAdapter extends Query<SQLConnection> implements Serializabl
             s = connection.createStatement();
         }
         ResultSet result;
+        StatementWatchdog.Watch watch = StatementWatchdog.watch(s, query);
+        long startNanos = System.nanoTime();
         try {
             if (fills.length > 0) {
                 result = ((PreparedStatement) s).executeQuery();
             } else {
                 result = s.executeQuery(query);
             }
-            Main.nrSuccessfulActions.addAndGet(1);
-            if (result == null) {
-                return null;
-            }
-            return new SQLancerResultSet(result);
         } catch (Exception e) {
             s.close();
-            Main.nrUnsuccessfulActions.addAndGet(1);
+            Metrics.recordStatement(System.nanoTime() - startNanos, false);
+            watch.close();
+            watch.checkTimedOut(e);
             if (reportException) {
                 checkException(e);
             }
             return null;
         }
+        // the watch ends here rather than when the result set is closed, since not all callers close it
+        Metrics.recordStatement(System.nanoTime() - startNanos, true);
+        watch.close();
+        if (result == null) {
+            return null;
+        }
+        return new SQLancerResultSet(result);
     }
 
     @Override
@@ -113,5 +113,17 @@ public abstract class AbstractTable<C extends AbstractTableColumn<?, ?>, I exten
         rowCount = NO_ROW_COUNT_AVAILABLE;
     }
 
+    /**
+     * Adjusts the cached row count (if it is known) by the number of rows that a statement inserted or deleted.
+     *
+     * @param delta
+     *            the number of inserted rows, or the negated number of deleted rows
+     */
+    public void adjustRowCount(long delta) {
+        if (rowCount != NO_ROW_COUNT_AVAILABLE) {
+            rowCount += delta;
+        }
+    }
+
     public abstract long getNrRows(G globalState);
 }
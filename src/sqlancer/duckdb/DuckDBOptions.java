@@ -77,6 +77,21 @@ public class DuckDBOptions implements DBMSSpecificOptions<DuckDBOracleFactory> {
     @Parameter(names = "--max-num-updates", description = "The maximum number of UPDATE statements that are issued for a database", arity = 1)
     public int maxNumUpdates = 5;
 
+    @Parameter(names = "--mrup-queries-per-pair", description = "The number of MRUP window function queries that are executed on a generated table pair before it is dropped and a new pair is generated")
+    public int mrupQueriesPerPair = 10;
+
+    @Parameter(names = "--mrup-scale-profile", description = "Generate large MRUP table pairs with many partitions of Zipf-distributed sizes", arity = 1)
+    public boolean mrupScaleProfile;
+
+    @Parameter(names = "--mrup-scale-partitions", description = "The number of partitions per table in the MRUP scale profile")
+    public int mrupScalePartitions = 2000;
+
+    @Parameter(names = "--mrup-scale-rows-per-partition", description = "The average number of rows per partition in the MRUP scale profile")
+    public int mrupScaleRowsPerPartition = 10;
+
+    @Parameter(names = "--mrup-scale-zipf-exponent", description = "The exponent of the Zipf distribution of the partition sizes in the MRUP scale profile (0 for equally sized partitions)")
+    public double mrupScaleZipfExponent = 1.0;
+
     @Parameter(names = "--oracle")
     public List<DuckDBOracleFactory> oracles = Arrays.asList(DuckDBOracleFactory.QUERY_PARTITIONING);
 
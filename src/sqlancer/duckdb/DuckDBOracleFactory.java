@@ -7,10 +7,13 @@ import java.util.List;
 import sqlancer.OracleFactory;
 import sqlancer.common.oracle.CompositeTestOracle;
 import sqlancer.common.oracle.NoRECOracle;
+import sqlancer.common.oracle.PerformanceRegressionOracle;
 import sqlancer.common.oracle.TLPWhereOracle;
 import sqlancer.common.oracle.TestOracle;
+import sqlancer.common.oracle.mrup.MRUPOracle;
 import sqlancer.common.query.ExpectedErrors;
 import sqlancer.duckdb.gen.DuckDBExpressionGenerator;
+import sqlancer.duckdb.test.DuckDBMRUPAdapter;
 import sqlancer.duckdb.test.DuckDBQueryPartitioningAggregateTester;
 import sqlancer.duckdb.test.DuckDBQueryPartitioningDistinctTester;
 import sqlancer.duckdb.test.DuckDBQueryPartitioningGroupByTester;
@@ -28,6 +31,18 @@ public enum DuckDBOracleFactory implements OracleFactory<DuckDBProvider.DuckDBGl
             return new NoRECOracle<>(globalState, gen, errors);
         }
 
+    },
+    PERFORMANCE {
+        @Override
+        public TestOracle<DuckDBProvider.DuckDBGlobalState> create(DuckDBProvider.DuckDBGlobalState globalState)
+                throws SQLException {
+            DuckDBExpressionGenerator gen = new DuckDBExpressionGenerator(globalState);
+            ExpectedErrors errors = ExpectedErrors.newErrors().with(DuckDBErrors.getExpressionErrors())
+                    .withRegex(DuckDBErrors.getExpressionErrorsRegex())
+                    .with("canceling statement due to statement timeout").build();
+            return new PerformanceRegressionOracle<>(globalState, gen, errors);
+        }
+
     },
     HAVING {
         @Override
@@ -81,6 +96,13 @@ public enum DuckDBOracleFactory implements OracleFactory<DuckDBProvider.DuckDBGl
             oracles.add(GROUP_BY.create(globalState));
             return new CompositeTestOracle<DuckDBProvider.DuckDBGlobalState>(oracles, globalState);
         }
+    },
+    MRUP {
+        @Override
+        public TestOracle<DuckDBProvider.DuckDBGlobalState> create(DuckDBProvider.DuckDBGlobalState globalState)
+                throws SQLException {
+            return new MRUPOracle<>(globalState, new DuckDBMRUPAdapter(globalState.getDbmsSpecificOptions()));
+        }
     };
 
 }
@@ -10,6 +10,7 @@ import com.google.auto.service.AutoService;
 
 import sqlancer.AbstractAction;
 import sqlancer.DatabaseProvider;
+import sqlancer.DatabaseSnapshot;
 import sqlancer.IgnoreMeException;
 import sqlancer.MainOptions;
 import sqlancer.Randomly;
@@ -18,6 +19,7 @@ import sqlancer.SQLGlobalState;
 import sqlancer.SQLProviderAdapter;
 import sqlancer.StatementExecutor;
 import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.query.Query;
 import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.common.query.SQLQueryProvider;
 import sqlancer.duckdb.DuckDBProvider.DuckDBGlobalState;
@@ -156,9 +158,44 @@ public class DuckDBProvider extends SQLProviderAdapter<DuckDBGlobalState, DuckDB
         return new SQLConnection(conn);
     }
 
+    @Override
+    public DatabaseSnapshot takeSnapshot(DuckDBGlobalState globalState) throws Exception {
+        DatabaseSnapshot snapshot = DatabaseSnapshot.inTemporaryDirectory();
+        try (Statement s = globalState.getConnection().createStatement()) {
+            s.execute("EXPORT DATABASE '" + snapshot.getPath().replace("'", "''") + "'");
+        } catch (SQLException e) {
+            snapshot.close();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    @Override
+    public SQLConnection restoreSnapshot(DuckDBGlobalState globalState, DatabaseSnapshot snapshot) throws Exception {
+        SQLConnection con = createDatabase(globalState);
+        try (Statement s = con.createStatement()) {
+            s.execute("IMPORT DATABASE '" + snapshot.getPath().replace("'", "''") + "'");
+        } catch (SQLException e) {
+            con.close();
+            throw e;
+        }
+        return con;
+    }
+
+    @Override
+    public boolean isCapturedBySnapshot(Query<?> query) {
+        String statement = query.getQueryString().trim().toUpperCase();
+        return !statement.startsWith("SET") && !statement.startsWith("RESET") && !statement.startsWith("PRAGMA");
+    }
+
     @Override
     public String getDBMSName() {
         return "duckdb";
     }
 
+    @Override
+    public boolean mayCrashProcess() {
+        return true;
+    }
+
 }
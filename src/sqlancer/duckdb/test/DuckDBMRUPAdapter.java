@@ -0,0 +1,80 @@
+package sqlancer.duckdb.test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import sqlancer.common.oracle.mrup.MRUPAdapter;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.ColumnType;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.ScaleProfile;
+import sqlancer.common.query.ExpectedErrors;
+import sqlancer.duckdb.DuckDBErrors;
+import sqlancer.duckdb.DuckDBOptions;
+
+/**
+ * DuckDB adapter of the MRUP oracle. DuckDB evaluates window functions with a parallel, partition-aware operator,
+ * which the scale profile exercises with many partitions of skewed sizes.
+ */
+public class DuckDBMRUPAdapter implements MRUPAdapter {
+
+    private final DuckDBOptions options;
+    private final ExpectedErrors tableErrors = ExpectedErrors.newErrors().with(DuckDBErrors.getInsertErrors())
+            .build();
+    private final ExpectedErrors queryErrors = ExpectedErrors.newErrors().with(DuckDBErrors.getExpressionErrors())
+            .withRegex(DuckDBErrors.getExpressionErrorsRegex()).build();
+
+    public DuckDBMRUPAdapter(DuckDBOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public String getTypeName(ColumnType type) {
+        switch (type) {
+        case INTEGER:
+            return "INTEGER";
+        case REAL:
+            return "DOUBLE";
+        default:
+            return "VARCHAR";
+        }
+    }
+
+    @Override
+    public String getBeginTransaction() {
+        return "BEGIN TRANSACTION";
+    }
+
+    @Override
+    public ExpectedErrors getTableErrors() {
+        return tableErrors;
+    }
+
+    @Override
+    public ExpectedErrors getQueryErrors() {
+        return queryErrors;
+    }
+
+    @Override
+    public int getQueriesPerPair() {
+        return options.mrupQueriesPerPair;
+    }
+
+    @Override
+    public ScaleProfile getScaleProfile() {
+        if (!options.mrupScaleProfile) {
+            return null;
+        }
+        return new ScaleProfile(options.mrupScalePartitions, options.mrupScaleRowsPerPartition,
+                options.mrupScaleZipfExponent);
+    }
+
+    @Override
+    public List<String> getFrameUnits() {
+        return Arrays.asList("ROWS", "RANGE", "GROUPS");
+    }
+
+    @Override
+    public boolean supportsFrameExclusion() {
+        return true;
+    }
+
+}
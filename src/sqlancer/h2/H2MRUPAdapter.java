@@ -0,0 +1,67 @@
+package sqlancer.h2;
+
+import java.util.Arrays;
+import java.util.List;
+
+import sqlancer.common.oracle.mrup.MRUPAdapter;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.ColumnType;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.ScaleProfile;
+import sqlancer.common.query.ExpectedErrors;
+
+/**
+ * H2 adapter of the MRUP oracle. The INSERTs of a table pair run in auto-commit mode.
+ */
+public class H2MRUPAdapter implements MRUPAdapter {
+
+    private final H2Options options;
+    private final ExpectedErrors tableErrors = ExpectedErrors.newErrors().with(H2Errors.getInsertErrors()).build();
+    private final ExpectedErrors queryErrors = ExpectedErrors.newErrors().with(H2Errors.getExpressionErrors())
+            .build();
+
+    public H2MRUPAdapter(H2Options options) {
+        this.options = options;
+    }
+
+    @Override
+    public String getTypeName(ColumnType type) {
+        switch (type) {
+        case INTEGER:
+            return "INT";
+        case REAL:
+            return "DOUBLE PRECISION";
+        default:
+            return "VARCHAR";
+        }
+    }
+
+    @Override
+    public ExpectedErrors getTableErrors() {
+        return tableErrors;
+    }
+
+    @Override
+    public ExpectedErrors getQueryErrors() {
+        return queryErrors;
+    }
+
+    @Override
+    public int getQueriesPerPair() {
+        return options.mrupQueriesPerPair;
+    }
+
+    @Override
+    public ScaleProfile getScaleProfile() {
+        return null;
+    }
+
+    @Override
+    public List<String> getFrameUnits() {
+        return Arrays.asList("ROWS", "RANGE", "GROUPS");
+    }
+
+    @Override
+    public boolean supportsFrameExclusion() {
+        return true;
+    }
+
+}
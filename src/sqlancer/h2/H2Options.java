@@ -3,6 +3,7 @@ package sqlancer.h2;
 import java.util.Arrays;
 import java.util.List;
 
+import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 
 import sqlancer.DBMSSpecificOptions;
@@ -10,9 +11,15 @@ import sqlancer.DBMSSpecificOptions;
 @Parameters(commandDescription = "H2")
 public class H2Options implements DBMSSpecificOptions<H2OracleFactory> {
 
+    @Parameter(names = "--mrup-queries-per-pair", description = "The number of MRUP window function queries that are executed on a generated table pair before it is dropped and a new pair is generated")
+    public int mrupQueriesPerPair = 10;
+
+    @Parameter(names = "--oracle")
+    public List<H2OracleFactory> oracles = Arrays.asList(H2OracleFactory.TLP_WHERE);
+
     @Override
     public List<H2OracleFactory> getTestOracleFactory() {
-        return Arrays.asList(H2OracleFactory.TLP_WHERE);
+        return oracles;
     }
 
 }
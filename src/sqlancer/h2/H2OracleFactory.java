@@ -5,6 +5,7 @@ import java.sql.SQLException;
 import sqlancer.OracleFactory;
 import sqlancer.common.oracle.TLPWhereOracle;
 import sqlancer.common.oracle.TestOracle;
+import sqlancer.common.oracle.mrup.MRUPOracle;
 import sqlancer.common.query.ExpectedErrors;
 
 public enum H2OracleFactory implements OracleFactory<H2Provider.H2GlobalState> {
@@ -18,6 +19,13 @@ public enum H2OracleFactory implements OracleFactory<H2Provider.H2GlobalState> {
             return new TLPWhereOracle<>(globalState, gen, expectedErrors);
         }
 
+    },
+    MRUP {
+        @Override
+        public TestOracle<H2Provider.H2GlobalState> create(H2Provider.H2GlobalState globalState) throws SQLException {
+            return new MRUPOracle<>(globalState, new H2MRUPAdapter(globalState.getDbmsSpecificOptions()));
+        }
+
     };
 
 }
@@ -3,17 +3,20 @@ package sqlancer.h2;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import com.google.auto.service.AutoService;
 
 import sqlancer.AbstractAction;
 import sqlancer.DatabaseProvider;
+import sqlancer.DatabaseSnapshot;
 import sqlancer.IgnoreMeException;
 import sqlancer.Randomly;
 import sqlancer.SQLConnection;
 import sqlancer.SQLGlobalState;
 import sqlancer.SQLProviderAdapter;
 import sqlancer.StatementExecutor;
+import sqlancer.common.query.Query;
 import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.common.query.SQLQueryProvider;
 import sqlancer.h2.H2Provider.H2GlobalState;
@@ -107,6 +110,35 @@ public class H2Provider extends SQLProviderAdapter<H2GlobalState, H2Options> {
         return new SQLConnection(connection);
     }
 
+    @Override
+    public DatabaseSnapshot takeSnapshot(H2GlobalState globalState) throws Exception {
+        DatabaseSnapshot snapshot = DatabaseSnapshot.inTemporaryFile(".sql");
+        try (Statement s = globalState.getConnection().createStatement()) {
+            s.execute("SCRIPT TO '" + snapshot.getPath().replace("'", "''") + "'");
+        } catch (SQLException e) {
+            snapshot.close();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    @Override
+    public SQLConnection restoreSnapshot(H2GlobalState globalState, DatabaseSnapshot snapshot) throws Exception {
+        SQLConnection con = createDatabase(globalState);
+        try (Statement s = con.createStatement()) {
+            s.execute("RUNSCRIPT FROM '" + snapshot.getPath().replace("'", "''") + "'");
+        } catch (SQLException e) {
+            con.close();
+            throw e;
+        }
+        return con;
+    }
+
+    @Override
+    public boolean isCapturedBySnapshot(Query<?> query) {
+        return !query.getQueryString().trim().toUpperCase().startsWith("SET");
+    }
+
     @Override
     public String getDBMSName() {
         return "h2";
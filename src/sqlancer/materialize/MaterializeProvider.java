@@ -1,7 +1,6 @@
 package sqlancer.materialize;
 
 import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -288,11 +287,6 @@ public class MaterializeProvider extends SQLProviderAdapter<MaterializeGlobalSta
         String explainQuery = "EXPLAIN OPTIMIZED PLAN FOR " + selectStr;
         if (globalState.getOptions().logEachSelect()) {
             globalState.getLogger().writeCurrent(explainQuery);
-            try {
-                globalState.getLogger().getCurrentFileWriter().flush();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
         SQLQueryAdapter q = new SQLQueryAdapter(explainQuery);
         boolean afterProjection = false; // Remove the concrete expression after each Projection operator
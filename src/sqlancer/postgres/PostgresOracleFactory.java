@@ -9,6 +9,7 @@ import sqlancer.OracleFactory;
 import sqlancer.common.oracle.CERTOracle;
 import sqlancer.common.oracle.CompositeTestOracle;
 import sqlancer.common.oracle.NoRECOracle;
+import sqlancer.common.oracle.PerformanceRegressionOracle;
 import sqlancer.common.oracle.TLPWhereOracle;
 import sqlancer.common.oracle.TestOracle;
 import sqlancer.common.query.ExpectedErrors;
@@ -31,6 +32,16 @@ public enum PostgresOracleFactory implements OracleFactory<PostgresGlobalState>
             return new NoRECOracle<>(globalState, gen, errors);
         }
     },
+    PERFORMANCE {
+        @Override
+        public TestOracle<PostgresGlobalState> create(PostgresGlobalState globalState) throws SQLException {
+            PostgresExpressionGenerator gen = new PostgresExpressionGenerator(globalState);
+            ExpectedErrors errors = ExpectedErrors.newErrors().with(PostgresCommon.getCommonExpressionErrors())
+                    .with(PostgresCommon.getCommonFetchErrors())
+                    .withRegex(PostgresCommon.getCommonExpressionRegexErrors()).build();
+            return new PerformanceRegressionOracle<>(globalState, gen, errors);
+        }
+    },
     PQS {
         @Override
         public TestOracle<PostgresGlobalState> create(PostgresGlobalState globalState) throws SQLException {
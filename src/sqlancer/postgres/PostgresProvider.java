@@ -397,11 +397,6 @@ public class PostgresProvider extends SQLProviderAdapter<PostgresGlobalState, Po
         String queryPlan = "";
         if (globalState.getOptions().logEachSelect()) {
             globalState.getLogger().writeCurrent(selectStr);
-            try {
-                globalState.getLogger().getCurrentFileWriter().flush();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
         SQLQueryAdapter q = new SQLQueryAdapter(PostgresExplainGenerator.explain(selectStr), null);
         try (SQLancerResultSet rs = q.executeAndGet(globalState)) {
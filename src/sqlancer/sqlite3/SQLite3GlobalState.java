@@ -1,15 +1,162 @@
 package sqlancer.sqlite3;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import sqlancer.SQLGlobalState;
+import sqlancer.common.query.Query;
+import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.sqlite3.schema.SQLite3Schema;
+import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Table;
 
 public class SQLite3GlobalState extends SQLGlobalState<SQLite3Options, SQLite3Schema> {
 
+    private static final String TABLE_NAME = "(\\w+)(?![\\w.])";
+    // statements that do not change the schema (the row counts are reset anyway)
+    private static final Pattern NO_SCHEMA_CHANGE = Pattern.compile(
+            "^\\s*(INSERT|REPLACE|UPDATE|DELETE|BEGIN|COMMIT|END|REINDEX|ANALYZE)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INDEX_CHANGE = Pattern.compile("^\\s*(CREATE\\s+(UNIQUE\\s+)?INDEX|DROP\\s+INDEX)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "^\\s*CREATE\\s+((TEMP|TEMPORARY)\\s+)?(TABLE|VIEW)\\s+(IF\\s+NOT\\s+EXISTS\\s+)?" + TABLE_NAME,
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern DROP_TABLE = Pattern
+            .compile("^\\s*DROP\\s+(TABLE|VIEW)\\s+(IF\\s+EXISTS\\s+)?" + TABLE_NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern RENAME_TABLE = Pattern.compile(
+            "^\\s*ALTER\\s+TABLE\\s+" + TABLE_NAME + "\\s+RENAME\\s+TO\\s+" + TABLE_NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern ALTER_TABLE = Pattern.compile("^\\s*ALTER\\s+TABLE\\s+" + TABLE_NAME,
+            Pattern.CASE_INSENSITIVE);
+    // the update count is the number of inserted/deleted rows (but not with REPLACE or an upsert)
+    private static final Pattern INSERT = Pattern.compile(
+            "^\\s*INSERT\\s+(OR\\s+(ABORT|FAIL|IGNORE|ROLLBACK)\\s+)?INTO\\s+" + TABLE_NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern DELETE = Pattern.compile("^\\s*DELETE\\s+FROM\\s+" + TABLE_NAME,
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern UPDATE = Pattern.compile("^\\s*UPDATE\\s+(OR\\s+(ABORT|FAIL|IGNORE|ROLLBACK)\\s+)?\\w",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern UNCHANGED_ROW_COUNTS = Pattern.compile("^\\s*(BEGIN|COMMIT|END|REINDEX|ANALYZE)\\b",
+            Pattern.CASE_INSENSITIVE);
+    // triggers, foreign key actions and ON CONFLICT REPLACE constraints change rows that the update count does not show
+    private static final Pattern UNKNOWN_ROW_COUNT_EFFECTS = Pattern.compile("TRIGGER|REFERENCES|REPLACE",
+            Pattern.CASE_INSENSITIVE);
+
+    private boolean rowCountsDerivable = true;
+
     @Override
     protected SQLite3Schema readSchema() throws SQLException {
         return SQLite3Schema.fromConnection(this);
     }
 
+    @Override
+    public void updateSchema(Query<?> q) throws Exception {
+        String statement = q.getQueryString();
+        if (!NO_SCHEMA_CHANGE.matcher(statement).find() && UNKNOWN_ROW_COUNT_EFFECTS.matcher(statement).find()) {
+            rowCountsDerivable = false;
+        }
+        super.updateSchema(q);
+    }
+
+    @Override
+    protected void updateRowCounts(SQLite3Schema currentSchema, Query<?> q) {
+        String statement = q.getQueryString();
+        if (rowCountsDerivable && q instanceof SQLQueryAdapter && !statement.toUpperCase().contains("CONFLICT")) {
+            int updateCount = ((SQLQueryAdapter) q).getUpdateCount();
+            Matcher m;
+            if (UNCHANGED_ROW_COUNTS.matcher(statement).find()) {
+                return;
+            } else if (updateCount >= 0 && (m = INSERT.matcher(statement)).find()
+                    && adjustRowCount(currentSchema, m.group(3), updateCount)) {
+                return;
+            } else if (updateCount >= 0 && (m = DELETE.matcher(statement)).find()
+                    && adjustRowCount(currentSchema, m.group(1), -updateCount)) {
+                return;
+            } else if (updateCount >= 0 && UPDATE.matcher(statement).find()) {
+                return;
+            }
+        }
+        // e.g., failed statements, which might have changed rows (OR FAIL) or rolled back the transaction
+        super.updateRowCounts(currentSchema, q);
+    }
+
+    private static boolean adjustRowCount(SQLite3Schema schema, String tableName, long delta) {
+        for (SQLite3Table table : schema.getDatabaseTables()) {
+            if (table.getName().equalsIgnoreCase(tableName)) {
+                table.adjustRowCount(delta);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The tables (and views) and indexes that a statement might have created, dropped or altered.
+     */
+    static final class SchemaChange {
+
+        static final SchemaChange NONE = new SchemaChange(Collections.emptyList(), false);
+
+        private final List<String> tableNames;
+        private final boolean indexesChanged;
+
+        SchemaChange(List<String> tableNames, boolean indexesChanged) {
+            this.tableNames = tableNames;
+            this.indexesChanged = indexesChanged;
+        }
+
+        List<String> getTableNames() {
+            return tableNames;
+        }
+
+        boolean isIndexesChanged() {
+            return indexesChanged;
+        }
+    }
+
+    /**
+     * Derives the schema objects that a statement might have changed from its text.
+     *
+     * @param statement
+     *            the executed statement
+     *
+     * @return the change, or null if it is unknown and the whole schema must be read again
+     */
+    static SchemaChange getSchemaChange(String statement) {
+        Matcher m;
+        if (NO_SCHEMA_CHANGE.matcher(statement).find()) {
+            return SchemaChange.NONE;
+        } else if (INDEX_CHANGE.matcher(statement).find()) {
+            return new SchemaChange(Collections.emptyList(), true);
+        } else if ((m = CREATE_TABLE.matcher(statement)).find()) {
+            return new SchemaChange(Collections.singletonList(m.group(5)), false);
+        } else if ((m = DROP_TABLE.matcher(statement)).find()) {
+            // also drops the indexes of the table
+            return new SchemaChange(Collections.singletonList(m.group(3)), true);
+        } else if ((m = RENAME_TABLE.matcher(statement)).find()) {
+            return new SchemaChange(Arrays.asList(m.group(1), m.group(2)), false);
+        } else if ((m = ALTER_TABLE.matcher(statement)).find()) {
+            return new SchemaChange(Collections.singletonList(m.group(1)), false);
+        } else {
+            // e.g., virtual tables (with shadow tables), ROLLBACK, or statements with a WITH clause
+            return null;
+        }
+    }
+
+    @Override
+    protected SQLite3Schema updateSchemaIncrementally(SQLite3Schema currentSchema, Query<?> q) {
+        SchemaChange change = getSchemaChange(q.getQueryString());
+        if (change == null) {
+            return null;
+        } else if (change == SchemaChange.NONE) {
+            return currentSchema;
+        }
+        try {
+            return currentSchema.withTablesReread(this, change.getTableNames(), change.isIndexesChanged());
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
 }
@@ -68,6 +68,10 @@ public class SQLite3Options implements DBMSSpecificOptions<SQLite3OracleFactory>
             "--delete-existing-databases" }, description = "Delete a database file if it already exists", arity = 1)
     public boolean deleteIfExists = true;
 
+    @Parameter(names = {
+            "--in-memory" }, description = "Test in-memory databases instead of database files; the database is only written to disk (through the backup API) when a bug is found", arity = 1)
+    public boolean inMemory;
+
     @Parameter(names = {
             "--generate-new-database" }, description = "Specifies whether new databases should be generated", arity = 1)
     public boolean generateDatabase = true;
@@ -79,6 +83,38 @@ public class SQLite3Options implements DBMSSpecificOptions<SQLite3OracleFactory>
     @Parameter(names = { "--max-num-indexes" }, description = "The maximum number of indexes that can be created")
     public int maxNumIndexes = 20;
 
+    @Parameter(names = {
+            "--mrup-server-side-verify" }, description = "Let the DBMS compute which MRUP partitions differ and only fetch the rows of those partitions", arity = 1)
+    public boolean mrupServerSideVerify;
+
+    @Parameter(names = {
+            "--mrup-queries-per-pair" }, description = "The number of MRUP window function queries that are executed on a generated table pair before it is dropped and a new pair is generated")
+    public int mrupQueriesPerPair = 10;
+
+    @Parameter(names = {
+            "--mrup-scale-profile" }, description = "Generate large MRUP table pairs with many partitions of Zipf-distributed sizes", arity = 1)
+    public boolean mrupScaleProfile;
+
+    @Parameter(names = {
+            "--mrup-scale-partitions" }, description = "The number of partitions per table in the MRUP scale profile")
+    public int mrupScalePartitions = 2000;
+
+    @Parameter(names = {
+            "--mrup-scale-rows-per-partition" }, description = "The average number of rows per partition in the MRUP scale profile")
+    public int mrupScaleRowsPerPartition = 10;
+
+    @Parameter(names = {
+            "--mrup-scale-zipf-exponent" }, description = "The exponent of the Zipf distribution of the partition sizes in the MRUP scale profile (0 for equally sized partitions)")
+    public double mrupScaleZipfExponent = 1.0;
+
+    @Parameter(names = {
+            "--mrup-metrics-file" }, description = "Periodically write a JSON snapshot of the MRUP metrics (mutation hit rates, window functions, timings, partition sizes) to this file")
+    public String mrupMetricsFile;
+
+    @Parameter(names = {
+            "--mrup-metrics-interval-seconds" }, description = "The interval in seconds at which the MRUP metrics snapshot is written")
+    public int mrupMetricsIntervalSeconds = 10;
+
     public enum CODDTestModel {
         RANDOM, EXPRESSION, SUBQUERY;
 
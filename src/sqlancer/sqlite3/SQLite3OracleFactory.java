@@ -7,6 +7,7 @@ import java.util.List;
 import sqlancer.OracleFactory;
 import sqlancer.common.oracle.CompositeTestOracle;
 import sqlancer.common.oracle.NoRECOracle;
+import sqlancer.common.oracle.PerformanceRegressionOracle;
 import sqlancer.common.oracle.TLPWhereOracle;
 import sqlancer.common.oracle.TestOracle;
 import sqlancer.common.query.ExpectedErrors;
@@ -46,6 +47,19 @@ public enum SQLite3OracleFactory implements OracleFactory<SQLite3GlobalState> {
             return new NoRECOracle<>(globalState, gen, errors);
         }
     },
+    PERFORMANCE {
+        @Override
+        public TestOracle<SQLite3GlobalState> create(SQLite3GlobalState globalState) throws SQLException {
+            SQLite3ExpressionGenerator gen = new SQLite3ExpressionGenerator(globalState);
+            ExpectedErrors errors = ExpectedErrors.newErrors().with(SQLite3Errors.getExpectedExpressionErrors())
+                    .with(SQLite3Errors.getMatchQueryErrors()).with(SQLite3Errors.getQueryErrors())
+                    .with("misuse of aggregate", "misuse of window function",
+                            "second argument to nth_value must be a positive integer", "no such table",
+                            "no query solution", "unable to use function MATCH in the requested context")
+                    .build();
+            return new PerformanceRegressionOracle<>(globalState, gen, errors);
+        }
+    },
     AGGREGATE {
         @Override
         public TestOracle<SQLite3GlobalState> create(SQLite3GlobalState globalState) throws SQLException {
@@ -1,9 +1,10 @@
 package sqlancer.sqlite3;
 
 import java.io.File;
-import java.io.IOException;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,6 +14,7 @@ import com.google.auto.service.AutoService;
 
 import sqlancer.AbstractAction;
 import sqlancer.DatabaseProvider;
+import sqlancer.DatabaseSnapshot;
 import sqlancer.IgnoreMeException;
 import sqlancer.Randomly;
 import sqlancer.SQLConnection;
@@ -20,6 +22,7 @@ import sqlancer.SQLProviderAdapter;
 import sqlancer.StatementExecutor;
 import sqlancer.common.DBMSCommon;
 import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.query.Query;
 import sqlancer.common.query.SQLQueryAdapter;
 import sqlancer.common.query.SQLQueryProvider;
 import sqlancer.common.query.SQLancerResultSet;
@@ -285,33 +288,98 @@ public class SQLite3Provider extends SQLProviderAdapter<SQLite3GlobalState, SQLi
 
     @Override
     public SQLConnection createDatabase(SQLite3GlobalState globalState) throws SQLException {
-        File dir = new File("." + File.separator + "databases");
-        if (!dir.exists()) {
-            dir.mkdir();
+        if (globalState.getDbmsSpecificOptions().inMemory) {
+            // every connection opens its own private in-memory database, so threads do not share state
+            return new SQLConnection(DriverManager.getConnection("jdbc:sqlite::memory:"));
         }
-        File dataBase = new File(dir, globalState.getDatabaseName() + ".db");
-        if (dataBase.exists() && ((SQLite3GlobalState) globalState).getDbmsSpecificOptions().deleteIfExists) {
+        File dataBase = getDatabaseFile(globalState);
+        if (dataBase.exists() && globalState.getDbmsSpecificOptions().deleteIfExists) {
             dataBase.delete();
         }
         String url = "jdbc:sqlite:" + dataBase.getAbsolutePath();
         return new SQLConnection(DriverManager.getConnection(url));
     }
 
+    @Override
+    protected void saveDatabaseOnBug(SQLite3GlobalState globalState) {
+        if (!globalState.getDbmsSpecificOptions().inMemory) {
+            return;
+        }
+        File dataBase = getDatabaseFile(globalState);
+        if (dataBase.exists()) {
+            dataBase.delete();
+        }
+        // sqlite-jdbc extension that copies the main database through the online backup API
+        try (Statement s = globalState.getConnection().createStatement()) {
+            s.executeUpdate("backup to \"" + dataBase.getAbsolutePath() + "\"");
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public DatabaseSnapshot takeSnapshot(SQLite3GlobalState globalState) throws Exception {
+        try (Statement s = globalState.getConnection().createStatement()) {
+            // temporary tables, views and triggers are not part of the main database
+            try (ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM sqlite_temp_master")) {
+                if (rs.next() && rs.getInt(1) != 0) {
+                    return null;
+                }
+            }
+            // the backup does not capture an open transaction, so that a later COMMIT or ROLLBACK would fail
+            try {
+                s.execute("BEGIN");
+            } catch (SQLException e) {
+                // cannot start a transaction within a transaction
+                return null;
+            }
+            s.execute("ROLLBACK");
+            DatabaseSnapshot snapshot = DatabaseSnapshot.inTemporaryFile(".db");
+            s.executeUpdate("backup to \"" + snapshot.getPath() + "\"");
+            return snapshot;
+        }
+    }
+
+    @Override
+    public SQLConnection restoreSnapshot(SQLite3GlobalState globalState, DatabaseSnapshot snapshot) throws Exception {
+        SQLConnection con = createDatabase(globalState);
+        try (Statement s = con.createStatement()) {
+            s.executeUpdate("restore from \"" + snapshot.getPath() + "\"");
+        } catch (SQLException e) {
+            con.close();
+            throw e;
+        }
+        return con;
+    }
+
+    @Override
+    public boolean isCapturedBySnapshot(Query<?> query) {
+        return !query.getQueryString().trim().toUpperCase().startsWith("PRAGMA");
+    }
+
+    private static File getDatabaseFile(SQLite3GlobalState globalState) {
+        File dir = new File("." + File.separator + "databases");
+        if (!dir.exists()) {
+            dir.mkdir();
+        }
+        return new File(dir, globalState.getDatabaseName() + ".db");
+    }
+
     @Override
     public String getDBMSName() {
         return "sqlite3";
     }
 
+    @Override
+    public boolean mayCrashProcess() {
+        return true;
+    }
+
     @Override
     public String getQueryPlan(String selectStr, SQLite3GlobalState globalState) throws Exception {
         String queryPlan = "";
         if (globalState.getOptions().logEachSelect()) {
             globalState.getLogger().writeCurrent(selectStr);
-            try {
-                globalState.getLogger().getCurrentFileWriter().flush();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
         // Set up the expected errors for NoREC oracle.
         ExpectedErrors errors = new ExpectedErrors();
@@ -0,0 +1,71 @@
+package sqlancer.sqlite3.gen;
+
+import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.query.SQLQueryAdapter;
+import sqlancer.sqlite3.SQLite3Errors;
+import sqlancer.sqlite3.SQLite3GlobalState;
+import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Table;
+
+/**
+ * Amortizes the generation of an MRUP table pair over several window function queries.
+ *
+ * Generating a pair (two CREATE TABLEs, the INSERTs, the disjointness validation and the schema updates) is much more
+ * expensive than the three window queries of a single MRUP check. The pool hands out the same pair for up to
+ * {@code queriesPerPair} checks and then retires it with DROP TABLE, so that the database does not keep growing.
+ */
+public class SQLite3MRUPTablePairPool {
+
+    private final SQLite3GlobalState globalState;
+    private final int queriesPerPair;
+    private final ExpectedErrors errors = new ExpectedErrors();
+    private SQLite3Table[] currentPair;
+    private int remainingQueries;
+
+    public SQLite3MRUPTablePairPool(SQLite3GlobalState globalState, int queriesPerPair) {
+        if (queriesPerPair < 1) {
+            throw new IllegalArgumentException("queriesPerPair must be at least 1, but was " + queriesPerPair);
+        }
+        this.globalState = globalState;
+        this.queriesPerPair = queriesPerPair;
+        SQLite3Errors.addTableManipulationErrors(errors);
+    }
+
+    /**
+     * Returns the table pair to be used by the next MRUP check, generating a new one (and dropping the previous one)
+     * when the current pair has been used {@code queriesPerPair} times.
+     *
+     * @return the table pair [t1, t2]
+     *
+     * @throws Exception
+     *             if a new pair cannot be generated
+     */
+    public SQLite3Table[] acquire() throws Exception {
+        if (currentPair == null || remainingQueries == 0) {
+            retire();
+            currentPair = SQLite3MRUPTablePairGenerator.generateMRUPTablePair(globalState);
+            remainingQueries = queriesPerPair;
+        }
+        remainingQueries--;
+        return currentPair;
+    }
+
+    /**
+     * Drops the current pair, so that the next call to {@link #acquire()} generates a new one. This is also used when
+     * the current pair turns out to be unusable (e.g., one of the tables is empty).
+     *
+     * @throws Exception
+     *             if dropping the tables fails unexpectedly
+     */
+    public void retire() throws Exception {
+        if (currentPair == null) {
+            return;
+        }
+        SQLite3Table[] pair = currentPair;
+        currentPair = null;
+        remainingQueries = 0;
+        for (SQLite3Table table : pair) {
+            globalState.executeStatement(new SQLQueryAdapter("DROP TABLE IF EXISTS " + table.getName(), errors, true));
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package sqlancer.sqlite3.oracle;
+
+import java.util.Arrays;
+import java.util.List;
+
+import sqlancer.common.oracle.mrup.MRUPAdapter;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.ColumnType;
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator.ScaleProfile;
+import sqlancer.common.query.ExpectedErrors;
+import sqlancer.sqlite3.SQLite3Errors;
+import sqlancer.sqlite3.SQLite3Options;
+
+/**
+ * SQLite adapter of the MRUP core. The SQLite oracle only uses it for table-pair generation; its window functions are
+ * built and mutated on the SQLite expression AST.
+ */
+public class SQLite3MRUPAdapter implements MRUPAdapter {
+
+    private final SQLite3Options options;
+    private final ExpectedErrors tableErrors = new ExpectedErrors();
+    private final ExpectedErrors queryErrors = new ExpectedErrors();
+
+    public SQLite3MRUPAdapter(SQLite3Options options) {
+        this.options = options;
+        SQLite3Errors.addTableManipulationErrors(tableErrors);
+        SQLite3Errors.addInsertUpdateErrors(tableErrors);
+        tableErrors.add("cannot start a transaction within a transaction");
+        tableErrors.add("no transaction is active");
+        SQLite3Errors.addExpectedExpressionErrors(queryErrors);
+        SQLite3Errors.addQueryErrors(queryErrors);
+        queryErrors.add("misuse of aggregate");
+        queryErrors.add("misuse of window function");
+        queryErrors.add("second argument to nth_value must be a positive integer");
+        queryErrors.add("no such table");
+    }
+
+    @Override
+    public String getTypeName(ColumnType type) {
+        return type.name();
+    }
+
+    @Override
+    public String getBeginTransaction() {
+        return "BEGIN TRANSACTION";
+    }
+
+    @Override
+    public ExpectedErrors getTableErrors() {
+        return tableErrors;
+    }
+
+    @Override
+    public ExpectedErrors getQueryErrors() {
+        return queryErrors;
+    }
+
+    @Override
+    public int getQueriesPerPair() {
+        return options.mrupQueriesPerPair;
+    }
+
+    @Override
+    public ScaleProfile getScaleProfile() {
+        if (!options.mrupScaleProfile) {
+            return null;
+        }
+        return new ScaleProfile(options.mrupScalePartitions, options.mrupScaleRowsPerPartition,
+                options.mrupScaleZipfExponent);
+    }
+
+    @Override
+    public List<String> getFrameUnits() {
+        return Arrays.asList("ROWS", "RANGE", "GROUPS");
+    }
+
+    @Override
+    public boolean supportsFrameExclusion() {
+        return true;
+    }
+
+}
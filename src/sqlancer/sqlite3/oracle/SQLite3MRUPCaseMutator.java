@@ -1,52 +1,73 @@
 package sqlancer.sqlite3.oracle;
 
+import java.util.Arrays;
 import java.util.List;
 
 import sqlancer.Randomly;
+import sqlancer.sqlite3.ast.SQLite3Aggregate;
+import sqlancer.sqlite3.ast.SQLite3Aggregate.SQLite3AggregateFunction;
+import sqlancer.sqlite3.ast.SQLite3Case.CasePair;
+import sqlancer.sqlite3.ast.SQLite3Case.SQLite3CaseWithoutBaseExpression;
+import sqlancer.sqlite3.ast.SQLite3Constant;
+import sqlancer.sqlite3.ast.SQLite3Expression;
+import sqlancer.sqlite3.ast.SQLite3Expression.BetweenOperation;
+import sqlancer.sqlite3.ast.SQLite3Expression.BinaryComparisonOperation;
+import sqlancer.sqlite3.ast.SQLite3Expression.BinaryComparisonOperation.BinaryComparisonOperator;
+import sqlancer.sqlite3.ast.SQLite3Expression.InOperation;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3ColumnName;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3PostfixUnaryOperation;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3PostfixUnaryOperation.PostfixUnaryOperator;
+import sqlancer.sqlite3.ast.SQLite3Expression.Sqlite3BinaryOperation;
+import sqlancer.sqlite3.ast.SQLite3Expression.Sqlite3BinaryOperation.BinaryOperator;
+import sqlancer.sqlite3.ast.SQLite3WindowFunction;
+import sqlancer.sqlite3.ast.SQLite3WindowFunction.WindowFunction;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression;
 import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Column;
 
 /**
  * Phase 3: CASE WHEN Mutations for MRUP Oracle
- * 
+ *
  * Implements CASE WHEN mutations based on proven bug-finding patterns from MySQL EET oracle.
  * All mutations preserve MRUP semantics (partition-local, deterministic).
+ *
+ * The mutations build {@link SQLite3CaseWithoutBaseExpression} nodes around the window function tree.
  */
 public class SQLite3MRUPCaseMutator {
 
     /**
      * Phase 3.0: Constant Condition with Dead Branch
-     * 
+     *
      * Patterns like "CASE WHEN TRUE THEN NULL ELSE wf END" found real bugs in MySQL.
      * Forces optimizer to handle dead branch elimination and constant folding.
      */
-    public static String applyConstantCondition(String windowFunction) {
+    public static SQLite3Expression applyConstantCondition(SQLite3Expression windowFunction) {
         int variant = Randomly.fromOptions(1, 2, 3, 4, 5, 6);
-        
+
         switch (variant) {
             case 1:
                 // Always true -> NULL (tests type inference with NULL)
-                return "CASE WHEN 1 = 1 THEN NULL ELSE " + windowFunction + " END";
-            
+                return caseWhen(equals(1, 1), SQLite3Constant.createNullConstant(), windowFunction);
+
             case 2:
                 // Always false -> window function (tests dead branch elimination)
-                return "CASE WHEN 1 = 0 THEN NULL ELSE " + windowFunction + " END";
-            
+                return caseWhen(equals(1, 0), SQLite3Constant.createNullConstant(), windowFunction);
+
             case 3:
                 // TRUE literal -> NULL
-                return "CASE WHEN TRUE THEN NULL ELSE " + windowFunction + " END";
-            
+                return caseWhen(SQLite3Constant.createTrue(), SQLite3Constant.createNullConstant(), windowFunction);
+
             case 4:
                 // FALSE literal -> window function
-                return "CASE WHEN FALSE THEN NULL ELSE " + windowFunction + " END";
-            
+                return caseWhen(SQLite3Constant.createFalse(), SQLite3Constant.createNullConstant(), windowFunction);
+
             case 5:
                 // Always true with 0 (tests type inference with integer)
-                return "CASE WHEN 1 = 1 THEN 0 ELSE " + windowFunction + " END";
-            
+                return caseWhen(equals(1, 1), SQLite3Constant.createIntConstant(0), windowFunction);
+
             case 6:
                 // Always false, dead branch has window function
-                return "CASE WHEN 1 = 0 THEN " + windowFunction + " ELSE NULL END";
-            
+                return caseWhen(equals(1, 0), windowFunction, SQLite3Constant.createNullConstant());
+
             default:
                 return windowFunction;
         }
@@ -54,40 +75,42 @@ public class SQLite3MRUPCaseMutator {
 
     /**
      * Phase 3.1: Window Function in WHEN Condition
-     * 
+     *
      * Tests window function evaluation in WHEN condition.
      * Pattern from MySQL bug: WHEN (wf IN (SELECT ...)) THEN ...
      */
-    public static String applyWindowFunctionCondition(String windowFunction) {
+    public static SQLite3Expression applyWindowFunctionCondition(SQLite3Expression windowFunction) {
         int variant = Randomly.fromOptions(1, 2, 3, 4, 5);
-        
+
         switch (variant) {
             case 1:
                 // Simple comparison
                 int threshold = Randomly.fromOptions(1, 2, 3, 5, 10);
-                return "CASE WHEN " + windowFunction + " <= " + threshold + 
-                       " THEN 'TOP' ELSE 'OTHER' END";
-            
+                return caseWhen(new BinaryComparisonOperation(windowFunction,
+                        SQLite3Constant.createIntConstant(threshold), BinaryComparisonOperator.SMALLER_EQUALS),
+                        text("TOP"), text("OTHER"));
+
             case 2:
                 // IN clause
-                return "CASE WHEN " + windowFunction + " IN (1, 2, 3) " +
-                       "THEN 'TOP_3' ELSE 'OTHER' END";
-            
+                return caseWhen(new InOperation(windowFunction, Arrays.asList(SQLite3Constant.createIntConstant(1),
+                        SQLite3Constant.createIntConstant(2), SQLite3Constant.createIntConstant(3))),
+                        text("TOP_3"), text("OTHER"));
+
             case 3:
                 // IS NULL check
-                return "CASE WHEN " + windowFunction + " IS NULL " +
-                       "THEN 'NULL_RESULT' ELSE 'HAS_VALUE' END";
-            
+                return caseWhen(new SQLite3PostfixUnaryOperation(PostfixUnaryOperator.ISNULL, windowFunction),
+                        text("NULL_RESULT"), text("HAS_VALUE"));
+
             case 4:
                 // BETWEEN
-                return "CASE WHEN " + windowFunction + " BETWEEN 1 AND 5 " +
-                       "THEN 'TOP_5' ELSE 'OTHER' END";
-            
+                return caseWhen(new BetweenOperation(windowFunction, false, SQLite3Constant.createIntConstant(1),
+                        SQLite3Constant.createIntConstant(5)), text("TOP_5"), text("OTHER"));
+
             case 5:
                 // Greater than with string result
-                return "CASE WHEN " + windowFunction + " > 0 " +
-                       "THEN 'POSITIVE' ELSE 'NON_POSITIVE' END";
-            
+                return caseWhen(new BinaryComparisonOperation(windowFunction, SQLite3Constant.createIntConstant(0),
+                        BinaryComparisonOperator.GREATER), text("POSITIVE"), text("NON_POSITIVE"));
+
             default:
                 return windowFunction;
         }
@@ -95,82 +118,90 @@ public class SQLite3MRUPCaseMutator {
 
     /**
      * Phase 3.2: Different Window Functions per Branch
-     * 
+     *
      * Forces optimizer to handle multiple window functions.
      * Tests type mismatch between branches.
+     *
+     * @param windowFunction The window function whose OVER clause is reused for both branches
      */
-    public static String applyDifferentWindowFunctions(
-            String functionType,
-            String windowSpec,
+    public static SQLite3Expression applyDifferentWindowFunctions(
+            SQLite3WindowFunctionExpression windowFunction,
             List<SQLite3Column> columns,
-            String condition) {
-        
+            SQLite3Expression condition) {
+
         // Pick a random column for window functions
-        SQLite3Column col = Randomly.fromList(columns);
-        
+        SQLite3Expression col = new SQLite3ColumnName(Randomly.fromList(columns), null);
+
         // Generate two different window functions
-        String wf1, wf2;
-        
+        SQLite3Expression wf1;
+        SQLite3Expression wf2;
+
         int variant = Randomly.fromOptions(1, 2, 3);
-        
+
         switch (variant) {
             case 1:
                 // Different aggregate functions
-                wf1 = "SUM(" + col.getName() + ") " + windowSpec;
-                wf2 = "COUNT(*) " + windowSpec;
+                wf1 = aggregate(SQLite3AggregateFunction.SUM, col);
+                wf2 = aggregate(SQLite3AggregateFunction.COUNT_ALL);
                 break;
-            
+
             case 2:
                 // Different ranking functions
-                wf1 = "ROW_NUMBER() " + windowSpec;
-                wf2 = "RANK() " + windowSpec;
+                wf1 = new SQLite3WindowFunction(WindowFunction.ROW_NUMBER);
+                wf2 = new SQLite3WindowFunction(WindowFunction.RANK);
                 break;
-            
+
             case 3:
                 // Aggregate vs ranking
-                wf1 = "AVG(" + col.getName() + ") " + windowSpec;
-                wf2 = "DENSE_RANK() " + windowSpec;
+                wf1 = aggregate(SQLite3AggregateFunction.AVG, col);
+                wf2 = new SQLite3WindowFunction(WindowFunction.DENSE_RANK);
                 break;
-            
+
             default:
-                wf1 = "COUNT(*) " + windowSpec;
-                wf2 = "ROW_NUMBER() " + windowSpec;
+                wf1 = aggregate(SQLite3AggregateFunction.COUNT_ALL);
+                wf2 = new SQLite3WindowFunction(WindowFunction.ROW_NUMBER);
         }
-        
-        return "CASE WHEN " + condition + " THEN " + wf1 + " ELSE " + wf2 + " END";
+
+        return caseWhen(condition, SQLite3MRUPMutationOperator.withBaseWindowFunction(windowFunction, wf1),
+                SQLite3MRUPMutationOperator.withBaseWindowFunction(windowFunction, wf2));
     }
 
     /**
      * Phase 3.3: Identical THEN/ELSE Branches
-     * 
+     *
      * From MySQL bug: THEN ref_0.c20 ELSE ref_0.c20
      * Tests common subexpression elimination.
      */
-    public static String applyIdenticalBranches(String expression, String condition) {
-        return "CASE WHEN " + condition + " THEN " + expression + " ELSE " + expression + " END";
+    public static SQLite3Expression applyIdenticalBranches(SQLite3Expression expression,
+            SQLite3Expression condition) {
+        return caseWhen(condition, expression, expression);
     }
 
     /**
      * Phase 3.4: NULL Handling
-     * 
+     *
      * Tests NULL propagation through CASE.
      */
-    public static String applyNullHandling(String windowFunction, String column) {
+    public static SQLite3Expression applyNullHandling(SQLite3Expression windowFunction, SQLite3Column column) {
+        SQLite3Expression col = new SQLite3ColumnName(column, null);
         int variant = Randomly.fromOptions(1, 2, 3);
-        
+
         switch (variant) {
             case 1:
                 // NULL -> NULL
-                return "CASE WHEN " + column + " IS NULL THEN NULL ELSE " + windowFunction + " END";
-            
+                return caseWhen(new SQLite3PostfixUnaryOperation(PostfixUnaryOperator.ISNULL, col),
+                        SQLite3Constant.createNullConstant(), windowFunction);
+
             case 2:
                 // NULL -> 0
-                return "CASE WHEN " + column + " IS NULL THEN 0 ELSE " + windowFunction + " END";
-            
+                return caseWhen(new SQLite3PostfixUnaryOperation(PostfixUnaryOperator.ISNULL, col),
+                        SQLite3Constant.createIntConstant(0), windowFunction);
+
             case 3:
                 // NOT NULL check
-                return "CASE WHEN " + column + " IS NOT NULL THEN " + windowFunction + " ELSE 0 END";
-            
+                return caseWhen(new SQLite3PostfixUnaryOperation(PostfixUnaryOperator.NOTNULL, col), windowFunction,
+                        SQLite3Constant.createIntConstant(0));
+
             default:
                 return windowFunction;
         }
@@ -179,38 +210,60 @@ public class SQLite3MRUPCaseMutator {
     /**
      * Generate a partition-local condition for CASE WHEN
      */
-    public static String generatePartitionLocalCondition(List<SQLite3Column> columns) {
-        SQLite3Column col = Randomly.fromList(columns);
-        String colName = col.getName();
-        
+    public static SQLite3Expression generatePartitionLocalCondition(List<SQLite3Column> columns) {
+        SQLite3Expression col = new SQLite3ColumnName(Randomly.fromList(columns), null);
+
         int variant = Randomly.fromOptions(1, 2, 3, 4, 5);
-        
+
         switch (variant) {
             case 1:
                 // Simple comparison with constant
                 int value = Randomly.fromOptions(30, 40, 50, 60000, 70000);
-                return colName + " > " + value;
-            
+                return new BinaryComparisonOperation(col, SQLite3Constant.createIntConstant(value),
+                        BinaryComparisonOperator.GREATER);
+
             case 2:
                 // IS NULL
-                return colName + " IS NULL";
-            
+                return new SQLite3PostfixUnaryOperation(PostfixUnaryOperator.ISNULL, col);
+
             case 3:
                 // IS NOT NULL
-                return colName + " IS NOT NULL";
-            
+                return new SQLite3PostfixUnaryOperation(PostfixUnaryOperator.NOTNULL, col);
+
             case 4:
                 // BETWEEN
-                return colName + " BETWEEN 30 AND 50";
-            
+                return new BetweenOperation(col, false, SQLite3Constant.createIntConstant(30),
+                        SQLite3Constant.createIntConstant(50));
+
             case 5:
                 // Complex AND condition
-                SQLite3Column col2 = Randomly.fromList(columns);
-                return colName + " > 40 AND " + col2.getName() + " IS NOT NULL";
-            
+                SQLite3Expression col2 = new SQLite3ColumnName(Randomly.fromList(columns), null);
+                return new Sqlite3BinaryOperation(
+                        new BinaryComparisonOperation(col, SQLite3Constant.createIntConstant(40),
+                                BinaryComparisonOperator.GREATER),
+                        new SQLite3PostfixUnaryOperation(PostfixUnaryOperator.NOTNULL, col2), BinaryOperator.AND);
+
             default:
-                return colName + " > 50";
+                return new BinaryComparisonOperation(col, SQLite3Constant.createIntConstant(50),
+                        BinaryComparisonOperator.GREATER);
         }
     }
-}
 
+    private static SQLite3Expression caseWhen(SQLite3Expression condition, SQLite3Expression then,
+            SQLite3Expression elseExpr) {
+        return new SQLite3CaseWithoutBaseExpression(new CasePair[] { new CasePair(condition, then) }, elseExpr);
+    }
+
+    private static SQLite3Expression equals(long left, long right) {
+        return new BinaryComparisonOperation(SQLite3Constant.createIntConstant(left),
+                SQLite3Constant.createIntConstant(right), BinaryComparisonOperator.EQUALS);
+    }
+
+    private static SQLite3Expression text(String text) {
+        return SQLite3Constant.createTextConstant(text);
+    }
+
+    private static SQLite3Expression aggregate(SQLite3AggregateFunction func, SQLite3Expression... args) {
+        return new SQLite3Aggregate(Arrays.asList(args), func);
+    }
+}
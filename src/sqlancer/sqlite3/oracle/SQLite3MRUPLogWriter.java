@@ -0,0 +1,321 @@
+package sqlancer.sqlite3.oracle;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous writer for MRUP test case logs.
+ *
+ * Oracle threads only enqueue finished test cases into a bounded queue. A single background thread drains the queue
+ * into rolling segment files {@code mrup_<start>_<nnnnn>.jsonl} in the log directory, one JSON object per line:
+ *
+ * <pre>
+ * {"id":"mrup_20251210_075620_708_42","ts":1765352180708,"passed":true,"duration_ms":3,"schema":{...},...}
+ * </pre>
+ *
+ * followed by the structured fields of the test case (see {@link SQLite3MRUPTestCaseLogger}). If successful test
+ * cases are skipped because of back-pressure, a {@code {"ts":...,"dropped":n}} line records how many.
+ *
+ * Back-pressure: once the buffer is three quarters full, only every n-th successful test case is kept (see
+ * {@code mrup.logging.sample.rate}); if it is full, successful test cases are dropped. Failing test cases are never
+ * dropped; their threads wait until there is space.
+ */
+public final class SQLite3MRUPLogWriter implements AutoCloseable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+    private static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int DEFAULT_SAMPLE_RATE = 10;
+    // how long the writer waits for records before it flushes the segment and checks whether it is closed
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private static volatile SQLite3MRUPLogWriter instance;
+
+    private final Path directory;
+    private final String segmentPrefix;
+    private final long maxSegmentBytes;
+    private final int maxSegments;
+    private final int sampleRate;
+
+    private final int bufferSize;
+    private final BlockingQueue<Record> buffer;
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    // only accessed by the writer thread
+    private final Deque<Path> segments = new ArrayDeque<>();
+    private OutputStream segmentStream;
+    private long segmentBytes;
+    private int segmentNumber;
+
+    private static final class Record {
+        final String id;
+        final long timestamp;
+        final boolean passed;
+        final long durationMs;
+        final Map<String, ?> fields;
+
+        Record(String id, long timestamp, boolean passed, long durationMs, Map<String, ?> fields) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.passed = passed;
+            this.durationMs = durationMs;
+            this.fields = fields;
+        }
+    }
+
+    public SQLite3MRUPLogWriter(Path directory, int bufferSize, long maxSegmentBytes, int maxSegments,
+            int sampleRate) {
+        if (bufferSize < 1 || maxSegmentBytes < 1 || maxSegments < 0 || sampleRate < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.directory = directory;
+        this.segmentPrefix = "mrup_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + "_";
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegments = maxSegments;
+        this.sampleRate = sampleRate;
+        this.bufferSize = bufferSize;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.writerThread = new Thread(this::drain, "mrup-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * The writer for the mrup_logs/ directory, configured by the mrup.logging.* system properties. It is closed (and
+     * all pending records are written) on JVM shutdown.
+     */
+    public static SQLite3MRUPLogWriter getInstance() {
+        if (instance == null) {
+            synchronized (SQLite3MRUPLogWriter.class) {
+                if (instance == null) {
+                    SQLite3MRUPLogWriter writer = new SQLite3MRUPLogWriter(
+                            Paths.get(System.getProperty("mrup.logging.dir", "mrup_logs")),
+                            Integer.getInteger("mrup.logging.buffer.size", DEFAULT_BUFFER_SIZE),
+                            Long.getLong("mrup.logging.segment.bytes", DEFAULT_SEGMENT_BYTES),
+                            Integer.getInteger("mrup.logging.max.segments", 0),
+                            Integer.getInteger("mrup.logging.sample.rate", DEFAULT_SAMPLE_RATE));
+                    Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "mrup-log-writer-shutdown"));
+                    instance = writer;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Enqueue a finished test case.
+     *
+     * @param fields
+     *            the structured fields of the test case (strings, numbers, booleans, and lists and maps of them),
+     *            which must not be changed afterwards
+     *
+     * @return false if the test case was skipped because of back-pressure (only for passed test cases)
+     */
+    public boolean submit(String id, boolean passed, long durationMs, Map<String, ?> fields) {
+        Record record = new Record(id, System.currentTimeMillis(), passed, durationMs, fields);
+        if (passed) {
+            boolean sampledOut = buffer.size() >= bufferSize / 4 * 3
+                    && sampleCounter.getAndIncrement() % sampleRate != 0;
+            if (sampledOut || !buffer.offer(record)) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+        try {
+            while (!buffer.offer(record, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Write all pending records and stop the writer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                boolean wasClosed = closed;
+                boolean wroteAny = false;
+                Record record = buffer.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                while (record != null) {
+                    write(record);
+                    wroteAny = true;
+                    record = buffer.poll();
+                }
+                long droppedRecords = dropped.getAndSet(0);
+                if (droppedRecords != 0) {
+                    writeLine("{\"ts\":" + System.currentTimeMillis() + ",\"dropped\":" + droppedRecords + "}");
+                    wroteAny = true;
+                }
+                if (wroteAny && segmentStream != null) {
+                    segmentStream.flush();
+                }
+                if (wasClosed && buffer.isEmpty()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            dropPendingRecords();
+        } catch (IOException e) {
+            // Silently fail - don't disrupt oracle execution
+            System.err.println("[MRUP Logger] Failed to write log segment: " + e.getMessage());
+            dropPendingRecords();
+        } finally {
+            closeSegment();
+        }
+    }
+
+    private void dropPendingRecords() {
+        // keep failing producers from waiting forever
+        closed = true;
+        buffer.clear();
+    }
+
+    private void write(Record record) throws IOException {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"id\":");
+        appendJsonString(sb, record.id);
+        sb.append(",\"ts\":").append(record.timestamp);
+        sb.append(",\"passed\":").append(record.passed);
+        sb.append(",\"duration_ms\":").append(record.durationMs);
+        for (Map.Entry<String, ?> field : record.fields.entrySet()) {
+            sb.append(',');
+            appendJsonString(sb, field.getKey());
+            sb.append(':');
+            appendJsonValue(sb, field.getValue());
+        }
+        sb.append('}');
+        writeLine(sb.toString());
+    }
+
+    private static void appendJsonValue(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                appendJsonString(sb, String.valueOf(entry.getKey()));
+                sb.append(':');
+                appendJsonValue(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                appendJsonValue(sb, element);
+            }
+            sb.append(']');
+        } else {
+            appendJsonString(sb, value.toString());
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        if (segmentStream == null || segmentBytes >= maxSegmentBytes) {
+            openNextSegment();
+        }
+        byte[] bytes = (line + '\n').getBytes(StandardCharsets.UTF_8);
+        segmentStream.write(bytes);
+        segmentBytes += bytes.length;
+    }
+
+    private void openNextSegment() throws IOException {
+        closeSegment();
+        Files.createDirectories(directory);
+        Path segment = directory.resolve(String.format("%s%05d.jsonl", segmentPrefix, segmentNumber++));
+        segmentStream = new BufferedOutputStream(Files.newOutputStream(segment), 1 << 16);
+        segmentBytes = 0;
+        segments.add(segment);
+        while (maxSegments != 0 && segments.size() > maxSegments) {
+            Files.deleteIfExists(segments.removeFirst());
+        }
+    }
+
+    private void closeSegment() {
+        if (segmentStream != null) {
+            try {
+                segmentStream.close();
+            } catch (IOException e) {
+                System.err.println("[MRUP Logger] Failed to close log segment: " + e.getMessage());
+            }
+            segmentStream = null;
+        }
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,154 @@
+package sqlancer.sqlite3.oracle;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import sqlancer.common.metrics.LatencyHistogram;
+
+/**
+ * In-process metrics of the MRUP oracle: lock-free counters and latency/size histograms (see {@link LatencyHistogram})
+ * that are shared by all oracle threads.
+ *
+ * With {@code --mrup-metrics-file}, a JSON snapshot of all metrics is written to the file periodically (and on JVM
+ * shutdown), so live numbers are available without logging every test case:
+ *
+ * <pre>
+ * {"timestamp":1765352180708,"uptime_ms":60000,
+ *  "counters":{"checks":8000,"mutation.identity.Arithmetic Identity (+ 0)":1012,...},
+ *  "histograms":{"time.execution_us":{"count":8000,"mean":412.3,"p50":383,"p90":639,"p99":1151,"max":9123},...}}
+ * </pre>
+ */
+public final class SQLite3MRUPMetrics {
+
+    private static final SQLite3MRUPMetrics INSTANCE = new SQLite3MRUPMetrics();
+
+    private final long startTime = System.currentTimeMillis();
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    // the values are not necessarily nanoseconds; the unit is part of the name (e.g., time.execution_us)
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private ScheduledExecutorService exporter;
+
+    private SQLite3MRUPMetrics() {
+    }
+
+    public static SQLite3MRUPMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void increment(String counter) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).increment();
+    }
+
+    public long getCount(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    public void record(String histogram, long value) {
+        getHistogram(histogram).record(value);
+    }
+
+    /**
+     * Record the time elapsed since {@code startNanos} (from {@link System#nanoTime()}) in microseconds.
+     */
+    public void recordTimeSince(String histogram, long startNanos) {
+        record(histogram, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    public LatencyHistogram getHistogram(String histogram) {
+        return histograms.computeIfAbsent(histogram, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Start writing snapshots to the file (only the first call has an effect).
+     */
+    public synchronized void startExporter(Path file, long intervalSeconds) {
+        if (exporter != null) {
+            return;
+        }
+        exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mrup-metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exporter.scheduleAtFixedRate(() -> writeSnapshot(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> writeSnapshot(file), "mrup-metrics-shutdown"));
+    }
+
+    /**
+     * Write the snapshot to a temporary file that then replaces the file, so readers never see a partial snapshot.
+     */
+    public void writeSnapshot(Path file) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(tmp, snapshot().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[MRUP Metrics] Failed to write snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A JSON snapshot of all metrics (keys are sorted).
+     */
+    public String snapshot() {
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"timestamp\":").append(now);
+        sb.append(",\"uptime_ms\":").append(now - startTime);
+        sb.append(",\n \"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            sb.append(separator);
+            appendJsonString(sb, counter.getKey());
+            sb.append(':').append(counter.getValue().sum());
+            separator = ",";
+        }
+        sb.append("},\n \"histograms\":{");
+        separator = "";
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram.Snapshot histogram = entry.getValue().snapshot();
+            long max = entry.getValue().getMaxNanos();
+            double mean = histogram.getCount() == 0 ? 0 : (double) histogram.getSumNanos() / histogram.getCount();
+            sb.append(separator);
+            appendJsonString(sb, entry.getKey());
+            sb.append(":{\"count\":").append(histogram.getCount());
+            sb.append(",\"mean\":").append(String.format(Locale.ROOT, "%.1f", mean));
+            // the upper bound of a bucket can exceed the largest value in it
+            sb.append(",\"p50\":").append(Math.min(histogram.getPercentileNanos(50), max));
+            sb.append(",\"p90\":").append(Math.min(histogram.getPercentileNanos(90), max));
+            sb.append(",\"p99\":").append(Math.min(histogram.getPercentileNanos(99), max));
+            sb.append(",\"max\":").append(max);
+            sb.append('}');
+            separator = ",\n  ";
+        }
+        sb.append("}}\n");
+        return sb.toString();
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c < 0x20 ? ' ' : c);
+        }
+        sb.append('"');
+    }
+}
@@ -4,274 +4,329 @@ import java.util.ArrayList;
 import java.util.List;
 
 import sqlancer.Randomly;
-import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Column;
+import sqlancer.sqlite3.ast.SQLite3Constant;
+import sqlancer.sqlite3.ast.SQLite3Expression;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3OrderingTerm;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3PostfixText;
+import sqlancer.sqlite3.ast.SQLite3Expression.Sqlite3BinaryOperation;
+import sqlancer.sqlite3.ast.SQLite3Expression.Sqlite3BinaryOperation.BinaryOperator;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3FrameSpecKind;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3WindowFunctionFrameSpecBetween;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3WindowFunctionFrameSpecTerm;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3WindowFunctionFrameSpecTerm.SQLite3WindowFunctionFrameSpecTermKind;
 
 /**
  * MRUP Mutation Operators
- * 
- * Implements the Top 10 mutation strategies from MRUP.md for window function testing.
+ *
+ * Implements the window spec mutation strategies from MRUP.md for window function testing.
  * These mutations are semantic-preserving transformations that should not change
  * the query result, but may expose optimizer bugs.
+ *
+ * Mutations are rewrites of the {@link SQLite3WindowFunctionExpression} tree: each mutation
+ * knows whether it is applicable to a given window function, and returns a modified copy
+ * (the input tree is never changed). Only applicable mutations are picked, so a mutation is
+ * never a no-op.
  */
 public class SQLite3MRUPMutationOperator {
 
     /**
-     * Apply random mutations to a window specification
-     * 
-     * @param windowSpec Original window specification
-     * @param columns Available columns
-     * @return Mutated window specification
+     * Window spec mutations.
+     *
+     * The query-level strategies (Q1: wrap in subquery, Q3: UNION ALL wrapper) are not
+     * window spec rewrites and are therefore not part of this enum.
      */
-    public static String applyRandomMutations(String windowSpec, List<SQLite3Column> columns) {
-        // Apply only 1 mutation to avoid corrupting the window spec
-        return applyRandomMutation(windowSpec, columns);
-    }
+    public enum WindowSpecMutation {
 
-    /**
-     * Apply a single random mutation from the Top 10 strategies
-     */
-    private static String applyRandomMutation(String windowSpec, List<SQLite3Column> columns) {
-        // Randomly select one of the Top 10 mutations
-        int mutationId = Randomly.fromOptions(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
-        
-        switch (mutationId) {
-            case 1:
-                return mutationO1_RedundantOrderBy(windowSpec, columns);
-            case 2:
-                return mutationO2_OrderPreservingTransform(windowSpec, columns);
-            case 3:
-                return mutationP1_RedundantPartitionBy(windowSpec, columns);
-            case 4:
-                return mutationP3_AddUniqueColumn(windowSpec, columns);
-            case 5:
-                return mutationF1_ShrinkFrame(windowSpec);
-            case 6:
-                return mutationF3_CurrentRowEquivalence(windowSpec);
-            case 7:
-                return mutationF8_SwitchRowsRange(windowSpec);
-            case 8:
-                return mutationV1_ArithmeticIdentity(windowSpec, columns);
-            case 9:
-                return mutationQ1_WrapInSubquery(windowSpec);
-            case 10:
-                return mutationQ3_UnionAllWrapper(windowSpec);
-            default:
-                return windowSpec;
-        }
-    }
+        /**
+         * O1: Redundant ORDER BY column
+         * ORDER BY x → ORDER BY x, x
+         * (not with RANGE frames, which require a single ORDER BY term, see C4)
+         */
+        O1_REDUNDANT_ORDER_BY("Redundant ORDER BY") {
+            @Override
+            public boolean isApplicable(SQLite3WindowFunctionExpression wf) {
+                return !wf.getOrderBy().isEmpty() && wf.getFrameSpecKind() != SQLite3FrameSpecKind.RANGE;
+            }
 
-    /**
-     * O1: Redundant ORDER BY column
-     * ORDER BY x → ORDER BY x, x
-     */
-    private static String mutationO1_RedundantOrderBy(String windowSpec, List<SQLite3Column> columns) {
-        if (!windowSpec.contains("ORDER BY")) {
-            return windowSpec;
-        }
-        
-        // Find ORDER BY clause - look for the actual column name
-        int orderByPos = windowSpec.indexOf("ORDER BY");
-        if (orderByPos == -1) return windowSpec;
-        
-        // Extract the first column name after ORDER BY
-        String afterOrderBy = windowSpec.substring(orderByPos + 9).trim(); // "ORDER BY " is 9 chars
-        String firstCol = afterOrderBy.split("\\s+")[0]; // Get first word (column name)
-        
-        // Find where to insert duplicate (after first column and its direction)
-        int insertPos = orderByPos + 9 + firstCol.length();
-        
-        // Skip direction keywords if present
-        String remaining = windowSpec.substring(insertPos).trim();
-        if (remaining.startsWith("ASC") || remaining.startsWith("DESC")) {
-            insertPos += remaining.startsWith("ASC") ? 4 : 5;
+            @Override
+            public SQLite3WindowFunctionExpression apply(SQLite3WindowFunctionExpression wf) {
+                SQLite3WindowFunctionExpression mutated = copy(wf);
+                mutated.getOrderBy().add(1, wf.getOrderBy().get(0));
+                return mutated;
+            }
+        },
+
+        /**
+         * O2: Order-preserving transform
+         * ORDER BY x → ORDER BY x + 0
+         */
+        O2_ORDER_PRESERVING_TRANSFORM("Order-Preserving Transform") {
+            @Override
+            public boolean isApplicable(SQLite3WindowFunctionExpression wf) {
+                return !wf.getOrderBy().isEmpty();
+            }
+
+            @Override
+            public SQLite3WindowFunctionExpression apply(SQLite3WindowFunctionExpression wf) {
+                SQLite3WindowFunctionExpression mutated = copy(wf);
+                mutated.getOrderBy().set(0,
+                        transformOrderingTerm(wf.getOrderBy().get(0), BinaryOperator.PLUS, 0));
+                return mutated;
+            }
+        },
+
+        /**
+         * P1: Add redundant PARTITION BY key
+         * PARTITION BY dept → PARTITION BY dept, dept
+         */
+        P1_REDUNDANT_PARTITION_BY("Redundant PARTITION BY") {
+            @Override
+            public boolean isApplicable(SQLite3WindowFunctionExpression wf) {
+                return !wf.getPartitionBy().isEmpty();
+            }
+
+            @Override
+            public SQLite3WindowFunctionExpression apply(SQLite3WindowFunctionExpression wf) {
+                SQLite3WindowFunctionExpression mutated = copy(wf);
+                mutated.getPartitionBy().add(wf.getPartitionBy().get(0));
+                return mutated;
+            }
+        },
+
+        /**
+         * P3: Add unique column to PARTITION BY
+         * PARTITION BY dept → PARTITION BY dept, id
+         * (like the string-based mutation it replaces, this repeats the first PARTITION BY key, as P1 does)
+         */
+        P3_ADD_UNIQUE_COLUMN("Redundant PARTITION BY") {
+            @Override
+            public boolean isApplicable(SQLite3WindowFunctionExpression wf) {
+                return P1_REDUNDANT_PARTITION_BY.isApplicable(wf);
+            }
+
+            @Override
+            public SQLite3WindowFunctionExpression apply(SQLite3WindowFunctionExpression wf) {
+                return P1_REDUNDANT_PARTITION_BY.apply(wf);
+            }
+        },
+
+        /**
+         * F1: Shrink frame
+         * UNBOUNDED PRECEDING → 1 PRECEDING
+         */
+        F1_SHRINK_FRAME("Shrink Frame") {
+            @Override
+            public boolean isApplicable(SQLite3WindowFunctionExpression wf) {
+                for (SQLite3WindowFunctionFrameSpecTerm term : frameTerms(wf)) {
+                    if (term.getKind() == SQLite3WindowFunctionFrameSpecTermKind.UNBOUNDED_PRECEDING) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public SQLite3WindowFunctionExpression apply(SQLite3WindowFunctionExpression wf) {
+                SQLite3WindowFunctionExpression mutated = copy(wf);
+                mutated.setFrameSpec(replaceFrameTerms(wf.getFrameSpec(),
+                        SQLite3WindowFunctionFrameSpecTermKind.UNBOUNDED_PRECEDING,
+                        new SQLite3WindowFunctionFrameSpecTerm(SQLite3Constant.createIntConstant(1),
+                                SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING)));
+                return mutated;
+            }
+        },
+
+        /**
+         * F3: CURRENT ROW equivalence
+         * ROWS CURRENT ROW ↔ ROWS BETWEEN 0 PRECEDING AND 0 FOLLOWING
+         */
+        F3_CURRENT_ROW_EQUIVALENCE("CURRENT ROW Equivalence") {
+            @Override
+            public boolean isApplicable(SQLite3WindowFunctionExpression wf) {
+                return isCurrentRowFrame(wf.getFrameSpec()) || isZeroOffsetFrame(wf.getFrameSpec());
+            }
+
+            @Override
+            public SQLite3WindowFunctionExpression apply(SQLite3WindowFunctionExpression wf) {
+                SQLite3WindowFunctionExpression mutated = copy(wf);
+                if (isCurrentRowFrame(wf.getFrameSpec())) {
+                    mutated.setFrameSpec(new SQLite3WindowFunctionFrameSpecBetween(
+                            new SQLite3WindowFunctionFrameSpecTerm(SQLite3Constant.createIntConstant(0),
+                                    SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING),
+                            new SQLite3WindowFunctionFrameSpecTerm(SQLite3Constant.createIntConstant(0),
+                                    SQLite3WindowFunctionFrameSpecTermKind.EXPR_FOLLOWING)));
+                } else {
+                    mutated.setFrameSpec(
+                            new SQLite3WindowFunctionFrameSpecTerm(SQLite3WindowFunctionFrameSpecTermKind.CURRENT_ROW));
+                }
+                return mutated;
+            }
+        },
+
+        /**
+         * F8: Switch ROWS ↔ RANGE
+         * (ROWS → RANGE only with a single ORDER BY term, see C4)
+         */
+        F8_SWITCH_ROWS_RANGE("Switch ROWS/RANGE") {
+            @Override
+            public boolean isApplicable(SQLite3WindowFunctionExpression wf) {
+                return wf.getFrameSpecKind() == SQLite3FrameSpecKind.RANGE
+                        || wf.getFrameSpecKind() == SQLite3FrameSpecKind.ROWS && wf.getOrderBy().size() == 1;
+            }
+
+            @Override
+            public SQLite3WindowFunctionExpression apply(SQLite3WindowFunctionExpression wf) {
+                SQLite3WindowFunctionExpression mutated = copy(wf);
+                mutated.setFrameSpecKind(wf.getFrameSpecKind() == SQLite3FrameSpecKind.ROWS
+                        ? SQLite3FrameSpecKind.RANGE : SQLite3FrameSpecKind.ROWS);
+                return mutated;
+            }
+        },
+
+        /**
+         * V1: Arithmetic identity on a random ORDER BY term
+         * ORDER BY x → ORDER BY x * 1 (or x + 0, x - 0)
+         */
+        V1_ARITHMETIC_IDENTITY("Arithmetic Identity") {
+            @Override
+            public boolean isApplicable(SQLite3WindowFunctionExpression wf) {
+                return !wf.getOrderBy().isEmpty();
+            }
+
+            @Override
+            public SQLite3WindowFunctionExpression apply(SQLite3WindowFunctionExpression wf) {
+                SQLite3WindowFunctionExpression mutated = copy(wf);
+                int index = (int) Randomly.getNotCachedInteger(0, wf.getOrderBy().size());
+                BinaryOperator operator = Randomly.fromOptions(BinaryOperator.MULTIPLY, BinaryOperator.PLUS,
+                        BinaryOperator.MINUS);
+                mutated.getOrderBy().set(index, transformOrderingTerm(wf.getOrderBy().get(index), operator,
+                        operator == BinaryOperator.MULTIPLY ? 1 : 0));
+                return mutated;
+            }
+        };
+
+        private final String description;
+
+        WindowSpecMutation(String description) {
+            this.description = description;
         }
-        if (windowSpec.substring(insertPos).trim().startsWith("NULLS")) {
-            int nullsEnd = windowSpec.indexOf("LAST", insertPos);
-            if (nullsEnd == -1) nullsEnd = windowSpec.indexOf("FIRST", insertPos);
-            if (nullsEnd != -1) insertPos = nullsEnd + 4;
+
+        public String getDescription() {
+            return description;
         }
-        
-        String before = windowSpec.substring(0, insertPos);
-        String after = windowSpec.substring(insertPos);
-        
-        return before + ", " + firstCol + after;
+
+        public abstract boolean isApplicable(SQLite3WindowFunctionExpression wf);
+
+        /**
+         * Returns a mutated copy of the window function; must only be called if {@link #isApplicable} holds.
+         */
+        public abstract SQLite3WindowFunctionExpression apply(SQLite3WindowFunctionExpression wf);
     }
 
     /**
-     * O2: Order-preserving transform
-     * ORDER BY x → ORDER BY x + 0
+     * Pick a random window spec mutation that is applicable to the window function.
+     *
+     * @return the mutation, or null if no mutation is applicable
      */
-    private static String mutationO2_OrderPreservingTransform(String windowSpec, List<SQLite3Column> columns) {
-        if (!windowSpec.contains("ORDER BY")) {
-            return windowSpec;
+    public static WindowSpecMutation getRandomApplicableMutation(SQLite3WindowFunctionExpression wf) {
+        List<WindowSpecMutation> applicable = new ArrayList<>();
+        for (WindowSpecMutation mutation : WindowSpecMutation.values()) {
+            if (mutation.isApplicable(wf)) {
+                applicable.add(mutation);
+            }
         }
-        
-        // Extract the first column name after ORDER BY
-        int orderByPos = windowSpec.indexOf("ORDER BY");
-        String afterOrderBy = windowSpec.substring(orderByPos + 9).trim();
-        String firstCol = afterOrderBy.split("\\s+")[0];
-        
-        // Use simple string replacement to avoid regex issues
-        String searchStr = "ORDER BY " + firstCol;
-        String replaceStr = "ORDER BY (" + firstCol + " + 0)";
-        
-        int pos = windowSpec.indexOf(searchStr);
-        if (pos != -1) {
-            return windowSpec.substring(0, pos) + replaceStr + windowSpec.substring(pos + searchStr.length());
+        if (applicable.isEmpty()) {
+            return null;
         }
-        
-        return windowSpec;
+        return Randomly.fromList(applicable);
     }
 
     /**
-     * P1: Add redundant PARTITION BY key
-     * PARTITION BY dept → PARTITION BY dept, dept
+     * Copy the window function node (the lists are copied, the expressions are shared, as they are immutable).
      */
-    private static String mutationP1_RedundantPartitionBy(String windowSpec, List<SQLite3Column> columns) {
-        if (!windowSpec.contains("PARTITION BY")) {
-            return windowSpec;
-        }
-        
-        // Extract the partition column (always "dept" in our case)
-        int partitionPos = windowSpec.indexOf("PARTITION BY");
-        String afterPartition = windowSpec.substring(partitionPos + 13).trim(); // "PARTITION BY " is 13 chars
-        String partCol = afterPartition.split("\\s+")[0]; // Get first word
-        
-        // Find where ORDER BY starts or where to insert
-        int orderByPos = windowSpec.indexOf("ORDER BY", partitionPos);
-        int insertPos = (orderByPos != -1) ? orderByPos : windowSpec.indexOf(")", partitionPos);
-        
-        String before = windowSpec.substring(0, insertPos);
-        String after = windowSpec.substring(insertPos);
-        
-        // Add duplicate partition column
-        return before + ", " + partCol + " " + after;
+    static SQLite3WindowFunctionExpression copy(SQLite3WindowFunctionExpression wf) {
+        return withBaseWindowFunction(wf, wf.getBaseWindowFunction());
     }
 
     /**
-     * P3: Add unique column to PARTITION BY
-     * PARTITION BY dept → PARTITION BY dept, id
+     * Create a window function with the same OVER clause as {@code wf}, but a different function.
      */
-    private static String mutationP3_AddUniqueColumn(String windowSpec, List<SQLite3Column> columns) {
-        // Similar to P1 but conceptually adds a unique column
-        // For simplicity, we'll just add a random column
-        return mutationP1_RedundantPartitionBy(windowSpec, columns);
+    static SQLite3WindowFunctionExpression withBaseWindowFunction(SQLite3WindowFunctionExpression wf,
+            SQLite3Expression baseWindowFunction) {
+        SQLite3WindowFunctionExpression copy = new SQLite3WindowFunctionExpression(baseWindowFunction);
+        copy.setPartitionBy(new ArrayList<>(wf.getPartitionBy()));
+        copy.setOrderBy(new ArrayList<>(wf.getOrderBy()));
+        copy.setFilterClause(wf.getFilterClause());
+        copy.setFrameSpecKind(wf.getFrameSpecKind());
+        copy.setFrameSpec(wf.getFrameSpec());
+        copy.setExclude(wf.getExclude());
+        return copy;
     }
 
     /**
-     * F1: Shrink frame
-     * UNBOUNDED PRECEDING → 1 PRECEDING
+     * Wrap the sort key of an ORDER BY term (x [ASC|DESC] [NULLS FIRST|LAST]) in {@code x op constant},
+     * keeping direction and NULLS handling.
      */
-    private static String mutationF1_ShrinkFrame(String windowSpec) {
-        if (windowSpec.contains("UNBOUNDED PRECEDING")) {
-            return windowSpec.replace("UNBOUNDED PRECEDING", "1 PRECEDING");
+    private static SQLite3Expression transformOrderingTerm(SQLite3Expression term, BinaryOperator operator,
+            long constant) {
+        if (term instanceof SQLite3PostfixText) {
+            SQLite3PostfixText nulls = (SQLite3PostfixText) term;
+            return new SQLite3PostfixText(transformOrderingTerm(nulls.getExpression(), operator, constant),
+                    nulls.getText(), null);
         }
-        return windowSpec;
-    }
-
-    /**
-     * F3: CURRENT ROW equivalence
-     * ROWS BETWEEN 0 PRECEDING AND 0 FOLLOWING ↔ CURRENT ROW
-     */
-    private static String mutationF3_CurrentRowEquivalence(String windowSpec) {
-        if (windowSpec.contains("CURRENT ROW") && !windowSpec.contains("BETWEEN")) {
-            // Expand CURRENT ROW to BETWEEN form
-            return windowSpec.replace("CURRENT ROW", "BETWEEN 0 PRECEDING AND 0 FOLLOWING");
-        } else if (windowSpec.contains("BETWEEN 0 PRECEDING AND 0 FOLLOWING")) {
-            // Collapse to CURRENT ROW
-            return windowSpec.replace("BETWEEN 0 PRECEDING AND 0 FOLLOWING", "CURRENT ROW");
+        if (term instanceof SQLite3OrderingTerm) {
+            SQLite3OrderingTerm ordering = (SQLite3OrderingTerm) term;
+            return new SQLite3OrderingTerm(transformOrderingTerm(ordering.getExpression(), operator, constant),
+                    ordering.getOrdering());
         }
-        return windowSpec;
+        return new Sqlite3BinaryOperation(term, SQLite3Constant.createIntConstant(constant), operator);
     }
 
-    /**
-     * F8: Switch ROWS ↔ RANGE (when ORDER BY is unique)
-     * ROWS ... ↔ RANGE ...
-     */
-    private static String mutationF8_SwitchRowsRange(String windowSpec) {
-        if (windowSpec.contains(" ROWS ")) {
-            return windowSpec.replace(" ROWS ", " RANGE ");
-        } else if (windowSpec.contains(" RANGE ")) {
-            return windowSpec.replace(" RANGE ", " ROWS ");
+    private static List<SQLite3WindowFunctionFrameSpecTerm> frameTerms(SQLite3WindowFunctionExpression wf) {
+        List<SQLite3WindowFunctionFrameSpecTerm> terms = new ArrayList<>();
+        SQLite3Expression frame = wf.getFrameSpec();
+        if (frame instanceof SQLite3WindowFunctionFrameSpecTerm) {
+            terms.add((SQLite3WindowFunctionFrameSpecTerm) frame);
+        } else if (frame instanceof SQLite3WindowFunctionFrameSpecBetween) {
+            terms.add(((SQLite3WindowFunctionFrameSpecBetween) frame).getLeft());
+            terms.add(((SQLite3WindowFunctionFrameSpecBetween) frame).getRight());
         }
-        return windowSpec;
+        return terms;
     }
 
-    /**
-     * V1: Arithmetic identity
-     * ORDER BY x → ORDER BY x * 1
-     */
-    private static String mutationV1_ArithmeticIdentity(String windowSpec, List<SQLite3Column> columns) {
-        if (!windowSpec.contains("ORDER BY") || columns.isEmpty()) {
-            return windowSpec;
+    private static SQLite3Expression replaceFrameTerms(SQLite3Expression frame,
+            SQLite3WindowFunctionFrameSpecTermKind kind, SQLite3WindowFunctionFrameSpecTerm replacement) {
+        if (frame instanceof SQLite3WindowFunctionFrameSpecBetween) {
+            SQLite3WindowFunctionFrameSpecBetween between = (SQLite3WindowFunctionFrameSpecBetween) frame;
+            return new SQLite3WindowFunctionFrameSpecBetween(
+                    (SQLite3WindowFunctionFrameSpecTerm) replaceFrameTerms(between.getLeft(), kind, replacement),
+                    (SQLite3WindowFunctionFrameSpecTerm) replaceFrameTerms(between.getRight(), kind, replacement));
         }
-        
-        String randomCol = Randomly.fromList(columns).getName();
-        String transform = Randomly.fromOptions(" * 1", " + 0", " - 0");
-        
-        if (windowSpec.contains("ORDER BY " + randomCol)) {
-            return windowSpec.replace("ORDER BY " + randomCol, "ORDER BY (" + randomCol + transform + ")");
+        if (frame instanceof SQLite3WindowFunctionFrameSpecTerm
+                && ((SQLite3WindowFunctionFrameSpecTerm) frame).getKind() == kind) {
+            return replacement;
         }
-        
-        return windowSpec;
+        return frame;
     }
 
-    /**
-     * Q1: Wrap in subquery (applied at query level, not window spec level)
-     * This is a placeholder - actual implementation would wrap the entire query
-     */
-    private static String mutationQ1_WrapInSubquery(String windowSpec) {
-        // This mutation is applied at the query level, not window spec level
-        // Return unchanged for now
-        return windowSpec;
-    }
-
-    /**
-     * Q3: UNION ALL wrapper (applied at query level, not window spec level)
-     * This is a placeholder - actual implementation would wrap the entire query
-     */
-    private static String mutationQ3_UnionAllWrapper(String windowSpec) {
-        // This mutation is applied at the query level, not window spec level
-        // Return unchanged for now
-        return windowSpec;
+    private static boolean isCurrentRowFrame(SQLite3Expression frame) {
+        return frame instanceof SQLite3WindowFunctionFrameSpecTerm && ((SQLite3WindowFunctionFrameSpecTerm) frame)
+                .getKind() == SQLite3WindowFunctionFrameSpecTermKind.CURRENT_ROW;
     }
 
-    /**
-     * Helper: Find the end of ORDER BY clause
-     */
-    private static int findOrderByEnd(String windowSpec, int orderByPos) {
-        // Look for ROWS, RANGE, GROUPS, or closing paren
-        int rowsPos = windowSpec.indexOf(" ROWS", orderByPos);
-        int rangePos = windowSpec.indexOf(" RANGE", orderByPos);
-        int groupsPos = windowSpec.indexOf(" GROUPS", orderByPos);
-        int parenPos = windowSpec.indexOf(")", orderByPos);
-        
-        List<Integer> positions = new ArrayList<>();
-        if (rowsPos != -1) positions.add(rowsPos);
-        if (rangePos != -1) positions.add(rangePos);
-        if (groupsPos != -1) positions.add(groupsPos);
-        if (parenPos != -1) positions.add(parenPos);
-        
-        if (positions.isEmpty()) {
-            return windowSpec.length();
+    private static boolean isZeroOffsetFrame(SQLite3Expression frame) {
+        if (!(frame instanceof SQLite3WindowFunctionFrameSpecBetween)) {
+            return false;
         }
-        
-        return positions.stream().min(Integer::compare).orElse(windowSpec.length());
+        SQLite3WindowFunctionFrameSpecBetween between = (SQLite3WindowFunctionFrameSpecBetween) frame;
+        return isZeroOffset(between.getLeft(), SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING)
+                && isZeroOffset(between.getRight(), SQLite3WindowFunctionFrameSpecTermKind.EXPR_FOLLOWING);
     }
 
-    /**
-     * Helper: Find the end of PARTITION BY clause
-     */
-    private static int findPartitionByEnd(String windowSpec, int partitionPos) {
-        // Look for ORDER BY or closing paren
-        int orderByPos = windowSpec.indexOf("ORDER BY", partitionPos);
-        int parenPos = windowSpec.indexOf(")", partitionPos);
-        
-        if (orderByPos != -1 && (parenPos == -1 || orderByPos < parenPos)) {
-            return orderByPos;
-        }
-        
-        return parenPos != -1 ? parenPos : windowSpec.length();
+    private static boolean isZeroOffset(SQLite3WindowFunctionFrameSpecTerm term,
+            SQLite3WindowFunctionFrameSpecTermKind kind) {
+        return term.getKind() == kind && term.getExpression() instanceof SQLite3Constant
+                && ((SQLite3Constant) term.getExpression()).asInt() == 0;
     }
 }
-
@@ -1,24 +1,47 @@
 package sqlancer.sqlite3.oracle;
 
+import java.nio.file.Paths;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import sqlancer.IgnoreMeException;
 import sqlancer.Randomly;
 import sqlancer.common.oracle.TestOracle;
+import sqlancer.common.oracle.mrup.MRUPComparator;
+import sqlancer.common.oracle.mrup.MRUPResult;
+import sqlancer.common.oracle.mrup.MRUPWindowSpec;
 import sqlancer.common.query.ExpectedErrors;
-import sqlancer.sqlite3.SQLite3Errors;
 import sqlancer.sqlite3.SQLite3GlobalState;
-import sqlancer.sqlite3.gen.SQLite3MRUPTablePairGenerator;
+import sqlancer.sqlite3.SQLite3ToStringVisitor;
+import sqlancer.sqlite3.ast.SQLite3Aggregate;
+import sqlancer.sqlite3.ast.SQLite3Aggregate.SQLite3AggregateFunction;
+import sqlancer.sqlite3.ast.SQLite3Constant;
+import sqlancer.sqlite3.ast.SQLite3Expression;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3ColumnName;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3OrderingTerm;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3OrderingTerm.Ordering;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3PostfixText;
+import sqlancer.sqlite3.ast.SQLite3Expression.Sqlite3BinaryOperation;
+import sqlancer.sqlite3.ast.SQLite3WindowFunction;
+import sqlancer.sqlite3.ast.SQLite3WindowFunction.WindowFunction;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3FrameSpecExclude;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3FrameSpecKind;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3WindowFunctionFrameSpecBetween;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3WindowFunctionFrameSpecTerm;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3WindowFunctionFrameSpecTerm.SQLite3WindowFunctionFrameSpecTermKind;
+import sqlancer.sqlite3.gen.SQLite3MRUPTablePairPool;
+import sqlancer.sqlite3.oracle.SQLite3MRUPIdentityMutator.IdentityMutation;
+import sqlancer.sqlite3.oracle.SQLite3MRUPMutationOperator.WindowSpecMutation;
 import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Column;
 import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Table;
 
@@ -36,63 +59,41 @@ import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Table;
  */
 public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
 
-    /**
-     * WindowSpec: Stores parsed window specification metadata for MRUP normalization.
-     * This is essential for Phase 3 to sort results correctly while preserving window semantics.
-     */
-    private static class WindowSpec {
-        String partitionColumn;              // e.g., "dept"
-        int partitionColumnIndex;            // Index in result set
-        String partitionColumnType;          // "TEXT", "INTEGER", "REAL"
-        
-        List<String> orderByColumns;         // e.g., ["salary", "age"]
-        List<Integer> orderByColumnIndices;  // Indices in result set
-        List<String> orderByColumnTypes;     // Types for each ORDER BY column
-        List<String> orderByDirections;      // "ASC" or "DESC"
-        List<String> nullsHandling;          // "NULLS FIRST" or "NULLS LAST"
-        
-        int wfResultIndex;                   // Index of wf_result column (always last)
-        
-        WindowSpec() {
-            orderByColumns = new ArrayList<>();
-            orderByColumnIndices = new ArrayList<>();
-            orderByColumnTypes = new ArrayList<>();
-            orderByDirections = new ArrayList<>();
-            nullsHandling = new ArrayList<>();
-        }
-    }
-
     private final SQLite3GlobalState globalState;
-    private final ExpectedErrors errors = new ExpectedErrors();
+    private final ExpectedErrors errors;
+    private final SQLite3MRUPTablePairPool tablePairPool;
+    private final SQLite3MRUPMetrics metrics = SQLite3MRUPMetrics.getInstance();
     private String lastQueryString;
-    private int lastOrderByColumnCount = 1; // Track ORDER BY columns for RANGE constraint (C4)
-    private String lastWindowFunctionType = ""; // Track function type for frame validation (C3)
-    private WindowSpec currentWindowSpec; // Store current window spec for comparison (Phase 3)
+    private MRUPWindowSpec currentWindowSpec; // Store current window spec for comparison (Phase 3)
 
     public SQLite3MRUPOracle(SQLite3GlobalState globalState) {
         this.globalState = globalState;
-        SQLite3Errors.addExpectedExpressionErrors(errors);
-        SQLite3Errors.addQueryErrors(errors);
-        errors.add("misuse of aggregate");
-        errors.add("misuse of window function");
-        errors.add("second argument to nth_value must be a positive integer");
-        errors.add("no such table");
+        this.tablePairPool = new SQLite3MRUPTablePairPool(globalState,
+                globalState.getDbmsSpecificOptions().mrupQueriesPerPair);
+        this.errors = new SQLite3MRUPAdapter(globalState.getDbmsSpecificOptions()).getQueryErrors();
+        String metricsFile = globalState.getDbmsSpecificOptions().mrupMetricsFile;
+        if (metricsFile != null) {
+            metrics.startExporter(Paths.get(metricsFile),
+                    globalState.getDbmsSpecificOptions().mrupMetricsIntervalSeconds);
+        }
     }
 
     @Override
     public void check() throws Exception {
         // Create file-based logger for this test case
         SQLite3MRUPTestCaseLogger logger = new SQLite3MRUPTestCaseLogger();
-        logger.logHeader();
+        long generationStart = System.nanoTime();
+        metrics.increment("checks");
         
-        // Step 1 & 2: Generate two tables with the SAME schema
-        // Using custom MRUP table pair generator that reuses SQLancer's generators
-        SQLite3Table[] tablePair = SQLite3MRUPTablePairGenerator.generateMRUPTablePair(globalState);
+        // Step 1 & 2: Get two tables with the SAME schema
+        // The pair is reused for --mrup-queries-per-pair checks before a new one is generated
+        SQLite3Table[] tablePair = tablePairPool.acquire();
         SQLite3Table t1 = tablePair[0];
         SQLite3Table t2 = tablePair[1];
         
         // Verify tables have data (should always be true, but check anyway)
         if (t1.getNrRows(globalState) == 0 || t2.getNrRows(globalState) == 0) {
+            tablePairPool.retire();
             throw new IgnoreMeException();
         }
 
@@ -102,11 +103,17 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
             throw new IgnoreMeException();
         }
         
-        // Collect table data for logging
-        List<List<String>> t1Data = collectTableData(t1);
-        List<List<String>> t2Data = collectTableData(t2);
-        Set<String> t1Partitions = getPartitionValues(t1);
-        Set<String> t2Partitions = getPartitionValues(t2);
+        // Collect table data for logging (skipped entirely when logging is disabled)
+        List<List<String>> t1Data = Collections.emptyList();
+        List<List<String>> t2Data = Collections.emptyList();
+        Set<String> t1Partitions = Collections.emptySet();
+        Set<String> t2Partitions = Collections.emptySet();
+        if (SQLite3MRUPTestCaseLogger.isLoggingEnabled()) {
+            t1Data = collectTableData(t1);
+            t2Data = collectTableData(t2);
+            t1Partitions = getPartitionValues(t1);
+            t2Partitions = getPartitionValues(t2);
+        }
         
         // Log Step 1 & 2 to file
         logger.logTableInfo(t1, t2, columns, t1Data, t2Data, t1Partitions, t2Partitions);
@@ -127,10 +134,16 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
                 "ROW_NUMBER", "RANK", "DENSE_RANK"
             );
         }
-        this.lastWindowFunctionType = functionType;
+        
+        // Pick a random column for the window function (only for aggregate functions)
+        SQLite3Column targetColumn = Randomly.fromList(columns);
+        
+        // Generate window function with an empty OVER clause
+        SQLite3WindowFunctionExpression windowFunction = new SQLite3WindowFunctionExpression(
+            generateWindowFunction(functionType, targetColumn));
         
         // Step 3.1: Generate window spec with constraints
-        String windowSpec = generateWindowSpecOSRB(columns);
+        generateWindowSpecOSRB(windowFunction, columns);
         
         // Step 3.2: Add frame clause if applicable (C3: no frames for ranking functions)
         boolean isRankingFunction = functionType.equals("ROW_NUMBER") || 
@@ -139,53 +152,39 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
         
         if (!isRankingFunction && Randomly.getBoolean()) {
             // Add frame for aggregate functions
-            String frameClause = generateFrameClause();
-            // Insert frame before the closing parenthesis
-            windowSpec = windowSpec.substring(0, windowSpec.length() - 1) + " " + frameClause + ")";
+            generateFrameClause(windowFunction);
         }
         
-        // Step 3.3: Apply random mutations to window spec (Top 10 strategies)
-        // Try up to 5 times to apply a mutation (90% overall success rate target)
-        String originalWindowSpec = windowSpec;
-        boolean mutationApplied = false;
-        int maxAttempts = 5;
-        for (int attempt = 0; attempt < maxAttempts && !mutationApplied; attempt++) {
-            String mutatedSpec = SQLite3MRUPMutationOperator.applyRandomMutations(windowSpec, columns);
-            if (!mutatedSpec.equals(windowSpec)) {
-                windowSpec = mutatedSpec;
-                mutationApplied = true;
-            }
+        // Step 3.3: Apply a random window spec mutation (Top 10 strategies)
+        // Only mutations that are applicable to the generated spec are considered, so no retries are needed
+        String originalWindowFunction = asString(windowFunction);
+        WindowSpecMutation windowSpecMutation = SQLite3MRUPMutationOperator.getRandomApplicableMutation(windowFunction);
+        if (windowSpecMutation != null) {
+            windowFunction = windowSpecMutation.apply(windowFunction);
         }
-        
-        // Pick a random column for the window function (only for aggregate functions)
-        SQLite3Column targetColumn = Randomly.fromList(columns);
-        
-        // Generate window function
-        String windowFunction = generateWindowFunction(functionType, targetColumn, windowSpec);
+        String afterWindowSpecMutation = asString(windowFunction);
         
         // Stage 1: Apply Identity Wrapper Mutations FIRST (98% of queries with arguments)
         // CRITICAL: Apply identity mutation to the BASE window function BEFORE CASE wrapping
         // This ensures: CASE WHEN ... THEN NULL ELSE (wf + 0) END
         // NOT: (CASE WHEN ... THEN NULL ELSE wf END) + 0
-        String originalWindowFunction = windowFunction;
-        String beforeIdentity = windowFunction;
         String identityMutationType = "None";
         
-        // 98% chance to apply identity mutation (will skip if no argument to mutate)
-        if (globalState.getRandomly().getInteger(0, 100) < 98) {
-            String mutatedWF = SQLite3MRUPIdentityMutator.applyIdentityWrapper(windowFunction, functionType);
-            if (!mutatedWF.equals(windowFunction)) {
-                windowFunction = mutatedWF;
-                identityMutationType = SQLite3MRUPIdentityMutator.getMutationDescription(beforeIdentity, windowFunction);
-            }
+        // 98% chance to apply identity mutation (skipped if there is no argument to mutate)
+        if (globalState.getRandomly().getInteger(0, 100) < 98
+                && SQLite3MRUPIdentityMutator.isApplicable(windowFunction)) {
+            IdentityMutation identityMutation = SQLite3MRUPIdentityMutator.getRandomMutation();
+            windowFunction = SQLite3MRUPIdentityMutator.applyIdentityWrapper(windowFunction, identityMutation);
+            identityMutationType = identityMutation.getDescription();
         }
         
         // Store after identity mutation (this is the base for CASE wrapping)
-        String afterIdentityMutation = windowFunction;
+        String afterIdentityMutation = asString(windowFunction);
         
         // Phase 3: Apply CASE WHEN mutations (100% mutation rate for diversity)
         // CASE mutations wrap the (possibly identity-mutated) window function
-        String caseMutationType = "None";
+        SQLite3Expression selectedExpression;
+        String caseMutationType;
         
         // Always apply a CASE mutation for maximum diversity
         // Use weighted random selection: 30%, 25%, 20%, 15%, 10%
@@ -200,25 +199,25 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
         
         if (mutationChoice == 1) {
             // Phase 3.0: Constant conditions (30%)
-            windowFunction = SQLite3MRUPCaseMutator.applyConstantCondition(windowFunction);
+            selectedExpression = SQLite3MRUPCaseMutator.applyConstantCondition(windowFunction);
             caseMutationType = "Constant Condition";
             
         } else if (mutationChoice == 2) {
             // Phase 3.1: Window function in WHEN (25%)
-            windowFunction = SQLite3MRUPCaseMutator.applyWindowFunctionCondition(windowFunction);
+            selectedExpression = SQLite3MRUPCaseMutator.applyWindowFunctionCondition(windowFunction);
             caseMutationType = "Window Function in WHEN";
             
         } else if (mutationChoice == 3) {
             // Phase 3.2: Different window functions per branch (20%)
-            String condition = SQLite3MRUPCaseMutator.generatePartitionLocalCondition(columns);
-            windowFunction = SQLite3MRUPCaseMutator.applyDifferentWindowFunctions(
-                functionType, windowSpec, columns, condition);
+            SQLite3Expression condition = SQLite3MRUPCaseMutator.generatePartitionLocalCondition(columns);
+            selectedExpression = SQLite3MRUPCaseMutator.applyDifferentWindowFunctions(
+                windowFunction, columns, condition);
             caseMutationType = "Different Window Functions";
             
         } else if (mutationChoice == 4) {
             // Phase 3.3: Identical branches (15%)
-            String condition = SQLite3MRUPCaseMutator.generatePartitionLocalCondition(columns);
-            windowFunction = SQLite3MRUPCaseMutator.applyIdenticalBranches(
+            SQLite3Expression condition = SQLite3MRUPCaseMutator.generatePartitionLocalCondition(columns);
+            selectedExpression = SQLite3MRUPCaseMutator.applyIdenticalBranches(
                 windowFunction, condition);
             caseMutationType = "Identical Branches";
             
@@ -235,120 +234,133 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
             }
             
             if (nullableCol != null) {
-                windowFunction = SQLite3MRUPCaseMutator.applyNullHandling(
-                    windowFunction, nullableCol.getName());
+                selectedExpression = SQLite3MRUPCaseMutator.applyNullHandling(windowFunction, nullableCol);
                 caseMutationType = "NULL Handling";
             } else {
                 // Fallback to constant condition if no nullable column
-                windowFunction = SQLite3MRUPCaseMutator.applyConstantCondition(windowFunction);
+                selectedExpression = SQLite3MRUPCaseMutator.applyConstantCondition(windowFunction);
                 caseMutationType = "Constant Condition (fallback)";
             }
         }
         
-        // Store after CASE mutation
-        String afterCaseMutation = windowFunction;
-        
-        // Determine window spec mutation description
-        String windowSpecMutationDesc = "None";
-        if (mutationApplied) {
-            // Try to detect which mutation was applied
-            if (!originalWindowSpec.equals(windowSpec)) {
-                if (windowSpec.contains(", dept")) {
-                    windowSpecMutationDesc = "Redundant PARTITION BY";
-                } else if (windowSpec.contains(" + 0")) {
-                    windowSpecMutationDesc = "Order-Preserving Transform";
-                } else {
-                    windowSpecMutationDesc = "Window Spec Mutation";
-                }
-            }
-        }
+        // Render the final expression (unqualified column names, so it applies to t1, t2 and t_union)
+        String selectedWindowFunction = asString(selectedExpression);
         
         // Log unified mutation pipeline (replaces all scattered logs)
         // Order: Window Spec → Identity → CASE (Identity now applied BEFORE CASE)
         logger.logMutationPipeline(
-            originalWindowFunction,                    // Base window function
-            windowSpecMutationDesc,                    // Window spec mutation type
-            mutationApplied,                           // Was window spec mutated?
-            mutationApplied ? windowSpec : "N/A",      // After window spec mutation
-            identityMutationType,                      // Identity mutation type (NOW BEFORE CASE)
-            afterIdentityMutation,                     // After identity mutation
-            caseMutationType,                          // CASE mutation type (NOW AFTER IDENTITY)
-            afterCaseMutation,                         // After CASE mutation
-            windowFunction                             // Final window function
+            originalWindowFunction,                                                 // Base window function
+            windowSpecMutation == null ? "None" : windowSpecMutation.getDescription(), // Window spec mutation type
+            windowSpecMutation != null,                                             // Was window spec mutated?
+            windowSpecMutation != null ? afterWindowSpecMutation : "N/A",           // After window spec mutation
+            identityMutationType,                                                   // Identity mutation type
+            afterIdentityMutation,                                                  // After identity mutation
+            caseMutationType,                                                       // CASE mutation type
+            selectedWindowFunction,                                                 // After CASE mutation
+            selectedWindowFunction                                                  // Final window function
         );
         
-        // Phase 3: Parse window spec for MRUP normalization
-        this.currentWindowSpec = parseWindowSpec(windowSpec, columns);
+        metrics.increment("window_function." + functionType);
+        metrics.increment("mutation.window_spec."
+                + (windowSpecMutation == null ? "None" : windowSpecMutation.getDescription()));
+        metrics.increment("mutation.identity." + identityMutationType);
+        metrics.increment("mutation.case." + caseMutationType);
+        
+        // Phase 3: Read the window spec metadata for MRUP normalization from the expression tree
+        this.currentWindowSpec = extractWindowSpec(windowFunction, columns);
         
         // Log constraint verification separately
-        Map<String, Boolean> constraints = verifyConstraints(functionType, windowSpec);
+        Map<String, Boolean> constraints = verifyConstraints(functionType, windowFunction);
         
         // Add this logging to fil
         logger.logConstraintVerification(constraints);
 
         // Step 4: Execute queries
         // Q1: window function on t1
-        String q1 = buildWindowQuery(t1, columns, windowFunction);
+        String q1 = buildWindowQuery(t1, columns, selectedWindowFunction);
         
         // Q2: window function on t2
-        String q2 = buildWindowQuery(t2, columns, windowFunction);
+        String q2 = buildWindowQuery(t2, columns, selectedWindowFunction);
         
         // Q_union: window function on (t1 UNION ALL t2)
-        String qUnion = buildWindowQueryOnUnion(t1, t2, columns, windowFunction);
+        String qUnion = buildWindowQueryOnUnion(t1, t2, columns, selectedWindowFunction);
 
         lastQueryString = "-- Q1:\n" + q1 + "\n-- Q2:\n" + q2 + "\n-- Q_union:\n" + qUnion;
         
         // Log Step 4 to file: Generated queries
         logger.logQueries(q1, q2, qUnion);
+        metrics.recordTimeSince("time.generation_us", generationStart);
+
+        long executionStart = System.nanoTime();
+        Map<String, String> textPool = new HashMap<>();
+        String q1Fetch = q1;
+        String q2Fetch = q2;
+        String qUnionFetch = qUnion;
+        if (globalState.getDbmsSpecificOptions().mrupServerSideVerify) {
+            // Server-side verify: the DBMS compares the per-partition row multisets of
+            // (Q1 UNION ALL Q2) and Q_union, and only the mismatching partitions are fetched below
+            List<String> mismatching = findMismatchingPartitions(q1, q2, qUnion, columns, textPool);
+            if (mismatching.isEmpty()) {
+                // No rows were fetched, so there is nothing to show in the detailed results
+                logger.logComparison(0, 0,
+                                   currentWindowSpec.getPartitionColumn(), currentWindowSpec.getOrderByColumns(), true,
+                                   Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+                logger.writeToFile();
+                metrics.recordTimeSince("time.execution_us", executionStart);
+                metrics.increment("result.passed");
+                return;
+            }
+            String partitionColumn = currentWindowSpec.getPartitionColumn();
+            q1Fetch = SQLite3MRUPServerSideVerifier.restrictToPartitions(q1, partitionColumn, mismatching);
+            q2Fetch = SQLite3MRUPServerSideVerifier.restrictToPartitions(q2, partitionColumn, mismatching);
+            qUnionFetch = SQLite3MRUPServerSideVerifier.restrictToPartitions(qUnion, partitionColumn, mismatching);
+        }
 
-
-        // Execute and get results
-        List<List<String>> results1 = executeAndGetResults(q1);
-        List<List<String>> results2 = executeAndGetResults(q2);
-        List<List<String>> resultsUnion = executeAndGetResults(qUnion);
+        // Execute and get results (typed, columnar; no per-cell strings)
+        MRUPResult results1 = executeAndGetResults(q1Fetch, textPool);
+        MRUPResult results2 = executeAndGetResults(q2Fetch, textPool);
+        MRUPResult resultsUnion = executeAndGetResults(qUnionFetch, textPool);
+        metrics.recordTimeSince("time.execution_us", executionStart);
+        metrics.record("rows.q_union", resultsUnion.getRowCount());
 
         // Step 5: Compare results (Phase 3: MRUP Normalization & Smart Comparison)
         // Layer 1: Cardinality Check (Fast Fail)
-        int expectedCardinality = results1.size() + results2.size();
-        int actualCardinality = resultsUnion.size();
+        long comparisonStart = System.nanoTime();
+        int expectedCardinality = results1.getRowCount() + results2.getRowCount();
+        int actualCardinality = resultsUnion.getRowCount();
         
         if (actualCardinality != expectedCardinality) {
             // Log failure to file
             logger.logComparison(expectedCardinality, actualCardinality,
-                               currentWindowSpec.partitionColumn, currentWindowSpec.orderByColumns, false,
-                               results1, results2, resultsUnion);
+                               currentWindowSpec.getPartitionColumn(), currentWindowSpec.getOrderByColumns(), false,
+                               rowsForLog(results1), rowsForLog(results2), rowsForLog(resultsUnion));
             logger.writeToFile();
+            metrics.increment("result.failed");
             
             throw new AssertionError(
                 String.format("MRUP Oracle: Cardinality mismatch!\n" +
                     "Expected: %d (Q1: %d + Q2: %d)\n" +
                     "Actual: %d\n" +
                     "Queries:\n%s",
-                    expectedCardinality, results1.size(), results2.size(), actualCardinality, lastQueryString)
+                    expectedCardinality, results1.getRowCount(), results2.getRowCount(), actualCardinality,
+                    lastQueryString)
             );
         }
         
-        // Layer 2: MRUP Normalization (Semantic Sorting)
-        // Make copies for logging before normalization
-        List<List<String>> results1Original = new ArrayList<>();
-        List<List<String>> results2Original = new ArrayList<>();
-        List<List<String>> resultsUnionOriginal = new ArrayList<>();
-        for (List<String> row : results1) results1Original.add(new ArrayList<>(row));
-        for (List<String> row : results2) results2Original.add(new ArrayList<>(row));
-        for (List<String> row : resultsUnion) resultsUnionOriginal.add(new ArrayList<>(row));
-        
-        normalizeForMRUP(results1, currentWindowSpec);
-        normalizeForMRUP(results2, currentWindowSpec);
-        normalizeForMRUP(resultsUnion, currentWindowSpec);
+        // Layers 2 + 3: MRUP Normalization and Per-Partition Comparison
+        MRUPComparator.Mismatch mismatch = new MRUPComparator(currentWindowSpec,
+                size -> metrics.record("rows.partition", size)).compare(results1, results2, resultsUnion);
         
-        // Layer 3: Per-Partition Comparison (Exact Match)
-        boolean match = comparePerPartition(results1, results2, resultsUnion, currentWindowSpec, logger);
+        metrics.recordTimeSince("time.comparison_us", comparisonStart);
         
-        if (!match) {
+        if (mismatch != null) {
+            reportMismatch(mismatch, logger);
+            metrics.increment("result.failed");
+            
             // Log failure to file
             logger.logComparison(expectedCardinality, actualCardinality,
-                               currentWindowSpec.partitionColumn, currentWindowSpec.orderByColumns, false,
-                               results1Original, results2Original, resultsUnionOriginal);
+                               currentWindowSpec.getPartitionColumn(), currentWindowSpec.getOrderByColumns(), false,
+                               rowsForLog(results1), rowsForLog(results2), rowsForLog(resultsUnion));
             logger.writeToFile();
             
             // Generate bug report for reproduction
@@ -369,16 +381,45 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
             );
         }
         
+        metrics.increment("result.passed");
+        
         // Log success to file
         logger.logComparison(expectedCardinality, actualCardinality,
-                           currentWindowSpec.partitionColumn, currentWindowSpec.orderByColumns, true,
-                           results1Original, results2Original, resultsUnionOriginal);
+                           currentWindowSpec.getPartitionColumn(), currentWindowSpec.getOrderByColumns(), true,
+                           rowsForLog(results1), rowsForLog(results2), rowsForLog(resultsUnion));
         logger.writeToFile();
     }
 
+    /**
+     * Server-side verify: run the single multiset-comparison query and return the partitions
+     * (as SQL literals) whose rows differ between Q1 UNION ALL Q2 and Q_union.
+     */
+    private List<String> findMismatchingPartitions(String q1, String q2, String qUnion,
+                                                   List<SQLite3Column> columns,
+                                                   Map<String, String> textPool) throws SQLException {
+        String verifyQuery = SQLite3MRUPServerSideVerifier.buildMismatchingPartitionsQuery(
+            q1, q2, qUnion, columns, currentWindowSpec.getPartitionColumn());
+        MRUPResult partitions = executeAndGetResults(verifyQuery, textPool);
+        List<String> literals = new ArrayList<>(partitions.getRowCount());
+        for (int row = 0; row < partitions.getRowCount(); row++) {
+            literals.add(partitions.getString(row, 0));
+        }
+        return literals;
+    }
+
+    /**
+     * Materialize a result as strings for the test case logger, or return an empty list if logging is disabled.
+     */
+    private static List<List<String>> rowsForLog(MRUPResult result) {
+        if (!SQLite3MRUPTestCaseLogger.isLoggingEnabled()) {
+            return Collections.emptyList();
+        }
+        return result.toStringRows();
+    }
+
     /**
      * OSRB (OVER-Spec Random Builder) Algorithm - Phase 2 Enhanced
-     * Generates a random OVER() clause following strict MRUP constraints:
+     * Fills the OVER() clause of the window function following strict MRUP constraints:
      * 
      * PHASE 2 CONSTRAINTS:
      * - C1: PARTITION BY must use only 'dept' column (the disjoint partition key)
@@ -387,10 +428,8 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
      * - C4: RANGE only with single ORDER BY column
      * - C5: No nondeterministic functions
      */
-    private String generateWindowSpecOSRB(List<SQLite3Column> columns) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("OVER (");
-
+    private void generateWindowSpecOSRB(SQLite3WindowFunctionExpression windowFunction,
+                                        List<SQLite3Column> columns) {
         // C1: PARTITION BY - MANDATORY for MRUP to work correctly!
         // Without PARTITION BY, window function treats entire e_union as one partition,
         // which is different from e1 + e2 (breaks MRUP metamorphic relation)
@@ -398,44 +437,32 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
         if (deptColumn == null) {
             throw new IgnoreMeException(); // Skip if dept column not found
         }
-        sb.append("PARTITION BY ");
-        sb.append(deptColumn.getName());
-        sb.append(" ");
+        windowFunction.setPartitionBy(new ArrayList<>(Arrays.asList(new SQLite3ColumnName(deptColumn, null))));
 
         // C2: ORDER BY - must use only 'salary' or 'age' columns (numeric columns)
         // Always add ORDER BY for determinism
         // Phase 1: M1.1 - Support up to 3 ORDER BY columns with mixed directions
-        sb.append("ORDER BY ");
+        List<SQLite3Expression> orderBy = new ArrayList<>();
         List<SQLite3Column> orderableColumns = findOrderableColumns(columns);
         
         if (orderableColumns.isEmpty()) {
             // Fallback: use any column
-            sb.append(Randomly.fromList(columns).getName());
+            orderBy.add(new SQLite3ColumnName(Randomly.fromList(columns), null));
         } else {
             // Phase 1: M1.1 - Use 1-3 orderable columns (was 1-2)
             int maxCols = Math.min(3, orderableColumns.size());
             int numOrderCols = maxCols == 1 ? 1 : (maxCols == 2 ? Randomly.fromOptions(1, 2) : Randomly.fromOptions(1, 2, 3));
             
             for (int i = 0; i < numOrderCols; i++) {
-                if (i > 0) {
-                    sb.append(", ");
-                }
-                sb.append(orderableColumns.get(i).getName());
-                
                 // Phase 1: M1.1 - Always add ASC/DESC for mixed directions
-                sb.append(Randomly.fromOptions(" ASC", " DESC"));
+                SQLite3Expression term = new SQLite3OrderingTerm(new SQLite3ColumnName(orderableColumns.get(i), null),
+                        Randomly.fromOptions(Ordering.ASC, Ordering.DESC));
                 
                 // Phase 1: M1.1 - Always add NULLS FIRST/LAST for complex ordering
-                sb.append(Randomly.fromOptions(" NULLS FIRST", " NULLS LAST"));
+                orderBy.add(new SQLite3PostfixText(term, Randomly.fromOptions(" NULLS FIRST", " NULLS LAST"), null));
             }
         }
-
-        // Store ORDER BY column count for frame validation (C4)
-        int maxCols = orderableColumns.isEmpty() ? 1 : Math.min(3, orderableColumns.size());
-        this.lastOrderByColumnCount = maxCols == 1 ? 1 : (maxCols == 2 ? Randomly.fromOptions(1, 2) : Randomly.fromOptions(1, 2, 3));
-
-        sb.append(")");
-        return sb.toString();
+        windowFunction.setOrderBy(orderBy);
     }
     
     /**
@@ -467,109 +494,107 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
     }
 
     /**
-     * Generate a random FRAME clause (ROWS/RANGE/GROUPS).
+     * Generate a random FRAME clause (ROWS/RANGE/GROUPS) for the window function.
      * Phase 2 Constraints:
      * - C4: RANGE only allowed with single ORDER BY column
      * - C3: This method should only be called for aggregate functions (not ranking)
      */
-    private String generateFrameClause() {
-        StringBuilder sb = new StringBuilder();
-        
+    private void generateFrameClause(SQLite3WindowFunctionExpression windowFunction) {
         // C4: RANGE only if single ORDER BY column
-        String frameType;
-        if (lastOrderByColumnCount == 1) {
+        if (windowFunction.getOrderBy().size() == 1) {
             // Can use ROWS or RANGE (GROUPS not widely supported in SQLite3)
-            frameType = Randomly.fromOptions("ROWS", "RANGE");
+            windowFunction.setFrameSpecKind(Randomly.fromOptions(SQLite3FrameSpecKind.ROWS, SQLite3FrameSpecKind.RANGE));
         } else {
             // Multiple ORDER BY columns: only ROWS allowed
-            frameType = "ROWS";
+            windowFunction.setFrameSpecKind(SQLite3FrameSpecKind.ROWS);
         }
-        
-        sb.append(frameType);
-        sb.append(" ");
 
         // Phase 1: M1.2 - Complex frame specifications
         if (Randomly.getBoolean()) {
             // Simple frame start (implicit: AND CURRENT ROW)
-            sb.append(Randomly.fromOptions(
-                "UNBOUNDED PRECEDING",
-                "CURRENT ROW",
-                "1 PRECEDING",
-                "2 PRECEDING",
-                "3 PRECEDING"  // Phase 1: M1.2 - Added
+            windowFunction.setFrameSpec(Randomly.fromOptions(
+                frameTerm(SQLite3WindowFunctionFrameSpecTermKind.UNBOUNDED_PRECEDING),
+                frameTerm(SQLite3WindowFunctionFrameSpecTermKind.CURRENT_ROW),
+                frameTerm(1, SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING),
+                frameTerm(2, SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING),
+                frameTerm(3, SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING)  // Phase 1: M1.2 - Added
             ));
         } else {
             // Phase 1: M1.2 - BETWEEN frame with more complex boundaries
-            sb.append("BETWEEN ");
-            sb.append(Randomly.fromOptions(
-                "UNBOUNDED PRECEDING",
-                "CURRENT ROW",
-                "3 PRECEDING",  // Phase 1: M1.2 - Added
-                "2 PRECEDING",
-                "1 PRECEDING"
-            ));
-            sb.append(" AND ");
-            sb.append(Randomly.fromOptions(
-                "CURRENT ROW",
-                "UNBOUNDED FOLLOWING",
-                "1 FOLLOWING",
-                "2 FOLLOWING"  // Phase 1: M1.2 - Added more FOLLOWING options
-            ));
+            SQLite3WindowFunctionFrameSpecTerm start = Randomly.fromOptions(
+                frameTerm(SQLite3WindowFunctionFrameSpecTermKind.UNBOUNDED_PRECEDING),
+                frameTerm(SQLite3WindowFunctionFrameSpecTermKind.CURRENT_ROW),
+                frameTerm(3, SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING),  // Phase 1: M1.2 - Added
+                frameTerm(2, SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING),
+                frameTerm(1, SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING)
+            );
+            SQLite3WindowFunctionFrameSpecTerm end = Randomly.fromOptions(
+                frameTerm(SQLite3WindowFunctionFrameSpecTermKind.CURRENT_ROW),
+                frameTerm(SQLite3WindowFunctionFrameSpecTermKind.UNBOUNDED_FOLLOWING),
+                frameTerm(1, SQLite3WindowFunctionFrameSpecTermKind.EXPR_FOLLOWING),
+                frameTerm(2, SQLite3WindowFunctionFrameSpecTermKind.EXPR_FOLLOWING)  // Phase 1: M1.2 - Added more FOLLOWING options
+            );
+            windowFunction.setFrameSpec(new SQLite3WindowFunctionFrameSpecBetween(start, end));
         }
 
         // Optional: EXCLUDE clause (SQLite3 supports this)
         if (Randomly.getBoolean()) {
-            sb.append(" EXCLUDE ");
-            sb.append(Randomly.fromOptions("NO OTHERS", "TIES", "CURRENT ROW", "GROUP"));
+            windowFunction.setExclude(SQLite3FrameSpecExclude.getRandom());
         }
+    }
 
-        return sb.toString();
+    private static SQLite3WindowFunctionFrameSpecTerm frameTerm(SQLite3WindowFunctionFrameSpecTermKind kind) {
+        return new SQLite3WindowFunctionFrameSpecTerm(kind);
+    }
+
+    private static SQLite3WindowFunctionFrameSpecTerm frameTerm(long offset,
+                                                                SQLite3WindowFunctionFrameSpecTermKind kind) {
+        return new SQLite3WindowFunctionFrameSpecTerm(SQLite3Constant.createIntConstant(offset), kind);
     }
 
     /**
-     * Generate a window function with the given spec.
+     * Generate the function of a window function (without the OVER clause).
      * Phase 2: Uses only deterministic functions (C5).
      * 
      * @param functionType The type of window function (ROW_NUMBER, RANK, SUM, etc.)
      * @param column The column to apply the function to (for aggregate functions)
-     * @param windowSpec The OVER() clause specification
-     * @return Complete window function string
+     * @return The function expression
      */
-    private String generateWindowFunction(String functionType, SQLite3Column column, String windowSpec) {
-        String funcName;
+    private SQLite3Expression generateWindowFunction(String functionType, SQLite3Column column) {
+        SQLite3Expression argument = new SQLite3ColumnName(column, null);
         
         switch (functionType) {
             case "ROW_NUMBER":
-                funcName = "ROW_NUMBER()";
-                break;
+                return new SQLite3WindowFunction(WindowFunction.ROW_NUMBER);
             case "RANK":
-                funcName = "RANK()";
-                break;
+                return new SQLite3WindowFunction(WindowFunction.RANK);
             case "DENSE_RANK":
-                funcName = "DENSE_RANK()";
-                break;
+                return new SQLite3WindowFunction(WindowFunction.DENSE_RANK);
             case "SUM":
-                funcName = "SUM(" + column.getName() + ")";
-                break;
+                return new SQLite3Aggregate(Arrays.asList(argument), SQLite3AggregateFunction.SUM);
             case "AVG":
-                funcName = "AVG(" + column.getName() + ")";
-                break;
+                return new SQLite3Aggregate(Arrays.asList(argument), SQLite3AggregateFunction.AVG);
             case "COUNT":
                 // Always use COUNT(column) to enable identity mutations
                 // COUNT(*) has no argument to mutate
-                funcName = "COUNT(" + column.getName() + ")";
-                break;
+                return new SQLite3Aggregate(Arrays.asList(argument), SQLite3AggregateFunction.COUNT);
             case "MIN":
-                funcName = "MIN(" + column.getName() + ")";
-                break;
+                return new SQLite3Aggregate(Arrays.asList(argument), SQLite3AggregateFunction.MIN);
             case "MAX":
-                funcName = "MAX(" + column.getName() + ")";
-                break;
+                return new SQLite3Aggregate(Arrays.asList(argument), SQLite3AggregateFunction.MAX);
             default:
-                funcName = "COUNT(*)";
+                return new SQLite3Aggregate(Collections.emptyList(), SQLite3AggregateFunction.COUNT_ALL);
         }
-        
-        return funcName + " " + windowSpec;
+    }
+
+    /**
+     * Render an expression with unqualified column names, so that it can be used on t1, t2 and t_union.
+     */
+    private static String asString(SQLite3Expression expression) {
+        SQLite3ToStringVisitor visitor = new SQLite3ToStringVisitor();
+        visitor.fullyQualifiedNames = false;
+        visitor.visit(expression);
+        return visitor.get();
     }
 
     /**
@@ -630,28 +655,12 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
     }
 
     /**
-     * Execute query and return all results as list of rows
-     * Each row is a list of string values
+     * Execute query and read the result straight into a typed, columnar {@link MRUPResult}.
      */
-    private List<List<String>> executeAndGetResults(String query) throws SQLException {
-        List<List<String>> results = new ArrayList<>();
-        
+    private MRUPResult executeAndGetResults(String query, Map<String, String> textPool) throws SQLException {
         try (Statement stmt = globalState.getConnection().createStatement()) {
-            boolean hasResultSet = stmt.execute(query);
-            if (hasResultSet) {
-                try (ResultSet rs = stmt.getResultSet()) {
-                    int columnCount = rs.getMetaData().getColumnCount();
-                    
-                    while (rs.next()) {
-                        List<String> row = new ArrayList<>();
-                        for (int i = 1; i <= columnCount; i++) {
-                            Object value = rs.getObject(i);
-                            // Convert to string for comparison (handle nulls)
-                            row.add(value == null ? "NULL" : value.toString());
-                        }
-                        results.add(row);
-                    }
-                }
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                return MRUPResult.fromResultSet(rs, textPool);
             }
         } catch (Exception e) {
             // Check if it's an expected error
@@ -661,69 +670,6 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
             // Unexpected error, rethrow
             throw e;
         }
-        
-        return results;
-    }
-    
-    /**
-     * Sort results for comparison (simple lexicographic sort)
-     */
-    private void sortResults(List<List<String>> results) {
-        results.sort((row1, row2) -> {
-            for (int i = 0; i < Math.min(row1.size(), row2.size()); i++) {
-                int cmp = row1.get(i).compareTo(row2.get(i));
-                if (cmp != 0) return cmp;
-            }
-            return Integer.compare(row1.size(), row2.size());
-        });
-    }
-    
-    /**
-     * Check if two result sets match
-     */
-    private boolean resultsMatch(List<List<String>> expected, List<List<String>> actual) {
-        if (expected.size() != actual.size()) {
-            return false;
-        }
-        
-        for (int i = 0; i < expected.size(); i++) {
-            List<String> expectedRow = expected.get(i);
-            List<String> actualRow = actual.get(i);
-            
-            if (expectedRow.size() != actualRow.size()) {
-                return false;
-            }
-            
-            for (int j = 0; j < expectedRow.size(); j++) {
-                if (!expectedRow.get(j).equals(actualRow.get(j))) {
-                    return false;
-                }
-            }
-        }
-        
-        return true;
-    }
-    
-    /**
-     * Find first difference between two result sets for error reporting
-     */
-    private String findFirstDifference(List<List<String>> expected, List<List<String>> actual) {
-        int minSize = Math.min(expected.size(), actual.size());
-        
-        for (int i = 0; i < minSize; i++) {
-            List<String> expectedRow = expected.get(i);
-            List<String> actualRow = actual.get(i);
-            
-            if (!expectedRow.equals(actualRow)) {
-                return String.format("Row %d: Expected %s, Got %s", i + 1, expectedRow, actualRow);
-            }
-        }
-        
-        if (expected.size() != actual.size()) {
-            return String.format("Row count mismatch: Expected %d, Got %d", expected.size(), actual.size());
-        }
-        
-        return "No difference found";
     }
 
     @Override
@@ -737,296 +683,92 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
     // ═══════════════════════════════════════════════════════════════════════════
 
     /**
-     * Component 1: Parse window specification to extract metadata for MRUP normalization.
+     * Component 1: Extract window specification metadata for MRUP normalization from the window function.
      * 
      * Extracts:
      * - PARTITION BY column (always "dept" in our case)
      * - ORDER BY columns, directions (ASC/DESC), and NULLS handling
      * - Column indices and types for comparison
      * 
-     * Example input: "OVER (PARTITION BY dept ORDER BY salary DESC, age ASC NULLS FIRST)"
+     * ORDER BY terms are nodes of the form [x [ASC|DESC]] [NULLS FIRST|LAST], where x is a column
+     * or a column under an order-preserving transform (e.g., salary + 0).
      */
-    private WindowSpec parseWindowSpec(String windowSpec, List<SQLite3Column> columns) {
-        WindowSpec spec = new WindowSpec();
-        
-        // Extract PARTITION BY column (always "dept" due to C0/C1 constraints)
-        Pattern partitionPattern = Pattern.compile("PARTITION BY\\s+(\\w+)");
-        Matcher partitionMatcher = partitionPattern.matcher(windowSpec);
-        if (partitionMatcher.find()) {
-            spec.partitionColumn = partitionMatcher.group(1);
-            
-            // Find column index and type
-            for (int i = 0; i < columns.size(); i++) {
-                if (columns.get(i).getName().equals(spec.partitionColumn)) {
-                    spec.partitionColumnIndex = i;
-                    spec.partitionColumnType = columns.get(i).getType().toString();
-                    break;
-                }
+    private MRUPWindowSpec extractWindowSpec(SQLite3WindowFunctionExpression windowFunction,
+                                             List<SQLite3Column> columns) {
+        // PARTITION BY column (always "dept" due to C0/C1 constraints)
+        String partitionColumnName = null;
+        int partitionColumnIndex = 0;
+        if (!windowFunction.getPartitionBy().isEmpty()) {
+            SQLite3Column partitionColumn = referencedColumn(windowFunction.getPartitionBy().get(0));
+            if (partitionColumn != null) {
+                partitionColumnName = partitionColumn.getName();
+                partitionColumnIndex = columns.indexOf(partitionColumn);
             }
         }
         
-        // Extract ORDER BY columns
-        Pattern orderByPattern = Pattern.compile("ORDER BY\\s+([^)]+?)(?:\\s+(?:ROWS|RANGE|GROUPS)|\\))");
-        Matcher orderByMatcher = orderByPattern.matcher(windowSpec);
-        if (orderByMatcher.find()) {
-            String orderByClause = orderByMatcher.group(1).trim();
-            
-            // Split by comma to handle multiple ORDER BY columns
-            String[] orderByParts = orderByClause.split(",");
-            
-            for (String part : orderByParts) {
-                part = part.trim();
-                
-                // Extract column name
-                String columnName = part.split("\\s+")[0];
-                
-                // Extract direction (ASC/DESC)
-                String direction = "ASC"; // Default
-                if (part.toUpperCase().contains(" DESC")) {
-                    direction = "DESC";
-                }
-                
-                // Extract NULLS handling
-                String nullsHandling = "NULLS LAST"; // SQL standard default
-                if (part.toUpperCase().contains("NULLS FIRST")) {
-                    nullsHandling = "NULLS FIRST";
-                } else if (part.toUpperCase().contains("NULLS LAST")) {
-                    nullsHandling = "NULLS LAST";
-                }
-                
-                // Find column index and type
-                for (int i = 0; i < columns.size(); i++) {
-                    if (columns.get(i).getName().equals(columnName)) {
-                        spec.orderByColumns.add(columnName);
-                        spec.orderByColumnIndices.add(i);
-                        spec.orderByColumnTypes.add(columns.get(i).getType().toString());
-                        spec.orderByDirections.add(direction);
-                        spec.nullsHandling.add(nullsHandling);
-                        break;
-                    }
-                }
+        // wf_result is always the last column
+        MRUPWindowSpec spec = new MRUPWindowSpec(partitionColumnName, partitionColumnIndex, columns.size());
+        
+        // ORDER BY columns
+        for (SQLite3Expression term : windowFunction.getOrderBy()) {
+            String nullsHandling = "NULLS LAST"; // SQL standard default
+            if (term instanceof SQLite3PostfixText) {
+                nullsHandling = ((SQLite3PostfixText) term).getText().trim();
+                term = ((SQLite3PostfixText) term).getExpression();
+            }
+            Ordering direction = Ordering.ASC; // Default
+            if (term instanceof SQLite3OrderingTerm) {
+                direction = ((SQLite3OrderingTerm) term).getOrdering();
+                term = ((SQLite3OrderingTerm) term).getExpression();
+            }
+            SQLite3Column column = referencedColumn(term);
+            if (column != null && columns.contains(column)) {
+                spec.addOrderTerm(column.getName(), columns.indexOf(column), direction == Ordering.DESC,
+                        nullsHandling.equals("NULLS FIRST"));
             }
         }
         
-        // wf_result is always the last column
-        spec.wfResultIndex = columns.size(); // +1 for wf_result column
-        
         return spec;
     }
 
     /**
-     * Component 2: MRUP Normalization - Sort results preserving window function semantics.
-     * 
-     * Sorts by:
-     * 1. Partition key (dept)
-     * 2. ORDER BY keys (salary, age) in specified direction
-     * 3. Window function result (wf_result) as tie-breaker
-     * 
-     * This is the CORRECT way to sort for MRUP comparison, unlike the naive
-     * lexicographic sorting which breaks window semantics.
-     */
-    private void normalizeForMRUP(List<List<String>> results, WindowSpec spec) {
-        results.sort((row1, row2) -> {
-            // 1. Compare partition key
-            int partitionCmp = compareValue(
-                row1.get(spec.partitionColumnIndex),
-                row2.get(spec.partitionColumnIndex),
-                spec.partitionColumnType,
-                "NULLS FIRST"  // SQL standard default for partition
-            );
-            if (partitionCmp != 0) return partitionCmp;
-            
-            // 2. Compare ORDER BY keys in order
-            for (int i = 0; i < spec.orderByColumns.size(); i++) {
-                int colIndex = spec.orderByColumnIndices.get(i);
-                String direction = spec.orderByDirections.get(i);
-                String nullsHandling = spec.nullsHandling.get(i);
-                String colType = spec.orderByColumnTypes.get(i);
-                
-                int cmp = compareValue(
-                    row1.get(colIndex),
-                    row2.get(colIndex),
-                    colType,
-                    nullsHandling
-                );
-                
-                // Reverse if DESC
-                if (direction.equals("DESC")) {
-                    cmp = -cmp;
-                }
-                
-                if (cmp != 0) return cmp;
-            }
-            
-            // 3. Compare window function result (tie-breaker)
-            int wfCmp = compareValue(
-                row1.get(spec.wfResultIndex),
-                row2.get(spec.wfResultIndex),
-                "INTEGER",  // Window function results are typically numeric
-                "NULLS LAST"
-            );
-            
-            return wfCmp;
-        });
-    }
-
-    /**
-     * Component 3: Type-aware value comparator.
-     * 
-     * Compares values based on their actual types, not just as strings.
-     * Handles:
-     * - NULL values (NULLS FIRST/LAST)
-     * - INTEGER (numeric comparison)
-     * - REAL (floating point with epsilon tolerance)
-     * - TEXT (lexicographic comparison)
+     * Find the column that an ORDER BY or PARTITION BY expression is based on (null for constants).
      */
-    private int compareValue(String val1, String val2, String type, String nullsHandling) {
-        // 1. Handle NULL
-        boolean isNull1 = val1.equals("NULL");
-        boolean isNull2 = val2.equals("NULL");
-        
-        if (isNull1 && isNull2) return 0;
-        if (isNull1) return nullsHandling.equals("NULLS FIRST") ? -1 : 1;
-        if (isNull2) return nullsHandling.equals("NULLS FIRST") ? 1 : -1;
-        
-        // 2. Type-specific comparison
-        try {
-            if (type.contains("INT")) {
-                // INTEGER comparison
-                long l1 = Long.parseLong(val1);
-                long l2 = Long.parseLong(val2);
-                return Long.compare(l1, l2);
-            } else if (type.contains("REAL") || type.contains("DOUBLE") || type.contains("FLOAT")) {
-                // REAL comparison with epsilon tolerance
-                double d1 = Double.parseDouble(val1);
-                double d2 = Double.parseDouble(val2);
-                if (Math.abs(d1 - d2) < 1e-9) return 0;
-                return Double.compare(d1, d2);
-            } else {
-                // TEXT comparison (lexicographic)
-                return val1.compareTo(val2);
-            }
-        } catch (NumberFormatException e) {
-            // Fallback to string comparison if parsing fails
-            return val1.compareTo(val2);
+    private static SQLite3Column referencedColumn(SQLite3Expression expression) {
+        if (expression instanceof SQLite3ColumnName) {
+            return ((SQLite3ColumnName) expression).getColumn();
         }
-    }
-
-    /**
-     * Component 4: Per-partition comparison.
-     * 
-     * Groups results by partition and compares each partition independently.
-     * This validates the MRUP metamorphic relation:
-     *   For each partition P: Q_union[P] = Q1[P] if P ∈ t1, or Q2[P] if P ∈ t2
-     * 
-     * Returns true if all partitions match, false otherwise.
-     */
-    private boolean comparePerPartition(
-        List<List<String>> q1Results,
-        List<List<String>> q2Results,
-        List<List<String>> qUnionResults,
-        WindowSpec spec,
-        SQLite3MRUPTestCaseLogger logger
-    ) {
-        // Group by partition
-        Map<String, List<List<String>>> q1Partitions = groupByPartition(q1Results, spec);
-        Map<String, List<List<String>>> q2Partitions = groupByPartition(q2Results, spec);
-        Map<String, List<List<String>>> qUnionPartitions = groupByPartition(qUnionResults, spec);
-        
-        // Check each partition in Q_union
-        for (String partition : qUnionPartitions.keySet()) {
-            List<List<String>> unionRows = qUnionPartitions.get(partition);
-            
-            // Determine source (Q1 or Q2)
-            if (q1Partitions.containsKey(partition)) {
-                // This partition should come from Q1
-                List<List<String>> expectedRows = q1Partitions.get(partition);
-                
-                if (!rowsMatch(expectedRows, unionRows, spec)) {
-                    reportPartitionMismatch(partition, expectedRows, unionRows, "Q1", logger);
-                    return false;
-                }
-            } else if (q2Partitions.containsKey(partition)) {
-                // This partition should come from Q2
-                List<List<String>> expectedRows = q2Partitions.get(partition);
-                
-                if (!rowsMatch(expectedRows, unionRows, spec)) {
-                    reportPartitionMismatch(partition, expectedRows, unionRows, "Q2", logger);
-                    return false;
-                }
-            } else {
-                // Partition in Q_union but not in Q1 or Q2 → BUG!
-                System.err.println("BUG: Partition '" + partition + "' found in Q_union but not in Q1 or Q2!");
-                return false;
-            }
+        if (expression instanceof SQLite3PostfixText) {
+            return referencedColumn(((SQLite3PostfixText) expression).getExpression());
         }
-        
-        // Check no partition is missing
-        Set<String> allPartitions = new HashSet<>();
-        allPartitions.addAll(q1Partitions.keySet());
-        allPartitions.addAll(q2Partitions.keySet());
-        
-        if (!allPartitions.equals(qUnionPartitions.keySet())) {
-            Set<String> missing = new HashSet<>(allPartitions);
-            missing.removeAll(qUnionPartitions.keySet());
-            System.err.println("BUG: Missing partitions in Q_union: " + missing);
-            return false;
+        if (expression instanceof SQLite3OrderingTerm) {
+            return referencedColumn(((SQLite3OrderingTerm) expression).getExpression());
         }
-        
-        return true;
-    }
-
-    /**
-     * Group results by partition key.
-     */
-    private Map<String, List<List<String>>> groupByPartition(List<List<String>> results, WindowSpec spec) {
-        Map<String, List<List<String>>> partitions = new HashMap<>();
-        
-        for (List<String> row : results) {
-            String partitionValue = row.get(spec.partitionColumnIndex);
-            partitions.computeIfAbsent(partitionValue, k -> new ArrayList<>()).add(row);
+        if (expression instanceof Sqlite3BinaryOperation) {
+            SQLite3Column left = referencedColumn(((Sqlite3BinaryOperation) expression).getLeft());
+            return left != null ? left : referencedColumn(((Sqlite3BinaryOperation) expression).getRight());
         }
-        
-        return partitions;
+        return null;
     }
 
     /**
-     * Check if two sets of rows match exactly.
+     * Enhanced bug reporting with partition-level details.
      */
-    private boolean rowsMatch(List<List<String>> expected, List<List<String>> actual, WindowSpec spec) {
-        if (expected.size() != actual.size()) {
-            return false;
-        }
-        
-        for (int i = 0; i < expected.size(); i++) {
-            List<String> expectedRow = expected.get(i);
-            List<String> actualRow = actual.get(i);
-            
-            if (expectedRow.size() != actualRow.size()) {
-                return false;
-            }
+    private static void reportMismatch(MRUPComparator.Mismatch mismatch, SQLite3MRUPTestCaseLogger logger) {
+        String partition = mismatch.getPartition();
+        if (mismatch.getExpected().isEmpty()) {
+            // Partition in Q_union but not in Q1 or Q2 → BUG!
+            System.err.println("BUG: Partition '" + partition + "' found in Q_union but not in Q1 or Q2!");
+        } else if (mismatch.getActual().isEmpty()) {
+            System.err.println("BUG: Missing partitions in Q_union: [" + partition + "]");
+        } else {
+            // Log to file
+            logger.logBugDetails(partition, mismatch.getSource(), mismatch.getExpected(), mismatch.getActual());
             
-            for (int j = 0; j < expectedRow.size(); j++) {
-                if (!expectedRow.get(j).equals(actualRow.get(j))) {
-                    return false;
-                }
-            }
+            // Print minimal error to terminal
+            System.err.println("[MRUP] BUG FOUND: Partition '" + partition + "' mismatch (source: "
+                    + mismatch.getSource() + ")");
         }
-        
-        return true;
-    }
-
-    /**
-     * Component 5: Enhanced bug reporting with partition-level details.
-     */
-    private void reportPartitionMismatch(String partition, List<List<String>> expected, 
-                                        List<List<String>> actual, String source,
-                                        SQLite3MRUPTestCaseLogger logger) {
-        // Log to file
-        logger.logBugDetails(partition, source, expected, actual);
-        
-        // Print minimal error to terminal
-        System.err.println("[MRUP] BUG FOUND: Partition '" + partition + "' mismatch (source: " + source + ")");
     }
     
     /**
@@ -1078,24 +820,27 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
     /**
      * Helper: Verify constraints for logging.
      */
-    private Map<String, Boolean> verifyConstraints(String functionType, String windowSpec) {
+    private Map<String, Boolean> verifyConstraints(String functionType,
+                                                   SQLite3WindowFunctionExpression windowFunction) {
         Map<String, Boolean> constraints = new HashMap<>();
         
         // C0: PARTITION BY is mandatory
-        boolean hasPartitionBy = windowSpec.contains("PARTITION BY");
+        boolean hasPartitionBy = !windowFunction.getPartitionBy().isEmpty();
         constraints.put("[C0] PARTITION BY is MANDATORY", hasPartitionBy);
         
         // C1: PARTITION BY uses only dept
-        boolean usesOnlyDept = !windowSpec.contains("PARTITION BY") || 
-                              (windowSpec.contains("PARTITION BY dept") && 
-                               !windowSpec.matches(".*PARTITION BY.*,.*"));
+        boolean usesOnlyDept = true;
+        for (SQLite3Expression term : windowFunction.getPartitionBy()) {
+            SQLite3Column column = referencedColumn(term);
+            usesOnlyDept &= column != null && column.getName().equals("dept");
+        }
         constraints.put("[C1] PARTITION BY only uses 'dept'", usesOnlyDept);
         
         // C2: ORDER BY uses only salary/age
         boolean orderByValid = true;
-        if (windowSpec.contains("ORDER BY")) {
-            String orderPart = windowSpec.substring(windowSpec.indexOf("ORDER BY"));
-            orderByValid = !orderPart.matches(".*ORDER BY[^(]*\\b(?!salary|age)\\w+\\b.*");
+        for (SQLite3Expression term : windowFunction.getOrderBy()) {
+            SQLite3Column column = referencedColumn(term);
+            orderByValid &= column != null && (column.getName().equals("salary") || column.getName().equals("age"));
         }
         constraints.put("[C2] ORDER BY only uses salary/age", orderByValid);
         
@@ -1103,18 +848,13 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
         boolean isRanking = functionType.equals("ROW_NUMBER") || 
                            functionType.equals("RANK") || 
                            functionType.equals("DENSE_RANK");
-        boolean hasFrame = windowSpec.matches(".*(ROWS|RANGE|GROUPS).*");
+        boolean hasFrame = windowFunction.getFrameSpec() != null;
         boolean c3Valid = !isRanking || !hasFrame;
         constraints.put("[C3] No FRAME for ranking functions", c3Valid);
         
         // C4: RANGE only with single ORDER BY
-        boolean c4Valid = true;
-        if (windowSpec.contains("RANGE") && windowSpec.contains("ORDER BY")) {
-            String orderPart = windowSpec.substring(windowSpec.indexOf("ORDER BY"), 
-                                                  windowSpec.indexOf("RANGE"));
-            int commaCount = orderPart.length() - orderPart.replace(",", "").length();
-            c4Valid = commaCount == 0;
-        }
+        boolean c4Valid = !hasFrame || windowFunction.getFrameSpecKind() != SQLite3FrameSpecKind.RANGE
+                || windowFunction.getOrderBy().size() == 1;
         constraints.put("[C4] RANGE only with single ORDER BY", c4Valid);
         
         // C5: Only deterministic functions
@@ -1124,4 +864,3 @@ public class SQLite3MRUPOracle implements TestOracle<SQLite3GlobalState> {
         return constraints;
     }
 }
-
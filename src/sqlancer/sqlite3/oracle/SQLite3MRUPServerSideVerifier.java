@@ -0,0 +1,121 @@
+package sqlancer.sqlite3.oracle;
+
+import java.util.List;
+
+import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Column;
+
+/**
+ * Server-side verification for the MRUP oracle.
+ *
+ * Instead of transferring the full results of Q1, Q2 and Q_union over JDBC, a single query computes, for every
+ * partition, the multiset of rows of (Q1 UNION ALL Q2) and of Q_union and returns only the partitions in which the two
+ * multisets differ. SQLite supports neither EXCEPT ALL nor a built-in row hash, so the multiset difference is expressed
+ * as an EXCEPT ALL emulation: rows are encoded as a storage-class-exact text key, counted per (partition, key) on each
+ * side, and anti-joined against the other side.
+ *
+ * Only the partitions returned by this query need to be fetched and compared in Java (see
+ * {@link #restrictToPartitions}).
+ */
+public final class SQLite3MRUPServerSideVerifier {
+
+    static final String WF_RESULT_COLUMN = "wf_result";
+
+    private SQLite3MRUPServerSideVerifier() {
+    }
+
+    /**
+     * Builds the query that returns one row per mismatching partition, holding the partition value as an SQL literal
+     * (as produced by {@code quote()}), so that it can be used directly in {@link #restrictToPartitions}.
+     *
+     * @param q1
+     *            window query on t1
+     * @param q2
+     *            window query on t2
+     * @param qUnion
+     *            window query on t1 UNION ALL t2
+     * @param columns
+     *            the selected base-table columns (wf_result is appended to them by the window queries)
+     * @param partitionColumn
+     *            the PARTITION BY column
+     *
+     * @return the verification query
+     */
+    public static String buildMismatchingPartitionsQuery(String q1, String q2, String qUnion,
+            List<SQLite3Column> columns, String partitionColumn) {
+        String key = buildRowKey(columns);
+        StringBuilder sb = new StringBuilder();
+        sb.append("WITH mrup_expected AS (SELECT ").append(partitionColumn).append(" AS p, ").append(key)
+                .append(" AS k FROM (").append(q1).append(") UNION ALL SELECT ").append(partitionColumn).append(", ")
+                .append(key).append(" FROM (").append(q2).append(")), ");
+        sb.append("mrup_actual AS (SELECT ").append(partitionColumn).append(" AS p, ").append(key)
+                .append(" AS k FROM (").append(qUnion).append(")), ");
+        sb.append("mrup_expected_counts AS (SELECT p, k, COUNT(*) AS n FROM mrup_expected GROUP BY p, k), ");
+        sb.append("mrup_actual_counts AS (SELECT p, k, COUNT(*) AS n FROM mrup_actual GROUP BY p, k) ");
+        sb.append("SELECT DISTINCT quote(p) FROM (");
+        sb.append("SELECT e.p AS p FROM mrup_expected_counts e LEFT JOIN mrup_actual_counts a ");
+        sb.append("ON e.p IS a.p AND e.k = a.k AND e.n = a.n WHERE a.n IS NULL ");
+        sb.append("UNION ALL ");
+        sb.append("SELECT a.p AS p FROM mrup_actual_counts a LEFT JOIN mrup_expected_counts e ");
+        sb.append("ON a.p IS e.p AND a.k = e.k AND a.n = e.n WHERE e.n IS NULL)");
+        return sb.toString();
+    }
+
+    /**
+     * Encodes a result row as text that distinguishes storage classes (e.g., 5, 5.0 and '5') and NULL, and keeps REAL
+     * values at full precision.
+     */
+    private static String buildRowKey(List<SQLite3Column> columns) {
+        StringBuilder sb = new StringBuilder();
+        for (SQLite3Column column : columns) {
+            appendColumnKey(sb, column.getName());
+            sb.append(" || ',' || ");
+        }
+        appendColumnKey(sb, WF_RESULT_COLUMN);
+        return sb.toString();
+    }
+
+    private static void appendColumnKey(StringBuilder sb, String name) {
+        sb.append("(CASE typeof(").append(name).append(") WHEN 'real' THEN printf('%!.17g', ").append(name)
+                .append(") ELSE quote(").append(name).append(") END)");
+    }
+
+    /**
+     * Restricts a window query to the given partitions. The filter is applied outside of the window query, so the
+     * window function is still evaluated over the complete input. The partitions are listed in a single IN list (and
+     * NULL is checked separately), since a chain of comparisons would exceed SQLite's expression depth limit (1000 by
+     * default) for many mismatching partitions.
+     *
+     * @param query
+     *            one of Q1, Q2, Q_union
+     * @param partitionColumn
+     *            the PARTITION BY column
+     * @param partitionLiterals
+     *            partition values as SQL literals, as returned by {@link #buildMismatchingPartitionsQuery}
+     *
+     * @return the restricted query
+     */
+    public static String restrictToPartitions(String query, String partitionColumn, List<String> partitionLiterals) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT * FROM (").append(query).append(") WHERE ");
+        boolean containsNull = false;
+        int nrValues = 0;
+        for (String literal : partitionLiterals) {
+            if (literal.equals("NULL")) {
+                containsNull = true;
+                continue;
+            }
+            sb.append(nrValues == 0 ? partitionColumn + " IN (" : ", ").append(literal);
+            nrValues++;
+        }
+        if (nrValues != 0) {
+            sb.append(')');
+        }
+        if (containsNull) {
+            sb.append(nrValues == 0 ? "" : " OR ").append(partitionColumn).append(" IS NULL");
+        }
+        if (nrValues == 0 && !containsNull) {
+            sb.append("FALSE");
+        }
+        return sb.toString();
+    }
+}
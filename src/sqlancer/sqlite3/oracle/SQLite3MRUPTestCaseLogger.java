@@ -1,18 +1,14 @@
 package sqlancer.sqlite3.oracle;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Column;
 import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Table;
@@ -21,23 +17,32 @@ import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Table;
  * File-based logger for MRUP test cases.
  * 
  * Instead of logging to terminal (which slows down the oracle), this class
- * writes detailed test case information to files in the mrup_logs/ directory.
+ * collects the structured fields of each test case, which {@link SQLite3MRUPLogWriter}
+ * writes to rolling JSON-lines segments in the mrup_logs/ directory.
  * 
- * Each test case gets its own file with complete information from Step 1 to Step 5.
+ * Each test case becomes one compact record with the fields of Step 1 to Step 5, grouped
+ * like the former METRICS_* lines (schema, tables, mutations, query, constraints, queries,
+ * comparator). The table data and the results are only kept for failing test cases, which
+ * are needed to reproduce them.
  */
 public class SQLite3MRUPTestCaseLogger {
     
-    private static final String LOG_DIR = "mrup_logs";
     private static final boolean LOGGING_ENABLED = Boolean.parseBoolean(
         System.getProperty("mrup.logging.enabled", "false")
     );
     
-    private StringBuilder logBuffer;
+    private static final AtomicLong TEST_CASE_COUNTER = new AtomicLong();
+    
+    private static final int MAX_RESULT_ROWS = 10;
+    
+    private final Map<String, Map<String, Object>> fields = new LinkedHashMap<>();
+    private List<List<String>> t1Data;
+    private List<List<String>> t2Data;
     private String testCaseId;
     private long startTime;
+    private boolean passed = true;
     
     public SQLite3MRUPTestCaseLogger() {
-        this.logBuffer = new StringBuilder();
         this.startTime = System.currentTimeMillis();
         this.testCaseId = generateTestCaseId();
     }
@@ -54,23 +59,16 @@ public class SQLite3MRUPTestCaseLogger {
      */
     private String generateTestCaseId() {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss_SSS");
-        return "mrup_" + sdf.format(new Date());
+        // the counter keeps IDs unique when several test cases start in the same millisecond
+        return "mrup_" + sdf.format(new Date()) + "_" + TEST_CASE_COUNTER.incrementAndGet();
     }
     
-    /**
-     * Log test case header.
-     */
-    public void logHeader() {
-        if (!LOGGING_ENABLED) return;
-        
-        logBuffer.append("╔═══════════════════════════════════════════════════════════════════╗\n");
-        logBuffer.append("║                    MRUP Oracle Test Case                          ║\n");
-        logBuffer.append("╚═══════════════════════════════════════════════════════════════════╝\n\n");
-        logBuffer.append("Test Case ID: ").append(testCaseId).append("\n");
-        logBuffer.append("Timestamp: ").append(new Date()).append("\n\n");
-        
-        // Machine-readable header
-        logBuffer.append("METRICS_START|\n");
+    private Map<String, Object> group(String name) {
+        return fields.computeIfAbsent(name, k -> new LinkedHashMap<>());
+    }
+    
+    private static boolean isNull(String value) {
+        return value == null || value.equals("NULL") || value.equals("<NULL>");
     }
     
     /**
@@ -81,105 +79,53 @@ public class SQLite3MRUPTestCaseLogger {
                              Set<String> t1Partitions, Set<String> t2Partitions) {
         if (!LOGGING_ENABLED) return;
         
-        // Machine-readable schema metrics
-        int numCols = columns.size();
         int numInteger = 0, numReal = 0, numText = 0, numNulls = 0, totalValues = 0;
+        StringBuilder schemaStr = new StringBuilder();
         for (SQLite3Column col : columns) {
             String type = col.getType().toString();
             if (type.contains("INT")) numInteger++;
             else if (type.contains("REAL")) numReal++;
             else if (type.contains("TEXT")) numText++;
+            if (schemaStr.length() > 0) schemaStr.append(", ");
+            schemaStr.append(col.getName()).append(" ").append(col.getType());
         }
         
         // Count NULLs in data
-        for (List<String> row : t1Data) {
-            for (String val : row) {
-                totalValues++;
-                if (val == null || val.equals("NULL") || val.equals("<NULL>")) numNulls++;
-            }
-        }
-        for (List<String> row : t2Data) {
-            for (String val : row) {
-                totalValues++;
-                if (val == null || val.equals("NULL") || val.equals("<NULL>")) numNulls++;
+        for (List<List<String>> data : List.of(t1Data, t2Data)) {
+            for (List<String> row : data) {
+                for (String val : row) {
+                    totalValues++;
+                    if (isNull(val)) numNulls++;
+                }
             }
         }
         
-        logBuffer.append(String.format("METRICS_SCHEMA|num_cols=%d|type_int=%d|type_real=%d|type_text=%d|null_count=%d|total_values=%d|\n",
-            numCols, numInteger, numReal, numText, numNulls, totalValues));
-        logBuffer.append(String.format("METRICS_TABLES|t1_rows=%d|t2_rows=%d|\n", t1Data.size(), t2Data.size()));
-        
-        logBuffer.append("┌───────────────────────────────────────────────────────────────────┐\n");
-        logBuffer.append("│ STEP 1 & 2: Table Schema and Data (Disjoint Partitions)          │\n");
-        logBuffer.append("└───────────────────────────────────────────────────────────────────┘\n\n");
-        
-        // Schema
-        StringBuilder schemaStr = new StringBuilder();
-        for (int i = 0; i < columns.size(); i++) {
-            if (i > 0) schemaStr.append(", ");
-            schemaStr.append(columns.get(i).getName()).append(" ").append(columns.get(i).getType());
-        }
-        logBuffer.append("📋 Schema (both tables):\n");
-        logBuffer.append("   ").append(schemaStr.toString()).append("\n\n");
-        
-        // Table 1 data
-        logBuffer.append("📊 Table t1 (").append(t1.getName()).append("):\n");
-        logTableData(columns, t1Data);
+        Map<String, Object> schema = group("schema");
+        schema.put("columns", schemaStr.toString());
+        schema.put("num_cols", columns.size());
+        schema.put("type_int", numInteger);
+        schema.put("type_real", numReal);
+        schema.put("type_text", numText);
+        schema.put("null_count", numNulls);
+        schema.put("total_values", totalValues);
         
-        // Table 2 data
-        logBuffer.append("\n📊 Table t2 (").append(t2.getName()).append("):\n");
-        logTableData(columns, t2Data);
-        
-        // Partition verification
-        Set<String> overlap = new java.util.HashSet<>(t1Partitions);
+        Set<String> overlap = new HashSet<>(t1Partitions);
         overlap.retainAll(t2Partitions);
         
-        logBuffer.append("\n✓ Partition Verification:\n");
-        logBuffer.append("   t1 partitions: ").append(t1Partitions).append("\n");
-        logBuffer.append("   t2 partitions: ").append(t2Partitions).append("\n");
-        logBuffer.append("   Overlap: ").append(overlap.isEmpty() ? "NONE ✓" : overlap + " ✗").append("\n");
-        logBuffer.append("   Status: ").append(overlap.isEmpty() ? "DISJOINT ✓" : "NOT DISJOINT ✗").append("\n");
-        logBuffer.append("─────────────────────────────────────────────────────────────────────\n\n");
+        Map<String, Object> tables = group("tables");
+        tables.put("t1", t1.getName());
+        tables.put("t2", t2.getName());
+        tables.put("t1_rows", t1Data.size());
+        tables.put("t2_rows", t2Data.size());
+        tables.put("t1_partitions", new ArrayList<>(t1Partitions));
+        tables.put("t2_partitions", new ArrayList<>(t2Partitions));
+        tables.put("disjoint", overlap.isEmpty());
+        
+        // Only written if the test case fails
+        this.t1Data = t1Data;
+        this.t2Data = t2Data;
     }
     
-    /**
-     * Helper to log table data.
-     */
-    private void logTableData(List<SQLite3Column> columns, List<List<String>> data) {
-        // Header
-        logBuffer.append("   ");
-        for (SQLite3Column col : columns) {
-            logBuffer.append(String.format("%-12s ", col.getName()));
-        }
-        logBuffer.append("\n");
-        
-        // Separator
-        logBuffer.append("   ");
-        for (int i = 0; i < columns.size(); i++) {
-            logBuffer.append("------------ ");
-        }
-        logBuffer.append("\n");
-        
-        // Data rows
-        for (List<String> row : data) {
-            logBuffer.append("   ");
-            for (String value : row) {
-                String displayValue = value;
-                if (displayValue.equals("NULL")) {
-                    displayValue = "<NULL>";
-                } else if (displayValue.length() > 10) {
-                    displayValue = displayValue.substring(0, 10);
-                }
-                logBuffer.append(String.format("%-12s ", displayValue));
-            }
-            logBuffer.append("\n");
-        }
-        logBuffer.append("   Total rows: ").append(data.size()).append("\n");
-    }
-    
-    /**
-     * Log constraint verification (now separate from mutation pipeline).
-     */
     /**
      * Helper method to count occurrences of a pattern in a string.
      */
@@ -195,30 +141,18 @@ public class SQLite3MRUPTestCaseLogger {
         return count;
     }
     
+    /**
+     * Log constraint verification (now separate from mutation pipeline).
+     */
     public void logConstraintVerification(Map<String, Boolean> constraints) {
         if (!LOGGING_ENABLED) return;
         
-        // Machine-readable constraint metrics
-        logBuffer.append(String.format("METRICS_CONSTRAINTS|C0=%s|C1=%s|C2=%s|C3=%s|C4=%s|C5=%s|\n",
-            constraints.get("C0"), constraints.get("C1"), constraints.get("C2"),
-            constraints.get("C3"), constraints.get("C4"), constraints.get("C5")));
-        
-        logBuffer.append("┌───────────────────────────────────────────────────────────────────┐\n");
-        logBuffer.append("│ STEP 3B: Constraint Verification                                  │\n");
-        logBuffer.append("└───────────────────────────────────────────────────────────────────┘\n\n");
-        
-        logBuffer.append("📋 Constraint Verification:\n");
-        for (Map.Entry<String, Boolean> entry : constraints.entrySet()) {
-            logBuffer.append("   ").append(entry.getKey()).append(": ");
-            logBuffer.append(entry.getValue() ? "✓ PASS" : "✗ FAIL").append("\n");
-        }
-        
-        logBuffer.append("\n─────────────────────────────────────────────────────────────────────\n\n");
+        group("constraints").putAll(constraints);
     }
     
     /**
-     * Log complete mutation pipeline (replaces individual mutation logs).
-     * Shows end-to-end transformation from base window function to final mutated query.
+     * Log complete mutation pipeline.
+     * Records the end-to-end transformation from base window function to final mutated query.
      * 
      * CORRECTED ORDER: Window Spec → Identity → CASE
      * This ensures identity mutations target the window function, not the CASE wrapper.
@@ -235,11 +169,17 @@ public class SQLite3MRUPTestCaseLogger {
             String finalWindowFunction) {
         if (!LOGGING_ENABLED) return;
         
-        // Machine-readable mutation metrics
-        logBuffer.append(String.format("METRICS_MUTATIONS|window_spec=%s|identity=%s|case_when=%s|\n",
-            windowSpecMutated ? windowSpecMutation : "None",
-            identityMutationType,
-            caseMutationType));
+        Map<String, Object> mutations = group("mutations");
+        mutations.put("window_spec", windowSpecMutated ? windowSpecMutation : "None");
+        mutations.put("identity", identityMutationType);
+        mutations.put("case_when", caseMutationType);
+        if (windowSpecMutated) {
+            mutations.put("after_window_spec", afterWindowSpecMutation);
+        }
+        if (!identityMutationType.equals("None")) {
+            mutations.put("after_identity", afterIdentityMutation);
+        }
+        mutations.put("after_case_when", afterCaseMutation);
         
         // Extract query characteristics from baseWindowFunction
         String funcType = "UNKNOWN";
@@ -260,51 +200,15 @@ public class SQLite3MRUPTestCaseLogger {
         if (baseWindowFunction.contains("ROWS")) frameType = "ROWS";
         else if (baseWindowFunction.contains("RANGE")) frameType = "RANGE";
         
-        logBuffer.append(String.format("METRICS_QUERY|func_type=%s|order_by_cols=%d|has_frame=%s|frame_type=%s|\n",
-            funcType, numOrderCols, hasFrame, frameType));
+        Map<String, Object> query = group("query");
+        query.put("func_type", funcType);
+        query.put("order_by_cols", numOrderCols);
+        query.put("has_frame", hasFrame);
+        query.put("frame_type", frameType);
         
-        logBuffer.append("┌───────────────────────────────────────────────────────────────────┐\n");
-        logBuffer.append("│ STEP 3: Mutation Pipeline (End-to-End Query Transformation)      │\n");
-        logBuffer.append("└───────────────────────────────────────────────────────────────────┘\n\n");
-        
-        logBuffer.append("🔹 BASE WINDOW FUNCTION:\n");
-        logBuffer.append("   ").append(baseWindowFunction).append("\n\n");
-        
-        // Phase 1: Window Spec Mutations
-        logBuffer.append("📍 PHASE 1: Window Spec Mutations\n");
-        if (windowSpecMutated) {
-            logBuffer.append("   ✓ Applied: ").append(windowSpecMutation).append("\n");
-            logBuffer.append("   Result:    ").append(afterWindowSpecMutation).append("\n");
-        } else {
-            logBuffer.append("   ✗ Not Applied\n");
-        }
-        logBuffer.append("\n");
-        
-        // Stage 1: Identity Wrapper Mutations (NOW BEFORE CASE!)
-        logBuffer.append("📍 STAGE 1: Identity Wrapper Mutations\n");
-        if (!identityMutationType.equals("None")) {
-            logBuffer.append("   ✓ Applied: ").append(identityMutationType).append("\n");
-            logBuffer.append("   Result:    ").append(afterIdentityMutation).append("\n");
-        } else {
-            logBuffer.append("   ✗ Not Applied\n");
-        }
-        logBuffer.append("\n");
-        
-        // Phase 3: CASE WHEN Mutations (NOW AFTER IDENTITY!)
-        logBuffer.append("📍 PHASE 3: CASE WHEN Mutations\n");
-        logBuffer.append("   ✓ Applied: ").append(caseMutationType).append("\n");
-        logBuffer.append("   Result:    ").append(afterCaseMutation).append("\n\n");
-        
-        // Summary
-        logBuffer.append("🎯 FINAL QUERY:\n");
-        logBuffer.append("   ").append(finalWindowFunction).append("\n\n");
-        
-        logBuffer.append("📊 MUTATION SUMMARY:\n");
-        logBuffer.append("   • Window Spec:  ").append(windowSpecMutated ? "✓ " + windowSpecMutation : "✗ None").append("\n");
-        logBuffer.append("   • Identity:     ").append(!identityMutationType.equals("None") ? "✓ " + identityMutationType : "✗ None").append("\n");
-        logBuffer.append("   • CASE WHEN:    ✓ ").append(caseMutationType).append("\n");
-        
-        logBuffer.append("\n─────────────────────────────────────────────────────────────────────\n\n");
+        Map<String, Object> queries = group("queries");
+        queries.put("window_function", baseWindowFunction);
+        queries.put("final_window_function", finalWindowFunction);
     }
     
     /**
@@ -313,24 +217,14 @@ public class SQLite3MRUPTestCaseLogger {
     public void logQueries(String q1, String q2, String qUnion) {
         if (!LOGGING_ENABLED) return;
         
-        logBuffer.append("┌───────────────────────────────────────────────────────────────────┐\n");
-        logBuffer.append("│ STEP 4: Generated Queries                                         │\n");
-        logBuffer.append("└───────────────────────────────────────────────────────────────────┘\n\n");
-        
-        logBuffer.append("📝 Q1 (on t1):\n");
-        logBuffer.append("   ").append(q1).append("\n\n");
-        
-        logBuffer.append("📝 Q2 (on t2):\n");
-        logBuffer.append("   ").append(q2).append("\n\n");
-        
-        logBuffer.append("📝 Q_union (on t1 UNION ALL t2):\n");
-        logBuffer.append("   ").append(qUnion).append("\n\n");
-        
-        logBuffer.append("─────────────────────────────────────────────────────────────────────\n\n");
+        Map<String, Object> queries = group("queries");
+        queries.put("q1", q1);
+        queries.put("q2", q2);
+        queries.put("q_union", qUnion);
     }
     
     /**
-     * Log Step 5: Result comparison with detailed results.
+     * Log Step 5: Result comparison, with the first results of failing test cases.
      */
     public void logComparison(int expectedCardinality, int actualCardinality,
                              String partitionColumn, List<String> orderByColumns,
@@ -339,82 +233,30 @@ public class SQLite3MRUPTestCaseLogger {
                              List<List<String>> q2Results,
                              List<List<String>> qUnionResults) {
         if (!LOGGING_ENABLED) return;
+        this.passed &= passed;
         
-        // Machine-readable comparator metrics
         boolean layer1Pass = (expectedCardinality == actualCardinality);
         boolean layer2Pass = true; // normalization always succeeds if layer1 passes
         boolean layer3Pass = passed;
         
-        logBuffer.append(String.format("METRICS_COMPARATOR|layer1=%s|layer2=%s|layer3=%s|overall=%s|\n",
-            layer1Pass, layer2Pass, layer3Pass, passed));
-        
-        logBuffer.append("┌───────────────────────────────────────────────────────────────────┐\n");
-        logBuffer.append("│ STEP 5: Result Comparison (Phase 3: MRUP Normalization)          │\n");
-        logBuffer.append("└───────────────────────────────────────────────────────────────────┘\n\n");
-        
-        logBuffer.append("Layer 1: Cardinality Check\n");
-        logBuffer.append("   Expected: ").append(expectedCardinality).append("\n");
-        logBuffer.append("   Actual:   ").append(actualCardinality).append("\n");
-        logBuffer.append("   ").append(expectedCardinality == actualCardinality ? "✓ PASS" : "✗ FAIL").append("\n\n");
-        
-        logBuffer.append("Layer 2: MRUP Normalization\n");
-        logBuffer.append("   Sorting by: partition (").append(partitionColumn).append(") → ");
-        logBuffer.append("ORDER BY (").append(String.join(", ", orderByColumns)).append(") → wf_result\n");
-        logBuffer.append("   ✓ Results normalized\n\n");
-        
-        logBuffer.append("Layer 3: Per-Partition Comparison\n");
-        logBuffer.append("   ").append(passed ? "✓ PASS - All partitions match!" : "✗ FAIL - Mismatch detected!").append("\n\n");
-        
-        // Add detailed results
-        logBuffer.append("───────────────────────────────────────────────────────────────────────\n");
-        logBuffer.append("DETAILED RESULTS (for manual verification)\n");
-        logBuffer.append("───────────────────────────────────────────────────────────────────────\n\n");
-        
-        // H(t1)
-        logBuffer.append("H(t1) - Window function on t1:\n");
-        logResultSet(q1Results, 10);
-        
-        // H(t2)
-        logBuffer.append("\nH(t2) - Window function on t2:\n");
-        logResultSet(q2Results, 10);
-        
-        // Expected: H(t1) ∪ H(t2)
-        List<List<String>> expected = new ArrayList<>();
-        expected.addAll(q1Results);
-        expected.addAll(q2Results);
-        logBuffer.append("\nExpected: H(t1) ∪ H(t2):\n");
-        logResultSet(expected, 10);
-        
-        // Actual: H(t_union)
-        logBuffer.append("\nActual: H(t_union) - Window function on (t1 UNION ALL t2):\n");
-        logResultSet(qUnionResults, 10);
-        
-        logBuffer.append("\n═══════════════════════════════════════════════════════════════════\n");
-        logBuffer.append(passed ? "✅ MRUP TEST PASSED" : "❌ MRUP TEST FAILED").append("\n");
-        logBuffer.append("═══════════════════════════════════════════════════════════════════\n\n");
+        Map<String, Object> comparator = group("comparator");
+        comparator.put("layer1", layer1Pass);
+        comparator.put("layer2", layer2Pass);
+        comparator.put("layer3", layer3Pass);
+        comparator.put("overall", passed);
+        comparator.put("expected_cardinality", expectedCardinality);
+        comparator.put("actual_cardinality", actualCardinality);
+        comparator.put("partition_column", partitionColumn);
+        comparator.put("order_by_columns", orderByColumns);
+        if (!passed) {
+            comparator.put("q1_results", firstRows(q1Results, MAX_RESULT_ROWS));
+            comparator.put("q2_results", firstRows(q2Results, MAX_RESULT_ROWS));
+            comparator.put("q_union_results", firstRows(qUnionResults, MAX_RESULT_ROWS));
+        }
     }
     
-    /**
-     * Helper to log a result set.
-     */
-    private void logResultSet(List<List<String>> results, int maxRows) {
-        if (results.isEmpty()) {
-            logBuffer.append("   (empty result set)\n");
-            return;
-        }
-        
-        // Show first few rows
-        int rowsToShow = Math.min(maxRows, results.size());
-        for (int i = 0; i < rowsToShow; i++) {
-            logBuffer.append("   Row ").append(i + 1).append(": ");
-            logBuffer.append(results.get(i)).append("\n");
-        }
-        
-        if (results.size() > maxRows) {
-            logBuffer.append("   ... (").append(results.size() - maxRows).append(" more rows)\n");
-        }
-        
-        logBuffer.append("   Total: ").append(results.size()).append(" rows\n");
+    private static List<List<String>> firstRows(List<List<String>> rows, int maxRows) {
+        return new ArrayList<>(rows.subList(0, Math.min(maxRows, rows.size())));
     }
     
     /**
@@ -423,64 +265,32 @@ public class SQLite3MRUPTestCaseLogger {
     public void logBugDetails(String partition, String source, 
                              List<List<String>> expected, List<List<String>> actual) {
         if (!LOGGING_ENABLED) return;
-        
-        logBuffer.append("\n╔═══════════════════════════════════════════════════════════════════╗\n");
-        logBuffer.append("║                    BUG FOUND: MRUP VIOLATION                      ║\n");
-        logBuffer.append("╚═══════════════════════════════════════════════════════════════════╝\n\n");
-        
-        logBuffer.append("Partition: ").append(partition).append("\n");
-        logBuffer.append("Source: ").append(source).append("\n\n");
-        
-        logBuffer.append("Expected (").append(source).append("[").append(partition).append("]):\n");
-        for (int i = 0; i < Math.min(5, expected.size()); i++) {
-            logBuffer.append("  Row ").append(i + 1).append(": ").append(expected.get(i)).append("\n");
-        }
-        if (expected.size() > 5) {
-            logBuffer.append("  ... (").append(expected.size() - 5).append(" more rows)\n");
-        }
-        logBuffer.append("\n");
-        
-        logBuffer.append("Actual (Q_union[").append(partition).append("]):\n");
-        for (int i = 0; i < Math.min(5, actual.size()); i++) {
-            logBuffer.append("  Row ").append(i + 1).append(": ").append(actual.get(i)).append("\n");
-        }
-        if (actual.size() > 5) {
-            logBuffer.append("  ... (").append(actual.size() - 5).append(" more rows)\n");
-        }
-        logBuffer.append("\n");
+        this.passed = false;
+        
+        Map<String, Object> bug = group("bug");
+        bug.put("partition", partition);
+        bug.put("source", source);
+        bug.put("expected", firstRows(expected, 5));
+        bug.put("actual", firstRows(actual, 5));
+        bug.put("expected_rows", expected.size());
+        bug.put("actual_rows", actual.size());
     }
     
     /**
-     * Write log buffer to file.
+     * Hand the finished test case to the asynchronous log writer (the oracle thread does no file I/O).
      */
     public void writeToFile() {
         if (!LOGGING_ENABLED) return;
         
-        try {
-            // Create log directory if it doesn't exist
-            Path logDirPath = Paths.get(LOG_DIR);
-            if (!Files.exists(logDirPath)) {
-                Files.createDirectories(logDirPath);
-            }
-            
-            // Write to file
-            String filename = LOG_DIR + "/" + testCaseId + ".log";
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-                writer.write(logBuffer.toString());
-                
-                // Add execution time
-                long duration = System.currentTimeMillis() - startTime;
-                writer.write("\nExecution Time: " + duration + " ms\n");
-                
-                // Machine-readable timing metric
-                writer.write("METRICS_TIMING|duration_ms=" + duration + "|\n");
-                writer.write("METRICS_END|\n");
-            }
-            
-        } catch (IOException e) {
-            // Silently fail - don't disrupt oracle execution
-            System.err.println("[MRUP Logger] Failed to write log file: " + e.getMessage());
+        long duration = System.currentTimeMillis() - startTime;
+        if (!passed && t1Data != null) {
+            // The table data is needed to reproduce the failing test case (see log_to_sql.py)
+            Map<String, Object> tables = group("tables");
+            tables.put("t1_data", t1Data);
+            tables.put("t2_data", t2Data);
         }
+        
+        SQLite3MRUPLogWriter.getInstance().submit(testCaseId, passed, duration, fields);
     }
     
     /**
@@ -9,6 +9,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import sqlancer.IgnoreMeException;
@@ -270,74 +272,127 @@ public class SQLite3Schema extends AbstractSchema<SQLite3GlobalState, SQLite3Tab
 
     public static SQLite3Schema fromConnection(SQLite3GlobalState globalState) throws SQLException {
         List<SQLite3Table> databaseTables = new ArrayList<>();
-        List<String> indexNames = new ArrayList<>();
         SQLConnection con = globalState.getConnection();
 
         try (Statement s = con.createStatement()) {
             try (ResultSet rs = s.executeQuery("SELECT name, type as category, sql FROM sqlite_master UNION "
                     + "SELECT name, 'temp_table' as category, sql FROM sqlite_temp_master WHERE type='table' UNION SELECT name, 'view' as category, sql FROM sqlite_temp_master WHERE type='view' GROUP BY name;")) {
-                while (rs.next()) {
-                    String tableName = rs.getString("name");
-                    String tableType = rs.getString("category");
-                    boolean isReadOnly;
-                    if (databaseTables.stream().anyMatch(t -> t.getName().contentEquals(tableName))) {
-                        continue;
-                    }
-                    String sqlString = rs.getString("sql") == null ? "" : rs.getString("sql").toLowerCase();
-                    if (tableName.startsWith("sqlite_") || tableType.equals("index") || tableType.equals("trigger")
-                            || tableName.endsWith("_idx") || tableName.endsWith("_docsize")
-                            || tableName.endsWith("_content") || tableName.endsWith("_data")
-                            || tableName.endsWith("_config") || tableName.endsWith("_segdir")
-                            || tableName.endsWith("_stat") || tableName.endsWith("_segments")
-                            || tableName.contains("_")) {
-                        continue; // TODO
-                    } else if (sqlString.contains("using dbstat")) {
-                        isReadOnly = true;
-                    } else if (sqlString.contains("content=''")) {
-                        isReadOnly = true;
-                    } else {
-                        isReadOnly = false;
-                    }
-                    boolean withoutRowid = sqlString.contains("without rowid");
-                    boolean isView = tableType.contentEquals("view");
-                    boolean isVirtual = sqlString.contains("virtual");
-                    boolean isDbStatsTable = sqlString.contains("using dbstat");
-                    List<SQLite3Column> databaseColumns = getTableColumns(con, tableName, sqlString, isView,
-                            isDbStatsTable);
-                    SQLite3Table t = new SQLite3Table(tableName, databaseColumns,
-                            tableType.contentEquals("temp_table") ? TableKind.TEMP : TableKind.MAIN, withoutRowid,
-                            isView, isVirtual, isReadOnly);
-                    if (isRowIdTable(withoutRowid, isView, isVirtual)) {
-                        String rowId = Randomly.fromList(ROWID_STRINGS);
-                        SQLite3Column rowid = new SQLite3Column(rowId, SQLite3DataType.INT, true, null, true);
-                        t.addRowid(rowid);
-                        rowid.setTable(t);
-                    }
-                    for (SQLite3Column c : databaseColumns) {
-                        c.setTable(t);
-                    }
-                    databaseTables.add(t);
-                }
+                readTables(con, rs, databaseTables);
             } catch (SQLException e) {
                 // ignore
             }
-            try (ResultSet rs = s.executeQuery(
-                    "SELECT name FROM SQLite_master WHERE type = 'index' UNION SELECT name FROM sqlite_temp_master WHERE type='index'")) {
-                while (rs.next()) {
-                    String name = rs.getString(1);
-                    if (name.contains("_autoindex")) {
-                        continue;
-                    }
-                    indexNames.add(name);
-                }
-            } catch (SQLException e) {
-                if (!e.getMessage().contains("The database file is locked")) {
-                    throw new AssertionError(e);
+            return new SQLite3Schema(databaseTables, readIndexNames(s));
+        }
+    }
+
+    /**
+     * Creates a schema in which the given tables (and views) are read again from the connection, while all other
+     * tables and (unless indexes might have changed) the index names are taken from this schema. Tables that no longer
+     * exist are removed. If one of the tables already exists, all views are read again as well, since altering a table
+     * can change the columns of the views that use it (e.g., RENAME COLUMN and DROP COLUMN rewrite their definitions).
+     *
+     * @param globalState
+     *            the state whose connection is used
+     * @param tableNames
+     *            the names of the tables that might have been created, dropped or altered
+     * @param indexesChanged
+     *            whether indexes might have been created or dropped
+     *
+     * @return the updated schema
+     *
+     * @throws SQLException
+     *             if the tables cannot be read
+     */
+    public SQLite3Schema withTablesReread(SQLite3GlobalState globalState, List<String> tableNames,
+            boolean indexesChanged) throws SQLException {
+        Set<String> rereadNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        rereadNames.addAll(tableNames);
+        if (getDatabaseTables().stream().anyMatch(t -> !t.isView() && rereadNames.contains(t.getName()))) {
+            getViews().forEach(view -> rereadNames.add(view.getName()));
+        }
+        List<SQLite3Table> databaseTables = getDatabaseTables().stream()
+                .filter(t -> !rereadNames.contains(t.getName())).collect(Collectors.toCollection(ArrayList::new));
+        SQLConnection con = globalState.getConnection();
+
+        try (Statement s = con.createStatement()) {
+            if (!rereadNames.isEmpty()) {
+                String names = rereadNames.stream().map(name -> "'" + name.replace("'", "''") + "'")
+                        .collect(Collectors.joining(", "));
+                String condition = "name COLLATE NOCASE IN (" + names + ")";
+                try (ResultSet rs = s.executeQuery("SELECT name, type as category, sql FROM sqlite_master WHERE "
+                        + condition + " UNION SELECT name, 'temp_table' as category, sql FROM sqlite_temp_master "
+                        + "WHERE type='table' AND " + condition + " UNION SELECT name, 'view' as category, sql "
+                        + "FROM sqlite_temp_master WHERE type='view' AND " + condition)) {
+                    readTables(con, rs, databaseTables);
                 }
+                // keep the (name) order of a full read
+                databaseTables.sort((t1, t2) -> t1.getName().compareTo(t2.getName()));
+            }
+            return new SQLite3Schema(databaseTables, indexesChanged ? readIndexNames(s) : indexNames);
+        }
+    }
+
+    private static void readTables(SQLConnection con, ResultSet rs, List<SQLite3Table> databaseTables)
+            throws SQLException {
+        while (rs.next()) {
+            String tableName = rs.getString("name");
+            String tableType = rs.getString("category");
+            boolean isReadOnly;
+            if (databaseTables.stream().anyMatch(t -> t.getName().contentEquals(tableName))) {
+                continue;
+            }
+            String sqlString = rs.getString("sql") == null ? "" : rs.getString("sql").toLowerCase();
+            if (tableName.startsWith("sqlite_") || tableType.equals("index") || tableType.equals("trigger")
+                    || tableName.endsWith("_idx") || tableName.endsWith("_docsize")
+                    || tableName.endsWith("_content") || tableName.endsWith("_data")
+                    || tableName.endsWith("_config") || tableName.endsWith("_segdir")
+                    || tableName.endsWith("_stat") || tableName.endsWith("_segments") || tableName.contains("_")) {
+                continue; // TODO
+            } else if (sqlString.contains("using dbstat")) {
+                isReadOnly = true;
+            } else if (sqlString.contains("content=''")) {
+                isReadOnly = true;
+            } else {
+                isReadOnly = false;
+            }
+            boolean withoutRowid = sqlString.contains("without rowid");
+            boolean isView = tableType.contentEquals("view");
+            boolean isVirtual = sqlString.contains("virtual");
+            boolean isDbStatsTable = sqlString.contains("using dbstat");
+            List<SQLite3Column> databaseColumns = getTableColumns(con, tableName, sqlString, isView, isDbStatsTable);
+            SQLite3Table t = new SQLite3Table(tableName, databaseColumns,
+                    tableType.contentEquals("temp_table") ? TableKind.TEMP : TableKind.MAIN, withoutRowid, isView,
+                    isVirtual, isReadOnly);
+            if (isRowIdTable(withoutRowid, isView, isVirtual)) {
+                String rowId = Randomly.fromList(ROWID_STRINGS);
+                SQLite3Column rowid = new SQLite3Column(rowId, SQLite3DataType.INT, true, null, true);
+                t.addRowid(rowid);
+                rowid.setTable(t);
             }
+            for (SQLite3Column c : databaseColumns) {
+                c.setTable(t);
+            }
+            databaseTables.add(t);
         }
+    }
 
-        return new SQLite3Schema(databaseTables, indexNames);
+    private static List<String> readIndexNames(Statement s) {
+        List<String> indexNames = new ArrayList<>();
+        try (ResultSet rs = s.executeQuery(
+                "SELECT name FROM SQLite_master WHERE type = 'index' UNION SELECT name FROM sqlite_temp_master WHERE type='index'")) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (name.contains("_autoindex")) {
+                    continue;
+                }
+                indexNames.add(name);
+            }
+        } catch (SQLException e) {
+            if (!e.getMessage().contains("The database file is locked")) {
+                throw new AssertionError(e);
+            }
+        }
+        return indexNames;
     }
 
     // https://www.sqlite.org/rowidtable.html
@@ -368,7 +423,8 @@ public class SQLite3Schema extends AbstractSchema<SQLite3GlobalState, SQLite3Tab
                     SQLite3DataType columnType = getColumnType(columnTypeString);
                     SQLite3CollateSequence collate;
                     if (!isDbStatsTable) {
-                        String columnSql = columnCreates[columnCreateIndex++];
+                        // the definition of a view can have fewer commas than columns (e.g., with *)
+                        String columnSql = isView ? "" : columnCreates[columnCreateIndex++];
                         collate = getCollate(columnSql, isView);
                     } else {
                         collate = SQLite3CollateSequence.BINARY;
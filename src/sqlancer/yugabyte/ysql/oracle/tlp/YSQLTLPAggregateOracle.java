@@ -1,6 +1,5 @@
 package sqlancer.yugabyte.ysql.oracle.tlp;
 
-import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -105,12 +104,6 @@ public class YSQLTLPAggregateOracle extends YSQLTLPBase implements TestOracle<YS
         if (state.getOptions().logEachSelect()) {
             // TODO: refactor me
             state.getLogger().writeCurrent(queryString);
-            try {
-                state.getLogger().getCurrentFileWriter().flush();
-            } catch (IOException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
         }
         String resultString;
         SQLQueryAdapter q = new SQLQueryAdapter(queryString, errors);
@@ -156,4 +156,38 @@ public class TestExpectedErrors {
         assertTrue(errors.errorIsExpected("c"));
         assertFalse(errors.errorIsExpected("aa"));
     }
+
+    @Test
+    public void testOverlappingStrings() {
+        ExpectedErrors errors = new ExpectedErrors();
+        errors.addAll(List.of("constraint failed", "strain", "no such column", "such table"));
+        assertTrue(errors.errorIsExpected("NOT NULL constraint failed: t0.c0"));
+        assertTrue(errors.errorIsExpected("the strain is too high"));
+        assertTrue(errors.errorIsExpected("no such table: t1"));
+        assertFalse(errors.errorIsExpected("no such index: i0"));
+    }
+
+    @Test
+    public void testAddAfterCheck() {
+        ExpectedErrors errors = new ExpectedErrors();
+        errors.add("a");
+        assertFalse(errors.errorIsExpected("b"));
+        errors.add("b");
+        assertTrue(errors.errorIsExpected("b"));
+        errors.addRegexString("c\\d");
+        assertTrue(errors.errorIsExpected("c1"));
+    }
+
+    @Test
+    public void testRegexesWithFlags() {
+        ExpectedErrors errors = new ExpectedErrors();
+        errors.addRegex(Pattern.compile("division by zero", Pattern.CASE_INSENSITIVE));
+        errors.addRegex(Pattern.compile("(x)\\1"));
+        errors.addRegex(Pattern.compile("^overflow$", Pattern.MULTILINE));
+        assertTrue(errors.errorIsExpected("DIVISION BY ZERO"));
+        assertTrue(errors.errorIsExpected("xx"));
+        assertTrue(errors.errorIsExpected("error:\noverflow"));
+        assertFalse(errors.errorIsExpected("xy"));
+        assertFalse(errors.errorIsExpected("integer overflow"));
+    }
 }
@@ -2,11 +2,14 @@ package sqlancer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -106,4 +109,134 @@ public class TestStateToReproduce {
         assertEquals(2, result.getStatements().size());
         assertEquals("INSERT INTO test VALUES (1);", result.getStatements().get(1).getLogString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSharedExpectedErrors() throws IOException {
+        SQLite3Provider provider = new SQLite3Provider();
+        StateToReproduce state = new StateToReproduce("test_shared_errors", provider);
+        for (int i = 0; i < 3; i++) {
+            ExpectedErrors errors = new ExpectedErrors();
+            errors.add("constraint failed");
+            state.logStatement(new SQLQueryAdapter("INSERT INTO test VALUES (" + i + ");", errors));
+        }
+
+        Path file = tempDir.resolve("test_shared_errors.ser");
+        state.serialize(file, true);
+        StateToReproduce result = StateToReproduce.deserialize(file);
+
+        assertEquals(3, result.getStatements().size());
+        assertSame(result.getStatements().get(0).getExpectedErrors(),
+                result.getStatements().get(2).getExpectedErrors());
+        assertTrue(result.getStatements().get(1).getExpectedErrors().errorIsExpected("constraint failed"));
+    }
+
+    @Test
+    public void testRecording() throws IOException {
+        SQLite3Provider provider = new SQLite3Provider();
+        StateToReproduce state = new StateToReproduce("test_recording", provider);
+        state.logStatement("CREATE TABLE test (id INTEGER);");
+        Path file = tempDir.resolve("test_recording.ser");
+        state.startRecording(file, false, 0);
+        state.logStatement("INSERT INTO test VALUES (1);");
+        state.exception = "Test exception message";
+        state.serialize(file);
+
+        StateToReproduce result = StateToReproduce.deserialize(file);
+        assertEquals(2, result.getStatements().size());
+        assertEquals("INSERT INTO test VALUES (1);", result.getStatements().get(1).getLogString());
+        assertEquals("Test exception message", result.getException());
+
+        Path discarded = tempDir.resolve("test_discarded.ser");
+        state.startRecording(discarded, false, 0);
+        state.discardRecording();
+        assertFalse(Files.exists(discarded));
+    }
+
+    @Test
+    public void testTruncatedRecording() throws IOException {
+        for (boolean compress : new boolean[] { false, true }) {
+            SQLite3Provider provider = new SQLite3Provider();
+            StateToReproduce state = new StateToReproduce("test_truncated", provider);
+            Path file = tempDir.resolve("test_truncated" + compress + ".ser");
+            state.startRecording(file, compress, 0);
+            int headerSize = (int) Files.size(file);
+            ExpectedErrors errors = new ExpectedErrors();
+            errors.add("no such table");
+            for (int i = 0; i < 10; i++) {
+                state.logStatement(new SQLQueryAdapter("INSERT INTO test VALUES (" + i + ");", errors));
+            }
+
+            // e.g., after a crash of the JVM: the recorded statements are flushed, but the end record is missing
+            byte[] recorded = Files.readAllBytes(file);
+            try (StateToReproduceFile.Reader reader = StateToReproduceFile.Reader.open(file)) {
+                assertEquals(10, reader.readState().getStatements().size());
+                assertFalse(reader.isComplete());
+            }
+
+            // a file that ends within a record is read up to its last complete record
+            Path truncated = tempDir.resolve("test_truncated_copy.ser");
+            int previousSize = 0;
+            for (int length = headerSize; length <= recorded.length; length++) {
+                Files.write(truncated, Arrays.copyOf(recorded, length));
+                try (StateToReproduceFile.Reader reader = StateToReproduceFile.Reader.open(truncated)) {
+                    List<Query<?>> statements = reader.readState().getStatements();
+                    assertTrue(statements.size() >= previousSize);
+                    for (int i = 0; i < statements.size(); i++) {
+                        assertEquals("INSERT INTO test VALUES (" + i + ");", statements.get(i).getLogString());
+                    }
+                    previousSize = statements.size();
+                }
+            }
+            assertEquals(10, previousSize);
+            state.discardRecording();
+        }
+    }
+
+    @Test
+    public void testRecordingFlushInterval() throws IOException {
+        SQLite3Provider provider = new SQLite3Provider() {
+            @Override
+            public boolean mayCrashProcess() {
+                return false;
+            }
+        };
+        StateToReproduce state = new StateToReproduce("test_flush_interval", provider);
+        Path file = tempDir.resolve("test_flush_interval.ser");
+        state.startRecording(file, false, 60_000);
+        long headerSize = Files.size(file);
+        for (int i = 0; i < 10; i++) {
+            state.logStatement(new SQLQueryAdapter("INSERT INTO test VALUES (" + i + ");"));
+        }
+        // buffered until the interval has passed or the file is completed
+        assertEquals(headerSize, Files.size(file));
+        state.serialize(file);
+        assertEquals(10, StateToReproduce.deserialize(file).getStatements().size());
+
+        state = new StateToReproduce("test_flush_each", provider);
+        Path flushedFile = tempDir.resolve("test_flush_each.ser");
+        state.startRecording(flushedFile, false, 0);
+        headerSize = Files.size(flushedFile);
+        state.logStatement(new SQLQueryAdapter("INSERT INTO test VALUES (0);"));
+        assertTrue(Files.size(flushedFile) > headerSize);
+        state.discardRecording();
+    }
+
+    @Test
+    public void testRecordingErrorsAddedLater() throws IOException {
+        SQLite3Provider provider = new SQLite3Provider();
+        StateToReproduce state = new StateToReproduce("test_errors_added", provider);
+        Path file = tempDir.resolve("test_errors_added.ser");
+        state.startRecording(file, false, 0);
+        ExpectedErrors errors = ExpectedErrors.from("no such table");
+        state.logStatement(new SQLQueryAdapter("INSERT INTO test VALUES (0);", errors));
+        state.logStatement(new SQLQueryAdapter("INSERT INTO test VALUES (1);", errors));
+        errors.add("constraint failed");
+        state.logStatement(new SQLQueryAdapter("INSERT INTO test VALUES (2);", errors));
+        state.serialize(file);
+
+        List<Query<?>> statements = StateToReproduce.deserialize(file).getStatements();
+        assertSame(statements.get(0).getExpectedErrors(), statements.get(1).getExpectedErrors());
+        assertFalse(statements.get(1).getExpectedErrors().errorIsExpected("constraint failed"));
+        assertTrue(statements.get(2).getExpectedErrors().errorIsExpected("constraint failed"));
+    }
+}
@@ -0,0 +1,211 @@
+package sqlancer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.common.query.Query;
+import sqlancer.reducer.VirtualDB.VirtualDBConnection;
+import sqlancer.reducer.VirtualDB.VirtualDBGlobalState;
+import sqlancer.reducer.VirtualDB.VirtualDBOptions;
+import sqlancer.reducer.VirtualDB.VirtualDBProvider;
+import sqlancer.reducer.VirtualDB.VirtualDBQuery;
+
+public class TestStatementReplayer {
+
+    // the databases that are created or restored and the statements that are executed on them, in order
+    private final List<String> events = new ArrayList<>();
+    private final List<DatabaseSnapshot> snapshots = new ArrayList<>();
+    private boolean failSnapshots;
+
+    private final class ReplayTestProvider extends VirtualDBProvider {
+
+        @Override
+        public SQLConnection createDatabase(VirtualDBGlobalState globalState) {
+            events.add("create");
+            return new VirtualDBConnection(null);
+        }
+
+        @Override
+        public DatabaseSnapshot takeSnapshot(VirtualDBGlobalState globalState) throws Exception {
+            if (failSnapshots) {
+                events.add("snapshot failed");
+                throw new Exception("snapshots are not supported");
+            }
+            events.add("snapshot " + snapshots.size());
+            DatabaseSnapshot snapshot = DatabaseSnapshot.inTemporaryFile(".db");
+            snapshots.add(snapshot);
+            return snapshot;
+        }
+
+        @Override
+        public SQLConnection restoreSnapshot(VirtualDBGlobalState globalState, DatabaseSnapshot snapshot) {
+            events.add("restore " + snapshots.indexOf(snapshot));
+            return new VirtualDBConnection(null);
+        }
+
+        @Override
+        public boolean isCapturedBySnapshot(Query<?> query) {
+            return !query.getQueryString().startsWith("PRAGMA");
+        }
+    }
+
+    private final class RecordingQuery extends VirtualDBQuery {
+        private static final long serialVersionUID = 1L;
+
+        RecordingQuery(String query) {
+            super(query);
+        }
+
+        @Override
+        public <G extends GlobalState<?, ?, SQLConnection>> boolean execute(G globalState, String... fills) {
+            events.add(getQueryString());
+            return true;
+        }
+    }
+
+    private List<Query<SQLConnection>> statements(String... queries) {
+        List<Query<SQLConnection>> statements = new ArrayList<>();
+        for (String query : queries) {
+            statements.add(new RecordingQuery(query));
+        }
+        return statements;
+    }
+
+    private static List<Query<SQLConnection>> without(List<Query<SQLConnection>> statements, int index) {
+        List<Query<SQLConnection>> candidate = new ArrayList<>(statements);
+        candidate.remove(index);
+        return candidate;
+    }
+
+    private StatementReplayer<VirtualDBGlobalState, VirtualDBOptions, SQLConnection> createReplayer(
+            boolean useSnapshots) throws Exception {
+        MainOptions options = new MainOptions();
+        Field field = MainOptions.class.getDeclaredField("reduceWithSnapshots");
+        field.setAccessible(true);
+        field.set(options, useSnapshots);
+        return new StatementReplayer<>(new ReplayTestProvider(), options);
+    }
+
+    private static VirtualDBGlobalState createState() {
+        VirtualDBGlobalState state = new VirtualDBGlobalState();
+        state.setState(new VirtualDBProvider().getStateToReproduce("replay_test"));
+        return state;
+    }
+
+    private void replay(StatementReplayer<VirtualDBGlobalState, VirtualDBOptions, SQLConnection> replayer,
+            List<Query<SQLConnection>> statements, int checkpoint) throws Exception {
+        events.clear();
+        replayer.replay(createState(), statements, checkpoint).close();
+    }
+
+    @Test
+    public void testCheckpointIsRestored() throws Exception {
+        List<Query<SQLConnection>> statements = statements("PRAGMA a;", "S1;", "S2;", "S3;");
+        try (StatementReplayer<VirtualDBGlobalState, VirtualDBOptions, SQLConnection> replayer = createReplayer(
+                true)) {
+            replay(replayer, statements, 2);
+            assertEquals(List.of("create", "PRAGMA a;", "S1;", "snapshot 0", "S2;", "S3;"), events);
+            // the prefix is restored, apart from the statement that the snapshot does not capture
+            replay(replayer, without(statements, 2), 2);
+            assertEquals(List.of("restore 0", "PRAGMA a;", "S3;"), events);
+        }
+    }
+
+    @Test
+    public void testLongestFittingCheckpointIsUsed() throws Exception {
+        List<Query<SQLConnection>> statements = statements("PRAGMA a;", "S1;", "S2;", "S3;");
+        try (StatementReplayer<VirtualDBGlobalState, VirtualDBOptions, SQLConnection> replayer = createReplayer(
+                true)) {
+            replay(replayer, statements, 1);
+            assertEquals(List.of("create", "PRAGMA a;", "snapshot 0", "S1;", "S2;", "S3;"), events);
+            replay(replayer, statements, 3);
+            assertEquals(List.of("restore 0", "PRAGMA a;", "S1;", "S2;", "snapshot 1", "S3;"), events);
+            replay(replayer, without(statements, 1), 3);
+            assertEquals(List.of("restore 0", "PRAGMA a;", "S2;", "S3;", "snapshot 2"), events);
+            replay(replayer, statements, 3);
+            assertEquals(List.of("restore 1", "PRAGMA a;", "S3;"), events);
+            // the checkpoint after three statements is longer than the shared prefix
+            replay(replayer, statements, 2);
+            assertEquals(List.of("restore 0", "PRAGMA a;", "S1;", "snapshot 3", "S2;", "S3;"), events);
+        }
+    }
+
+    @Test
+    public void testPrefixIsComparedByIdentity() throws Exception {
+        try (StatementReplayer<VirtualDBGlobalState, VirtualDBOptions, SQLConnection> replayer = createReplayer(
+                true)) {
+            replay(replayer, statements("S1;", "S2;"), 1);
+            // equal, but different statement objects (e.g., after the AST-based reducer changed a statement)
+            replay(replayer, statements("S1;", "S3;"), 1);
+            assertEquals(List.of("create", "S1;", "snapshot 1", "S3;"), events);
+        }
+    }
+
+    @Test
+    public void testOldestCheckpointIsEvicted() throws Exception {
+        List<List<Query<SQLConnection>>> candidates = new ArrayList<>();
+        try (StatementReplayer<VirtualDBGlobalState, VirtualDBOptions, SQLConnection> replayer = createReplayer(
+                true)) {
+            for (int i = 0; i < 9; i++) {
+                candidates.add(statements("S" + i + ";", "T;"));
+                replay(replayer, candidates.get(i), 1);
+            }
+            replay(replayer, candidates.get(8), 1);
+            assertEquals(List.of("restore 8", "T;"), events);
+            replay(replayer, candidates.get(1), 1);
+            assertEquals(List.of("restore 1", "T;"), events);
+            replay(replayer, candidates.get(0), 1);
+            assertEquals(List.of("create", "S0;", "snapshot 9", "T;"), events);
+        }
+    }
+
+    @Test
+    public void testWithoutSnapshots() throws Exception {
+        List<Query<SQLConnection>> statements = statements("S1;", "S2;");
+        try (StatementReplayer<VirtualDBGlobalState, VirtualDBOptions, SQLConnection> replayer = createReplayer(
+                false)) {
+            replay(replayer, statements, 1);
+            replay(replayer, statements, 1);
+            assertEquals(List.of("create", "S1;", "S2;"), events);
+        }
+    }
+
+    @Test
+    public void testFailingSnapshotDisablesSnapshots() throws Exception {
+        failSnapshots = true;
+        List<Query<SQLConnection>> statements = statements("S1;", "S2;");
+        try (StatementReplayer<VirtualDBGlobalState, VirtualDBOptions, SQLConnection> replayer = createReplayer(
+                true)) {
+            replay(replayer, statements, 1);
+            assertEquals(List.of("create", "S1;", "snapshot failed", "S2;"), events);
+            replay(replayer, statements, 1);
+            assertEquals(List.of("create", "S1;", "S2;"), events);
+        }
+    }
+
+    @Test
+    public void testReproducesFromScratch() throws Exception {
+        List<Query<SQLConnection>> statements = statements("PRAGMA a;", "S1;", "S2;");
+        try (StatementReplayer<VirtualDBGlobalState, VirtualDBOptions, SQLConnection> replayer = createReplayer(
+                true)) {
+            replay(replayer, statements, 2);
+            events.clear();
+            VirtualDBGlobalState state = createState();
+            // the checkpoint is not used
+            assertTrue(replayer.reproducesFromScratch(state, statements, s -> true));
+            assertEquals(List.of("create", "PRAGMA a;", "S1;", "S2;"), events);
+            assertEquals(statements, state.getState().getStatements());
+            assertFalse(replayer.reproducesFromScratch(state, statements, s -> {
+                throw new AssertionError();
+            }));
+        }
+    }
+
+}
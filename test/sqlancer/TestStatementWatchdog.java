@@ -0,0 +1,117 @@
+package sqlancer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import sqlancer.common.query.SQLQueryAdapter;
+import sqlancer.common.query.SQLancerResultSet;
+import sqlancer.sqlite3.SQLite3GlobalState;
+
+public class TestStatementWatchdog {
+
+    private static final String HANGING_QUERY = "SELECT hang";
+
+    // counted down when the statement is cancelled
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+
+    /**
+     * A driver that ignores the JDBC query timeout, so that only the watchdog can cancel a statement, and whose
+     * {@link #HANGING_QUERY} runs until it is cancelled.
+     */
+    private Connection createConnection() {
+        Statement[] statement = new Statement[1];
+        ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getStatement":
+                        return statement[0];
+                    case "next":
+                        return false;
+                    default:
+                        return null;
+                    }
+                });
+        statement[0] = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Statement.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "executeQuery":
+                        if (((String) args[0]).startsWith(HANGING_QUERY) && cancelled.await(10, TimeUnit.SECONDS)) {
+                            throw new SQLException("the statement was cancelled");
+                        }
+                        return resultSet;
+                    case "cancel":
+                        cancelled.countDown();
+                        return null;
+                    default:
+                        return null;
+                    }
+                });
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("createStatement")) {
+                        return statement[0];
+                    }
+                    return null;
+                });
+    }
+
+    private static void set(MainOptions options, String name, Object value) throws Exception {
+        Field field = MainOptions.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(options, value);
+    }
+
+    private SQLite3GlobalState startWatchdog() throws Exception {
+        MainOptions options = new MainOptions();
+        set(options, "statementTimeoutSeconds", 1);
+        set(options, "slowStatementSeconds", 1);
+        StatementWatchdog.start(options);
+        SQLite3GlobalState state = new SQLite3GlobalState();
+        state.setConnection(new SQLConnection(createConnection()));
+        return state;
+    }
+
+    @AfterEach
+    public void stopWatchdog() {
+        // the watchdog keeps running, but without timeouts
+        StatementWatchdog.start(new MainOptions());
+    }
+
+    @Test
+    public void testUnclosedResultSetIsNotCancelled() throws Exception {
+        SQLite3GlobalState state = startWatchdog();
+        long nrSlowStatements = Main.nrSlowStatements.get();
+        // like callers that never close the result set
+        SQLancerResultSet result = new SQLQueryAdapter("SELECT 1").executeAndGet(state);
+        assertNotNull(result);
+        Thread.sleep(2500);
+        assertFalse(cancelled.await(0, TimeUnit.SECONDS));
+        assertEquals(nrSlowStatements, Main.nrSlowStatements.get());
+    }
+
+    @Test
+    public void testHangingStatementIsCancelled() throws Exception {
+        SQLite3GlobalState state = startWatchdog();
+        long nrSlowStatements = Main.nrSlowStatements.get();
+        SQLQueryAdapter query = new SQLQueryAdapter(HANGING_QUERY);
+        assertThrows(IgnoreMeException.class, () -> query.executeAndGet(state));
+        assertTrue(cancelled.await(0, TimeUnit.SECONDS));
+        assertEquals(nrSlowStatements + 1, Main.nrSlowStatements.get());
+    }
+
+}
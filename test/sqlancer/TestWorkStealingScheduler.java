@@ -0,0 +1,101 @@
+package sqlancer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.reducer.VirtualDB.VirtualDBConnection;
+import sqlancer.reducer.VirtualDB.VirtualDBGlobalState;
+import sqlancer.reducer.VirtualDB.VirtualDBProvider;
+
+public class TestWorkStealingScheduler {
+
+    private static final Queue<String> CREATED = new ConcurrentLinkedQueue<>();
+    private static final Queue<String> TESTED = new ConcurrentLinkedQueue<>();
+
+    public static class SchedulerTestProvider extends VirtualDBProvider {
+
+        @Override
+        public String getDBMSName() {
+            return "work_stealing_scheduler_test";
+        }
+
+        @Override
+        public SQLConnection createDatabase(VirtualDBGlobalState globalState) throws Exception {
+            CREATED.add(globalState.getDatabaseName());
+            return new VirtualDBConnection(null);
+        }
+
+        @Override
+        public void prepareDatabase(VirtualDBGlobalState globalState) {
+        }
+
+        @Override
+        public Reproducer<VirtualDBGlobalState> testPreparedDatabase(VirtualDBGlobalState globalState) {
+            TESTED.add(globalState.getDatabaseName());
+            return null;
+        }
+
+        @Override
+        public Reproducer<VirtualDBGlobalState> generateAndTestDatabase(VirtualDBGlobalState globalState) {
+            TESTED.add(globalState.getDatabaseName());
+            return null;
+        }
+    }
+
+    private static MainOptions createOptions(int nrPregenerated) throws Exception {
+        MainOptions options = new MainOptions();
+        set(options, "nrConcurrentThreads", 2);
+        set(options, "totalNumberTries", 3);
+        set(options, "maxGeneratedDatabases", 4);
+        set(options, "nrPregeneratedDatabases", nrPregenerated);
+        set(options, "randomSeed", 0L);
+        set(options, "logEachSelect", false);
+        return options;
+    }
+
+    private static void set(MainOptions options, String name, Object value) throws Exception {
+        Field field = MainOptions.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(options, value);
+    }
+
+    private static void run(int nrPregenerated) throws Exception {
+        CREATED.clear();
+        TESTED.clear();
+        MainOptions options = createOptions(nrPregenerated);
+        Main.DBMSExecutorFactory<?, ?, ?> factory = new Main.DBMSExecutorFactory<>(new SchedulerTestProvider(),
+                options);
+        assertFalse(new WorkStealingScheduler(options, factory).run());
+    }
+
+    @Test
+    public void testAllDatabasesAreTested() throws Exception {
+        run(0);
+        assertEquals(3 * 4, TESTED.size());
+        for (int i = 0; i < 3; i++) {
+            String name = "database" + i;
+            assertEquals(4, TESTED.stream().filter(name::equals).count());
+        }
+    }
+
+    @Test
+    public void testPregeneratedDatabases() throws Exception {
+        run(2);
+        // no database is generated beyond --max-generated-databases
+        assertEquals(3 * 4, CREATED.size());
+        assertEquals(3 * 4, TESTED.size());
+        for (String name : List.copyOf(CREATED)) {
+            // the names are used unquoted in the DBMSs' statements
+            assertTrue(name.matches("[a-z][a-z0-9_]*"), name);
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package sqlancer.common.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestStatementJournal {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testReadsAppendedStatements() throws IOException {
+        Path file = dir.resolve("database0-cur.journal");
+        StatementJournal journal = StatementJournal.open(file, 1024);
+        journal.append("CREATE TABLE t0(c0);\n");
+        journal.append("INSERT INTO t0 VALUES ('ä');\n");
+        assertEquals(Arrays.asList("CREATE TABLE t0(c0);\n", "INSERT INTO t0 VALUES ('ä');\n"),
+                StatementJournal.read(file));
+        journal.clear();
+        journal.append("SELECT * FROM t0;\n");
+        assertEquals(Arrays.asList("SELECT * FROM t0;\n"), StatementJournal.read(file));
+    }
+
+    @Test
+    public void testKeepsNewestStatementsWhenFull() throws IOException {
+        Path file = dir.resolve("database1-cur.journal");
+        StatementJournal journal = StatementJournal.open(file, 64);
+        List<String> statements = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String statement = "SELECT " + i + ";\n";
+            journal.append(statement);
+            statements.add(statement);
+        }
+        List<String> read = StatementJournal.read(file);
+        assertEquals(statements.subList(statements.size() - read.size(), statements.size()), read);
+        assertEquals(statements.get(statements.size() - 1), read.get(read.size() - 1));
+    }
+
+    @Test
+    public void testKeepsPrefixWhenFull() throws IOException {
+        Path file = dir.resolve("database2-cur.journal");
+        StatementJournal journal = StatementJournal.open(file, 64);
+        // longer than the data region and than the initial prefix region
+        StringBuilder prefix = new StringBuilder("-- seed value: 0\n");
+        for (int i = 0; i < 1000; i++) {
+            prefix.append("CREATE TABLE t").append(i).append("(c0);\n");
+        }
+        journal.reset(prefix.toString());
+        for (int i = 0; i < 100; i++) {
+            journal.append("SELECT " + i + ";\n");
+        }
+        List<String> read = StatementJournal.read(file);
+        assertEquals(prefix.toString(), read.get(0));
+        assertEquals("SELECT 99;\n", read.get(read.size() - 1));
+
+        journal.reset("-- seed value: 1\n");
+        journal.append("SELECT 0;\n");
+        assertEquals(Arrays.asList("-- seed value: 1\n", "SELECT 0;\n"), StatementJournal.read(file));
+    }
+
+}
@@ -0,0 +1,62 @@
+package sqlancer.common.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TestLatencyHistogram {
+
+    @Test
+    public void testBucketBounds() {
+        for (long value : new long[] { 0, 1, 3, 4, 5, 7, 8, 9, 1000, 123_456_789L, Long.MAX_VALUE }) {
+            int bucket = LatencyHistogram.getBucket(value);
+            assertTrue(LatencyHistogram.getLowerBound(bucket) <= value);
+            if (value != Long.MAX_VALUE) {
+                assertTrue(value < LatencyHistogram.getLowerBound(bucket + 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        for (int percentile : new int[] { 1, 50, 90, 99 }) {
+            long value = snapshot.getPercentileNanos(percentile);
+            long exact = percentile * 10_000L;
+            assertTrue(value >= exact && value <= exact * 1.125, percentile + ": " + value);
+        }
+        assertEquals(1_000_000, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void testSmallAndLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(3, snapshot.getCount());
+        assertEquals(0, snapshot.getPercentileNanos(50));
+        assertEquals(Long.MAX_VALUE, snapshot.getPercentileNanos(100));
+        assertEquals(Long.MAX_VALUE, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void testSince() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        LatencyHistogram.Snapshot previous = histogram.snapshot();
+        histogram.record(8_000_000);
+        LatencyHistogram.Snapshot interval = histogram.snapshot().since(previous);
+        assertEquals(1, interval.getCount());
+        assertEquals(8_000_000, interval.getSumNanos());
+        assertTrue(interval.getPercentileNanos(50) >= 8_000_000);
+    }
+
+}
@@ -0,0 +1,158 @@
+package sqlancer.common.oracle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.IgnoreMeException;
+import sqlancer.MainOptions;
+import sqlancer.SQLConnection;
+import sqlancer.common.gen.NoRECGenerator;
+import sqlancer.common.query.ExpectedErrors;
+import sqlancer.common.schema.AbstractTables;
+import sqlancer.sqlite3.SQLite3GlobalState;
+import sqlancer.sqlite3.SQLite3Provider;
+import sqlancer.sqlite3.ast.SQLite3Constant;
+import sqlancer.sqlite3.ast.SQLite3Expression;
+import sqlancer.sqlite3.ast.SQLite3Expression.Join;
+import sqlancer.sqlite3.ast.SQLite3Select;
+import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Column;
+import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Table;
+
+public class TestPerformanceRegressionOracle {
+
+    private static final String FAST_QUERY = "SELECT 1";
+    private static final String SLOW_QUERY = "WITH RECURSIVE c(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM c "
+            + "WHERE i < 2000000) SELECT COUNT(*) FROM c";
+
+    /**
+     * Generates the given optimized and unoptimized queries, independently of the schema.
+     */
+    private static final class FixedQueryGenerator
+            implements NoRECGenerator<SQLite3Select, Join, SQLite3Expression, SQLite3Table, SQLite3Column> {
+
+        private final String optimizedQuery;
+        private final String unoptimizedQuery;
+
+        FixedQueryGenerator(String optimizedQuery, String unoptimizedQuery) {
+            this.optimizedQuery = optimizedQuery;
+            this.unoptimizedQuery = unoptimizedQuery;
+        }
+
+        @Override
+        public FixedQueryGenerator setTablesAndColumns(AbstractTables<SQLite3Table, SQLite3Column> tables) {
+            return this;
+        }
+
+        @Override
+        public SQLite3Expression generateBooleanExpression() {
+            return SQLite3Constant.createIntConstant(1);
+        }
+
+        @Override
+        public SQLite3Select generateSelect() {
+            return new SQLite3Select();
+        }
+
+        @Override
+        public List<Join> getRandomJoinClauses() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<SQLite3Expression> getTableRefs() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String generateOptimizedQueryString(SQLite3Select select, SQLite3Expression whereCondition,
+                boolean shouldUseAggregate) {
+            return optimizedQuery;
+        }
+
+        @Override
+        public String generateUnoptimizedQueryString(SQLite3Select select, SQLite3Expression whereCondition) {
+            return unoptimizedQuery;
+        }
+    }
+
+    private static void set(MainOptions options, String name, Object value) throws Exception {
+        Field field = MainOptions.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(options, value);
+    }
+
+    private static SQLite3GlobalState createState() throws Exception {
+        MainOptions options = new MainOptions();
+        set(options, "logEachSelect", false);
+        set(options, "performanceRepetitions", 3);
+        SQLite3GlobalState state = new SQLite3GlobalState();
+        state.setMainOptions(options);
+        state.setState(new SQLite3Provider().getStateToReproduce("performance_test"));
+        state.getState().new OracleRunReproductionState();
+        SQLConnection con = new SQLConnection(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        try (Statement s = con.createStatement()) {
+            s.execute("CREATE TABLE t0 (c0 INT)");
+        }
+        state.setConnection(con);
+        return state;
+    }
+
+    private static TestOracle<SQLite3GlobalState> createOracle(SQLite3GlobalState state, String optimizedQuery,
+            String unoptimizedQuery) {
+        return new PerformanceRegressionOracle<>(state, new FixedQueryGenerator(optimizedQuery, unoptimizedQuery),
+                ExpectedErrors.from("no such table"));
+    }
+
+    @Test
+    public void testSlowOptimizedQuery() throws Exception {
+        SQLite3GlobalState state = createState();
+        try (SQLConnection con = state.getConnection()) {
+            TestOracle<SQLite3GlobalState> oracle = createOracle(state, SLOW_QUERY, FAST_QUERY);
+            AssertionError e = assertThrows(AssertionError.class, oracle::check);
+            assertTrue(e.getMessage().contains("slower than the unoptimized query"), e.getMessage());
+            assertNotNull(oracle.getLastReproducer());
+        }
+    }
+
+    @Test
+    public void testSlowUnoptimizedQuery() throws Exception {
+        SQLite3GlobalState state = createState();
+        try (SQLConnection con = state.getConnection()) {
+            TestOracle<SQLite3GlobalState> oracle = createOracle(state, FAST_QUERY, SLOW_QUERY);
+            oracle.check();
+            assertNull(oracle.getLastReproducer());
+        }
+    }
+
+    @Test
+    public void testExpectedError() throws Exception {
+        SQLite3GlobalState state = createState();
+        try (SQLConnection con = state.getConnection()) {
+            TestOracle<SQLite3GlobalState> oracle = createOracle(state, "SELECT * FROM t1", FAST_QUERY);
+            assertThrows(IgnoreMeException.class, oracle::check);
+        }
+    }
+
+    @Test
+    public void testUnexpectedError() throws Exception {
+        SQLite3GlobalState state = createState();
+        try (SQLConnection con = state.getConnection()) {
+            TestOracle<SQLite3GlobalState> oracle = createOracle(state, FAST_QUERY, "SELECT * FROM t0 WHERE c1");
+            AssertionError e = assertThrows(AssertionError.class, oracle::check);
+            assertEquals("SELECT * FROM t0 WHERE c1", e.getMessage());
+            assertTrue(e.getCause().getMessage().contains("no such column"), e.getCause().getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package sqlancer.common.qpg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class TestMutatorRewards {
+
+    // keys of the shared rewards, which no provider uses
+    private static final class FirstProvider {
+    }
+
+    private static final class SecondProvider {
+    }
+
+    @Test
+    public void testConcurrentRewardUpdates() throws InterruptedException {
+        // not the shared rewards, which would keep the updates of earlier runs
+        MutatorRewards rewards = new MutatorRewards(0, 0);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    rewards.add(1, 1);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000.0, rewards.get(1));
+        assertEquals(1, rewards.getBestMutator());
+        rewards.update(0, 10, 0.5);
+        assertEquals(5.0, rewards.get(0));
+    }
+
+    @Test
+    public void testSharedRewards() {
+        AtomicInteger nrInitializations = new AtomicInteger();
+        MutatorRewards rewards = MutatorRewards.getShared(FirstProvider.class, () -> {
+            nrInitializations.incrementAndGet();
+            return new double[] { 1, 2, 3 };
+        });
+        assertSame(rewards, MutatorRewards.getShared(FirstProvider.class, () -> {
+            nrInitializations.incrementAndGet();
+            return new double[0];
+        }));
+        assertEquals(1, nrInitializations.get());
+        assertEquals(3, rewards.getNrMutators());
+        assertNotSame(rewards, MutatorRewards.getShared(SecondProvider.class, () -> new double[] { 1 }));
+    }
+
+}
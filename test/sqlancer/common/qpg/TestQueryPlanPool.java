@@ -0,0 +1,48 @@
+package sqlancer.common.qpg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.Randomly;
+
+public class TestQueryPlanPool {
+
+    @Test
+    public void testEvictsLeastRecentlyObservedPlan() {
+        QueryPlanPool pool = new QueryPlanPool(2);
+        assertTrue(pool.add("plan1", "q1"));
+        assertTrue(pool.add("plan2", "q2"));
+        assertFalse(pool.add("plan1", "q3"));
+        assertTrue(pool.add("plan3", "q4"));
+        assertEquals(2, pool.size());
+        assertTrue(pool.contains("plan1"));
+        assertFalse(pool.contains("plan2"));
+        assertTrue(pool.contains("plan3"));
+    }
+
+    @Test
+    public void testSample() {
+        QueryPlanPool pool = new QueryPlanPool(100);
+        for (int i = 0; i < 10; i++) {
+            pool.add("plan" + i, "q" + i);
+        }
+        List<Map.Entry<String, String>> sample = pool.sample(4, new Randomly(0));
+        assertEquals(4, sample.size());
+        Set<String> plans = new HashSet<>();
+        for (Map.Entry<String, String> entry : sample) {
+            assertEquals(entry.getKey().replace("plan", "q"), entry.getValue());
+            plans.add(entry.getKey());
+        }
+        assertEquals(4, plans.size());
+        assertEquals(10, pool.sample(20, new Randomly(0)).size());
+    }
+
+}
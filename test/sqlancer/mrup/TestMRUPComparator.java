@@ -0,0 +1,170 @@
+package sqlancer.mrup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.common.oracle.mrup.MRUPComparator;
+import sqlancer.common.oracle.mrup.MRUPResult;
+import sqlancer.common.oracle.mrup.MRUPWindowSpec;
+
+public class TestMRUPComparator {
+
+    private static final String WINDOW = "SUM(salary) OVER (PARTITION BY dept ORDER BY salary ASC NULLS LAST)";
+
+    private static MRUPResult query(Connection con, String from) throws Exception {
+        try (Statement s = con.createStatement();
+                ResultSet rs = s.executeQuery("SELECT dept, salary, " + WINDOW + " AS wf_result FROM " + from)) {
+            return MRUPResult.fromResultSet(rs, new HashMap<>());
+        }
+    }
+
+    private static MRUPWindowSpec spec() {
+        MRUPWindowSpec spec = new MRUPWindowSpec("dept", 0, 2);
+        spec.addOrderTerm("salary", 1, false, false);
+        return spec;
+    }
+
+    private static Connection createTables() throws Exception {
+        Connection con = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement s = con.createStatement()) {
+            s.execute("CREATE TABLE t1(dept TEXT, salary INTEGER)");
+            s.execute("CREATE TABLE t2(dept TEXT, salary INTEGER)");
+            s.execute("INSERT INTO t1 VALUES ('HR', 3), ('HR', 1), (NULL, 2), ('Finance', 5)");
+            s.execute("INSERT INTO t2 VALUES ('Sales', 4), ('Sales', 4), ('Marketing', 1)");
+        }
+        return con;
+    }
+
+    @Test
+    void testWindowSpecToSQL() {
+        MRUPWindowSpec spec = spec();
+        spec.addOrderTerm("age", 3, true, true);
+        spec.setFrame("ROWS BETWEEN 1 PRECEDING AND CURRENT ROW");
+        assertEquals("PARTITION BY dept ORDER BY salary ASC NULLS LAST, age DESC NULLS FIRST "
+                + "ROWS BETWEEN 1 PRECEDING AND CURRENT ROW", spec.toSQL());
+    }
+
+    @Test
+    void testMatchingPartitions() throws Exception {
+        try (Connection con = createTables()) {
+            List<Integer> sizes = new ArrayList<>();
+            MRUPComparator.Mismatch mismatch = new MRUPComparator(spec(), sizes::add).compare(query(con, "t1"),
+                    query(con, "t2"), query(con, "(SELECT * FROM t1 UNION ALL SELECT * FROM t2)"));
+            assertNull(mismatch);
+            // NULL, Finance, HR, Marketing, Sales
+            assertEquals(List.of(1, 1, 2, 1, 2), sizes);
+        }
+    }
+
+    @Test
+    void testMismatchingPartition() throws Exception {
+        try (Connection con = createTables()) {
+            // Q_union is evaluated on data in which one salary of Sales differs
+            MRUPComparator.Mismatch mismatch = new MRUPComparator(spec(), size -> {
+            }).compare(query(con, "t1"), query(con, "t2"), query(con,
+                    "(SELECT * FROM t1 UNION ALL SELECT dept, salary + (dept = 'Sales') FROM t2)"));
+            assertNotNull(mismatch);
+            assertEquals("Sales", mismatch.getPartition());
+            assertEquals("Q2", mismatch.getSource());
+            assertEquals(2, mismatch.getExpected().size());
+            assertEquals(2, mismatch.getActual().size());
+        }
+    }
+
+    @Test
+    void testMissingPartition() throws Exception {
+        try (Connection con = createTables()) {
+            MRUPComparator.Mismatch mismatch = new MRUPComparator(spec(), size -> {
+            }).compare(query(con, "t1"), query(con, "t2"),
+                    query(con, "(SELECT * FROM t1 UNION ALL SELECT * FROM t2 WHERE dept <> 'Marketing')"));
+            assertNotNull(mismatch);
+            assertEquals("Marketing", mismatch.getPartition());
+            assertTrue(mismatch.getActual().isEmpty());
+        }
+    }
+
+    // 6000 rows in 41 partitions (including NULL), with the even partitions in t1 and the odd ones in t2
+    private static Connection createLargeTables() throws Exception {
+        Connection con = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement s = con.createStatement()) {
+            s.execute("CREATE TABLE t1(dept TEXT, salary INTEGER)");
+            s.execute("CREATE TABLE t2(dept TEXT, salary INTEGER)");
+            s.execute("CREATE TABLE t(dept TEXT, salary INTEGER)");
+            s.execute("WITH RECURSIVE c(i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM c WHERE i < 5999) "
+                    + "INSERT INTO t SELECT CASE WHEN i % 41 = 40 THEN NULL ELSE 'd' || (i % 41) END, i % 97 FROM c");
+            s.execute("INSERT INTO t1 SELECT * FROM t WHERE dept IS NULL OR CAST(substr(dept, 2) AS INTEGER) % 2 = 0");
+            s.execute("INSERT INTO t2 SELECT * FROM t WHERE CAST(substr(dept, 2) AS INTEGER) % 2 = 1");
+        }
+        return con;
+    }
+
+    private static MRUPComparator.Mismatch compareLarge(Connection con, String union, int parallelThreshold,
+            List<Integer> sizes) throws Exception {
+        return new MRUPComparator(spec(), sizes::add, parallelThreshold).compare(query(con, "t1"), query(con, "t2"),
+                query(con, union));
+    }
+
+    /**
+     * The parallel comparison (used from {@link MRUPComparator#DEFAULT_PARALLEL_COMPARISON_THRESHOLD} rows) must
+     * report the same mismatch and partition sizes as the sequential one.
+     */
+    private static void assertSameMismatch(Connection con, String union) throws Exception {
+        List<Integer> sequentialSizes = new ArrayList<>();
+        List<Integer> parallelSizes = new ArrayList<>();
+        MRUPComparator.Mismatch sequential = compareLarge(con, union, Integer.MAX_VALUE, sequentialSizes);
+        MRUPComparator.Mismatch parallel = compareLarge(con, union,
+                MRUPComparator.DEFAULT_PARALLEL_COMPARISON_THRESHOLD, parallelSizes);
+        if (sequential == null) {
+            assertNull(parallel);
+        } else {
+            assertNotNull(parallel);
+            assertEquals(sequential.getPartition(), parallel.getPartition());
+            assertEquals(sequential.getSource(), parallel.getSource());
+            assertEquals(sequential.getExpected(), parallel.getExpected());
+            assertEquals(sequential.getActual(), parallel.getActual());
+        }
+        sequentialSizes.sort(null);
+        parallelSizes.sort(null);
+        assertEquals(sequentialSizes, parallelSizes);
+    }
+
+    @Test
+    void testParallelMatchingPartitions() throws Exception {
+        try (Connection con = createLargeTables()) {
+            assertSameMismatch(con, "(SELECT * FROM t1 UNION ALL SELECT * FROM t2)");
+        }
+    }
+
+    @Test
+    void testParallelMismatchingPartitions() throws Exception {
+        try (Connection con = createLargeTables()) {
+            // several partitions differ, the first one in normalized order must be reported
+            assertSameMismatch(con, "(SELECT * FROM t1 UNION ALL SELECT dept, salary + (dept IN ('d7', 'd33')) "
+                    + "FROM t2)");
+            assertSameMismatch(con, "(SELECT dept, salary + (dept IS NULL) FROM t1 UNION ALL SELECT * FROM t2)");
+        }
+    }
+
+    @Test
+    void testParallelMissingAndExtraPartitions() throws Exception {
+        try (Connection con = createLargeTables()) {
+            assertSameMismatch(con, "(SELECT * FROM t1 WHERE dept IS NOT 'd12' UNION ALL SELECT * FROM t2)");
+            assertSameMismatch(con, "(SELECT * FROM t1 UNION ALL SELECT * FROM t2 UNION ALL SELECT 'd15x', 1)");
+            assertSameMismatch(con, "(SELECT * FROM t1 UNION ALL SELECT * FROM t2 WHERE dept <> 'd5' "
+                    + "UNION ALL SELECT 'd4a', 1)");
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package sqlancer.mrup;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.common.oracle.mrup.MRUPResult;
+
+public class TestMRUPResult {
+
+    private static MRUPResult query(Connection con, String sql, Map<String, String> pool) throws Exception {
+        try (Statement s = con.createStatement(); ResultSet rs = s.executeQuery(sql)) {
+            return MRUPResult.fromResultSet(rs, pool);
+        }
+    }
+
+    @Test
+    void testTypedValuesAndNulls() throws Exception {
+        try (Connection con = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            Map<String, String> pool = new HashMap<>();
+            MRUPResult r = query(con, "SELECT 1, 1.5, 'a', NULL UNION ALL SELECT NULL, 2, 'b', x'0a'", pool);
+            assertEquals(2, r.getRowCount());
+            assertEquals(4, r.getColumnCount());
+            assertEquals(Arrays.asList("1", "1.5", "a", "NULL"), r.getRow(0));
+            assertEquals(Arrays.asList("NULL", "2", "b", "x'0a'"), r.getRow(1));
+            assertTrue(r.isNull(0, 3));
+            assertFalse(r.isNull(1, 3));
+        }
+    }
+
+    @Test
+    void testEqualityRespectsStorageClass() throws Exception {
+        try (Connection con = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            Map<String, String> pool = new HashMap<>();
+            MRUPResult ints = query(con, "SELECT 5", pool);
+            MRUPResult reals = query(con, "SELECT 5.0", pool);
+            MRUPResult texts = query(con, "SELECT '5'", pool);
+            assertTrue(ints.rowEquals(0, query(con, "SELECT 5", pool), 0));
+            assertFalse(ints.rowEquals(0, reals, 0));
+            assertFalse(ints.rowEquals(0, texts, 0));
+            // numerically equal values are still ordered deterministically
+            assertTrue(ints.compareCell(0, reals, 0, 0, true) < 0);
+            assertTrue(reals.compareCell(0, texts, 0, 0, true) < 0);
+        }
+    }
+
+    @Test
+    void testSortedRowOrderManyRows() throws Exception {
+        try (Connection con = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            try (Statement s = con.createStatement()) {
+                s.execute("CREATE TABLE t(x INT)");
+                for (int i = 0; i < 100; i++) {
+                    s.execute("INSERT INTO t VALUES (" + (i * 37 % 100) + ")");
+                }
+            }
+            MRUPResult r = query(con, "SELECT x FROM t", new HashMap<>());
+            int[] order = r.sortedRowOrder((a, b) -> r.compareCell(a, r, b, 0, true));
+            int[] expected = new int[100];
+            int[] actual = new int[100];
+            for (int i = 0; i < 100; i++) {
+                expected[i] = i;
+                actual[i] = Integer.parseInt(r.getString(order[i], 0));
+            }
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void testGroupRows() throws Exception {
+        try (Connection con = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            MRUPResult r = query(con,
+                    "SELECT 'b' UNION ALL SELECT NULL UNION ALL SELECT 'a' UNION ALL SELECT 'b' UNION ALL SELECT 1"
+                            + " UNION ALL SELECT 1.0 UNION ALL SELECT NULL",
+                    new HashMap<>());
+            List<int[]> groups = r.groupRows(0);
+            // NULL < 1 < 1.0 < 'a' < 'b'
+            assertEquals(5, groups.size());
+            assertArrayEquals(new int[] { 1, 6 }, groups.get(0));
+            assertArrayEquals(new int[] { 4 }, groups.get(1));
+            assertArrayEquals(new int[] { 5 }, groups.get(2));
+            assertArrayEquals(new int[] { 2 }, groups.get(3));
+            assertArrayEquals(new int[] { 0, 3 }, groups.get(4));
+            assertEquals(r.cellKey(0, 0), r.cellKey(3, 0));
+            assertNotEquals(r.cellKey(4, 0), r.cellKey(5, 0));
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package sqlancer.mrup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.common.oracle.mrup.MRUPTablePairGenerator;
+
+public class TestMRUPScaleProfile {
+
+    @Test
+    void testZipfPartitionSizes() {
+        int[] sizes = MRUPTablePairGenerator.zipfPartitionSizes(2000, 20000, 1.0);
+        assertEquals(2000, sizes.length);
+        assertEquals(20000, IntStream.of(sizes).sum());
+        assertTrue(IntStream.of(sizes).allMatch(size -> size >= 1));
+        // the hot partition gets about 18000 / H(2000) ≈ 2200 rows, the first ten partitions more than the last 1000
+        assertEquals(IntStream.of(sizes).max().getAsInt(), sizes[0]);
+        assertTrue(sizes[0] > 1500);
+        assertTrue(IntStream.range(0, 10).map(i -> sizes[i]).sum() > IntStream.range(1000, 2000)
+                .map(i -> sizes[i]).sum());
+    }
+
+    @Test
+    void testUniformPartitionSizes() {
+        int[] sizes = MRUPTablePairGenerator.zipfPartitionSizes(100, 10000, 0);
+        assertEquals(10000, IntStream.of(sizes).sum());
+        assertTrue(IntStream.of(sizes).allMatch(size -> size > 50 && size < 200));
+    }
+
+    @Test
+    void testTooFewRows() {
+        assertThrows(IllegalArgumentException.class, () -> MRUPTablePairGenerator.zipfPartitionSizes(10, 5, 1));
+    }
+
+}
@@ -0,0 +1,83 @@
+package sqlancer.mrup.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sqlancer.sqlite3.oracle.SQLite3MRUPLogWriter;
+
+public class TestSQLiteMRUPLogWriter {
+
+    private static List<String> readLines(Path dir) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (Stream<Path> segments = Files.list(dir)) {
+            for (Path segment : segments.sorted().collect(Collectors.toList())) {
+                lines.addAll(Files.readAllLines(segment, StandardCharsets.UTF_8));
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    void testRollingSegments(@TempDir Path dir) throws Exception {
+        try (SQLite3MRUPLogWriter writer = new SQLite3MRUPLogWriter(dir, 1024, 1000, 0, 1)) {
+            for (int i = 0; i < 100; i++) {
+                Map<String, ?> fields = Map.of("queries", Map.of("q1", "SELECT \"c0\" ✓ " + i));
+                assertTrue(writer.submit("case_" + i, true, i, fields));
+            }
+        }
+        List<String> lines = readLines(dir);
+        assertEquals(100, lines.size());
+        assertEquals("{\"id\":\"case_0\",", lines.get(0).substring(0, 15));
+        assertTrue(lines.get(0).endsWith(",\"passed\":true,\"duration_ms\":0,"
+                + "\"queries\":{\"q1\":\"SELECT \\\"c0\\\" ✓ 0\"}}"));
+        try (Stream<Path> segments = Files.list(dir)) {
+            assertTrue(segments.count() > 1);
+        }
+    }
+
+    @Test
+    void testFailedCasesAreNeverDropped(@TempDir Path dir) throws Exception {
+        try (SQLite3MRUPLogWriter writer = new SQLite3MRUPLogWriter(dir, 2, 1 << 20, 0, 1000)) {
+            for (int i = 0; i < 500; i++) {
+                assertTrue(writer.submit("case_" + i, false, 0, Map.of("tables", Map.of("t1_rows", i))));
+            }
+        }
+        List<String> lines = readLines(dir);
+        assertEquals(500, lines.size());
+        for (int i = 0; i < 500; i++) {
+            assertTrue(lines.get(i).endsWith("\"tables\":{\"t1_rows\":" + i + "}}"));
+        }
+    }
+
+    @Test
+    void testStructuredFields(@TempDir Path dir) throws Exception {
+        Map<String, Object> comparator = new LinkedHashMap<>();
+        comparator.put("overall", false);
+        comparator.put("order_by_columns", List.of("c0", "c1"));
+        comparator.put("q1_results", List.of(List.of("1", "a\nb"), List.of("2", "NULL")));
+        comparator.put("partition_column", null);
+        try (SQLite3MRUPLogWriter writer = new SQLite3MRUPLogWriter(dir, 16, 1 << 20, 0, 1)) {
+            assertTrue(writer.submit("case_0", false, 5, Map.of("comparator", comparator)));
+        }
+        String line = readLines(dir).get(0);
+        assertEquals("{\"id\":\"case_0\",", line.substring(0, 15));
+        assertTrue(line.endsWith(",\"passed\":false,\"duration_ms\":5,\"comparator\":{"
+                + "\"overall\":false,\"order_by_columns\":[\"c0\",\"c1\"],"
+                + "\"q1_results\":[[\"1\",\"a\\nb\"],[\"2\",\"NULL\"]],\"partition_column\":null}}"));
+    }
+
+}
@@ -0,0 +1,26 @@
+package sqlancer.mrup.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.sqlite3.oracle.SQLite3MRUPMetrics;
+
+public class TestSQLiteMRUPMetrics {
+
+    @Test
+    void testSnapshot() {
+        SQLite3MRUPMetrics metrics = SQLite3MRUPMetrics.getInstance();
+        long before = metrics.getCount("test.counter");
+        metrics.increment("test.counter");
+        metrics.increment("test.counter");
+        metrics.record("test.histogram \"quoted\"", 42);
+        assertEquals(before + 2, metrics.getCount("test.counter"));
+        String snapshot = metrics.snapshot();
+        assertTrue(snapshot.contains("\"test.counter\":" + (before + 2)), snapshot);
+        assertTrue(snapshot.contains("\"test.histogram \\\"quoted\\\"\":{\"count\":1,\"mean\":42.0,"
+                + "\"p50\":42,\"p90\":42,\"p99\":42,\"max\":42}"), snapshot);
+    }
+
+}
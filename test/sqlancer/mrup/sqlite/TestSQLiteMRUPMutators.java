@@ -0,0 +1,349 @@
+package sqlancer.mrup.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.sqlite3.SQLite3Visitor;
+import sqlancer.sqlite3.ast.SQLite3Aggregate;
+import sqlancer.sqlite3.ast.SQLite3Aggregate.SQLite3AggregateFunction;
+import sqlancer.sqlite3.ast.SQLite3Constant;
+import sqlancer.sqlite3.ast.SQLite3Expression;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3ColumnName;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3PostfixUnaryOperation;
+import sqlancer.sqlite3.ast.SQLite3Expression.SQLite3PostfixUnaryOperation.PostfixUnaryOperator;
+import sqlancer.sqlite3.ast.SQLite3WindowFunction;
+import sqlancer.sqlite3.ast.SQLite3WindowFunction.WindowFunction;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3FrameSpecKind;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3WindowFunctionFrameSpecBetween;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3WindowFunctionFrameSpecTerm;
+import sqlancer.sqlite3.ast.SQLite3WindowFunctionExpression.SQLite3WindowFunctionFrameSpecTerm.SQLite3WindowFunctionFrameSpecTermKind;
+import sqlancer.sqlite3.oracle.SQLite3MRUPCaseMutator;
+import sqlancer.sqlite3.oracle.SQLite3MRUPIdentityMutator;
+import sqlancer.sqlite3.oracle.SQLite3MRUPIdentityMutator.IdentityMutation;
+import sqlancer.sqlite3.oracle.SQLite3MRUPMutationOperator;
+import sqlancer.sqlite3.oracle.SQLite3MRUPMutationOperator.WindowSpecMutation;
+import sqlancer.sqlite3.schema.SQLite3DataType;
+import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Column;
+
+public class TestSQLiteMRUPMutators {
+
+    // often enough to see every variant of the randomized mutations
+    private static final int REPETITIONS = 1000;
+
+    private static final SQLite3Column DEPT = new SQLite3Column("dept", SQLite3DataType.TEXT, false, false, null);
+    private static final SQLite3Column SALARY = new SQLite3Column("salary", SQLite3DataType.INT, true, false, null);
+    private static final SQLite3Column AGE = new SQLite3Column("age", SQLite3DataType.INT, true, false, null);
+
+    private enum Spec {
+        ROWS_FRAME("SUM(salary) OVER ( PARTITION BY dept ORDER BY salary ROWS BETWEEN  UNBOUNDED PRECEDING AND  "
+                + "CURRENT ROW)"),
+        RANGE_FRAME("SUM(salary) OVER ( PARTITION BY dept ORDER BY salary RANGE BETWEEN  UNBOUNDED PRECEDING AND  "
+                + "CURRENT ROW)"),
+        CURRENT_ROW_TWO_ORDER_BY_TERMS("SUM(salary) OVER ( PARTITION BY dept ORDER BY salary, age ROWS  CURRENT ROW)"),
+        ZERO_OFFSET_FRAME(
+                "SUM(salary) OVER ( PARTITION BY dept ORDER BY salary ROWS BETWEEN 0 PRECEDING AND 0 FOLLOWING)"),
+        NO_ORDER_BY("SUM(salary) OVER ( PARTITION BY dept)"),
+        NO_PARTITION_BY("SUM(salary) OVER ( ORDER BY salary)");
+
+        private final String sql;
+
+        Spec(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private static SQLite3WindowFunctionExpression create(Spec spec) {
+        SQLite3WindowFunctionExpression wf = new SQLite3WindowFunctionExpression(
+                new SQLite3Aggregate(Arrays.asList(column(SALARY)), SQLite3AggregateFunction.SUM));
+        wf.setPartitionBy(new ArrayList<>(spec == Spec.NO_PARTITION_BY ? Collections.emptyList()
+                : Arrays.asList(column(DEPT))));
+        List<SQLite3Expression> orderBy = new ArrayList<>();
+        if (spec != Spec.NO_ORDER_BY) {
+            orderBy.add(column(SALARY));
+        }
+        if (spec == Spec.CURRENT_ROW_TWO_ORDER_BY_TERMS) {
+            orderBy.add(column(AGE));
+        }
+        wf.setOrderBy(orderBy);
+        switch (spec) {
+        case ROWS_FRAME:
+        case RANGE_FRAME:
+            wf.setFrameSpecKind(spec == Spec.ROWS_FRAME ? SQLite3FrameSpecKind.ROWS : SQLite3FrameSpecKind.RANGE);
+            wf.setFrameSpec(new SQLite3WindowFunctionFrameSpecBetween(
+                    new SQLite3WindowFunctionFrameSpecTerm(SQLite3WindowFunctionFrameSpecTermKind.UNBOUNDED_PRECEDING),
+                    new SQLite3WindowFunctionFrameSpecTerm(SQLite3WindowFunctionFrameSpecTermKind.CURRENT_ROW)));
+            break;
+        case CURRENT_ROW_TWO_ORDER_BY_TERMS:
+            wf.setFrameSpecKind(SQLite3FrameSpecKind.ROWS);
+            wf.setFrameSpec(new SQLite3WindowFunctionFrameSpecTerm(SQLite3WindowFunctionFrameSpecTermKind.CURRENT_ROW));
+            break;
+        case ZERO_OFFSET_FRAME:
+            wf.setFrameSpecKind(SQLite3FrameSpecKind.ROWS);
+            wf.setFrameSpec(new SQLite3WindowFunctionFrameSpecBetween(
+                    new SQLite3WindowFunctionFrameSpecTerm(SQLite3Constant.createIntConstant(0),
+                            SQLite3WindowFunctionFrameSpecTermKind.EXPR_PRECEDING),
+                    new SQLite3WindowFunctionFrameSpecTerm(SQLite3Constant.createIntConstant(0),
+                            SQLite3WindowFunctionFrameSpecTermKind.EXPR_FOLLOWING)));
+            break;
+        default:
+            break;
+        }
+        assertEquals(spec.sql, SQLite3Visitor.asString(wf));
+        return wf;
+    }
+
+    private static SQLite3Expression column(SQLite3Column column) {
+        return new SQLite3ColumnName(column, null);
+    }
+
+    /**
+     * The rendered SQL of each deterministic window spec mutation for each spec; specs that are missing are those the
+     * mutation is not applicable to.
+     */
+    private static final Map<WindowSpecMutation, Map<Spec, String>> WINDOW_SPEC_MUTATIONS = new EnumMap<>(
+            WindowSpecMutation.class);
+
+    private static void expect(WindowSpecMutation mutation, Spec spec, String sql) {
+        WINDOW_SPEC_MUTATIONS.computeIfAbsent(mutation, m -> new EnumMap<>(Spec.class)).put(spec, sql);
+    }
+
+    static {
+        // RANGE frames require a single ORDER BY term (C4)
+        expect(WindowSpecMutation.O1_REDUNDANT_ORDER_BY, Spec.ROWS_FRAME, Spec.ROWS_FRAME.sql
+                .replace("ORDER BY salary", "ORDER BY salary, salary"));
+        expect(WindowSpecMutation.O1_REDUNDANT_ORDER_BY, Spec.CURRENT_ROW_TWO_ORDER_BY_TERMS,
+                Spec.CURRENT_ROW_TWO_ORDER_BY_TERMS.sql.replace("ORDER BY salary", "ORDER BY salary, salary"));
+        expect(WindowSpecMutation.O1_REDUNDANT_ORDER_BY, Spec.ZERO_OFFSET_FRAME,
+                Spec.ZERO_OFFSET_FRAME.sql.replace("ORDER BY salary", "ORDER BY salary, salary"));
+        expect(WindowSpecMutation.O1_REDUNDANT_ORDER_BY, Spec.NO_PARTITION_BY,
+                "SUM(salary) OVER ( ORDER BY salary, salary)");
+
+        for (Spec spec : Spec.values()) {
+            if (spec != Spec.NO_ORDER_BY) {
+                expect(WindowSpecMutation.O2_ORDER_PRESERVING_TRANSFORM, spec,
+                        spec.sql.replace("ORDER BY salary", "ORDER BY ((salary)+(0))"));
+            }
+            if (spec != Spec.NO_PARTITION_BY) {
+                expect(WindowSpecMutation.P1_REDUNDANT_PARTITION_BY, spec,
+                        spec.sql.replace("PARTITION BY dept", "PARTITION BY dept, dept"));
+                expect(WindowSpecMutation.P3_ADD_UNIQUE_COLUMN, spec,
+                        spec.sql.replace("PARTITION BY dept", "PARTITION BY dept, dept"));
+            }
+        }
+
+        expect(WindowSpecMutation.F1_SHRINK_FRAME, Spec.ROWS_FRAME,
+                Spec.ROWS_FRAME.sql.replace(" UNBOUNDED PRECEDING", "1 PRECEDING"));
+        expect(WindowSpecMutation.F1_SHRINK_FRAME, Spec.RANGE_FRAME,
+                Spec.RANGE_FRAME.sql.replace(" UNBOUNDED PRECEDING", "1 PRECEDING"));
+
+        expect(WindowSpecMutation.F3_CURRENT_ROW_EQUIVALENCE, Spec.CURRENT_ROW_TWO_ORDER_BY_TERMS,
+                "SUM(salary) OVER ( PARTITION BY dept ORDER BY salary, age ROWS BETWEEN 0 PRECEDING AND 0 FOLLOWING)");
+        expect(WindowSpecMutation.F3_CURRENT_ROW_EQUIVALENCE, Spec.ZERO_OFFSET_FRAME,
+                "SUM(salary) OVER ( PARTITION BY dept ORDER BY salary ROWS  CURRENT ROW)");
+
+        // ROWS → RANGE only with a single ORDER BY term (C4)
+        expect(WindowSpecMutation.F8_SWITCH_ROWS_RANGE, Spec.ROWS_FRAME, Spec.RANGE_FRAME.sql);
+        expect(WindowSpecMutation.F8_SWITCH_ROWS_RANGE, Spec.RANGE_FRAME, Spec.ROWS_FRAME.sql);
+        expect(WindowSpecMutation.F8_SWITCH_ROWS_RANGE, Spec.ZERO_OFFSET_FRAME,
+                Spec.ZERO_OFFSET_FRAME.sql.replace("ROWS", "RANGE"));
+    }
+
+    @Test
+    void testWindowSpecMutations() {
+        for (WindowSpecMutation mutation : WindowSpecMutation.values()) {
+            if (mutation == WindowSpecMutation.V1_ARITHMETIC_IDENTITY) {
+                continue;
+            }
+            Map<Spec, String> expected = WINDOW_SPEC_MUTATIONS.get(mutation);
+            for (Spec spec : Spec.values()) {
+                SQLite3WindowFunctionExpression wf = create(spec);
+                String message = mutation + " on " + spec;
+                assertEquals(expected.containsKey(spec), mutation.isApplicable(wf), message);
+                if (expected.containsKey(spec)) {
+                    assertEquals(expected.get(spec), SQLite3Visitor.asString(mutation.apply(wf)), message);
+                    // the input tree is not changed
+                    assertEquals(spec.sql, SQLite3Visitor.asString(wf), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRangeRequiresSingleOrderByTerm() {
+        SQLite3WindowFunctionExpression range = create(Spec.RANGE_FRAME);
+        assertFalse(WindowSpecMutation.O1_REDUNDANT_ORDER_BY.isApplicable(range));
+        assertFalse(WindowSpecMutation.F8_SWITCH_ROWS_RANGE.isApplicable(create(Spec.CURRENT_ROW_TWO_ORDER_BY_TERMS)));
+        for (int i = 0; i < REPETITIONS; i++) {
+            SQLite3WindowFunctionExpression mutated = SQLite3MRUPMutationOperator.getRandomApplicableMutation(range)
+                    .apply(range);
+            assertEquals(1, mutated.getOrderBy().size(), SQLite3Visitor.asString(mutated));
+        }
+    }
+
+    @Test
+    void testCurrentRowEquivalenceRoundTrip() {
+        for (Spec spec : Arrays.asList(Spec.CURRENT_ROW_TWO_ORDER_BY_TERMS, Spec.ZERO_OFFSET_FRAME)) {
+            SQLite3WindowFunctionExpression mutated = WindowSpecMutation.F3_CURRENT_ROW_EQUIVALENCE
+                    .apply(create(spec));
+            assertTrue(WindowSpecMutation.F3_CURRENT_ROW_EQUIVALENCE.isApplicable(mutated), spec.name());
+            assertEquals(spec.sql,
+                    SQLite3Visitor.asString(WindowSpecMutation.F3_CURRENT_ROW_EQUIVALENCE.apply(mutated)));
+        }
+    }
+
+    @Test
+    void testArithmeticIdentity() {
+        SQLite3WindowFunctionExpression wf = create(Spec.CURRENT_ROW_TWO_ORDER_BY_TERMS);
+        assertFalse(WindowSpecMutation.V1_ARITHMETIC_IDENTITY.isApplicable(create(Spec.NO_ORDER_BY)));
+        assertTrue(WindowSpecMutation.V1_ARITHMETIC_IDENTITY.isApplicable(wf));
+        Set<String> expected = new HashSet<>();
+        for (String identity : Arrays.asList("*(1)", "+(0)", "-(0)")) {
+            expected.add(Spec.CURRENT_ROW_TWO_ORDER_BY_TERMS.sql.replace("salary, age",
+                    "((salary)" + identity + "), age"));
+            expected.add(Spec.CURRENT_ROW_TWO_ORDER_BY_TERMS.sql.replace("salary, age",
+                    "salary, ((age)" + identity + ")"));
+        }
+        assertEquals(expected, renderings(() -> WindowSpecMutation.V1_ARITHMETIC_IDENTITY.apply(wf)));
+    }
+
+    @Test
+    void testNoApplicableMutation() {
+        SQLite3WindowFunctionExpression wf = new SQLite3WindowFunctionExpression(
+                new SQLite3WindowFunction(WindowFunction.ROW_NUMBER));
+        assertNull(SQLite3MRUPMutationOperator.getRandomApplicableMutation(wf));
+    }
+
+    @Test
+    void testIdentityMutations() {
+        Map<IdentityMutation, String> arguments = new EnumMap<>(IdentityMutation.class);
+        arguments.put(IdentityMutation.PLUS_ZERO, "((salary)+(0))");
+        arguments.put(IdentityMutation.MINUS_ZERO, "((salary)-(0))");
+        arguments.put(IdentityMutation.TIMES_ONE, "((salary)*(1))");
+        arguments.put(IdentityMutation.DIVIDE_BY_ONE, "((salary)/(1))");
+        arguments.put(IdentityMutation.ZERO_PLUS, "((0)+(salary))");
+        arguments.put(IdentityMutation.ONE_TIMES, "((1)*(salary))");
+        arguments.put(IdentityMutation.CAST_INTEGER, "CAST(salary AS INTEGER)");
+        arguments.put(IdentityMutation.CAST_REAL, "CAST(salary AS REAL)");
+        arguments.put(IdentityMutation.ROUND, "ROUND(salary, 0)");
+        arguments.put(IdentityMutation.COALESCE, "COALESCE(salary, salary)");
+        arguments.put(IdentityMutation.IFNULL, "IFNULL(salary, salary)");
+        arguments.put(IdentityMutation.PARENTHESES, "(salary)");
+        arguments.put(IdentityMutation.DOUBLE_PARENTHESES, "((salary))");
+        arguments.put(IdentityMutation.PLUS_ZERO_MINUS_ZERO, "((((salary)+(0)))-(0))");
+        arguments.put(IdentityMutation.TIMES_ONE_TIMES_ONE, "((((salary)*(1)))*(1))");
+        assertEquals(IdentityMutation.values().length, arguments.size());
+
+        SQLite3WindowFunctionExpression wf = create(Spec.ROWS_FRAME);
+        assertTrue(SQLite3MRUPIdentityMutator.isApplicable(wf));
+        for (Map.Entry<IdentityMutation, String> argument : arguments.entrySet()) {
+            assertEquals(Spec.ROWS_FRAME.sql.replace("SUM(salary)", "SUM(" + argument.getValue() + ")"),
+                    SQLite3Visitor.asString(SQLite3MRUPIdentityMutator.applyIdentityWrapper(wf, argument.getKey())),
+                    argument.getKey().name());
+        }
+        assertEquals(Spec.ROWS_FRAME.sql, SQLite3Visitor.asString(wf));
+    }
+
+    @Test
+    void testIdentityMutationsNotApplicable() {
+        assertFalse(SQLite3MRUPIdentityMutator.isApplicable(new SQLite3WindowFunctionExpression(
+                new SQLite3Aggregate(Collections.emptyList(), SQLite3AggregateFunction.COUNT_ALL))));
+        assertFalse(SQLite3MRUPIdentityMutator.isApplicable(
+                new SQLite3WindowFunctionExpression(new SQLite3WindowFunction(WindowFunction.ROW_NUMBER))));
+    }
+
+    private static final String WF = Spec.NO_ORDER_BY.sql;
+
+    @Test
+    void testConstantCondition() {
+        assertEquals(set("CASE WHEN ((1)=(1)) THEN NULL ELSE " + WF + " END",
+                "CASE WHEN ((1)=(0)) THEN NULL ELSE " + WF + " END", "CASE WHEN 1 THEN NULL ELSE " + WF + " END",
+                "CASE WHEN 0 THEN NULL ELSE " + WF + " END", "CASE WHEN ((1)=(1)) THEN 0 ELSE " + WF + " END",
+                "CASE WHEN ((1)=(0)) THEN " + WF + " ELSE NULL END"),
+                renderings(() -> SQLite3MRUPCaseMutator.applyConstantCondition(create(Spec.NO_ORDER_BY))));
+    }
+
+    @Test
+    void testWindowFunctionCondition() {
+        Set<String> expected = new HashSet<>();
+        for (int threshold : new int[] { 1, 2, 3, 5, 10 }) {
+            expected.add("CASE WHEN ((" + WF + ")<=(" + threshold + ")) THEN 'TOP' ELSE 'OTHER' END");
+        }
+        expected.add("CASE WHEN (" + WF + " IN (1, 2, 3)) THEN 'TOP_3' ELSE 'OTHER' END");
+        expected.add("CASE WHEN ((" + WF + ") ISNULL) THEN 'NULL_RESULT' ELSE 'HAS_VALUE' END");
+        expected.add("CASE WHEN ((" + WF + ") BETWEEN (1) AND (5)) THEN 'TOP_5' ELSE 'OTHER' END");
+        expected.add("CASE WHEN ((" + WF + ")>(0)) THEN 'POSITIVE' ELSE 'NON_POSITIVE' END");
+        assertEquals(expected,
+                renderings(() -> SQLite3MRUPCaseMutator.applyWindowFunctionCondition(create(Spec.NO_ORDER_BY))));
+    }
+
+    @Test
+    void testDifferentWindowFunctions() {
+        SQLite3Expression condition = new SQLite3PostfixUnaryOperation(PostfixUnaryOperator.ISNULL, column(DEPT));
+        String over = " OVER ( PARTITION BY dept)";
+        assertEquals(set("CASE WHEN ((dept) ISNULL) THEN SUM(salary)" + over + " ELSE COUNT(*)" + over + " END",
+                "CASE WHEN ((dept) ISNULL) THEN ROW_NUMBER()" + over + " ELSE RANK()" + over + " END",
+                "CASE WHEN ((dept) ISNULL) THEN AVG(salary)" + over + " ELSE DENSE_RANK()" + over + " END"),
+                renderings(() -> SQLite3MRUPCaseMutator.applyDifferentWindowFunctions(create(Spec.NO_ORDER_BY),
+                        Arrays.asList(SALARY), condition)));
+    }
+
+    @Test
+    void testIdenticalBranches() {
+        SQLite3Expression condition = new SQLite3PostfixUnaryOperation(PostfixUnaryOperator.ISNULL, column(DEPT));
+        assertEquals("CASE WHEN ((dept) ISNULL) THEN " + WF + " ELSE " + WF + " END", SQLite3Visitor
+                .asString(SQLite3MRUPCaseMutator.applyIdenticalBranches(create(Spec.NO_ORDER_BY), condition)));
+    }
+
+    @Test
+    void testNullHandling() {
+        assertEquals(set("CASE WHEN ((dept) ISNULL) THEN NULL ELSE " + WF + " END",
+                "CASE WHEN ((dept) ISNULL) THEN 0 ELSE " + WF + " END",
+                "CASE WHEN ((dept) NOTNULL) THEN " + WF + " ELSE 0 END"),
+                renderings(() -> SQLite3MRUPCaseMutator.applyNullHandling(create(Spec.NO_ORDER_BY), DEPT)));
+    }
+
+    @Test
+    void testPartitionLocalCondition() {
+        Set<String> expected = new HashSet<>();
+        for (int value : new int[] { 30, 40, 50, 60000, 70000 }) {
+            expected.add("((salary)>(" + value + "))");
+        }
+        expected.add("((salary) ISNULL)");
+        expected.add("((salary) NOTNULL)");
+        expected.add("((salary) BETWEEN (30) AND (50))");
+        expected.add("((((salary)>(40)))AND(((salary) NOTNULL)))");
+        assertEquals(expected,
+                renderings(() -> SQLite3MRUPCaseMutator.generatePartitionLocalCondition(Arrays.asList(SALARY))));
+    }
+
+    /**
+     * The distinct renderings of a randomized mutation ("==" is printed as "=", as the printer picks either).
+     */
+    private static Set<String> renderings(Supplier<SQLite3Expression> mutation) {
+        Set<String> renderings = new HashSet<>();
+        for (int i = 0; i < REPETITIONS; i++) {
+            renderings.add(SQLite3Visitor.asString(mutation.get()).replace("==", "="));
+        }
+        return renderings;
+    }
+
+    private static Set<String> set(String... strings) {
+        return new HashSet<>(Arrays.asList(strings));
+    }
+
+}
@@ -0,0 +1,106 @@
+package sqlancer.mrup.sqlite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.sqlite3.oracle.SQLite3MRUPServerSideVerifier;
+import sqlancer.sqlite3.schema.SQLite3DataType;
+import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Column;
+
+public class TestSQLiteMRUPServerSideVerifier {
+
+    private static final List<SQLite3Column> COLUMNS = Arrays.asList(
+            new SQLite3Column("dept", SQLite3DataType.TEXT, false, false, null),
+            new SQLite3Column("salary", SQLite3DataType.INT, true, false, null));
+
+    private static final String Q1 = "SELECT dept, salary, SUM(salary) OVER (PARTITION BY dept ORDER BY salary) AS wf_result FROM t1";
+    private static final String Q2 = "SELECT dept, salary, SUM(salary) OVER (PARTITION BY dept ORDER BY salary) AS wf_result FROM t2";
+
+    private static List<String> mismatching(Connection con, String qUnion) throws Exception {
+        List<String> result = new ArrayList<>();
+        String query = SQLite3MRUPServerSideVerifier.buildMismatchingPartitionsQuery(Q1, Q2, qUnion, COLUMNS, "dept");
+        try (Statement s = con.createStatement(); ResultSet rs = s.executeQuery(query)) {
+            while (rs.next()) {
+                result.add(rs.getString(1));
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static Connection createTables() throws Exception {
+        Connection con = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement s = con.createStatement()) {
+            s.execute("CREATE TABLE t1(dept TEXT, salary INT)");
+            s.execute("CREATE TABLE t2(dept TEXT, salary INT)");
+            s.execute("INSERT INTO t1 VALUES ('A', 1), ('A', 2), (NULL, 3)");
+            s.execute("INSERT INTO t2 VALUES ('B', 4), ('B', 4)");
+        }
+        return con;
+    }
+
+    @Test
+    void testMatchingPartitions() throws Exception {
+        try (Connection con = createTables()) {
+            String qUnion = "SELECT dept, salary, SUM(salary) OVER (PARTITION BY dept ORDER BY salary) AS wf_result FROM (SELECT * FROM t1 UNION ALL SELECT * FROM t2) AS t_union";
+            assertEquals(Collections.emptyList(), mismatching(con, qUnion));
+        }
+    }
+
+    @Test
+    void testMismatchingPartitions() throws Exception {
+        try (Connection con = createTables()) {
+            // no PARTITION BY: every partition (including NULL) gets a different running sum
+            String qUnion = "SELECT dept, salary, SUM(salary) OVER (ORDER BY salary) AS wf_result FROM (SELECT * FROM t1 UNION ALL SELECT * FROM t2) AS t_union";
+            List<String> partitions = mismatching(con, qUnion);
+            assertEquals(Arrays.asList("'B'", "NULL"), partitions);
+            String restricted = SQLite3MRUPServerSideVerifier.restrictToPartitions(qUnion, "dept", partitions);
+            try (Statement s = con.createStatement();
+                    ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM (" + restricted + ")")) {
+                rs.next();
+                assertEquals(3, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void testRestrictToManyPartitions() throws Exception {
+        try (Connection con = DriverManager.getConnection("jdbc:sqlite::memory:");
+                Statement s = con.createStatement()) {
+            s.execute("CREATE TABLE t1(dept TEXT, salary INT)");
+            s.execute("WITH RECURSIVE c(i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM c WHERE i < 4999) "
+                    + "INSERT INTO t1 SELECT 'd' || i, i FROM c");
+            s.execute("INSERT INTO t1 VALUES (NULL, 0)");
+            // more partitions than the expression depth limit allows for a chain of ORs
+            List<String> partitions = new ArrayList<>();
+            for (int i = 0; i < 5000; i += 2) {
+                partitions.add("'d" + i + "'");
+            }
+            partitions.add("NULL");
+            String restricted = SQLite3MRUPServerSideVerifier.restrictToPartitions(Q1, "dept", partitions);
+            try (ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM (" + restricted + ")")) {
+                rs.next();
+                assertEquals(2501, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void testStorageClassIsPartOfTheRow() throws Exception {
+        try (Connection con = createTables()) {
+            String qUnion = "SELECT dept, salary, CAST(SUM(salary) OVER (PARTITION BY dept ORDER BY salary) AS REAL) AS wf_result FROM (SELECT * FROM t1 UNION ALL SELECT * FROM t2) AS t_union";
+            assertEquals(Arrays.asList("'A'", "'B'", "NULL"), mismatching(con, qUnion));
+        }
+    }
+
+}
@@ -118,6 +118,12 @@ public class TestEnvironment {
         state.getState().setStatements(queries);
     }
 
+    public void setStatementReducerThreads(int nrThreads) throws Exception {
+        Field field = options.getClass().getDeclaredField("statementReducerThreads");
+        field.setAccessible(true);
+        field.set(options, nrThreads);
+    }
+
     public void setBugInducingCondition(Function<List<Query<?>>, Boolean> bugInducingCondition) {
         state.setBugInducingCondition(bugInducingCondition);
         newGlobalState.setBugInducingCondition(bugInducingCondition);
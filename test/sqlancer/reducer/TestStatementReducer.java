@@ -6,6 +6,7 @@ import sqlancer.common.query.Query;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -73,6 +74,47 @@ public class TestStatementReducer {
         assertEquals(queriesString, "Statement_2;\nStatement_318;\nStatement_990;");
     }
 
+    @Test
+    void testDeltaDebuggingInParallel() throws Exception {
+        TestEnvironment env = TestEnvironment.getStatementReducerEnv();
+        env.setStatementReducerThreads(4);
+        List<String> fakeStatements = new ArrayList<>();
+
+        String pattern = "(.*\\n)*(Statement_2;)\\n(.*\\n)*(Statement_318);\\n(.*\\n)*(Statement_990;)(.*\\n)*.*";
+        for (int i = 0; i < 1000; i++) {
+            String statement = "Statement_" + i + ";";
+            fakeStatements.add(statement);
+        }
+
+        env.setInitialStatementsFromStrings(fakeStatements);
+        env.setBugInducingCondition(queryList -> {
+            String queries = TestEnvironment.getQueriesString(queryList);
+            return Pattern.matches(pattern, queries);
+        });
+
+        env.runReduce();
+        List<Query<?>> reducedQueries = env.getReducedStatements();
+        String queriesString = TestEnvironment.getQueriesString(reducedQueries);
+        assertEquals("Statement_2;\nStatement_318;\nStatement_990;", queriesString);
+    }
+
+    @Test
+    void testUnconfirmedReductionIsDiscarded() throws Exception {
+        TestEnvironment env = TestEnvironment.getStatementReducerEnv();
+        String[] queriesStr = { "CREATE TABLE FAKE_TABLE;", "SELECT * FROM FAKE_TABLE;", "EXIT;" };
+        env.setInitialStatementsFromStrings(List.of(queriesStr));
+        AtomicInteger nrReducedChecks = new AtomicInteger();
+        // a flaky bug: the single SELECT triggers it only once, so the final check on a new database fails
+        env.setBugInducingCondition(statements -> {
+            String queriesString = TestEnvironment.getQueriesString(statements);
+            return queriesString.contains("SELECT")
+                    && (statements.size() > 1 || nrReducedChecks.incrementAndGet() == 1);
+        });
+        env.runReduce();
+        assertEquals(2, nrReducedChecks.get());
+        assertEquals(String.join("\n", queriesStr), TestEnvironment.getQueriesString(env.getReducedStatements()));
+    }
+
     @Test
     void testSQLite3WithStatementReducer() {
         Main.executeMain(new String[] { "--random-seed", "0", "--use-reducer", "--timeout-seconds", "60",
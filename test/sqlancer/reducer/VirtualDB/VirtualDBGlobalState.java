@@ -10,7 +10,7 @@ import java.util.function.Function;
 @SuppressWarnings("all")
 public class VirtualDBGlobalState extends SQLGlobalState<VirtualDBOptions, VirtualDBSchema> {
 
-    private SQLConnection virtualConn = new SQLConnection(null);
+    private SQLConnection virtualConn = new VirtualDBConnection(null);
     private StringBuilder queriesStringBuilder = new StringBuilder();
     private Function<List<Query<?>>, Boolean> bugInducingCondition = null;
 
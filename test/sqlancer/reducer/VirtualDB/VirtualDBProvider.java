@@ -35,7 +35,8 @@ public class VirtualDBProvider extends SQLProviderAdapter<VirtualDBGlobalState,
         return state -> {
             if (globalState.getBugInducingCondition() == null)
                 return false;
-            return globalState.getBugInducingCondition().apply(globalState.getState().getStatements());
+            // the statements of the given state, which differs from globalState in the parallel statement reducer
+            return globalState.getBugInducingCondition().apply(state.getState().getStatements());
         };
     }
 
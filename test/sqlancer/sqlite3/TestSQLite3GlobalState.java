@@ -0,0 +1,177 @@
+package sqlancer.sqlite3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.MainOptions;
+import sqlancer.SQLConnection;
+import sqlancer.common.query.SQLQueryAdapter;
+import sqlancer.common.schema.AbstractTable;
+import sqlancer.sqlite3.schema.SQLite3Schema.SQLite3Table;
+
+public class TestSQLite3GlobalState {
+
+    private static final Object[][] SCHEMA_CHANGES = {
+            // statements that do not change the schema
+            { "INSERT INTO t0 VALUES (1)", Collections.emptyList(), false },
+            { "insert or ignore into t0(c0) VALUES (1)", Collections.emptyList(), false },
+            { "REPLACE INTO t0 VALUES (1)", Collections.emptyList(), false },
+            { "UPDATE t0 SET c0 = 1", Collections.emptyList(), false },
+            { "DELETE FROM t0", Collections.emptyList(), false },
+            { "BEGIN TRANSACTION", Collections.emptyList(), false },
+            { "COMMIT", Collections.emptyList(), false },
+            { "END", Collections.emptyList(), false },
+            { "REINDEX", Collections.emptyList(), false },
+            { "  ANALYZE t0", Collections.emptyList(), false },
+            // index changes
+            { "CREATE INDEX i0 ON t0(c0)", Collections.emptyList(), true },
+            { "CREATE UNIQUE INDEX IF NOT EXISTS i0 ON t0(c0)", Collections.emptyList(), true },
+            { "DROP INDEX i0", Collections.emptyList(), true },
+            // created tables and views
+            { "CREATE TABLE t0 (c0 INT)", List.of("t0"), false },
+            { "create temp table if not exists t1(c0)", List.of("t1"), false },
+            { "CREATE TEMPORARY TABLE t2 AS SELECT 1", List.of("t2"), false },
+            { "CREATE VIEW v0 AS SELECT * FROM t0", List.of("v0"), false },
+            { "CREATE TEMP VIEW v1(c0) AS SELECT 1", List.of("v1"), false },
+            // dropped tables and views, with their indexes
+            { "DROP TABLE t0", List.of("t0"), true },
+            { "DROP VIEW IF EXISTS v0", List.of("v0"), true },
+            // altered tables
+            { "ALTER TABLE t0 RENAME TO t1", List.of("t0", "t1"), false },
+            { "ALTER TABLE t0 RENAME COLUMN c0 TO c1", List.of("t0"), false },
+            { "ALTER TABLE t0 ADD COLUMN c1 TEXT", List.of("t0"), false },
+            { "ALTER TABLE t0 DROP COLUMN c0", List.of("t0"), false } };
+
+    // statements whose effect on the schema is unknown, so that the whole schema is read again
+    private static final String[] FULL_READS = { "CREATE VIRTUAL TABLE vt0 USING fts4(c0)",
+            "CREATE TRIGGER tr0 AFTER INSERT ON t0 BEGIN DELETE FROM t1; END", "CREATE TABLE main.t0 (c0)",
+            "DROP TABLE temp.t0", "ALTER TABLE main.t0 RENAME TO t1", "ROLLBACK",
+            "WITH x AS (SELECT 1) INSERT INTO t0 SELECT * FROM x", "PRAGMA legacy_alter_table = ON", "VACUUM",
+            "ATTACH ':memory:' AS db1", "SAVEPOINT s0" };
+
+    @Test
+    public void testSchemaChanges() {
+        for (Object[] schemaChange : SCHEMA_CHANGES) {
+            String statement = (String) schemaChange[0];
+            SQLite3GlobalState.SchemaChange change = SQLite3GlobalState.getSchemaChange(statement);
+            assertNotNull(change, statement);
+            assertEquals(schemaChange[1], change.getTableNames(), statement);
+            assertEquals(schemaChange[2], change.isIndexesChanged(), statement);
+        }
+    }
+
+    @Test
+    public void testFullReads() {
+        for (String statement : FULL_READS) {
+            assertNull(SQLite3GlobalState.getSchemaChange(statement), statement);
+        }
+    }
+
+    @Test
+    public void testStatementsWithoutSchemaChange() {
+        for (String statement : Arrays.asList("INSERT INTO t0 VALUES (1)", "DELETE FROM t0", "COMMIT")) {
+            assertEquals(SQLite3GlobalState.SchemaChange.NONE, SQLite3GlobalState.getSchemaChange(statement));
+        }
+    }
+
+    private static void execute(SQLite3GlobalState state, String sql) throws Exception {
+        try (Statement s = state.getConnection().createStatement()) {
+            s.execute(sql);
+        }
+        state.updateSchema(new SQLQueryAdapter(sql, true));
+    }
+
+    private static List<String> getColumnNames(SQLite3GlobalState state, String tableName) {
+        return state.getSchema().getDatabaseTable(tableName).getColumns().stream().map(c -> c.getName())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testDependentViewsAreReread() throws Exception {
+        SQLite3GlobalState state = new SQLite3GlobalState();
+        state.setMainOptions(new MainOptions());
+        try (SQLConnection con = new SQLConnection(DriverManager.getConnection("jdbc:sqlite::memory:"))) {
+            state.setConnection(con);
+            try (Statement s = con.createStatement()) {
+                s.execute("CREATE TABLE t0 (c0 INT, c1 INT, c2 INT)");
+                s.execute("CREATE VIEW v0 AS SELECT c0 FROM t0");
+                s.execute("CREATE VIEW v1 AS SELECT * FROM t0");
+            }
+            state.updateSchema();
+            // the definitions of the views are rewritten
+            execute(state, "ALTER TABLE t0 RENAME COLUMN c0 TO c3");
+            assertEquals(List.of("c3"), getColumnNames(state, "v0"));
+            execute(state, "ALTER TABLE t0 DROP COLUMN c2");
+            assertEquals(List.of("c3", "c1"), getColumnNames(state, "v1"));
+            execute(state, "ALTER TABLE t0 ADD COLUMN c4 INT");
+            assertEquals(List.of("c3", "c1", "c4"), getColumnNames(state, "v1"));
+            assertEquals(List.of("c3", "c1", "c4"), getColumnNames(state, "t0"));
+        }
+    }
+
+    // each statement, and whether the row count of t0 is derived from its update count rather than counted again
+    private static final Object[][] ROW_COUNT_UPDATES = { { "INSERT INTO t0 VALUES (1), (2), (3)", true },
+            { "INSERT OR IGNORE INTO t0 VALUES (3), (4)", true }, { "DELETE FROM t0 WHERE c0 > 2", true },
+            { "UPDATE t0 SET c0 = c0 + 10", true }, { "BEGIN", true }, { "INSERT INTO t1 VALUES (1)", true },
+            { "COMMIT", true },
+            // the unique constraint fails
+            { "INSERT INTO t0 VALUES (11)", false },
+            // upserts and REPLACE can replace rows, which the update count does not show
+            { "INSERT INTO t0 VALUES (5) ON CONFLICT(c0) DO NOTHING", false }, { "REPLACE INTO t0 VALUES (5)", false },
+            // the trigger changes other tables, so that no row counts are derived afterwards
+            { "CREATE TRIGGER tr0 AFTER INSERT ON t0 BEGIN INSERT INTO t1 VALUES (0); END", false },
+            { "INSERT INTO t0 VALUES (6)", false } };
+
+    private static boolean isRowCountKnown(SQLite3Table table) throws Exception {
+        Field field = AbstractTable.class.getDeclaredField("rowCount");
+        field.setAccessible(true);
+        return (long) field.get(table) != -1;
+    }
+
+    @Test
+    public void testRowCounts() throws Exception {
+        SQLite3GlobalState state = new SQLite3GlobalState();
+        state.setMainOptions(new MainOptions());
+        try (SQLConnection con = new SQLConnection(DriverManager.getConnection("jdbc:sqlite::memory:"))) {
+            state.setConnection(con);
+            try (Statement s = con.createStatement()) {
+                s.execute("CREATE TABLE t0 (c0 INT UNIQUE)");
+                s.execute("CREATE TABLE t1 (c0 INT)");
+            }
+            state.updateSchema();
+            for (Object[] rowCountUpdate : ROW_COUNT_UPDATES) {
+                for (SQLite3Table table : state.getSchema().getDatabaseTables()) {
+                    // counts the rows, which are then cached
+                    table.getNrRows(state);
+                }
+                String sql = (String) rowCountUpdate[0];
+                SQLQueryAdapter q = new SQLQueryAdapter(sql, true);
+                q.execute(state, false);
+                state.updateSchema(q);
+                SQLite3Table t0 = state.getSchema().getDatabaseTable("t0");
+                assertEquals(rowCountUpdate[1], isRowCountKnown(t0), sql);
+                for (SQLite3Table table : state.getSchema().getDatabaseTables()) {
+                    try (Statement s = con.createStatement();
+                            ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM " + table.getName())) {
+                        assertTrue(rs.next());
+                        assertEquals(rs.getLong(1), table.getNrRows(state), sql);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package sqlancer.sqlite3;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.Test;
+
+import sqlancer.DatabaseSnapshot;
+import sqlancer.SQLConnection;
+
+public class TestSQLite3Snapshots {
+
+    @Test
+    public void testNoSnapshotWithinTransaction() throws Exception {
+        SQLite3Provider provider = new SQLite3Provider();
+        SQLite3GlobalState state = new SQLite3GlobalState();
+        try (SQLConnection con = new SQLConnection(DriverManager.getConnection("jdbc:sqlite::memory:"));
+                Statement s = con.createStatement()) {
+            state.setConnection(con);
+            s.execute("CREATE TABLE t0 (c0 INT)");
+            s.execute("BEGIN");
+            s.execute("INSERT INTO t0 VALUES (1)");
+            assertNull(provider.takeSnapshot(state));
+            // the transaction is still open
+            s.execute("COMMIT");
+            try (DatabaseSnapshot snapshot = provider.takeSnapshot(state)) {
+                assertNotNull(snapshot);
+            }
+            // and no transaction is left open by the snapshot
+            s.execute("BEGIN");
+            s.execute("SAVEPOINT sp0");
+            assertNull(provider.takeSnapshot(state));
+        }
+    }
+
+}